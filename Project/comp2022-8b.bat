@@ -1,3 +1,3 @@
 @echo off
 
-call "./build/install/comp2022-8b/bin/comp2022-8b.bat" %*
+call "./build/install/comp2022-8b/bin/comp2022-8b-client.bat" %*
\ No newline at end of file
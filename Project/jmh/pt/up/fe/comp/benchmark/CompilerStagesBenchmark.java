@@ -0,0 +1,189 @@
+package pt.up.fe.comp.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pt.up.fe.comp.SimpleParser;
+import pt.up.fe.comp.analysis.JmmAnalyser;
+import pt.up.fe.comp.jasmin.Jasmin;
+import pt.up.fe.comp.jasmin.bytecode.BytecodeBackend;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.ollir.JmmOptimizer;
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Throughput of each compiler stage in isolation. Run with '-prof gc' (the default of the 'jmh' Gradle task) to also
+ * get the allocation rate per operation.
+ *
+ * <p>
+ * Analysis and the optimizations modify their input in place, so the benchmarks that need it receive a fresh input,
+ * built outside the measured region, on every invocation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompilerStagesBenchmark {
+    private static final String FIXTURES = "test/fixtures/public/";
+    private static final String SYNTHETIC = "synthetic:";
+
+    /**
+     * Name of a public fixture, or 'synthetic:n' for a generated program with n methods.
+     */
+    @Param({ "Life", "QuickSort", "TicTacToe", "MonteCarloPi", "FindMaximum", "Lazysort", "synthetic:10",
+            "synthetic:100" })
+    public String source;
+
+    /**
+     * Number of registers given to the register allocation, 0 to use as few as possible.
+     */
+    @Param({ "0" })
+    public String registers;
+
+    /**
+     * Register allocator, 'graph' coloring or 'linear' scan.
+     */
+    @Param({ "graph", "linear" })
+    public String allocator;
+
+    private Map<String, String> config;
+    private String jmmCode;
+    private String astJson;
+    private String ollirCode;
+
+    private final SimpleParser parser = new SimpleParser();
+    private final JmmAnalyser analyser = new JmmAnalyser();
+    private final JmmOptimizer optimizer = new JmmOptimizer();
+    private final Jasmin backend = new Jasmin();
+    private final BytecodeBackend bytecodeBackend = new BytecodeBackend();
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        config = new HashMap<>();
+        config.put("inputFile", source);
+        config.put("optimize", "true");
+        config.put("registerAllocation", registers);
+        config.put("registerAllocator", allocator);
+        config.put("debug", "false");
+
+        jmmCode = source.startsWith(SYNTHETIC)
+                ? SyntheticPrograms.generate(Integer.parseInt(source.substring(SYNTHETIC.length())))
+                : SpecsIo.read(new File(FIXTURES + source + ".jmm"));
+
+        var parserResult = parser.parse(jmmCode, config);
+        astJson = parserResult.getRootNode().toJson();
+        ollirCode = optimizer.toOllir(optimizer.optimize(analyser.semanticAnalysis(parserResult))).getOllirCode();
+    }
+
+    private JmmParserResult newParserResult() {
+        return new JmmParserResult(JmmNode.fromJson(astJson), new ArrayList<>(), config);
+    }
+
+    @State(Scope.Thread)
+    public static class ParsedInput {
+        JmmParserResult parserResult;
+
+        @Setup(Level.Invocation)
+        public void setup(CompilerStagesBenchmark benchmark) {
+            parserResult = benchmark.newParserResult();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AnalysedInput {
+        JmmSemanticsResult semanticsResult;
+
+        @Setup(Level.Invocation)
+        public void setup(CompilerStagesBenchmark benchmark) {
+            semanticsResult = benchmark.analyser.semanticAnalysis(benchmark.newParserResult());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OptimizedInput {
+        JmmSemanticsResult semanticsResult;
+
+        @Setup(Level.Invocation)
+        public void setup(CompilerStagesBenchmark benchmark) {
+            semanticsResult = benchmark.optimizer.optimize(
+                    benchmark.analyser.semanticAnalysis(benchmark.newParserResult()));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OllirInput {
+        OllirResult ollirResult;
+
+        @Setup(Level.Invocation)
+        public void setup(CompilerStagesBenchmark benchmark) {
+            ollirResult = new OllirResult(benchmark.ollirCode, benchmark.config);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AllocatedInput {
+        OllirResult ollirResult;
+
+        @Setup(Level.Invocation)
+        public void setup(CompilerStagesBenchmark benchmark) {
+            ollirResult = benchmark.optimizer.optimize(new OllirResult(benchmark.ollirCode, benchmark.config));
+        }
+    }
+
+    @Benchmark
+    public JmmParserResult parse() {
+        return parser.parse(jmmCode, config);
+    }
+
+    @Benchmark
+    public JmmSemanticsResult semanticAnalysis(ParsedInput input) {
+        return analyser.semanticAnalysis(input.parserResult);
+    }
+
+    @Benchmark
+    public JmmSemanticsResult optimizeAst(AnalysedInput input) {
+        return optimizer.optimize(input.semanticsResult);
+    }
+
+    @Benchmark
+    public OllirResult toOllir(OptimizedInput input) {
+        return optimizer.toOllir(input.semanticsResult);
+    }
+
+    @Benchmark
+    public OllirResult registerAllocation(OllirInput input) {
+        return optimizer.optimize(input.ollirResult);
+    }
+
+    @Benchmark
+    public JasminResult toJasmin(AllocatedInput input) {
+        return backend.toJasmin(input.ollirResult);
+    }
+
+    @Benchmark
+    public byte[] toClassFile(AllocatedInput input) {
+        return bytecodeBackend.toJasmin(input.ollirResult).getClassBytes();
+    }
+}
@@ -0,0 +1,105 @@
+package pt.up.fe.comp.benchmark;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.specs.comp.ollir.ClassUnit;
+
+import pt.up.fe.comp.SimpleParser;
+import pt.up.fe.comp.analysis.JmmAnalyser;
+import pt.up.fe.comp.jasmin.JvmGenerator;
+import pt.up.fe.comp.jasmin.bytecode.ClassFileWriter;
+import pt.up.fe.comp.jasmin.model.JvmClass;
+import pt.up.fe.comp.jasmin.model.JvmMethod;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.ollir.JmmOptimizer;
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Instruction selection on the 'inst_selection' checkpoint fixtures. Besides the time to select the instructions of a
+ * class, reports the size in bytes of the code of its methods ('codeBytes'), which is what the selection minimizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InstructionSelectionBenchmark {
+    private static final String FIXTURES = "test/fixtures/public/cpf/5_optimizations/inst_selection/";
+
+    @Param({ "InstSelection_bipush_6", "InstSelection_bipush_127", "InstSelection_iconst_0", "InstSelection_iconst_5",
+            "InstSelection_if_lt", "InstSelection_iinc", "InstSelection_ldc_32768", "InstSelection_load_1",
+            "InstSelection_load_3", "InstSelection_load_4", "InstSelection_sipush_128", "InstSelection_sipush_32767",
+            "InstSelection_store_1", "InstSelection_store_3", "InstSelection_store_4" })
+    public String source;
+
+    private String ollirCode;
+    private Map<String, String> config;
+
+    private final ClassFileWriter classFileWriter = new ClassFileWriter();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class CodeSize {
+        public long codeBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            codeBytes = 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OllirInput {
+        ClassUnit ollirClass;
+
+        @Setup(Level.Invocation)
+        public void setup(InstructionSelectionBenchmark benchmark) {
+            ollirClass = new OllirResult(benchmark.ollirCode, benchmark.config).getOllirClass();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        config = new HashMap<>();
+        config.put("inputFile", source);
+        config.put("optimize", "false");
+        config.put("registerAllocation", "-1");
+        config.put("debug", "false");
+
+        var jmmCode = SpecsIo.read(new File(FIXTURES + source + ".jmm"));
+        var optimizer = new JmmOptimizer();
+        var semanticsResult = new JmmAnalyser().semanticAnalysis(new SimpleParser().parse(jmmCode, config));
+        ollirCode = optimizer.toOllir(optimizer.optimize(semanticsResult)).getOllirCode();
+    }
+
+    @Benchmark
+    public JvmClass select(OllirInput input, CodeSize codeSize) {
+        var jvmClass = new JvmGenerator().generate(input.ollirClass);
+
+        // Counted once per iteration, so 'codeBytes' is the size of the class and not a rate
+        if (codeSize.codeBytes == 0) {
+            for (JvmMethod method : jvmClass.getMethods()) {
+                codeSize.codeBytes += classFileWriter.getCodeSize(method.getCode());
+            }
+        }
+
+        return jvmClass;
+    }
+}
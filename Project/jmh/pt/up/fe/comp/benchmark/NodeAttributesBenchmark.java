@@ -0,0 +1,69 @@
+package pt.up.fe.comp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pt.up.fe.comp.ast.Operator;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+
+/**
+ * Size and cost of the attributes of a node. 'newNode' builds a BinOp with the attributes the parser gives it, so
+ * with '-prof gc', as used by 'gradle jmh', its gc.alloc.rate.norm is the size of a node in bytes. The other
+ * benchmarks read the attributes as the later stages do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NodeAttributesBenchmark {
+
+    private int line;
+    private JmmNode node;
+
+    @Setup
+    public void setup() {
+        line = 12;
+        node = newBinOp(line);
+    }
+
+    private static JmmNode newBinOp(int line) {
+        var binOp = new JmmNodeImpl("BinOp");
+        binOp.put("line", line);
+        binOp.put("col", 8);
+        binOp.put("op", "ADD");
+        return binOp;
+    }
+
+    @Benchmark
+    public JmmNode newNode() {
+        return newBinOp(line);
+    }
+
+    @Benchmark
+    public int readPosition() {
+        return node.getInt("line") + node.getInt("col");
+    }
+
+    @Benchmark
+    public String readPositionText() {
+        return node.get("line");
+    }
+
+    @Benchmark
+    public Operator readOperator() {
+        return Operator.of(node);
+    }
+}
@@ -0,0 +1,64 @@
+package pt.up.fe.comp.benchmark;
+
+/**
+ * Generates J-- programs whose size grows linearly with a scale factor, to see how each stage behaves beyond the
+ * size of the public fixtures. Every method mixes loops, conditionals, arrays and arithmetic, so that all stages
+ * (including register allocation) have work to do.
+ */
+public class SyntheticPrograms {
+
+    public static String generate(int scale) {
+        StringBuilder code = new StringBuilder();
+
+        code.append("import io;\n");
+        code.append("class Synthetic {\n\n");
+
+        code.append("    public static void main(String[] args) {\n");
+        code.append("        Synthetic s;\n");
+        code.append("        int total;\n");
+        code.append("        s = new Synthetic();\n");
+        code.append("        total = 0;\n");
+        for (int i = 0; i < scale; i++) {
+            code.append("        total = total + s.work").append(i).append("(").append(10 + i).append(");\n");
+        }
+        code.append("        io.println(total);\n");
+        code.append("    }\n");
+
+        for (int i = 0; i < scale; i++) {
+            appendMethod(code, i);
+        }
+
+        code.append("}\n");
+        return code.toString();
+    }
+
+    private static void appendMethod(StringBuilder code, int index) {
+        code.append("\n    public int work").append(index).append("(int n) {\n");
+        code.append("        int i;\n");
+        code.append("        int acc;\n");
+        code.append("        int tmp;\n");
+        code.append("        int[] values;\n");
+        code.append("        boolean done;\n");
+        code.append("        values = new int[n];\n");
+        code.append("        i = 0;\n");
+        code.append("        acc = ").append(index).append(";\n");
+        code.append("        tmp = 2 * 3 + ").append(index).append(";\n");
+        code.append("        done = false;\n");
+        code.append("        while (i < n && !done) {\n");
+        code.append("            values[i] = i * 2 + acc / tmp;\n");
+        code.append("            if (acc < values[i]) {\n");
+        code.append("                acc = acc + values[i] - 1;\n");
+        code.append("            } else {\n");
+        code.append("                acc = acc - 1;\n");
+        code.append("            }\n");
+        code.append("            if (1000 < acc) {\n");
+        code.append("                done = true;\n");
+        code.append("            } else {\n");
+        code.append("                done = false;\n");
+        code.append("            }\n");
+        code.append("            i = i + 1;\n");
+        code.append("        }\n");
+        code.append("        return acc + values.length;\n");
+        code.append("    }\n");
+    }
+}
@@ -0,0 +1,141 @@
+package pt.up.fe.comp.benchmark;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pt.up.fe.comp.SimpleParser;
+import pt.up.fe.comp.ast.AstNode;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodeKinds;
+import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Cost of dispatching visits over a parsed AST. 'kindTable' uses the visitors of the compiler, which index their visit
+ * methods by kind id; 'kindMap' runs the same visitor looking the visit methods up by kind name, as the visitors did
+ * before, as a baseline. 'kindSwitch' compares a switch over {@link AstNode} constants with one over kind names.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VisitorDispatchBenchmark {
+    private static final String FIXTURES = "test/fixtures/public/";
+    private static final String SYNTHETIC = "synthetic:";
+
+    /**
+     * Name of a public fixture, or 'synthetic:n' for a generated program with n methods.
+     */
+    @Param({ "Life", "TicTacToe", "synthetic:100" })
+    public String source;
+
+    private JmmNode root;
+    private PreorderJmmVisitor<Object, Integer> tableVisitor;
+    private MapVisitor mapVisitor;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        var jmmCode = source.startsWith(SYNTHETIC)
+                ? SyntheticPrograms.generate(Integer.parseInt(source.substring(SYNTHETIC.length())))
+                : SpecsIo.read(new File(FIXTURES + source + ".jmm"));
+
+        root = new SimpleParser().parse(jmmCode, new HashMap<>()).getRootNode();
+
+        tableVisitor = new PreorderJmmVisitor<>();
+        mapVisitor = new MapVisitor();
+        for (var kind : new AstNode[] { AstNode.METHOD_DECLARATION, AstNode.ASSIGN_STATEMENT, AstNode.IF_STATEMENT,
+                AstNode.LOOP_STATEMENT, AstNode.BIN_OP, AstNode.UNARY_OP, AstNode.TERMINAL, AstNode.IDENTIFIER,
+                AstNode.MEMBER_CALL }) {
+            BiFunction<JmmNode, Object, Integer> visit = (node, data) -> kind.ordinal();
+            tableVisitor.addVisit(kind, visit);
+            mapVisitor.visitMap.put(kind.toString(), visit);
+        }
+
+        for (var visitor : List.of(tableVisitor, mapVisitor)) {
+            visitor.setDefaultValue(() -> 0);
+            visitor.setReduceSimple(Integer::sum);
+        }
+    }
+
+    @Benchmark
+    public int kindTable() {
+        return tableVisitor.visit(root, null);
+    }
+
+    @Benchmark
+    public int kindMap() {
+        return mapVisitor.visit(root, null);
+    }
+
+    @Benchmark
+    public int kindSwitch() {
+        return switchByConstant(root);
+    }
+
+    @Benchmark
+    public int kindNameSwitch() {
+        return switchByName(root);
+    }
+
+    private int switchByConstant(JmmNode node) {
+        int result = switch (AstNode.of(node)) {
+            case BIN_OP, UNARY_OP -> 1;
+            case TERMINAL, IDENTIFIER -> 2;
+            case MEMBER_CALL -> 3;
+            default -> 0;
+        };
+
+        for (var child : node.getChildren()) {
+            result += switchByConstant(child);
+        }
+
+        return result;
+    }
+
+    private int switchByName(JmmNode node) {
+        int result = switch (node.getKind()) {
+            case "BinOp", "UnaryOp" -> 1;
+            case "Terminal", "Identifier" -> 2;
+            case "MemberCall" -> 3;
+            default -> 0;
+        };
+
+        for (var child : node.getChildren()) {
+            result += switchByName(child);
+        }
+
+        return result;
+    }
+
+    /**
+     * Looks the visit methods up by kind name, leaving the table of the visitor empty.
+     */
+    private static class MapVisitor extends PreorderJmmVisitor<Object, Integer> {
+        private final Map<String, BiFunction<JmmNode, Object, Integer>> visitMap = new HashMap<>();
+
+        @Override
+        protected BiFunction<JmmNode, Object, Integer> getVisit(int kindId) {
+            var visit = visitMap.get(NodeKinds.getName(kindId));
+            return visit != null ? visit : super.getVisit(kindId);
+        }
+    }
+}
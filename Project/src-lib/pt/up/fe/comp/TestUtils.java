@@ -1,7 +1,9 @@
 package pt.up.fe.comp;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -29,6 +31,15 @@ public class TestUtils {
 
     private static final Properties CONFIG = TestUtils.loadProperties("config.properties");
 
+    // Stage instances used by the helpers below. They are reused between tests, so only the first test of each thread
+    // pays for loading and warming up the stages, and kept per thread, as tests may run concurrently
+    private static final ThreadLocal<JmmParser> PARSER = ThreadLocal.withInitial(TestUtils::getJmmParser);
+    private static final ThreadLocal<JmmAnalysis> ANALYSIS = ThreadLocal.withInitial(TestUtils::getJmmAnalysis);
+    private static final ThreadLocal<JmmOptimization> OPTIMIZATION = ThreadLocal
+            .withInitial(TestUtils::getJmmOptimization);
+    private static final ThreadLocal<JasminBackend> BACKEND = ThreadLocal.withInitial(TestUtils::getJasminBackend);
+    private static final ThreadLocal<AstToJasmin> AST_TO_JASMIN = ThreadLocal.withInitial(TestUtils::getAstToJasmin);
+
     public static Properties loadProperties(String filename) {
         try {
             Properties props = new Properties();
@@ -44,7 +55,7 @@ public class TestUtils {
     }
 
     public static JmmParserResult parse(String code, String startingRule, Map<String, String> config) {
-        JmmParser parser = getJmmParser();
+        JmmParser parser = PARSER.get();
 
         return parser.parse(code, startingRule, config);
     }
@@ -55,7 +66,7 @@ public class TestUtils {
 
     public static JmmParserResult parse(String code, Map<String, String> config) {
 
-        JmmParser parser = getJmmParser();
+        JmmParser parser = PARSER.get();
 
         return parser.parse(code, config);
     }
@@ -190,7 +201,7 @@ public class TestUtils {
      */
     public static JmmSemanticsResult analyse(JmmParserResult parserResult) {
 
-        JmmAnalysis analysis = getJmmAnalysis();
+        JmmAnalysis analysis = ANALYSIS.get();
 
         return analysis.semanticAnalysis(parserResult);
     }
@@ -227,7 +238,7 @@ public class TestUtils {
      */
     public static OllirResult optimize(JmmSemanticsResult semanticsResult) {
 
-        JmmOptimization optimization = getJmmOptimization();
+        JmmOptimization optimization = OPTIMIZATION.get();
 
         semanticsResult = optimization.optimize(semanticsResult);
 
@@ -271,7 +282,7 @@ public class TestUtils {
      * @return
      */
     public static JasminResult backend(OllirResult ollirResult) {
-        JasminBackend backend = getJasminBackend();
+        JasminBackend backend = BACKEND.get();
 
         var jasminResult = backend.toJasmin(ollirResult);
 
@@ -286,7 +297,7 @@ public class TestUtils {
      * @return
      */
     public static JasminResult backend(JmmSemanticsResult semanticsResult) {
-        var astToJasmin = getAstToJasmin();
+        var astToJasmin = AST_TO_JASMIN.get();
 
         // Optimize
         semanticsResult = astToJasmin.optimize(semanticsResult);
@@ -387,6 +398,23 @@ public class TestUtils {
         return getNumReports(reports, ReportType.ERROR);
     }
 
+    /**
+     * Creates a new folder for the output of a single test, so tests running at the same time, in the same or in
+     * different JVMs, never write to the same files. The folder is deleted on exit, if empty.
+     * 
+     * @param prefix
+     * @return
+     */
+    public static File newOutputFolder(String prefix) {
+        try {
+            File outputFolder = Files.createTempDirectory(SpecsIo.getTempFolder(prefix).toPath(), prefix).toFile();
+            outputFolder.deleteOnExit();
+            return outputFolder;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create output folder for '" + prefix + "'", e);
+        }
+    }
+
     public static String getLibsClasspath() {
         // return "test/fixtures/libs/compiled";
         return "libs-jmm/compiled";
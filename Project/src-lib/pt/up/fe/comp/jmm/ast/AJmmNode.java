@@ -13,29 +13,54 @@
 
 package pt.up.fe.comp.jmm.ast;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import pt.up.fe.specs.util.SpecsCheck;
 
+/**
+ * Base of the AST nodes. The kind is kept as an id interned in {@link NodeKinds}, and attributes in a
+ * {@link NodeAttributes}, where positions and literal values can be kept as ints. Objects kept by the compiler stages
+ * are in a separate map.
+ */
 public abstract class AJmmNode implements JmmNode {
 
-    private final Map<String, String> attributes = new HashMap<>();
+    // Generated nodes are named after their kind, so the id only depends on the class
+    private static final ClassValue<Integer> CLASS_KIND_IDS = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return NodeKinds.getId(type.getSimpleName());
+        }
+    };
+
+    private final NodeAttributes attributes = new NodeAttributes();
+    // Created on the first object, as most nodes have none
+    private Map<String, Object> objects;
+    private int kindId = -1;
+
+    protected void setKind(String kind) {
+        this.kindId = NodeKinds.getId(kind);
+    }
+
+    @Override
+    public int getKindId() {
+        if (kindId == -1) {
+            kindId = CLASS_KIND_IDS.get(getClass());
+        }
 
-    protected Map<String, String> getAttributesMap() {
-        return attributes;
+        return kindId;
     }
 
     @Override
     public String getKind() {
-        return this.getClass().getSimpleName();
+        return NodeKinds.getName(getKindId());
     }
 
     @Override
     public List<String> getAttributes() {
-        return new ArrayList<>(attributes.keySet());
+        return attributes.getNames();
     }
 
     @Override
@@ -43,13 +68,47 @@ public abstract class AJmmNode implements JmmNode {
         attributes.put(attribute, value);
     }
 
+    @Override
+    public void put(String attribute, int value) {
+        attributes.put(attribute, value);
+    }
+
     @Override
     public String get(String attribute) {
-        var value = this.attributes.get(attribute);
+        var value = this.attributes.getString(attribute);
 
         SpecsCheck.checkNotNull(value, () -> "Node " + toString() + " does not contain attribute '" + attribute + "'");
 
         return value;
     }
 
+    @Override
+    public Optional<String> getOptional(String attribute) {
+        return Optional.ofNullable(attributes.getString(attribute));
+    }
+
+    @Override
+    public void putObject(String key, Object value) {
+        if (objects == null) {
+            objects = new HashMap<>(4);
+        }
+
+        objects.put(key, value);
+    }
+
+    @Override
+    public <T> Optional<T> getObject(String key, Class<T> type) {
+        return objects == null ? Optional.empty() : Optional.ofNullable(type.cast(objects.get(key)));
+    }
+
+    @Override
+    public int getInt(String attribute) {
+        return attributes.getInt(attribute);
+    }
+
+    @Override
+    public <E extends Enum<E>> E getEnum(String attribute, Class<E> enumType) {
+        return attributes.getEnum(attribute, enumType);
+    }
+
 }
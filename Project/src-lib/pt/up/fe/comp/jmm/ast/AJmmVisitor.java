@@ -1,5 +1,8 @@
 package pt.up.fe.comp.jmm.ast;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.BiFunction;
@@ -7,6 +10,8 @@ import java.util.function.BiFunction;
 import pt.up.fe.specs.util.SpecsCheck;
 
 /**
+ * Visit methods are kept in a table indexed by the kind id of the node (see {@link NodeKinds}), so dispatching a
+ * visit is an array load instead of a lookup by kind name.
  * 
  * @author Joao Bispo
  *
@@ -15,12 +20,14 @@ import pt.up.fe.specs.util.SpecsCheck;
  */
 public abstract class AJmmVisitor<D, R> implements JmmVisitor<D, R> {
 
-    private final Map<String, BiFunction<JmmNode, D, R>> visitMap;
+    private BiFunction<JmmNode, D, R>[] visitTable;
     private BiFunction<JmmNode, D, R> defaultVisit;
 
     public AJmmVisitor(Map<String, BiFunction<JmmNode, D, R>> visitMap, BiFunction<JmmNode, D, R> defaultVisit) {
-        this.visitMap = visitMap;
+        this.visitTable = newVisitTable(NodeKinds.size());
         this.defaultVisit = defaultVisit;
+
+        visitMap.forEach(this::addVisit);
     }
 
     public AJmmVisitor() {
@@ -41,7 +48,18 @@ public abstract class AJmmVisitor<D, R> implements JmmVisitor<D, R> {
 
     @Override
     public void addVisit(String kind, BiFunction<JmmNode, D, R> method) {
-        this.visitMap.put(kind, method);
+        int kindId = NodeKinds.getId(kind);
+
+        if (kindId >= visitTable.length) {
+            visitTable = Arrays.copyOf(visitTable, Math.max(kindId + 1, NodeKinds.size()));
+        }
+
+        visitTable[kindId] = method;
+    }
+
+    @SuppressWarnings("unchecked")
+    private BiFunction<JmmNode, D, R>[] newVisitTable(int size) {
+        return (BiFunction<JmmNode, D, R>[]) new BiFunction<?, ?, ?>[size];
     }
 
     @Override
@@ -63,11 +81,20 @@ public abstract class AJmmVisitor<D, R> implements JmmVisitor<D, R> {
      * @return the visit method to use, or default if no visit method was found
      */
     protected BiFunction<JmmNode, D, R> getVisit(String kind) {
-        var visitMethod = visitMap.get(kind);
+        return getVisit(NodeKinds.getId(kind));
+    }
+
+    /**
+     * 
+     * @param kindId
+     * @return the visit method to use, or default if no visit method was found
+     */
+    protected BiFunction<JmmNode, D, R> getVisit(int kindId) {
+        var visitMethod = kindId < visitTable.length ? visitTable[kindId] : null;
 
         if (visitMethod == null) {
             SpecsCheck.checkNotNull(defaultVisit,
-                    () -> "No default visitor is set, could not visit node of kind " + kind);
+                    () -> "No default visitor is set, could not visit node of kind " + NodeKinds.getName(kindId));
 
             visitMethod = defaultVisit;
         }
@@ -79,7 +106,41 @@ public abstract class AJmmVisitor<D, R> implements JmmVisitor<D, R> {
     public R visit(JmmNode jmmNode, D data) {
         SpecsCheck.checkNotNull(jmmNode, () -> "Node should not be null");
 
-        return getVisit(jmmNode.getKind()).apply(jmmNode, data);
+        return getVisit(jmmNode.getKindId()).apply(jmmNode, data);
+    }
+
+    /**
+     * Visits the descendants of the given node with an explicit stack instead of recursion, so the depth of the tree is
+     * bounded by the heap and not by the thread stack. Nodes with a visit method of their own are given to it, which
+     * decides whether to go further down, while nodes that would get the default visit have their children visited
+     * instead.
+     * 
+     * @param node
+     * @param data
+     */
+    protected void visitDescendants(JmmNode node, D data) {
+        Deque<JmmNode> pending = new ArrayDeque<>();
+        pushChildren(node, pending);
+
+        while (!pending.isEmpty()) {
+            var current = pending.pop();
+            var visitMethod = getVisit(current.getKindId());
+
+            if (visitMethod == defaultVisit) {
+                pushChildren(current, pending);
+                continue;
+            }
+
+            visitMethod.apply(current, data);
+        }
+    }
+
+    private static void pushChildren(JmmNode node, Deque<JmmNode> pending) {
+        // Pushed in reverse, so they are visited in order
+        var children = node.getChildren();
+        for (int i = children.size() - 1; i >= 0; i--) {
+            pending.push(children.get(i));
+        }
     }
 
     protected R visitAllChildren(JmmNode node, D data) {
@@ -13,12 +13,18 @@
 
 package pt.up.fe.comp.jmm.ast;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Supplier;
 
+import pt.up.fe.specs.util.SpecsCheck;
+
 /**
- * A visitor that always visits all nodes.
+ * A visitor that always visits all nodes. The tree is traversed with an explicit stack instead of recursion, so the
+ * depth of the tree is bounded by the heap and not by the thread stack.
  * 
  * @author Joao Bispo
  *
@@ -104,4 +110,72 @@ public abstract class AllNodesJmmVisitor<D, R> extends AJmmVisitor<D, R> {
         setDefaultVisit((node, data) -> defaultValue.get());
     }
 
+    /**
+     * Visits the given node and all its descendants, reducing the results of each node with the results of its
+     * children.
+     * 
+     * @param preorder
+     *            if true, each node is visited before its children, otherwise after them
+     */
+    protected R visitAllNodes(JmmNode root, D data, boolean preorder) {
+        SpecsCheck.checkNotNull(root, () -> "Node should not be null");
+
+        Deque<Frame<R>> stack = new ArrayDeque<>();
+        stack.push(enter(root, data, preorder));
+
+        while (true) {
+            var frame = stack.peek();
+
+            if (frame.nextChild < frame.children.size()) {
+                stack.push(enter(frame.children.get(frame.nextChild++), data, preorder));
+                continue;
+            }
+
+            stack.pop();
+
+            if (!preorder) {
+                frame.nodeResult = getVisit(frame.node.getKindId()).apply(frame.node, data);
+            }
+
+            var result = reduce == null ? frame.nodeResult : reduce.apply(frame.nodeResult, frame.childrenResults);
+
+            var parent = stack.peek();
+            if (parent == null) {
+                return result;
+            }
+
+            if (parent.childrenResults != null) {
+                parent.childrenResults.add(result);
+            }
+        }
+    }
+
+    private Frame<R> enter(JmmNode node, D data, boolean preorder) {
+        var frame = new Frame<R>(node);
+
+        if (preorder) {
+            frame.nodeResult = getVisit(node.getKindId()).apply(node, data);
+        }
+
+        // Children are taken after a preorder visit, which may change them
+        frame.children = node.getChildren();
+        frame.childrenResults = reduce == null ? null : new ArrayList<>(frame.children.size());
+
+        return frame;
+    }
+
+    /**
+     * A node whose children are being visited.
+     */
+    private static class Frame<R> {
+        private final JmmNode node;
+        private List<JmmNode> children;
+        private int nextChild;
+        private R nodeResult;
+        private List<R> childrenResults;
+
+        private Frame(JmmNode node) {
+            this.node = node;
+        }
+    }
 }
@@ -0,0 +1,116 @@
+package pt.up.fe.comp.jmm.ast;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Writes and reads the JSON form of a tree, an object with 'kind', 'attributes' and 'children' per node. Nodes are
+ * streamed with an explicit stack instead of recursion, so deep trees, such as long chains of operators, do not
+ * depend on the size of the thread stack.
+ */
+class JmmJson {
+
+    static String write(JmmNode root) {
+        StringWriter json = new StringWriter();
+
+        // Not indented, as the indentation of deep trees would grow quadratically
+        try (JsonWriter writer = new JsonWriter(json)) {
+            // Nodes whose children are still being written, innermost on top
+            Deque<Iterator<JmmNode>> pending = new ArrayDeque<>();
+            beginNode(root, writer);
+            pending.push(root.getChildren().iterator());
+
+            while (!pending.isEmpty()) {
+                var children = pending.peek();
+
+                if (children.hasNext()) {
+                    var child = children.next();
+                    beginNode(child, writer);
+                    pending.push(child.getChildren().iterator());
+                    continue;
+                }
+
+                pending.pop();
+                writer.endArray();
+                writer.endObject();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write JSON of node " + root, e);
+        }
+
+        return json.toString();
+    }
+
+    private static void beginNode(JmmNode node, JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.name("kind").value(node.getKind());
+
+        writer.name("attributes").beginObject();
+        for (String attribute : node.getAttributes()) {
+            writer.name(attribute).value(node.get(attribute));
+        }
+        writer.endObject();
+
+        writer.name("children").beginArray();
+    }
+
+    static JmmNodeImpl read(String json) {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            var root = beginNode(reader);
+
+            // Nodes whose children are still being read, innermost on top
+            Deque<JmmNodeImpl> pending = new ArrayDeque<>();
+            pending.push(root);
+
+            while (!pending.isEmpty()) {
+                if (reader.hasNext()) {
+                    reader.beginObject();
+                    var child = beginNode(reader);
+                    pending.peek().add(child);
+                    pending.push(child);
+                    continue;
+                }
+
+                pending.pop();
+                reader.endArray();
+                reader.endObject();
+            }
+
+            return root;
+        } catch (IOException | IllegalStateException e) {
+            throw new RuntimeException("Could not read JSON of node", e);
+        }
+    }
+
+    private static JmmNodeImpl beginNode(JsonReader reader) throws IOException {
+        checkName(reader, "kind");
+        var node = new JmmNodeImpl(reader.nextString());
+
+        checkName(reader, "attributes");
+        reader.beginObject();
+        while (reader.hasNext()) {
+            node.put(reader.nextName(), reader.nextString());
+        }
+        reader.endObject();
+
+        checkName(reader, "children");
+        reader.beginArray();
+
+        return node;
+    }
+
+    private static void checkName(JsonReader reader, String expected) throws IOException {
+        var name = reader.nextName();
+        if (!name.equals(expected)) {
+            throw new IllegalStateException("Expected '" + expected + "' in node, found '" + name + "'");
+        }
+    }
+}
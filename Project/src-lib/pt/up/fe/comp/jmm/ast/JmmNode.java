@@ -1,13 +1,12 @@
 package pt.up.fe.comp.jmm.ast;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
 import pt.up.fe.specs.util.SpecsCollections;
 
 /**
@@ -23,6 +22,13 @@ public interface JmmNode {
      */
     String getKind();
 
+    /**
+     * @return the kind of this node as an id interned in {@link NodeKinds}
+     */
+    default int getKindId() {
+        return NodeKinds.getId(getKind());
+    }
+
     /**
      * @return the names of the attributes supported by this Node kind
      */
@@ -44,6 +50,35 @@ public interface JmmNode {
      */
     String get(String attribute);
 
+    /**
+     * Sets the value of an integer attribute, such as a position or a literal value.
+     * 
+     * @param attribute
+     * @param value
+     */
+    default void put(String attribute, int value) {
+        put(attribute, Integer.toString(value));
+    }
+
+    /**
+     * 
+     * @param attribute
+     * @return the value of an integer attribute
+     */
+    default int getInt(String attribute) {
+        return Integer.parseInt(get(attribute));
+    }
+
+    /**
+     * 
+     * @param attribute
+     * @param enumType
+     * @return the constant of the given enum named by the value of the attribute
+     */
+    default <E extends Enum<E>> E getEnum(String attribute, Class<E> enumType) {
+        return Enum.valueOf(enumType, get(attribute));
+    }
+
     /**
      * 
      * @param attribute
@@ -54,6 +89,27 @@ public interface JmmNode {
         throw new RuntimeException("Not implemented for this class: " + getClass());
     }
 
+    /**
+     * Keeps an object with this node, such as the type resolved by the semantic analysis. Objects are not attributes:
+     * they are not listed by {@link #getAttributes()}, nor part of the JSON or tree representation of the node.
+     * 
+     * @param key
+     * @param value
+     */
+    default void putObject(String key, Object value) {
+        throw new RuntimeException("Not implemented for this class: " + getClass());
+    }
+
+    /**
+     * 
+     * @param key
+     * @param type
+     * @return the object kept with the given key, or Optional.empty() if there is none
+     */
+    default <T> Optional<T> getObject(String key, Class<T> type) {
+        throw new RuntimeException("Not implemented for this class: " + getClass());
+    }
+
     /**
      * 
      * @return the parent of the current node, or null if this is the root node
@@ -134,12 +190,7 @@ public interface JmmNode {
     }
 
     default String toJson() {
-        Gson gson = new GsonBuilder()
-                // .excludeFieldsWithoutExposeAnnotation()
-                .setPrettyPrinting()
-                .registerTypeAdapter(JmmNode.class, new JmmSerializer())
-                .create();
-        return gson.toJson(this, JmmNode.class);
+        return JmmJson.write(this);
     }
 
     static JmmNode fromJson(String json) {
@@ -152,7 +203,7 @@ public interface JmmNode {
      * @return
      */
     default JmmNode sanitize() {
-        return fromJson(this.toJson());
+        return JmmNodeImpl.copyOf(this);
     }
 
     static <T> List<JmmNode> convertChildren(T[] children) {
@@ -177,10 +228,22 @@ public interface JmmNode {
     }
 
     default void toTree(StringBuilder tree, String prefix) {
-        tree.append(prefix).append(toString()).append("\n");
-
-        for (var child : getChildren()) {
-            child.toTree(tree, prefix + "   ");
+        // Explicit stack of nodes still to print, with their prefixes, so deep trees do not overflow the thread stack
+        Deque<JmmNode> nodes = new ArrayDeque<>();
+        Deque<String> prefixes = new ArrayDeque<>();
+        nodes.push(this);
+        prefixes.push(prefix);
+
+        while (!nodes.isEmpty()) {
+            var node = nodes.pop();
+            var nodePrefix = prefixes.pop();
+            tree.append(nodePrefix).append(node.toString()).append("\n");
+
+            var children = node.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                nodes.push(children.get(i));
+                prefixes.push(nodePrefix + "   ");
+            }
         }
     }
 
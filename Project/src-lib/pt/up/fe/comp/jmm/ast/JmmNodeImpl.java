@@ -1,21 +1,18 @@
 package pt.up.fe.comp.jmm.ast;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
 public class JmmNodeImpl extends AJmmNode {
 
-    protected String kind;
     protected List<JmmNode> children;
     private JmmNode parent;
 
     public JmmNodeImpl(String kind) {
-        this.kind = kind;
+        setKind(kind);
         this.children = new ArrayList<>();
     }
 
@@ -29,16 +26,6 @@ public class JmmNodeImpl extends AJmmNode {
         return new ArrayList<>(this.children);
     }
 
-    @Override
-    public String getKind() {
-        return this.kind;
-    }
-
-    @Override
-    public Optional<String> getOptional(String attribute) {
-        return Optional.ofNullable(getAttributesMap().get(attribute));
-    }
-
     @Override
     public int getNumChildren() {
         return this.children.size();
@@ -75,19 +62,50 @@ public class JmmNodeImpl extends AJmmNode {
     /**
      * Convert the string into a JmmNode instance
      * 
-     * @param <N>
      * @param source
-     * @param nodeClass
      * @return
      */
     public static JmmNodeImpl fromJson(String source) {
+        return JmmJson.read(source);
+    }
+
+    /**
+     * Copies the given node and all descendants to new JmmNodeImpl nodes, with an explicit stack instead of recursion.
+     * 
+     * @param root
+     * @return
+     */
+    public static JmmNodeImpl copyOf(JmmNode root) {
+        var rootCopy = copyNode(root);
+
+        Deque<JmmNode> originals = new ArrayDeque<>();
+        Deque<JmmNodeImpl> copies = new ArrayDeque<>();
+        originals.push(root);
+        copies.push(rootCopy);
+
+        while (!originals.isEmpty()) {
+            var original = originals.pop();
+            var copy = copies.pop();
+
+            for (var child : original.getChildren()) {
+                var childCopy = copyNode(child);
+                copy.add(childCopy);
+
+                originals.push(child);
+                copies.push(childCopy);
+            }
+        }
+
+        return rootCopy;
+    }
+
+    private static JmmNodeImpl copyNode(JmmNode node) {
+        var copy = new JmmNodeImpl(node.getKind());
+        for (var attribute : node.getAttributes()) {
+            copy.put(attribute, node.get(attribute));
+        }
 
-        Gson gson = new GsonBuilder()
-                .registerTypeAdapter(JmmNode.class, new JmmDeserializer())
-                .registerTypeAdapter(JmmNodeImpl.class, new JmmDeserializer())
-                // .excludeFieldsWithoutExposeAnnotation()
-                .create();
-        return gson.fromJson(source, JmmNodeImpl.class);
+        return copy;
     }
 
     @Override
@@ -0,0 +1,115 @@
+package pt.up.fe.comp.jmm.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Attribute storage of {@link AJmmNode}. Nodes have few attributes, so names and values are kept in small parallel
+ * arrays that are searched linearly. A value is kept as it was given, text or int, and is converted only when read as
+ * the other type, or as an enum constant; the converted value is kept for later reads.
+ */
+final class NodeAttributes {
+    private static final String[] NO_NAMES = new String[0];
+
+    private String[] names = NO_NAMES;
+    // A String or an enum constant, or null when only the int value is known
+    private Object[] values;
+    private int[] ints;
+    private boolean[] hasInt;
+    private int size;
+
+    List<String> getNames() {
+        return new ArrayList<>(Arrays.asList(names).subList(0, size));
+    }
+
+    String getString(String name) {
+        int index = indexOf(name);
+        if (index == -1) {
+            return null;
+        }
+
+        Object value = values[index];
+        if (value == null) {
+            String text = Integer.toString(ints[index]);
+            values[index] = text;
+            return text;
+        }
+
+        return value.toString();
+    }
+
+    int getInt(String name) {
+        int index = getExistingIndex(name);
+
+        if (!hasInt[index]) {
+            ints[index] = Integer.parseInt(values[index].toString());
+            hasInt[index] = true;
+        }
+
+        return ints[index];
+    }
+
+    <E extends Enum<E>> E getEnum(String name, Class<E> enumType) {
+        int index = getExistingIndex(name);
+
+        Object value = values[index];
+        if (enumType.isInstance(value)) {
+            return enumType.cast(value);
+        }
+
+        E constant = Enum.valueOf(enumType, getString(name));
+        values[index] = constant;
+        return constant;
+    }
+
+    void put(String name, String value) {
+        int index = getOrAddIndex(name);
+        values[index] = value;
+        hasInt[index] = false;
+    }
+
+    void put(String name, int value) {
+        int index = getOrAddIndex(name);
+        values[index] = null;
+        ints[index] = value;
+        hasInt[index] = true;
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private int getExistingIndex(String name) {
+        int index = indexOf(name);
+        if (index == -1) {
+            throw new RuntimeException("Node does not contain attribute '" + name + "'");
+        }
+
+        return index;
+    }
+
+    private int getOrAddIndex(String name) {
+        int index = indexOf(name);
+        if (index != -1) {
+            return index;
+        }
+
+        if (size == names.length) {
+            int capacity = Math.max(4, size * 2);
+            names = Arrays.copyOf(names, capacity);
+            values = values == null ? new Object[capacity] : Arrays.copyOf(values, capacity);
+            ints = ints == null ? new int[capacity] : Arrays.copyOf(ints, capacity);
+            hasInt = hasInt == null ? new boolean[capacity] : Arrays.copyOf(hasInt, capacity);
+        }
+
+        names[size] = name;
+        return size++;
+    }
+}
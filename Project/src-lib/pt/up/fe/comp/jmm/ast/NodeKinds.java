@@ -0,0 +1,50 @@
+package pt.up.fe.comp.jmm.ast;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns node kinds to small, dense ids, so nodes keep an int instead of the kind name and kinds can be used to
+ * index arrays. Ids are given in order of first use and are never reused.
+ */
+public final class NodeKinds {
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[0];
+
+    private NodeKinds() {
+    }
+
+    public static int getId(String kind) {
+        Integer id = IDS.get(kind);
+        return id != null ? id : register(kind);
+    }
+
+    public static String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return the number of kinds interned so far, which is above every id given so far
+     */
+    public static int size() {
+        return names.length;
+    }
+
+    private static synchronized int register(String kind) {
+        Integer id = IDS.get(kind);
+        if (id != null) {
+            return id;
+        }
+
+        int newId = names.length;
+        String[] newNames = Arrays.copyOf(names, newId + 1);
+        newNames[newId] = kind;
+
+        // The name is published before the id, so getName works for every id getId returns
+        names = newNames;
+        IDS.put(kind, newId);
+
+        return newId;
+    }
+}
@@ -13,11 +13,6 @@
 
 package pt.up.fe.comp.jmm.ast;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import pt.up.fe.specs.util.SpecsCheck;
-
 /**
  * Visitor that automatically applies a postorder, bottom-up traversal (first the children, then the current node).
  * 
@@ -28,27 +23,6 @@ public class PostorderJmmVisitor<D, R> extends AllNodesJmmVisitor<D, R> {
 
     @Override
     public R visit(JmmNode jmmNode, D data) {
-        SpecsCheck.checkNotNull(jmmNode, () -> "Node should not be null");
-
-        var visit = getVisit(jmmNode.getKind());
-
-        List<R> childrenResults = new ArrayList<>();
-
-        // Postorder: 1st visit each children
-        for (var child : jmmNode.getChildren()) {
-            childrenResults.add(visit(child, data));
-        }
-
-        // Postorder: then, visit the node
-        var nodeResult = visit.apply(jmmNode, data);
-
-        var reduceFunction = getReduce();
-
-        // No reduce function, just return result of the node
-        if (reduceFunction == null) {
-            return nodeResult;
-        }
-
-        return reduceFunction.apply(nodeResult, childrenResults);
+        return visitAllNodes(jmmNode, data, false);
     }
 }
@@ -13,11 +13,6 @@
 
 package pt.up.fe.comp.jmm.ast;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import pt.up.fe.specs.util.SpecsCheck;
-
 /**
  * Visitor that automatically applies a preorder, top-down traversal (first current node, then children).
  * 
@@ -28,26 +23,6 @@ public class PreorderJmmVisitor<D, R> extends AllNodesJmmVisitor<D, R> {
 
     @Override
     public R visit(JmmNode jmmNode, D data) {
-        SpecsCheck.checkNotNull(jmmNode, () -> "Node should not be null");
-
-        var visit = getVisit(jmmNode.getKind());
-
-        // Preorder: 1st visit the node
-        var nodeResult = visit.apply(jmmNode, data);
-
-        // Preorder: then, visit each children
-        List<R> childrenResults = new ArrayList<>();
-        for (var child : jmmNode.getChildren()) {
-            childrenResults.add(visit(child, data));
-        }
-
-        var reduceFunction = getReduce();
-
-        // No reduce function, just return result of the node
-        if (reduceFunction == null) {
-            return nodeResult;
-        }
-
-        return reduceFunction.apply(nodeResult, childrenResults);
+        return visitAllNodes(jmmNode, data, true);
     }
 }
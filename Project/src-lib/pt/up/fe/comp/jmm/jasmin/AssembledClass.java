@@ -0,0 +1,36 @@
+package pt.up.fe.comp.jmm.jasmin;
+
+/**
+ * A class file in memory, as produced by the Jasmin assembler.
+ */
+public class AssembledClass {
+
+    private final String className;
+    private final byte[] bytes;
+
+    /**
+     * @param className
+     *            internal name of the class, with '/' separating packages
+     * @param bytes
+     *            contents of the class file
+     */
+    public AssembledClass(String className, byte[] bytes) {
+        this.className = className;
+        this.bytes = bytes;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * @return the name of the class as used by class loaders, with '.' separating packages
+     */
+    public String getBinaryName() {
+        return className.replace('/', '.');
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+}
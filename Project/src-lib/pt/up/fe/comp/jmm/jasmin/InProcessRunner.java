@@ -0,0 +1,250 @@
+package pt.up.fe.comp.jmm.jasmin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import pt.up.fe.specs.util.SpecsSystem;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+import pt.up.fe.specs.util.utilities.StringLines;
+
+/**
+ * Runs the main method of a compiled class inside the current JVM, instead of starting a 'java' process.
+ * <p>
+ * Each run gets its own class loader (so static state, including the one of the libraries in the classpath, starts
+ * fresh), its own standard streams, and a worker thread that is interrupted when it exceeds the CPU time limit.
+ * <p>
+ * Interrupting stops programs that wait for input, but a thread that keeps running cannot be stopped inside the JVM.
+ * Such runs throw {@link NotStoppedException}, and {@link JasminResult} runs them again in a 'java' process, which is
+ * killed when it times out. The thread left behind gets the lowest priority.
+ */
+public class InProcessRunner {
+
+    private static final long POLL_MS = 10;
+
+    /**
+     * Extra wall-clock time allowed over the CPU time limit, for programs blocked waiting for input.
+     */
+    private static final long WALL_CLOCK_FACTOR = 4;
+
+    /**
+     * Time an interrupted program has to finish.
+     */
+    private static final long STOP_WAIT_MS = 1000;
+
+    private final long cpuTimeLimitNs;
+    private final long humanDelayMs;
+
+    /**
+     * @param cpuTimeLimitNs
+     *            CPU time the program may use before being stopped
+     * @param humanDelayMs
+     *            delay before each line of input is made available, 0 to give the whole input at once
+     */
+    public InProcessRunner(long cpuTimeLimitNs, long humanDelayMs) {
+        this.cpuTimeLimitNs = cpuTimeLimitNs;
+        this.humanDelayMs = humanDelayMs;
+    }
+
+    /**
+     * Runs the given class.
+     * 
+     * @param mainClass
+     *            the class with the main method
+     * @param args
+     *            arguments for the program
+     * @param classpath
+     *            additional paths for the classpath
+     * @param input
+     *            input to give to the program, can be null
+     * @return the exit value (0, 1 if the program threw an exception, -1 if it was stopped) and the output
+     * @throws NotStoppedException
+     *             if the program exceeded the time limit and did not stop when interrupted
+     */
+    public ProcessOutputAsString run(AssembledClass mainClass, List<String> args, List<String> classpath, String input) {
+        var className = mainClass.getBinaryName();
+
+        RedirectedStreams.install();
+
+        var stdout = new ByteArrayOutputStream();
+        var stderr = new ByteArrayOutputStream();
+        var out = new PrintStream(stdout, true, StandardCharsets.UTF_8);
+        var err = new PrintStream(stderr, true, StandardCharsets.UTF_8);
+        var exitValue = new int[] { 0 };
+
+        try (var classLoader = new MemoryClassLoader(mainClass, getUrls(classpath))) {
+
+            var in = getInput(input);
+
+            var worker = new Thread(() -> {
+                RedirectedStreams.redirect(in, out, err);
+                try {
+                    Class.forName(className, true, classLoader)
+                            .getMethod("main", String[].class)
+                            .invoke(null, (Object) args.toArray(new String[0]));
+                } catch (InvocationTargetException e) {
+                    exitValue[0] = 1;
+                    err.print("Exception in thread \"main\" ");
+                    e.getCause().printStackTrace(err);
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    exitValue[0] = 1;
+                    e.printStackTrace(err);
+                } finally {
+                    RedirectedStreams.clear();
+                }
+            }, "jmm-" + className);
+            worker.setDaemon(true);
+            worker.setContextClassLoader(classLoader);
+            worker.start();
+
+            if (!waitFor(worker)) {
+                exitValue[0] = -1;
+                err.println("Program stopped after exceeding " + cpuTimeLimitNs / 1_000_000 + " ms of CPU time");
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not run class " + className, e);
+        }
+
+        out.flush();
+        err.flush();
+
+        return new ProcessOutputAsString(exitValue[0], stdout.toString(StandardCharsets.UTF_8),
+                stderr.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return true if the thread finished within the limits
+     */
+    private boolean waitFor(Thread worker) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean measureCpu = threads.isThreadCpuTimeSupported();
+        if (measureCpu && !threads.isThreadCpuTimeEnabled()) {
+            threads.setThreadCpuTimeEnabled(true);
+        }
+
+        long wallClockLimitMs = cpuTimeLimitNs / 1_000_000 * WALL_CLOCK_FACTOR;
+        long start = System.currentTimeMillis();
+
+        while (worker.isAlive()) {
+            try {
+                worker.join(POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            long cpuTime = measureCpu ? threads.getThreadCpuTime(worker.getId()) : -1;
+            boolean exceeded = cpuTime > cpuTimeLimitNs
+                    || System.currentTimeMillis() - start > wallClockLimitMs;
+
+            if (exceeded && worker.isAlive()) {
+                stop(worker);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void stop(Thread worker) {
+        worker.interrupt();
+        try {
+            worker.join(STOP_WAIT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (worker.isAlive()) {
+            // Thread.stop is not supported by recent JVMs, the daemon thread can only yield to the others
+            worker.setPriority(Thread.MIN_PRIORITY);
+            throw new NotStoppedException("Program in thread '" + worker.getName() + "' exceeded "
+                    + cpuTimeLimitNs / 1_000_000 + " ms of CPU time and could not be stopped, set '"
+                    + JasminResult.RUNNER + "' to 'process' to run it in a new process");
+        }
+    }
+
+    private InputStream getInput(String input) throws IOException {
+        if (input == null || input.isEmpty()) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        if (humanDelayMs <= 0) {
+            return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+        }
+
+        // Simulate person typing, one line at a time
+        var in = new PipedInputStream();
+        var pipe = new PipedOutputStream(in);
+        var typist = new Thread(() -> {
+            try (var writer = new PrintStream(pipe, true, StandardCharsets.UTF_8)) {
+                for (var line : StringLines.getLines(input)) {
+                    SpecsSystem.sleep(humanDelayMs);
+                    writer.println(line);
+                }
+            }
+        }, "jmm-input");
+        typist.setDaemon(true);
+        typist.start();
+
+        return in;
+    }
+
+    private URL[] getUrls(List<String> classpath) {
+        List<URL> urls = new ArrayList<>();
+
+        try {
+            for (var classpathElement : classpath) {
+                urls.add(new File(classpathElement).toURI().toURL());
+            }
+        } catch (MalformedURLException e) {
+            throw new RuntimeException("Invalid classpath", e);
+        }
+
+        return urls.toArray(new URL[0]);
+    }
+
+    /**
+     * Thrown when a program exceeds its time limit and keeps running after being interrupted.
+     */
+    public static class NotStoppedException extends RuntimeException {
+        public NotStoppedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Defines the class kept in memory, and loads everything else from the classpath.
+     */
+    private static class MemoryClassLoader extends URLClassLoader {
+        private final AssembledClass mainClass;
+
+        private MemoryClassLoader(AssembledClass mainClass, URL[] classpath) {
+            super(classpath, ClassLoader.getPlatformClassLoader());
+            this.mainClass = mainClass;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            if (name.equals(mainClass.getBinaryName())) {
+                byte[] bytes = mainClass.getBytes();
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+
+            return super.findClass(name);
+        }
+    }
+}
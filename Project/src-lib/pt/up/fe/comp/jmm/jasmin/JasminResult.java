@@ -33,10 +33,22 @@ public class JasminResult implements ReportsProvider {
     private static Long HUMAN_DELAY_MS = 250l;
     private static Long TIMEOUT_NS = 5_000_000_000l;
 
+    /**
+     * Config key that selects how programs are run: 'inProcess' (default) or 'process', for a new 'java' process.
+     */
+    public static final String RUNNER = "runner";
+
+    /**
+     * Config key with the delay, in milliseconds, between lines of input given to the program. Defaults to no delay
+     * when running in-process, and to HUMAN_DELAY_MS when running in a new process.
+     */
+    public static final String HUMAN_DELAY = "humanDelay";
+
     private final String className;
     private final String jasminCode;
     private final List<Report> reports;
     private final Map<String, String> config;
+    private AssembledClass assembledClass;
 
     public JasminResult(String className, String jasminCode, List<Report> reports, Map<String, String> config) {
         this.className = className;
@@ -83,6 +95,23 @@ public class JasminResult implements ReportsProvider {
         return config;
     }
 
+    /**
+     * Assembles the generated Jasmin code in memory. The result is kept, so later calls do not assemble again.
+     * 
+     * @return the class name and class file bytes
+     */
+    public AssembledClass assemble() {
+        if (assembledClass == null) {
+            assembledClass = JasminUtils.assemble(getJasminCode(), getClassName() + ".j");
+        }
+
+        return assembledClass;
+    }
+
+    public byte[] getClassBytes() {
+        return assemble().getBytes();
+    }
+
     /**
      * Compiles the generated Jasmin code using the Jasmin tool.
      * 
@@ -91,23 +120,20 @@ public class JasminResult implements ReportsProvider {
      * @return a reference to the .class file
      */
     public File compile(File outputDir) {
-        File jasminFile = new File(SpecsIo.getTempFolder("jasmin"), getClassName() + ".j");
-        SpecsIo.write(jasminFile, getJasminCode());
-        return JasminUtils.assemble(jasminFile, outputDir);
+        return JasminUtils.write(assemble(), outputDir);
     }
 
     /**
-     * Compiles the generated Jasmin code using the Jasmin tool.
+     * Compiles the generated Jasmin code using the Jasmin tool, to a new temporary folder. Each call uses its own
+     * folder, so concurrent compilations do not overwrite each other.
      * 
      * @return the compiled class file
      */
     public File compile() {
-        File outputDir = SpecsIo.getTempFolder("jasmin");
+        File classFile = compile(TestUtils.newOutputFolder("jasmin"));
+        classFile.deleteOnExit();
 
-        // Clean all class files in folder
-        SpecsIo.deleteFolderContents(outputDir);
-
-        return compile(outputDir);
+        return classFile;
     }
 
     /**
@@ -139,9 +165,22 @@ public class JasminResult implements ReportsProvider {
      * @return the output that is printed by the Jasmin program
      */
     public ProcessOutputAsString runWithFullOutput(List<String> args, List<String> classpath, String input) {
+        if (!"process".equals(config.get(RUNNER))) {
+            var humanDelay = Long.parseLong(config.getOrDefault(HUMAN_DELAY, "0"));
+            var runner = new InProcessRunner(TIMEOUT_NS, humanDelay);
+            try {
+                return runner.run(assemble(), args, classpath, input);
+            } catch (InProcessRunner.NotStoppedException e) {
+                // The program ignores interruptions, a process is killed when it times out
+                System.err.println(e.getMessage() + ", running it again in a new process");
+            }
+        }
+
         // Compile
         var classFile = compile();
 
+        long humanDelay = Long.parseLong(config.getOrDefault(HUMAN_DELAY, HUMAN_DELAY_MS.toString()));
+
         var classpathArg = classFile.getParentFile().getAbsolutePath();
         if (!classpath.isEmpty()) {
             var sep = System.getProperty("path.separator");
@@ -168,7 +207,7 @@ public class JasminResult implements ReportsProvider {
                 try (PrintWriter pw = new PrintWriter(new BufferedWriter(new OutputStreamWriter(outputStream)))) {
                     for (var line : StringLines.getLines(input)) {
                         // Simulate person typing (1s between each iteration)
-                        SpecsSystem.sleep(HUMAN_DELAY_MS);
+                        SpecsSystem.sleep(humanDelay);
                         pw.println(line);
                         pw.flush();
                     }
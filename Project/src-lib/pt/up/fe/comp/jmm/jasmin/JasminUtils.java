@@ -1,11 +1,13 @@
 package pt.up.fe.comp.jmm.jasmin;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 
 import jas.jasError;
 import jasmin.ClassFile;
@@ -16,6 +18,64 @@ import jasmin.ClassFile;
  *
  */
 public class JasminUtils {
+    /**
+     * Assembles Jasmin code in memory, without writing or reading any file.
+     * 
+     * @param jasminCode
+     *            the Jasmin code
+     * @param sourceName
+     *            name used in error messages
+     * @return the class name and class file bytes
+     */
+    public static AssembledClass assemble(String jasminCode, String sourceName) {
+        try (BufferedReader inp = new BufferedReader(new StringReader(jasminCode))) {
+            ClassFile classFile = new ClassFile();
+            classFile.readJasmin(inp, sourceName, true);
+
+            if (classFile.errorCount() > 0) {
+                throw new RuntimeException("Found "
+                        + classFile.errorCount() + " errors while compiling Jasmin code.");
+            }
+
+            ByteArrayOutputStream outp = new ByteArrayOutputStream();
+            classFile.write(outp);
+
+            return new AssembledClass(classFile.getClassName(), outp.toByteArray());
+        } catch (jasError e) {
+            throw new RuntimeException("JAS Error: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Exception while assembling Jasmin code", e);
+        }
+    }
+
+    /**
+     * Writes an assembled class to the output folder, in the subfolder of its package.
+     * 
+     * @return a reference to the .class file
+     */
+    public static File write(AssembledClass assembledClass, File outputDir) {
+        String class_path[] = splitClassField(assembledClass.getClassName());
+
+        if (class_path[0] != null) {
+            outputDir = new File(outputDir, convertChars(class_path[0], "./", File.separatorChar));
+        }
+
+        if (!outputDir.exists()) {
+            outputDir.mkdirs();
+        }
+
+        File out_file = new File(outputDir, class_path[1] + ".class");
+        try (FileOutputStream outp = new FileOutputStream(out_file)) {
+            outp.write(assembledClass.getBytes());
+        } catch (IOException e) {
+            throw new RuntimeException("Class could not be created: " + e.getMessage(), e);
+        }
+
+        return out_file;
+    }
+
     /**
      * Extracted from Jasmin code
      */
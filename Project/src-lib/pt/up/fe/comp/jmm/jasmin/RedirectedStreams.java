@@ -0,0 +1,107 @@
+package pt.up.fe.comp.jmm.jasmin;
+
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Replaces System.in, System.out and System.err with streams that forward to a per-thread target. Threads started
+ * by {@link #redirect(InputStream, PrintStream, PrintStream)} (and the threads they create) see their own streams,
+ * every other thread keeps using the original ones, so several programs can run in the same JVM at the same time.
+ */
+public class RedirectedStreams {
+
+    private static final InheritableThreadLocal<InputStream> IN = new InheritableThreadLocal<>();
+    private static final InheritableThreadLocal<PrintStream> OUT = new InheritableThreadLocal<>();
+    private static final InheritableThreadLocal<PrintStream> ERR = new InheritableThreadLocal<>();
+
+    private static boolean installed = false;
+
+    /**
+     * Installs the forwarding streams, once per JVM.
+     */
+    public static synchronized void install() {
+        if (installed) {
+            return;
+        }
+
+        InputStream originalIn = System.in;
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+
+        System.setIn(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return getIn().read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return getIn().read(b, off, len);
+            }
+
+            @Override
+            public int available() throws IOException {
+                return getIn().available();
+            }
+
+            private InputStream getIn() {
+                InputStream in = IN.get();
+                return in != null ? in : originalIn;
+            }
+        });
+        System.setOut(new PrintStream(new ForwardingStream(OUT, originalOut), true));
+        System.setErr(new PrintStream(new ForwardingStream(ERR, originalErr), true));
+
+        installed = true;
+    }
+
+    /**
+     * Sets the streams of the current thread, and of the threads it starts from now on.
+     */
+    public static void redirect(InputStream in, PrintStream out, PrintStream err) {
+        IN.set(in);
+        OUT.set(out);
+        ERR.set(err);
+    }
+
+    /**
+     * Restores the original streams for the current thread.
+     */
+    public static void clear() {
+        IN.remove();
+        OUT.remove();
+        ERR.remove();
+    }
+
+    private static class ForwardingStream extends OutputStream {
+        private final ThreadLocal<PrintStream> target;
+        private final PrintStream original;
+
+        private ForwardingStream(ThreadLocal<PrintStream> target, PrintStream original) {
+            this.target = target;
+            this.original = original;
+        }
+
+        private PrintStream getTarget() {
+            PrintStream stream = target.get();
+            return stream != null ? stream : original;
+        }
+
+        @Override
+        public void write(int b) {
+            getTarget().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            getTarget().write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            getTarget().flush();
+        }
+    }
+}
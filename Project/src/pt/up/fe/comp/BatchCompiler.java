@@ -0,0 +1,191 @@
+package pt.up.fe.comp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import pt.up.fe.comp.cache.CompilationCache;
+import pt.up.fe.comp.profiling.ProfileReport;
+import pt.up.fe.comp.profiling.StageMetrics;
+import pt.up.fe.comp.profiling.StageProfiler;
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Compiles several J-- files in the same JVM. Files are independent, so with more than one thread they are compiled
+ * concurrently on a work-stealing pool, each worker thread reusing its own {@link JmmCompiler}.
+ */
+public class BatchCompiler {
+    private final Map<String, String> config;
+    private final int threads;
+    private final ThreadLocal<JmmCompiler> compilers;
+
+    public BatchCompiler(Map<String, String> config) {
+        this(config, newCompilers(getCache(config)));
+    }
+
+    /**
+     * @param newCompiler creates the compiler of each thread
+     */
+    BatchCompiler(Map<String, String> config, Supplier<JmmCompiler> newCompiler) {
+        this.config = config;
+        this.threads = getNumberOfThreads(config);
+        this.compilers = ThreadLocal.withInitial(newCompiler);
+    }
+
+    private static Supplier<JmmCompiler> newCompilers(CompilationCache cache) {
+        return () -> new JmmCompiler(cache);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param input a directory, which is searched recursively for .jmm files, a single .jmm file, or a text file
+     *              with one path per line
+     * @return the files to compile
+     */
+    public static List<File> collectInputs(File input) {
+        if (input.isDirectory()) {
+            try (Stream<Path> paths = Files.walk(input.toPath())) {
+                return paths.filter(path -> path.toString().endsWith(".jmm"))
+                        .filter(Files::isRegularFile)
+                        .sorted()
+                        .map(Path::toFile)
+                        .collect(Collectors.toList());
+            } catch (IOException e) {
+                throw new RuntimeException("Could not list input directory '" + input + "'", e);
+            }
+        }
+
+        if (!input.isFile()) {
+            throw new RuntimeException("Expected a directory or a file list, got '" + input + "'.");
+        }
+
+        if (input.getName().endsWith(".jmm")) {
+            return List.of(input);
+        }
+
+        List<File> files = new ArrayList<>();
+        for (String line : SpecsIo.read(input).split("\\R")) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            files.add(new File(line));
+        }
+        return files;
+    }
+
+    public List<CompilationResult> compile(List<File> inputFiles) {
+        if (threads > 1) {
+            return compileParallel(inputFiles);
+        }
+
+        List<CompilationResult> results = new ArrayList<>();
+
+        for (File inputFile : inputFiles) {
+            var result = compile(inputFile);
+            System.out.println(result);
+            results.add(result);
+        }
+
+        return results;
+    }
+
+    private List<CompilationResult> compileParallel(List<File> inputFiles) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        try {
+            List<Future<CompilationResult>> futures = new ArrayList<>();
+            for (File inputFile : inputFiles) {
+                futures.add(pool.submit(() -> {
+                    var result = compile(inputFile);
+                    System.out.println(result);
+                    return result;
+                }));
+            }
+
+            // Results keep the order of the input files, regardless of the order they finished
+            List<CompilationResult> results = new ArrayList<>();
+            for (var future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while compiling files in parallel", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Unexpected error while compiling files in parallel", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public CompilationResult compile(File inputFile) {
+        long start = System.nanoTime();
+        var profiler = StageProfiler.fromConfig(config);
+
+        try {
+            if (!inputFile.isFile()) {
+                throw new RuntimeException("Expected a path to an existing input file, got '" + inputFile + "'.");
+            }
+
+            Map<String, String> fileConfig = new HashMap<>(config);
+            fileConfig.put("inputFile", inputFile.getPath());
+
+            var jasminResult = compilers.get().compile(SpecsIo.read(inputFile), fileConfig, profiler);
+            return CompilationResult.newSuccess(inputFile, jasminResult, elapsedMillis(start), profiler.getStages());
+        } catch (Throwable e) {
+            // Errors such as a StackOverflowError on a deeply nested input only fail their own file, in serial and
+            // parallel mode alike
+            var message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return CompilationResult.newError(inputFile, message, elapsedMillis(start), profiler.getStages());
+        }
+    }
+
+    public void printSummary(List<CompilationResult> results, long elapsedMillis) {
+        long failed = results.stream().filter(result -> !result.isSuccess()).count();
+
+        System.out.println("\nCompiled " + results.size() + " files in " + elapsedMillis + " ms using "
+                + threads + (threads == 1 ? " thread: " : " threads: ")
+                + (results.size() - failed) + " succeeded, " + failed + " failed.");
+
+        results.stream()
+                .filter(result -> !result.isSuccess())
+                .forEach(result -> System.out.println("  " + result.getInputFile().getPath()));
+
+        if (StageProfiler.fromConfig(config).isEnabled()) {
+            Map<String, List<StageMetrics>> profiles = new LinkedHashMap<>();
+            results.forEach(result -> profiles.put(result.getInputFile().getPath(), result.getProfile()));
+            ProfileReport.export(profiles, config);
+        }
+    }
+
+    public static CompilationCache getCache(Map<String, String> config) {
+        var cacheDir = config.getOrDefault("cacheDir", "");
+        return cacheDir.isEmpty() ? null : new CompilationCache(new File(cacheDir));
+    }
+
+    public static int getNumberOfThreads(Map<String, String> config) {
+        var threads = config.getOrDefault("threads", "1");
+        if (threads.equals("0")) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return Math.max(1, Integer.parseInt(threads));
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,72 @@
+package pt.up.fe.comp;
+
+import java.io.File;
+import java.util.List;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.profiling.StageMetrics;
+
+/**
+ * Outcome of compiling a single file in batch mode.
+ */
+public class CompilationResult {
+    private final File inputFile;
+    private final JasminResult jasminResult;
+    private final String errorMessage;
+    private final long elapsedMillis;
+    private final List<StageMetrics> profile;
+
+    private CompilationResult(File inputFile, JasminResult jasminResult, String errorMessage, long elapsedMillis,
+            List<StageMetrics> profile) {
+        this.inputFile = inputFile;
+        this.jasminResult = jasminResult;
+        this.errorMessage = errorMessage;
+        this.elapsedMillis = elapsedMillis;
+        this.profile = profile;
+    }
+
+    public static CompilationResult newSuccess(File inputFile, JasminResult jasminResult, long elapsedMillis,
+            List<StageMetrics> profile) {
+        return new CompilationResult(inputFile, jasminResult, null, elapsedMillis, profile);
+    }
+
+    public static CompilationResult newError(File inputFile, String errorMessage, long elapsedMillis,
+            List<StageMetrics> profile) {
+        return new CompilationResult(inputFile, null, errorMessage, elapsedMillis, profile);
+    }
+
+    public File getInputFile() {
+        return inputFile;
+    }
+
+    public JasminResult getJasminResult() {
+        return jasminResult;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return the metrics of the stages that ran, empty when profiling is disabled
+     */
+    public List<StageMetrics> getProfile() {
+        return profile;
+    }
+
+    public boolean isSuccess() {
+        return errorMessage == null;
+    }
+
+    @Override
+    public String toString() {
+        if (isSuccess()) {
+            return "[OK]   " + inputFile.getPath() + " (" + elapsedMillis + " ms)";
+        }
+        return "[FAIL] " + inputFile.getPath() + " (" + elapsedMillis + " ms): " + errorMessage;
+    }
+}
@@ -0,0 +1,191 @@
+package pt.up.fe.comp;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import pt.up.fe.comp.analysis.JmmAnalyser;
+import pt.up.fe.comp.cache.CompilationCache;
+import pt.up.fe.comp.diagnostics.Diagnostics;
+import pt.up.fe.comp.jasmin.bytecode.BytecodeBackend;
+import pt.up.fe.comp.jasmin.bytecode.BytecodeResult;
+import pt.up.fe.comp.jasmin.model.JvmOpcode;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.jasmin.JasminBackend;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.ollir.JmmOptimizer;
+import pt.up.fe.comp.profiling.StageProfiler;
+
+/**
+ * Runs the whole compilation pipeline (parse, analysis, optimization and backend) over a single source.
+ * Stage instances are kept between calls, so the same compiler can be reused for several files.
+ *
+ * <p>
+ * When a {@link CompilationCache} is given, the output of each stage is looked up before running it, and the most
+ * advanced cached stage is used as the starting point. When a {@link StageProfiler} is given, each stage that runs is
+ * measured and annotated with the size of its output.
+ */
+public class JmmCompiler {
+    private final SimpleParser parser;
+    private final JmmAnalyser analyser;
+    private final JmmOptimizer optimizer;
+    private final JasminBackend backend;
+    private final CompilationCache cache;
+
+    public JmmCompiler() {
+        this(null);
+    }
+
+    public JmmCompiler(CompilationCache cache) {
+        this.parser = new SimpleParser();
+        this.analyser = new JmmAnalyser();
+        this.optimizer = new JmmOptimizer();
+        this.backend = TestUtils.getJasminBackend();
+        this.cache = cache;
+    }
+
+    public JasminResult compile(String jmmCode, Map<String, String> config) {
+        return compile(jmmCode, config, StageProfiler.disabled());
+    }
+
+    public JasminResult compile(String jmmCode, Map<String, String> config, StageProfiler profiler) {
+        if (cache == null) {
+            return backend(toOllir(parse(jmmCode, config, profiler), profiler), profiler);
+        }
+
+        // A backend output hit skips every stage. The direct bytecode backend stores the class file, any other backend
+        // its Jasmin code
+        if (backend instanceof BytecodeBackend) {
+            var classKey = cache.getBackendKey(CompilationCache.CLASS, backend.getClass(), jmmCode, config);
+            var cachedClass = cache.readClass(classKey);
+            if (cachedClass.isPresent()) {
+                return new BytecodeResult(cachedClass.get(), config);
+            }
+
+            var jasminResult = backend(getOllir(jmmCode, config, profiler), profiler);
+            cache.writeClass(classKey, jasminResult.assemble(), Diagnostics.fromConfig(config));
+
+            return jasminResult;
+        }
+
+        var jasminKey = cache.getBackendKey(CompilationCache.JASMIN, backend.getClass(), jmmCode, config);
+        var cachedJasmin = cache.read(CompilationCache.JASMIN, jasminKey);
+        if (cachedJasmin.isPresent()) {
+            var jasminCode = cachedJasmin.get();
+            return new JasminResult(CompilationCache.getJasminClassName(jasminCode), jasminCode,
+                    new ArrayList<>(), config);
+        }
+
+        var jasminResult = backend(getOllir(jmmCode, config, profiler), profiler);
+        cache.write(CompilationCache.JASMIN, jasminKey, jasminResult.getJasminCode(), Diagnostics.fromConfig(config));
+
+        return jasminResult;
+    }
+
+    /**
+     * OLLIR code hit skips parsing, analysis and AST optimizations
+     */
+    private OllirResult getOllir(String jmmCode, Map<String, String> config, StageProfiler profiler) {
+        var ollirKey = cache.getKey(CompilationCache.OLLIR, jmmCode, config);
+        var cachedOllir = cache.read(CompilationCache.OLLIR, ollirKey);
+        if (cachedOllir.isPresent()) {
+            return new OllirResult(cachedOllir.get(), config);
+        }
+
+        var ollirResult = toOllir(parse(jmmCode, config, profiler), profiler);
+        cache.write(CompilationCache.OLLIR, ollirKey, ollirResult.getOllirCode(), Diagnostics.fromConfig(config));
+
+        return ollirResult;
+    }
+
+    private JmmParserResult parse(String jmmCode, Map<String, String> config, StageProfiler profiler) {
+        String astKey = null;
+
+        if (cache != null) {
+            astKey = cache.getKey(CompilationCache.AST, jmmCode, config);
+            var cachedAst = cache.read(CompilationCache.AST, astKey);
+            if (cachedAst.isPresent()) {
+                return new JmmParserResult(JmmNode.fromJson(cachedAst.get()), new ArrayList<>(), config);
+            }
+        }
+
+        JmmParserResult parserResult = profiler.measure("parse", () -> parser.parse(jmmCode, config));
+        TestUtils.noErrors(parserResult.getReports());
+        if (profiler.isEnabled()) {
+            profiler.count("parse", "astNodes", StageProfiler.countNodes(parserResult.getRootNode()));
+        }
+
+        // Stored before analysis, which modifies the tree
+        if (cache != null) {
+            cache.write(CompilationCache.AST, astKey, parserResult.getRootNode().toJson(),
+                    Diagnostics.fromConfig(config));
+        }
+
+        return parserResult;
+    }
+
+    private OllirResult toOllir(JmmParserResult parserResult, StageProfiler profiler) {
+        // Analysis stage
+        JmmSemanticsResult analysisResult = profiler.measure("semanticAnalysis",
+                () -> analyser.semanticAnalysis(parserResult));
+        TestUtils.noErrors(analysisResult.getReports());
+
+        // Optimization stage
+        JmmSemanticsResult optimizedAnalysisResult = profiler.measure("optimizeAst",
+                () -> optimizer.optimize(analysisResult));
+        if (profiler.isEnabled()) {
+            profiler.count("optimizeAst", "astNodes", StageProfiler.countNodes(optimizedAnalysisResult.getRootNode()));
+        }
+
+        OllirResult ollirResult = profiler.measure("toOllir", () -> optimizer.toOllir(optimizedAnalysisResult));
+        TestUtils.noErrors(ollirResult.getReports());
+        if (profiler.isEnabled()) {
+            long instructions = 0;
+            for (var method : ollirResult.getOllirClass().getMethods()) {
+                var methodInstructions = method.getInstructions().size();
+                profiler.count("toOllir", "instructions." + method.getMethodName(), methodInstructions);
+                instructions += methodInstructions;
+            }
+            profiler.count("toOllir", "instructions", instructions);
+        }
+
+        return ollirResult;
+    }
+
+    private JasminResult backend(OllirResult ollirResult, StageProfiler profiler) {
+        // Register allocation works on the parsed OLLIR class, so it always runs
+        OllirResult optimizedOllirResult = profiler.measure("optimizeOllir", () -> optimizer.optimize(ollirResult));
+        TestUtils.noErrors(optimizedOllirResult.getReports());
+
+        JasminResult jasminResult = profiler.measure("toJasmin", () -> backend.toJasmin(optimizedOllirResult));
+        TestUtils.noErrors(jasminResult.getReports());
+        if (profiler.isEnabled()) {
+            countInstructions(jasminResult, profiler);
+        }
+
+        return jasminResult;
+    }
+
+    /**
+     * Counts the instructions of the generated class from its model when the backend keeps one, so the Jasmin code is
+     * not rendered just to be measured. Otherwise counts the lines of the Jasmin code.
+     */
+    private void countInstructions(JasminResult jasminResult, StageProfiler profiler) {
+        if (!(jasminResult instanceof BytecodeResult bytecodeResult) || bytecodeResult.getJvmClass() == null) {
+            profiler.count("toJasmin", "lines", jasminResult.getJasminCode().lines().count());
+            return;
+        }
+
+        long instructions = 0;
+        for (var method : bytecodeResult.getJvmClass().getMethods()) {
+            var methodInstructions = method.getCode().getInstructions().stream()
+                    .filter(instruction -> instruction.getOpcode() != JvmOpcode.LABEL)
+                    .count();
+            profiler.count("toJasmin", "instructions." + method.getName(), methodInstructions);
+            instructions += methodInstructions;
+        }
+        profiler.count("toJasmin", "instructions", instructions);
+    }
+}
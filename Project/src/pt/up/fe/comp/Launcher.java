@@ -1,18 +1,14 @@
 package pt.up.fe.comp;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
-
-import pt.up.fe.comp.analysis.JmmAnalyser;
-import pt.up.fe.comp.jasmin.Jasmin;
-import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
-import pt.up.fe.comp.jmm.ollir.OllirResult;
-import pt.up.fe.comp.jmm.parser.JmmParserResult;
-import pt.up.fe.comp.ollir.JmmOptimizer;
+import pt.up.fe.comp.profiling.ProfileReport;
+import pt.up.fe.comp.profiling.StageProfiler;
+import pt.up.fe.comp.server.CompileServer;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsLogs;
 import pt.up.fe.specs.util.SpecsSystem;
@@ -29,23 +25,16 @@ public class Launcher {
             throw new RuntimeException("Expected more than one argument, a path to an existing input file.");
         }
 
-        // Create config
-        Map<String, String> config = new HashMap<>();
+        Map<String, String> config = getConfig(args);
 
-        config.put("inputFile", "");
-        config.put("optimize", "false");
-        config.put("registerAllocation", "-1");
-        config.put("debug", "false");
+        if (!config.get("server").isEmpty()) {
+            runServer(config);
+            return;
+        }
 
-        for (String flag : args) {
-            var options = flag.split("=");
-            switch (options[0]) {
-                case "-r" -> config.put("registerAllocation", options[1]);
-                case "-o" -> config.put("optimize", "true");
-                case "-d" -> config.put("debug", "true");
-                case "-i" -> config.put("inputFile", options[1]);
-                default -> throw new IllegalArgumentException();
-            }
+        if (!config.get("batchInput").isEmpty()) {
+            runBatch(config);
+            return;
         }
 
         File inputFile = new File(config.get("inputFile"));
@@ -54,42 +43,86 @@ public class Launcher {
         }
         String input = SpecsIo.read(inputFile);
 
-        // Instantiate JmmParser
-        SimpleParser parser = new SimpleParser();
+        // Parse, analyse, optimize and generate Jasmin, throwing on the first stage with errors
+        var profiler = StageProfiler.fromConfig(config);
+        var jasminResult = new JmmCompiler(BatchCompiler.getCache(config)).compile(input, config, profiler);
 
-        // Parse stage
-        JmmParserResult parserResult = parser.parse(input, config);
-
-        // Check if there are parsing errors
-        TestUtils.noErrors(parserResult.getReports());
+        if (!config.get("outputDir").isEmpty()) {
+            jasminResult.compile(new File(config.get("outputDir")));
+        }
 
-        // Instantiate JmmAnalysis
-        JmmAnalyser analyser = new JmmAnalyser();
+        if (profiler.isEnabled()) {
+            ProfileReport.export(Map.of(inputFile.getPath(), profiler.getStages()), config);
+        }
+    }
 
-        // Analysis stage
-        JmmSemanticsResult analysisResult = analyser.semanticAnalysis(parserResult);
+    /**
+     * Builds the compiler configuration from the command line flags.
+     */
+    public static Map<String, String> getConfig(String[] args) {
+        Map<String, String> config = new HashMap<>();
 
-        // Check if there are parsing errors
-        TestUtils.noErrors(analysisResult.getReports());
+        config.put("inputFile", "");
+        config.put("batchInput", "");
+        config.put("outputDir", "");
+        config.put("threads", "1");
+        config.put("cacheDir", "");
+        config.put("profile", "false");
+        config.put("profileOutput", "");
+        config.put("optimize", "false");
+        config.put("registerAllocation", "-1");
+        config.put("registerAllocator", "graph");
+        config.put("debug", "false");
+        config.put("debugOutput", "");
+        config.put("server", "");
 
-        // Instantiate JmmOptimization
-        JmmOptimizer optimizer = new JmmOptimizer();
+        for (String flag : args) {
+            var options = flag.split("=", 2);
+            switch (options[0]) {
+                case "-r" -> config.put("registerAllocation", options[1]);
+                case "-a" -> config.put("registerAllocator", options[1]);
+                case "-o" -> config.put("optimize", "true");
+                case "-d" -> {
+                    config.put("debug", "true");
+                    config.put("debugOutput", options.length > 1 ? options[1] : "");
+                }
+                case "-i" -> config.put("inputFile", options[1]);
+                case "-b" -> config.put("batchInput", options[1]);
+                case "-t" -> config.put("outputDir", options.length > 1 ? options[1] : ".");
+                case "-j" -> config.put("threads", options.length > 1 ? options[1] : "0");
+                case "-c" -> config.put("cacheDir", options.length > 1 ? options[1] : ".jmm-cache");
+                case "-p" -> {
+                    config.put("profile", "true");
+                    config.put("profileOutput", options.length > 1 ? options[1] : "");
+                }
+                case "-s" -> config.put("server", options.length > 1 ? options[1] : CompileServer.DEFAULT_ADDRESS);
+                default -> throw new IllegalArgumentException(flag);
+            }
+        }
 
-        // Optimization stage
-        JmmSemanticsResult optimizedAnalysisResult = optimizer.optimize(analysisResult);
+        return config;
+    }
 
-        // Check if there are conversion errors
-        OllirResult ollirResult = optimizer.toOllir(optimizedAnalysisResult);
-        TestUtils.noErrors(ollirResult.getReports());
+    private static void runServer(Map<String, String> config) {
+        try (var server = new CompileServer(config)) {
+            server.serve();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not run the compile server at '" + config.get("server") + "'", e);
+        }
+    }
 
-        OllirResult optimizedOllirResult = optimizer.optimize(ollirResult);
+    private static void runBatch(Map<String, String> config) {
+        long start = System.nanoTime();
 
+        var batchCompiler = new BatchCompiler(config);
+        var inputFiles = BatchCompiler.collectInputs(new File(config.get("batchInput")));
+        var results = batchCompiler.compile(inputFiles);
 
-        // Instantiate Jasmin Backend
-        Jasmin jasminBackend = new Jasmin();
+        batchCompiler.printSummary(results, (System.nanoTime() - start) / 1_000_000);
 
-        // Check if there are conversion errors
-        TestUtils.noErrors(jasminBackend.toJasmin(optimizedOllirResult));
+        if (results.stream().anyMatch(result -> !result.isSuccess())) {
+            System.exit(1);
+        }
     }
 
 }
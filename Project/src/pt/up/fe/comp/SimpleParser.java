@@ -4,6 +4,7 @@ import java.util.Collections;
 import java.util.Map;
 
 import pt.up.fe.comp.ast.NodePositionAnnotator;
+import pt.up.fe.comp.diagnostics.Diagnostics;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
@@ -38,7 +39,6 @@ public class SimpleParser implements JmmParser {
             SpecsSystem.invoke(parser, startingRule);
 
             Node root = parser.rootNode();
-            root.dump("");
 
             if (root == null) {
                 throw new ParseException(parser, "Parsing problems, root is null");
@@ -51,6 +51,8 @@ public class SimpleParser implements JmmParser {
                         "JmmNode interface not yet implemented, returning null root node"));
             }
 
+            Diagnostics.fromConfig(config).emit("parse", "AST", ((JmmNode) root)::toTree);
+
             return new JmmParserResult((JmmNode) root, Collections.emptyList(), config);
 
         } catch (Exception e) {
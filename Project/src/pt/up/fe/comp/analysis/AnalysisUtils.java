@@ -4,7 +4,14 @@ import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.specs.util.SpecsCheck;
 
+import java.util.Optional;
+
 public class AnalysisUtils {
+    /**
+     * Key of the object of expression nodes with the {@link Type} resolved by the semantic analysis.
+     */
+    public static final String RESOLVED_TYPE = "resolvedType";
+
     public static Type createType(JmmNode node) {
         SpecsCheck.checkArgument(node.getKind().equals("Type"),
                 () -> "Expected node of type 'Type' got '"+ node.getKind()+"'!");
@@ -16,4 +23,15 @@ public class AnalysisUtils {
 
         return new Type(typeName, isArray);
     }
+
+    public static void setResolvedType(JmmNode node, Type type) {
+        node.putObject(RESOLVED_TYPE, type);
+    }
+
+    /**
+     * @return the type resolved for the expression node, or empty if the node was not typed
+     */
+    public static Optional<Type> getResolvedType(JmmNode node) {
+        return node.getObject(RESOLVED_TYPE, Type.class);
+    }
 }
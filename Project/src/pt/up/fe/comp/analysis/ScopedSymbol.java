@@ -0,0 +1,48 @@
+package pt.up.fe.comp.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+/**
+ * A symbol together with the scope where it was declared, as resolved by {@link SymbolTableMap#lookup}.
+ */
+public class ScopedSymbol {
+    public enum Scope {
+        LOCAL,
+        PARAMETER,
+        FIELD
+    }
+
+    private final Symbol symbol;
+    private final Scope scope;
+    private final int index;
+
+    public ScopedSymbol(Symbol symbol, Scope scope, int index) {
+        this.symbol = symbol;
+        this.scope = scope;
+        this.index = index;
+    }
+
+    public Symbol getSymbol() {
+        return this.symbol;
+    }
+
+    public String getName() {
+        return this.symbol.getName();
+    }
+
+    public Type getType() {
+        return this.symbol.getType();
+    }
+
+    public Scope getScope() {
+        return this.scope;
+    }
+
+    /**
+     * @return the position of a parameter, starting at 1, or the position of the symbol in its declaration list
+     */
+    public int getIndex() {
+        return this.index;
+    }
+}
@@ -1,18 +1,21 @@
 package pt.up.fe.comp.analysis;
 
-import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.ast.AstNode;
+import pt.up.fe.comp.ast.Operator;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.stream.Collectors;
 
-public abstract class SemanticAnalyser extends PreorderJmmVisitor<Integer, Integer> implements Reporter {
+public abstract class SemanticAnalyser extends AJmmVisitor<Integer, Integer> implements Reporter {
     private final List<Report> reports = new ArrayList<>();
     protected final SymbolTableMap symbolTable;
 
@@ -20,36 +23,72 @@ public abstract class SemanticAnalyser extends PreorderJmmVisitor<Integer, Integ
         this.symbolTable = symbolTable;
     }
 
+    /**
+     * Types an expression once. The resolved type is kept in the node, so later queries, here or in the OLLIR
+     * generation, do not type the expression again. Invalid types are not kept, so their errors are still reported.
+     */
     protected Type getExpressionType(JmmNode node, String methodSignature) {
+        var resolvedType = AnalysisUtils.getResolvedType(node);
+        if (resolvedType.isPresent()) {
+            return resolvedType.get();
+        }
 
-        switch (node.getKind()) {
-            case "BinOp" -> {
-                return getBinaryOpType(node, methodSignature);
-            }
-            case "UnaryOp" -> {
-                return getUnaryOpType(node, methodSignature);
-            }
-            case "Terminal" -> {
-                return getTerminalType(node, methodSignature);
-            }
-            case "Identifier" -> {
-                return getIdentifierType(node, methodSignature);
+        var type = switch (AstNode.of(node)) {
+            case BIN_OP -> getBinaryOpType(node, methodSignature);
+            case UNARY_OP -> getUnaryOpType(node, methodSignature);
+            case TERMINAL -> getTerminalType(node, methodSignature);
+            case IDENTIFIER -> getIdentifierType(node, methodSignature);
+            case MEMBER_CALL -> getMemberCallType(node, methodSignature);
+            default -> throw new RuntimeException("Invalid node kind in expression: " + node.getKind());
+        };
+
+        keepResolvedType(node, type);
+        return type;
+    }
+
+    private void keepResolvedType(JmmNode node, Type type) {
+        if (!type.getName().equals("invalid") && !type.getName().equals("undefined")) {
+            AnalysisUtils.setResolvedType(node, type);
+        }
+    }
+
+    private Type getBinaryOpType(JmmNode node, String methodSignature) {
+        // Operands that are binary operations are typed in this loop, with an explicit stack, so a chain such as
+        // 'a + b + ... + z' does not need a level of recursion per operator
+        Deque<OperandTypes> stack = new ArrayDeque<>();
+        stack.push(new OperandTypes(node));
+
+        while (true) {
+            var operation = stack.peek();
+
+            if (operation.types.size() < operation.node.getNumChildren()) {
+                var operand = operation.node.getJmmChild(operation.types.size());
+                if (AstNode.of(operand) == AstNode.BIN_OP && AnalysisUtils.getResolvedType(operand).isEmpty()) {
+                    stack.push(new OperandTypes(operand));
+                } else {
+                    operation.types.add(getExpressionType(operand, methodSignature));
+                }
+                continue;
             }
-            case "MemberCall" -> {
-                return getMemberCallType(node, methodSignature);
+
+            stack.pop();
+            var type = getBinaryOpType(operation.node, operation.types.get(0), operation.types.get(1));
+
+            // The type of the first operation is kept by getExpressionType
+            if (stack.isEmpty()) {
+                return type;
             }
-            default -> throw new RuntimeException("Invalid node kind in expression.");
+
+            keepResolvedType(operation.node, type);
+            stack.peek().types.add(type);
         }
     }
 
-    private Type getBinaryOpType(JmmNode node, String methodSignature) {
-        var operation = node.get("op");
+    private Type getBinaryOpType(JmmNode node, Type typeLeft, Type typeRight) {
+        var operation = Operator.of(node);
 
         switch (operation) {
-            case "AND" -> {
-                var typeLeft = getExpressionType(node.getJmmChild(0), methodSignature);
-                var typeRight = getExpressionType(node.getJmmChild(1), methodSignature);
-
+            case AND -> {
                 var booleanType = createType("boolean");
                 if (typeLeft.matches(booleanType) && typeRight.matches(booleanType)) {
                     return booleanType;
@@ -58,21 +97,15 @@ public abstract class SemanticAnalyser extends PreorderJmmVisitor<Integer, Integ
                 addReport(node, "Incompatible type in AND expresion!");
                 return createType("invalid");
             }
-            case "LT", "ADD", "SUB", "MUL", "DIV" -> {
-                var typeLeft = getExpressionType(node.getJmmChild(0), methodSignature);
-                var typeRight = getExpressionType(node.getJmmChild(1), methodSignature);
-
+            case LT, ADD, SUB, MUL, DIV -> {
                 var intType = createType("int");
                 if (typeLeft.matches(intType) && typeRight.matches(intType)) {
-                    return operation.equals("LT") ? createType("boolean") : intType;
+                    return operation == Operator.LT ? createType("boolean") : intType;
                 }
                 addReport(node, "Incompatible type in ARITHMETIC expresion!");
                 return createType("invalid");
             }
-            case "ACCESS" -> {
-                var typeLeft = getExpressionType(node.getJmmChild(0), methodSignature);
-                var typeRight = getExpressionType(node.getJmmChild(1), methodSignature);
-
+            case ACCESS -> {
                 if (typeLeft.isArray() && typeRight.matches(createType("int"))) {
                     return createType(typeLeft.getName());
                 }
@@ -96,10 +129,10 @@ public abstract class SemanticAnalyser extends PreorderJmmVisitor<Integer, Integ
     }
 
     private Type getUnaryOpType(JmmNode node, String methodSignature) {
-        var operation = node.get("op");
+        var operation = Operator.of(node);
 
         switch (operation) {
-            case "NOT" -> {
+            case NOT -> {
                 var type = getExpressionType(node.getJmmChild(0), methodSignature);
 
                 if (type.matches(createType("boolean"))) {
@@ -108,7 +141,7 @@ public abstract class SemanticAnalyser extends PreorderJmmVisitor<Integer, Integ
                 addReport(node, "Incompatible type " + type.toString() + " in NOT expresion!");
                 return createType("invalid");
             }
-            case "LENGTH" -> {
+            case LENGTH -> {
                 var type = getExpressionType(node.getJmmChild(0), methodSignature);
 
                 if (type.isArray()) {
@@ -117,7 +150,7 @@ public abstract class SemanticAnalyser extends PreorderJmmVisitor<Integer, Integ
                 addReport(node, "Incompatible type " + type.toString() + " in LENGTH expresion!");
                 return createType("invalid");
             }
-            case "ARRAY_INIT" -> {
+            case ARRAY_INIT -> {
                 var type = getExpressionType(node.getJmmChild(0), methodSignature);
 
                 if (type.matches(createType("int"))) {
@@ -126,7 +159,7 @@ public abstract class SemanticAnalyser extends PreorderJmmVisitor<Integer, Integ
                 addReport(node, "Incompatible type " + type.toString() + " in ARRAY_INIT expresion!");
                 return createType("invalid");
             }
-            case "OBJ_INIT" -> {
+            case OBJ_INIT -> {
                 var typeName = node.getJmmChild(0).get("name");
                 if (typeName.equals(symbolTable.getClassName()) || symbolTable.hasImport(typeName)) {
                     return createType(typeName);
@@ -142,30 +175,9 @@ public abstract class SemanticAnalyser extends PreorderJmmVisitor<Integer, Integ
     protected Type getIdentifierType(JmmNode node, String methodSignature) {
         var name = node.get("name");
 
-        // localVars
-        var localVars = this.symbolTable.getLocalVariables(methodSignature);
-        for (Symbol localVar : localVars) {
-            if (localVar.getName().equals(name)) {
-                return localVar.getType();
-            }
-        }
-
-        // params
-        var params = this.symbolTable.getParameters(methodSignature);
-        for (Symbol param : params) {
-            if (param.getName().equals(name)) {
-                return param.getType();
-            }
-        }
-
-        // class fields
-        if (!methodSignature.equals("main")) {
-            var fields = this.symbolTable.getFields();
-            for (Symbol field : fields) {
-                if (field.getName().equals(name)) {
-                    return field.getType();
-                }
-            }
+        var symbol = this.symbolTable.lookup(methodSignature, name);
+        if (symbol != null) {
+            return symbol.getType();
         }
 
         addReport(node,"Variable "+ name +" not defined, in "+ methodSignature + "!");
@@ -178,7 +190,7 @@ public abstract class SemanticAnalyser extends PreorderJmmVisitor<Integer, Integ
         if (callerType.matches(createType(symbolTable.getClassName()))) {
             var callerMethod = node.getJmmChild(1).get("name");
 
-            if (symbolTable.getMethods().contains(callerMethod)) {
+            if (symbolTable.hasMethod(callerMethod)) {
 
                 var params = node.getJmmChild(1).getChildren().stream()
                         .map(param -> getExpressionType(param, methodSignature))
@@ -230,8 +242,20 @@ public abstract class SemanticAnalyser extends PreorderJmmVisitor<Integer, Integ
     @Override
     public void addReport(JmmNode node, String message) {
         this.reports.add(new Report(ReportType.ERROR, Stage.SEMANTIC,
-                Integer.parseInt(node.get("line")),
-                Integer.parseInt(node.get("col")),
+                node.getInt("line"),
+                node.getInt("col"),
                 message));
     }
+
+    /**
+     * A binary operation whose operands are being typed.
+     */
+    private static class OperandTypes {
+        private final JmmNode node;
+        private final List<Type> types = new ArrayList<>(2);
+
+        private OperandTypes(JmmNode node) {
+            this.node = node;
+        }
+    }
 }
@@ -6,11 +6,16 @@ import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
 
 import java.util.stream.Collectors;
 
+/**
+ * Typing pass. Walks the method bodies once, after the declarations prepass filled the symbol table.
+ */
 public class SemanticAnalysisVisitor extends SemanticAnalyser {
 
     public SemanticAnalysisVisitor(SymbolTableMap symbolTable) {
         super(symbolTable);
 
+        addVisit(AstNode.START, this::visitAllChildren);
+        addVisit(AstNode.CLASS_DECLARATION, this::visitAllChildren);
         addVisit(AstNode.METHOD_DECLARATION, this::methodVisit);
     }
 
@@ -16,6 +16,10 @@ public class SymbolTableMap implements SymbolTable {
     private final Map<String, List<Symbol>> parameters = new HashMap<>();
     private final Map<String, List<Symbol>> localVars = new HashMap<>();
 
+    private final Set<String> importNames = new HashSet<>();
+    private final Map<String, ScopedSymbol> fieldScope = new HashMap<>();
+    private final Map<String, Map<String, ScopedSymbol>> methodScopes = new HashMap<>();
+
 
     @Override
     public List<String> getImports() {
@@ -59,6 +63,7 @@ public class SymbolTableMap implements SymbolTable {
 
     public void addImport(String importStr) {
         this.imports.add(importStr);
+        this.importNames.add(importStr.substring(importStr.lastIndexOf('.') + 1));
     }
 
     public void setClassName(String className) {
@@ -71,6 +76,7 @@ public class SymbolTableMap implements SymbolTable {
 
     public void addField(Symbol field) {
         this.fields.add(field);
+        this.fieldScope.putIfAbsent(field.getName(), new ScopedSymbol(field, ScopedSymbol.Scope.FIELD, this.fields.size() - 1));
     }
 
     public void addMethod(String methodSignature, Type returnType, List<Symbol> params, List<Symbol> localVars) {
@@ -78,20 +84,42 @@ public class SymbolTableMap implements SymbolTable {
         this.returnTypes.put(methodSignature, returnType);
         this.parameters.put(methodSignature, params);
         this.localVars.put(methodSignature, localVars);
+
+        // Locals hide parameters with the same name, and the first of duplicated declarations is the one used
+        Map<String, ScopedSymbol> scope = new HashMap<>();
+        for (int i = 0; i < localVars.size(); i++) {
+            var localVar = localVars.get(i);
+            scope.putIfAbsent(localVar.getName(), new ScopedSymbol(localVar, ScopedSymbol.Scope.LOCAL, i));
+        }
+        for (int i = 0; i < params.size(); i++) {
+            var param = params.get(i);
+            scope.putIfAbsent(param.getName(), new ScopedSymbol(param, ScopedSymbol.Scope.PARAMETER, i + 1));
+        }
+        this.methodScopes.put(methodSignature, scope);
     }
 
-    public boolean hasImport(String id) {
-        for (String importStr : getImports()) {
-            var importList = importStr.split("\\.");
-            if (importList[importList.length-1].equals(id)){
-                return true;
-            }
+    /**
+     * Resolves a variable used inside a method, looking in its locals, then parameters, then the class fields. Fields
+     * are not visible in 'main'.
+     *
+     * @return the symbol, or null if no variable with that name is visible
+     */
+    public ScopedSymbol lookup(String methodSignature, String name) {
+        var scope = this.methodScopes.get(methodSignature);
+        var symbol = scope != null ? scope.get(name) : null;
+        if (symbol != null || methodSignature.equals("main")) {
+            return symbol;
         }
-        return false;
+
+        return this.fieldScope.get(name);
+    }
+
+    public boolean hasImport(String id) {
+        return this.importNames.contains(id);
     }
 
     public boolean hasMethod(String methodSignature) {
-        return this.methods.contains(methodSignature);
+        return this.returnTypes.containsKey(methodSignature);
     }
 
 }
@@ -3,7 +3,7 @@ package pt.up.fe.comp.analysis;
 import pt.up.fe.comp.ast.AstNode;
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
@@ -12,16 +12,19 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
-public class SymbolTableVisitor extends PreorderJmmVisitor<SymbolTableMap, Integer> implements Reporter {
+/**
+ * Declarations prepass. Only visits the import, class and method headers, method bodies are left to the typing pass.
+ */
+public class SymbolTableVisitor extends AJmmVisitor<SymbolTableMap, Integer> implements Reporter {
     private final List<Report> reports;
 
     public SymbolTableVisitor() {
         this.reports = new ArrayList<>();
 
+        addVisit(AstNode.START, this::visitAllChildren);
         addVisit(AstNode.IMPORT_DECLARATION, this::importVisit);
         addVisit(AstNode.CLASS_DECLARATION, this::classVisit);
         addVisit(AstNode.METHOD_DECLARATION, this::methodVisit);
-
     }
 
     private Integer importVisit(JmmNode node, SymbolTableMap symbolTable) {
@@ -43,6 +46,12 @@ public class SymbolTableVisitor extends PreorderJmmVisitor<SymbolTableMap, Integ
             if (!child.getKind().equals("VarDeclaration")) break;
             symbolTable.addField(new Symbol(AnalysisUtils.createType(child.getJmmChild(0)), child.get("name")));
         }
+
+        for (var child : node.getChildren()) {
+            if (child.getKind().equals("MethodDeclaration")) {
+                visit(child, symbolTable);
+            }
+        }
         return 1;
     }
 
@@ -102,8 +111,8 @@ public class SymbolTableVisitor extends PreorderJmmVisitor<SymbolTableMap, Integ
     @Override
     public void addReport(JmmNode node, String message) {
         this.reports.add(new Report(ReportType.ERROR, Stage.SEMANTIC,
-                Integer.parseInt(node.get("line")),
-                Integer.parseInt(node.get("col")),
+                node.getInt("line"),
+                node.getInt("col"),
                 message));
     }
 }
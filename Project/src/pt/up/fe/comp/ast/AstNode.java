@@ -1,5 +1,7 @@
 package pt.up.fe.comp.ast;
 
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodeKinds;
 import pt.up.fe.specs.util.SpecsStrings;
 
 public enum AstNode {
@@ -7,7 +9,10 @@ public enum AstNode {
     START,
     IMPORT_DECLARATION,
     CLASS_DECLARATION,
+    VAR_DECLARATION,
     METHOD_DECLARATION,
+    PARAM,
+    TYPE,
     ENCLOSED_STATEMENT,
     IF_STATEMENT,
     THEN_STATEMENT,
@@ -21,12 +26,54 @@ public enum AstNode {
     RETURN_VOID,
     UNARY_OP,
     BIN_OP,
-    TERMINAL;
+    TERMINAL,
+    IDENTIFIER,
+    MEMBER_CALL,
+    METHOD_CALL,
+
+    /**
+     * Any kind that is not of the J-- grammar, so switches over {@link #of} fall to their default branch instead of
+     * failing on null.
+     */
+    UNKNOWN(false);
+
+    private static final AstNode[] BY_KIND_ID;
+
+    static {
+        BY_KIND_ID = new AstNode[NodeKinds.size()];
+        for (var value : values()) {
+            if (value.kindId >= 0) {
+                BY_KIND_ID[value.kindId] = value;
+            }
+        }
+    }
 
     private final String name;
+    private final int kindId;
 
     AstNode() {
+        this(true);
+    }
+
+    AstNode(boolean grammarKind) {
         this.name = SpecsStrings.toCamelCase(name(), "_", true);
+        this.kindId = grammarKind ? NodeKinds.getId(name) : -1;
+    }
+
+    /**
+     * @return the id of the node kind, or -1 for {@link #UNKNOWN}
+     */
+    public int getKindId() {
+        return kindId;
+    }
+
+    /**
+     * @return the constant of the node kind, or {@link #UNKNOWN} if the node is not of a J-- grammar kind
+     */
+    public static AstNode of(JmmNode node) {
+        int kindId = node.getKindId();
+        var value = kindId < BY_KIND_ID.length ? BY_KIND_ID[kindId] : null;
+        return value != null ? value : UNKNOWN;
     }
 
     @Override
@@ -13,8 +13,8 @@ public class NodePositionAnnotator extends PreorderJmmVisitor<Object, Integer> {
     private Integer anotatePosition(JmmNode node, Object dummy) {
         var baseNode = (BaseNode) node;
 
-        node.put("line", Integer.toString(baseNode.getBeginLine()));
-        node.put("col", Integer.toString(baseNode.getBeginColumn()));
+        node.put("line", baseNode.getBeginLine());
+        node.put("col", baseNode.getBeginColumn());
 
         return 1;
     }
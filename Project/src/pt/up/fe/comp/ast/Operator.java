@@ -0,0 +1,25 @@
+package pt.up.fe.comp.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+public enum Operator {
+
+    AND,
+    LT,
+    ADD,
+    SUB,
+    MUL,
+    DIV,
+    NOT,
+    LENGTH,
+    ACCESS,
+    ARRAY_INIT,
+    OBJ_INIT;
+
+    /**
+     * @return the operator of a BinOp or UnaryOp node, which the node keeps after the first lookup
+     */
+    public static Operator of(JmmNode node) {
+        return node.getEnum("op", Operator.class);
+    }
+}
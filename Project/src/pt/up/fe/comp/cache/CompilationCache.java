@@ -0,0 +1,202 @@
+package pt.up.fe.comp.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+
+import pt.up.fe.comp.diagnostics.Diagnostics;
+import pt.up.fe.comp.jmm.jasmin.AssembledClass;
+
+/**
+ * On-disk, content-addressed cache for the output of each compilation stage.
+ *
+ * <p>
+ * Entries are keyed by the SHA-256 of the source code plus the configuration that affects the stage: the AST only
+ * depends on the source, the OLLIR code also depends on 'optimize', and the output of the backend, Jasmin code or a
+ * class file, on 'optimize', 'registerAllocation', 'registerAllocator' and the backend class. Writes go through a
+ * temporary file and an atomic move, so the cache can be shared by concurrent compilations. Each entry starts with
+ * the SHA-256 of its content, so a corrupt or truncated entry is read as a miss. Bump {@link #VERSION} whenever a
+ * change in the compiler changes its output.
+ */
+public class CompilationCache {
+    private static final String VERSION = "15";
+    private static final int DIGEST_LENGTH = 32;
+
+    public static final String AST = "ast";
+    public static final String OLLIR = "ollir";
+    public static final String JASMIN = "jasmin";
+    public static final String CLASS = "class";
+
+    private final File cacheDir;
+
+    public CompilationCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    public File getCacheDir() {
+        return cacheDir;
+    }
+
+    /**
+     * @param stage {@link #AST} or {@link #OLLIR}
+     */
+    public String getKey(String stage, String jmmCode, Map<String, String> config) {
+        return switch (stage) {
+            case AST -> hash(VERSION, jmmCode);
+            case OLLIR -> hash(VERSION, jmmCode, "optimize=" + config.getOrDefault("optimize", "false"));
+            default -> throw new IllegalArgumentException("Unknown cache stage: " + stage);
+        };
+    }
+
+    /**
+     * @param stage   {@link #JASMIN} or {@link #CLASS}
+     * @param backend class of the backend that produces the output
+     */
+    public String getBackendKey(String stage, Class<?> backend, String jmmCode, Map<String, String> config) {
+        if (!stage.equals(JASMIN) && !stage.equals(CLASS)) {
+            throw new IllegalArgumentException("Unknown backend cache stage: " + stage);
+        }
+
+        return hash(VERSION, stage, jmmCode, "optimize=" + config.getOrDefault("optimize", "false"),
+                "registerAllocation=" + config.getOrDefault("registerAllocation", "-1"),
+                "registerAllocator=" + config.getOrDefault("registerAllocator", "graph"),
+                "backend=" + backend.getName());
+    }
+
+    public Optional<String> read(String stage, String key) {
+        return readBytes(stage, key).map(bytes -> new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Failing to write an entry never fails the compilation, and is only reported to the debug output.
+     */
+    public void write(String stage, String key, String content, Diagnostics diagnostics) {
+        write(stage, key, content.getBytes(StandardCharsets.UTF_8), diagnostics);
+    }
+
+    /**
+     * @return the class file cached with the given key, stored after its name
+     */
+    public Optional<AssembledClass> readClass(String key) {
+        return readBytes(CLASS, key).flatMap(bytes -> {
+            try {
+                var in = new DataInputStream(new ByteArrayInputStream(bytes));
+                var className = in.readUTF();
+                return Optional.of(new AssembledClass(className, in.readAllBytes()));
+            } catch (IOException e) {
+                return Optional.empty();
+            }
+        });
+    }
+
+    public void writeClass(String key, AssembledClass assembledClass, Diagnostics diagnostics) {
+        var bytes = new ByteArrayOutputStream();
+
+        try {
+            var out = new DataOutputStream(bytes);
+            out.writeUTF(assembledClass.getClassName());
+            out.write(assembledClass.getBytes());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        write(CLASS, key, bytes.toByteArray(), diagnostics);
+    }
+
+    private Optional<byte[]> readBytes(String stage, String key) {
+        Path entry = getEntry(stage, key);
+        if (!Files.isRegularFile(entry)) {
+            return Optional.empty();
+        }
+
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(entry);
+        } catch (IOException e) {
+            // A concurrently removed entry is just a miss
+            return Optional.empty();
+        }
+
+        // So is an entry whose content does not match its digest
+        if (bytes.length < DIGEST_LENGTH) {
+            return Optional.empty();
+        }
+
+        var content = Arrays.copyOfRange(bytes, DIGEST_LENGTH, bytes.length);
+        if (!MessageDigest.isEqual(Arrays.copyOf(bytes, DIGEST_LENGTH), digest(content))) {
+            return Optional.empty();
+        }
+
+        return Optional.of(content);
+    }
+
+    private void write(String stage, String key, byte[] content, Diagnostics diagnostics) {
+        Path entry = getEntry(stage, key);
+
+        try {
+            Files.createDirectories(entry.getParent());
+            Path temp = Files.createTempFile(entry.getParent(), key, ".tmp");
+            Files.write(temp, digest(content));
+            Files.write(temp, content, StandardOpenOption.APPEND);
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Failing to cache must never fail the compilation
+            diagnostics.emit("cache", entry.getFileName().toString(),
+                    () -> "Could not write cache entry " + entry + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the name of the class declared in the given Jasmin code
+     */
+    public static String getJasminClassName(String jasminCode) {
+        var header = jasminCode.lines()
+                .filter(line -> line.startsWith(".class"))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Cached Jasmin code has no class declaration"))
+                .trim()
+                .split("\\s+");
+
+        return header[header.length - 1];
+    }
+
+    private Path getEntry(String stage, String key) {
+        return new File(new File(cacheDir, stage), key).toPath();
+    }
+
+    private static String hash(String... parts) {
+        MessageDigest digest = newDigest();
+        for (String part : parts) {
+            digest.update(part.getBytes(StandardCharsets.UTF_8));
+            // Separator, so that different splits of the same text do not collide
+            digest.update((byte) 0);
+        }
+        return String.format("%064x", new BigInteger(1, digest.digest()));
+    }
+
+    private static byte[] digest(byte[] content) {
+        return newDigest().digest(content);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package pt.up.fe.comp.diagnostics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the debug output in memory, to be emitted later to another sink, e.g. by a client of the compile server.
+ */
+public class CollectingSink implements DiagnosticSink {
+    public static class Entry {
+        private final String stage;
+        private final String name;
+        private final String content;
+
+        public Entry(String stage, String name, String content) {
+            this.stage = stage;
+            this.name = name;
+            this.content = content;
+        }
+
+        public String getStage() {
+            return stage;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getContent() {
+            return content;
+        }
+    }
+
+    private final List<Entry> entries;
+
+    public CollectingSink() {
+        this(new ArrayList<>());
+    }
+
+    public CollectingSink(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    @Override
+    public void emit(String stage, String name, String content) {
+        entries.add(new Entry(stage, name, content));
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public void emitTo(DiagnosticSink sink) {
+        for (var entry : entries) {
+            sink.emit(entry.getStage(), entry.getName(), entry.getContent());
+        }
+    }
+}
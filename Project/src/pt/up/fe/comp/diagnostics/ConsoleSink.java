@@ -0,0 +1,12 @@
+package pt.up.fe.comp.diagnostics;
+
+/**
+ * Prints debug output to the standard output.
+ */
+public class ConsoleSink implements DiagnosticSink {
+
+    @Override
+    public void emit(String stage, String name, String content) {
+        System.out.println("\n[" + stage + "] " + name + ":\n" + content);
+    }
+}
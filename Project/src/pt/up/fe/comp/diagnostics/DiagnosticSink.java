@@ -0,0 +1,14 @@
+package pt.up.fe.comp.diagnostics;
+
+/**
+ * Destination of the debug output of the compiler stages.
+ */
+public interface DiagnosticSink {
+
+    /**
+     * @param stage   stage that produced the output, e.g. 'parse' or 'toOllir'
+     * @param name    what the content is, e.g. 'AST' or the name of a generated file
+     * @param content the rendered output
+     */
+    void emit(String stage, String name, String content);
+}
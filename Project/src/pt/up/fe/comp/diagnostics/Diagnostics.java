@@ -0,0 +1,81 @@
+package pt.up.fe.comp.diagnostics;
+
+import java.io.File;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Debug output of the compiler, enabled with the 'debug' option. Content is given as a supplier and only rendered
+ * when enabled, so a compilation without 'debug' does no debug work nor I/O.
+ *
+ * <p>
+ * Output goes to the folder in 'debugOutput' if set, otherwise to the sink given to
+ * {@link #withSink(DiagnosticSink, Supplier)} on the current thread, or else to the default sink, the console unless
+ * replaced with {@link #setDefaultSink(DiagnosticSink)}.
+ */
+public class Diagnostics {
+    private static final Diagnostics DISABLED = new Diagnostics(null);
+
+    private static final ThreadLocal<DiagnosticSink> THREAD_SINK = new ThreadLocal<>();
+
+    private static DiagnosticSink defaultSink = new ConsoleSink();
+
+    private final DiagnosticSink sink;
+
+    public Diagnostics(DiagnosticSink sink) {
+        this.sink = sink;
+    }
+
+    public static Diagnostics disabled() {
+        return DISABLED;
+    }
+
+    public static Diagnostics fromConfig(Map<String, String> config) {
+        if (config == null || !Boolean.parseBoolean(config.getOrDefault("debug", "false"))) {
+            return DISABLED;
+        }
+
+        return new Diagnostics(getSink(config));
+    }
+
+    /**
+     * @return the sink for the debug output of a compilation with the given configuration
+     */
+    public static DiagnosticSink getSink(Map<String, String> config) {
+        var output = config.getOrDefault("debugOutput", "");
+        if (!output.isEmpty()) {
+            return new FolderSink(new File(output));
+        }
+
+        var threadSink = THREAD_SINK.get();
+        return threadSink != null ? threadSink : defaultSink;
+    }
+
+    public static void setDefaultSink(DiagnosticSink sink) {
+        defaultSink = sink;
+    }
+
+    /**
+     * Runs a compilation with the given sink in place of the default one, for the current thread only.
+     */
+    public static <T> T withSink(DiagnosticSink sink, Supplier<T> compilation) {
+        var previousSink = THREAD_SINK.get();
+        THREAD_SINK.set(sink);
+
+        try {
+            return compilation.get();
+        } finally {
+            THREAD_SINK.set(previousSink);
+        }
+    }
+
+    public boolean isEnabled() {
+        return sink != null;
+    }
+
+    public void emit(String stage, String name, Supplier<String> content) {
+        if (sink != null) {
+            sink.emit(stage, name, content.get());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package pt.up.fe.comp.diagnostics;
+
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+
+/**
+ * Writes each piece of debug output to its own file, named after the stage and the output, in a folder.
+ */
+public class FolderSink implements DiagnosticSink {
+    private final File folder;
+
+    public FolderSink(File folder) {
+        this.folder = folder;
+    }
+
+    @Override
+    public void emit(String stage, String name, String content) {
+        SpecsIo.write(new File(folder, stage + "-" + name.replaceAll("[^\\w.-]", "_")), content);
+    }
+}
@@ -0,0 +1,135 @@
+package pt.up.fe.comp.jasmin;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp.jasmin.model.JvmInstruction;
+import pt.up.fe.comp.jasmin.model.JvmOpcode;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static pt.up.fe.comp.jasmin.model.JvmOpcode.*;
+
+/**
+ * Tables with the shortest JVM instruction for constants, increments and integer comparisons.
+ */
+public class InstructionSelector {
+
+    /**
+     * Branch taken when the comparison of a value with zero holds, and when the comparison of two values holds.
+     */
+    private static final Map<OperationType, JvmOpcode[]> COMPARISONS = new EnumMap<>(OperationType.class);
+
+    /**
+     * Comparison that holds with the operands swapped, so that a zero on the left can also use the short form.
+     */
+    private static final Map<OperationType, OperationType> SWAPPED = new EnumMap<>(OperationType.class);
+
+    static {
+        COMPARISONS.put(OperationType.EQ, new JvmOpcode[] { IFEQ, IF_ICMPEQ });
+        COMPARISONS.put(OperationType.NEQ, new JvmOpcode[] { IFNE, IF_ICMPNE });
+        COMPARISONS.put(OperationType.LTH, new JvmOpcode[] { IFLT, IF_ICMPLT });
+        COMPARISONS.put(OperationType.GTE, new JvmOpcode[] { IFGE, IF_ICMPGE });
+        COMPARISONS.put(OperationType.GTH, new JvmOpcode[] { IFGT, IF_ICMPGT });
+        COMPARISONS.put(OperationType.LTE, new JvmOpcode[] { IFLE, IF_ICMPLE });
+
+        SWAPPED.put(OperationType.EQ, OperationType.EQ);
+        SWAPPED.put(OperationType.NEQ, OperationType.NEQ);
+        SWAPPED.put(OperationType.LTH, OperationType.GTH);
+        SWAPPED.put(OperationType.GTE, OperationType.LTE);
+        SWAPPED.put(OperationType.GTH, OperationType.LTH);
+        SWAPPED.put(OperationType.LTE, OperationType.GTE);
+    }
+
+    public static boolean isComparison(OperationType operation) {
+        return COMPARISONS.containsKey(operation);
+    }
+
+    /**
+     * @return the branch that compares the value on top of the stack with zero
+     */
+    public static JvmOpcode getZeroComparison(OperationType operation) {
+        return getComparisons(operation)[0];
+    }
+
+    /**
+     * @return the branch that compares the two values on top of the stack
+     */
+    public static JvmOpcode getIntegerComparison(OperationType operation) {
+        return getComparisons(operation)[1];
+    }
+
+    public static OperationType swap(OperationType operation) {
+        OperationType swapped = SWAPPED.get(operation);
+        if (swapped == null)
+            throw new NotImplementedException(operation);
+
+        return swapped;
+    }
+
+    private static JvmOpcode[] getComparisons(OperationType operation) {
+        JvmOpcode[] opcodes = COMPARISONS.get(operation);
+        if (opcodes == null)
+            throw new NotImplementedException(operation);
+
+        return opcodes;
+    }
+
+    public static JvmInstruction loadConstant(int value) {
+        if (value >= -1 && value <= 5)
+            return JvmInstruction.withValue(ICONST, value);
+        if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+            return JvmInstruction.withValue(BIPUSH, value);
+        if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+            return JvmInstruction.withValue(SIPUSH, value);
+
+        return JvmInstruction.withOperand(LDC, Integer.toString(value));
+    }
+
+    /**
+     * Checks if 'dest = dest + c', 'dest = c + dest' or 'dest = dest - c' can be done with iinc, which takes a 16-bit
+     * increment in its wide form.
+     *
+     * @return the increment, or null if the operation is not an increment of the variable
+     */
+    public static Integer getIncrement(BinaryOpInstruction instruction, String dest) {
+        Element left = instruction.getLeftOperand();
+        Element right = instruction.getRightOperand();
+        OperationType operation = instruction.getOperation().getOpType();
+
+        Integer increment = null;
+        if (operation == OperationType.ADD) {
+            if (isVariable(left, dest) && right.isLiteral())
+                increment = parseLiteral(right);
+            else if (left.isLiteral() && isVariable(right, dest))
+                increment = parseLiteral(left);
+        } else if (operation == OperationType.SUB) {
+            if (isVariable(left, dest) && right.isLiteral()) {
+                increment = parseLiteral(right);
+                if (increment != null) increment = -increment;
+            }
+        }
+
+        if (increment == null || increment < Short.MIN_VALUE || increment > Short.MAX_VALUE)
+            return null;
+
+        return increment;
+    }
+
+    public static boolean isZero(Element element) {
+        Integer value = element.isLiteral() ? parseLiteral(element) : null;
+        return value != null && value == 0;
+    }
+
+    private static boolean isVariable(Element element, String name) {
+        return !element.isLiteral() && !(element instanceof ArrayOperand) && ((Operand) element).getName().equals(name);
+    }
+
+    private static Integer parseLiteral(Element element) {
+        try {
+            return Integer.parseInt(((LiteralElement) element).getLiteral());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package pt.up.fe.comp.jasmin;
+
+import pt.up.fe.comp.jasmin.model.*;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+
+/**
+ * Renders a {@link JvmClass} as Jasmin code. The code is streamed to an {@link Appendable}, a method at a time, as
+ * each method already knows its stack and locals limits.
+ */
+public class JasminWriter {
+    private static String constructorTemplate;
+
+    public String write(JvmClass jvmClass) {
+        StringBuilder jasminCode = new StringBuilder(getSizeEstimate(jvmClass));
+        write(jvmClass, jasminCode);
+        return jasminCode.toString();
+    }
+
+    public void write(JvmClass jvmClass, Appendable out) {
+        try {
+            out.append(".class ");
+            for (String modifier : jvmClass.getModifiers()) {
+                out.append(modifier).append(' ');
+            }
+            out.append(jvmClass.getName()).append('\n')
+                    .append(".super ").append(jvmClass.getSuperName()).append("\n\n");
+
+            for (JvmField field : jvmClass.getFields()) {
+                out.append(".field ");
+                for (String modifier : field.getModifiers()) {
+                    out.append(modifier).append(' ');
+                }
+                out.append(field.getName()).append(' ').append(field.getDescriptor()).append('\n');
+            }
+
+            for (JvmMethod method : jvmClass.getMethods()) {
+                writeMethod(method, out);
+            }
+            out.append('\n');
+
+            if (jvmClass.hasDefaultConstructor()) {
+                out.append(getConstructorTemplate().replace("${SUPER_NAME}", jvmClass.getSuperName())).append('\n');
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write Jasmin code of class " + jvmClass.getName(), e);
+        }
+    }
+
+    private void writeMethod(JvmMethod method, Appendable out) throws IOException {
+        out.append(".method ");
+        for (String modifier : method.getModifiers()) {
+            out.append(modifier).append(' ');
+        }
+        out.append(method.getName()).append(method.getDescriptor()).append('\n')
+                .append("\t.limit stack ").append(Integer.toString(method.getMaxStack())).append('\n')
+                .append("\t.limit locals ").append(Integer.toString(method.getMaxLocals())).append('\n');
+
+        for (JvmInstruction instruction : method.getCode().getInstructions()) {
+            out.append('\t');
+            writeInstruction(instruction, out);
+            out.append('\n');
+        }
+
+        out.append(".end method\n\n");
+    }
+
+    public void writeInstruction(JvmInstruction instruction, Appendable out) throws IOException {
+        JvmOpcode opcode = instruction.getOpcode();
+
+        switch (opcode) {
+            case LABEL -> out.append(instruction.getLabel()).append(':');
+            case ICONST -> out.append("iconst_")
+                    .append(instruction.getValue() == -1 ? "m1" : Integer.toString(instruction.getValue()));
+            case ILOAD, ALOAD, ISTORE, ASTORE -> out.append(opcode.getMnemonic())
+                    .append(instruction.getValue() <= 3 ? '_' : ' ').append(Integer.toString(instruction.getValue()));
+            case BIPUSH, SIPUSH -> out.append(opcode.getMnemonic()).append(' ')
+                    .append(Integer.toString(instruction.getValue()));
+            case IINC -> out.append("iinc ").append(Integer.toString(instruction.getValue())).append(' ')
+                    .append(Integer.toString(instruction.getIncrement()));
+            case LDC, NEW, NEWARRAY -> out.append(opcode.getMnemonic()).append(' ').append(instruction.getOperand());
+            case GETFIELD, PUTFIELD -> out.append(opcode.getMnemonic()).append(' ')
+                    .append(instruction.getOwner()).append('/').append(instruction.getName()).append(' ')
+                    .append(instruction.getDescriptor());
+            case INVOKEVIRTUAL, INVOKESPECIAL, INVOKESTATIC -> out.append(opcode.getMnemonic()).append(' ')
+                    .append(instruction.getOwner()).append('/').append(instruction.getName())
+                    .append(instruction.getDescriptor());
+            default -> {
+                out.append(opcode.getMnemonic());
+                if (opcode.isBranch()) {
+                    out.append(' ').append(instruction.getLabel());
+                }
+            }
+        }
+    }
+
+    /**
+     * Rough size of the Jasmin code, so the builder does not have to grow while writing.
+     */
+    private int getSizeEstimate(JvmClass jvmClass) {
+        int size = 256 + 32 * jvmClass.getFields().size();
+
+        for (JvmMethod method : jvmClass.getMethods()) {
+            size += 96 + 16 * method.getCode().getInstructions().size();
+        }
+
+        return size;
+    }
+
+    private static String getConstructorTemplate() {
+        if (constructorTemplate == null) {
+            constructorTemplate = SpecsIo.getResource("jasminTemplate/constructor.template");
+        }
+
+        return constructorTemplate;
+    }
+}
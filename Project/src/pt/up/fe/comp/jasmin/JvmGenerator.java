@@ -0,0 +1,642 @@
+package pt.up.fe.comp.jasmin;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.Type;
+import pt.up.fe.comp.jasmin.model.*;
+import pt.up.fe.comp.jasmin.optimization.PeepholeOptimizer;
+import pt.up.fe.comp.profiling.StageProfiler;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.util.*;
+
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.*;
+import static pt.up.fe.comp.jasmin.model.JvmOpcode.*;
+
+/**
+ * Selects the JVM instructions for an OLLIR class. The result is written either as Jasmin code, by
+ * {@link JasminWriter}, or directly as a class file.
+ */
+public class JvmGenerator {
+    private ClassUnit ollirClass;
+    private boolean hasReturnInstruction;
+    private boolean insideAnAssignment;
+    private String superClass;
+    private HashMap<String, String> imports;
+    private HashMap<String, Descriptor> currentVarTable;
+    private int labelCounter;
+    private final PeepholeOptimizer peephole;
+
+    public JvmGenerator() {
+        this(PeepholeOptimizer.disabled());
+    }
+
+    public JvmGenerator(PeepholeOptimizer peephole) {
+        this.peephole = peephole;
+    }
+
+    public JvmClass generate(ClassUnit ollirClass) {
+        this.ollirClass = ollirClass;
+        this.superClass = "java/lang/Object";
+        this.labelCounter = 0;
+
+        this.parseImports();
+
+        JvmClass jvmClass = this.parseHeader();
+
+        this.parseFields(jvmClass);
+
+        this.parseMethods(jvmClass);
+
+        return jvmClass;
+    }
+
+    private void parseImports() {
+        this.imports = new HashMap<>();
+        for (String importString : this.ollirClass.getImports()) {
+            var splittedImport = importString.split("\\.");
+            String lastName;
+            if (splittedImport.length == 0) {
+                lastName = importString;
+            } else {
+                lastName = splittedImport[splittedImport.length - 1];
+            }
+
+            this.imports.put(lastName, String.join("/", splittedImport));
+        }
+    }
+
+    private JvmClass parseHeader() {
+        List<String> modifiers = new ArrayList<>();
+
+        AccessModifiers aM = this.ollirClass.getClassAccessModifier();
+        if (aM != AccessModifiers.DEFAULT) {
+            modifiers.add(aM.toString().toLowerCase());
+        }
+
+        if (this.ollirClass.getSuperClass() != null)
+            this.superClass = this.imports.getOrDefault(this.ollirClass.getSuperClass(), this.ollirClass.getSuperClass());
+
+        return new JvmClass(modifiers, this.ollirClass.getClassName(), this.superClass);
+    }
+
+    private void parseFields(JvmClass jvmClass) {
+        for (Field field : this.ollirClass.getFields()) {
+            List<String> modifiers = new ArrayList<>();
+
+            AccessModifiers aM = field.getFieldAccessModifier();
+            if (aM != AccessModifiers.DEFAULT) {
+                modifiers.add(aM.toString().toLowerCase());
+            }
+
+            if (field.isStaticField()) {
+                modifiers.add("static");
+            }
+
+            if (field.isFinalField()) {
+                modifiers.add("final");
+            }
+
+            jvmClass.getFields().add(new JvmField(modifiers, field.getFieldName(), this.getType(field.getFieldType())));
+        }
+    }
+
+    private void parseMethods(JvmClass jvmClass) {
+        boolean hasConstructor = false;
+        StageProfiler profiler = StageProfiler.current();
+
+        for (Method method : this.ollirClass.getMethods()) {
+            hasConstructor |= method.isConstructMethod();
+            jvmClass.getMethods().add(profiler.measureMethod(method.getMethodName(), () -> parseMethod(method)));
+        }
+
+        jvmClass.setDefaultConstructor(!hasConstructor);
+    }
+
+    private JvmMethod parseMethod(Method method) {
+        this.hasReturnInstruction = false;
+
+        List<String> modifiers = new ArrayList<>();
+
+        AccessModifiers aM = method.getMethodAccessModifier();
+        if (aM != AccessModifiers.DEFAULT) {
+            modifiers.add(aM.toString().toLowerCase());
+        }
+        if (method.isStaticMethod()) {
+            modifiers.add("static");
+        }
+        if (method.isFinalMethod()) {
+            modifiers.add("final");
+        }
+
+        String name = method.isConstructMethod() ? "<init>" : method.getMethodName();
+
+        StringBuilder descriptor = new StringBuilder("(");
+        for (Element param : method.getParams()) {
+            descriptor.append(this.getType(param.getType()));
+        }
+        descriptor.append(')').append(this.getType(method.getReturnType()));
+
+        method.buildVarTable();
+        this.currentVarTable = method.getVarTable();
+
+        //Parse Method
+        JvmCode code = new JvmCode();
+        for (Instruction inst : method.getInstructions()) {
+            for (String label : method.getLabels(inst)) {
+                code.append(label(label));
+            }
+            code.append(getCode(inst));
+        }
+
+        if (!this.hasReturnInstruction) {
+            code.append(simple(RETURN));
+        }
+
+        this.peephole.optimize(code);
+
+        JvmMethod jvmMethod = new JvmMethod(modifiers, name, descriptor.toString(), code);
+        jvmMethod.setMaxStack(StackAnalysis.getMaxStack(code));
+        jvmMethod.setMaxLocals(getLocals());
+
+        return jvmMethod;
+    }
+
+    private JvmCode getCode(Instruction instruction) {
+
+        if (instruction instanceof CallInstruction) {
+            return getCode((CallInstruction) instruction);
+        }
+
+        if (instruction instanceof AssignInstruction) {
+            return getCode((AssignInstruction) instruction);
+        }
+
+        if (instruction instanceof GotoInstruction) {
+            return getCode((GotoInstruction) instruction);
+        }
+
+        if (instruction instanceof ReturnInstruction) {
+            this.hasReturnInstruction = true;
+            return getCode((ReturnInstruction) instruction);
+        }
+
+        if (instruction instanceof SingleOpInstruction) {
+            return getCode((SingleOpInstruction) instruction);
+        }
+
+        if (instruction instanceof PutFieldInstruction) {
+            return getCode((PutFieldInstruction) instruction);
+        }
+
+        if (instruction instanceof GetFieldInstruction) {
+            return getCode((GetFieldInstruction) instruction);
+        }
+
+        if (instruction instanceof BinaryOpInstruction) {
+            return getCode((BinaryOpInstruction) instruction);
+        }
+
+        if (instruction instanceof CondBranchInstruction) {
+            return getCode((CondBranchInstruction) instruction);
+        }
+
+        if (instruction instanceof UnaryOpInstruction) {
+            return getCode((UnaryOpInstruction) instruction);
+        }
+
+        throw new NotImplementedException(instruction);
+    }
+
+    private JvmCode getCode(UnaryOpInstruction instruction) {
+        JvmCode code = new JvmCode();
+        if (instruction.getOperation().getOpType() == OperationType.NOTB) {
+            code.append(loadElement(instruction.getOperand()))
+                    .append(branch(IFNE, "Then" + this.labelCounter))
+                    .append(withValue(ICONST, 1))
+                    .append(branch(GOTO, "EndIf" + this.labelCounter))
+                    .append(label("Then" + this.labelCounter))
+                    .append(withValue(ICONST, 0))
+                    .append(label("EndIf" + this.labelCounter++));
+        }
+
+        return code;
+    }
+
+    private JvmCode getCode(CondBranchInstruction instruction) {
+        JvmCode code = new JvmCode();
+        Instruction condition = instruction.getCondition();
+        if (condition instanceof OpInstruction) {
+            OpInstruction opInst = (OpInstruction) condition;
+            Element leftElem = opInst.getOperands().get(0);
+            Element rightElem = opInst.getOperands().size() > 1 ? opInst.getOperands().get(1) : null;
+
+            switch (opInst.getOperation().getOpType()) {
+                case EQ, NEQ, LTH, LTE, GTH, GTE -> code.append(
+                        compareAndBranch(opInst.getOperation().getOpType(), leftElem, rightElem, instruction.getLabel()));
+                case ANDB -> {
+                    code.append(loadElement(leftElem))
+                            .append(branch(IFEQ, "FalseAND" + this.labelCounter))
+                            .append(loadElement(rightElem))
+                            .append(branch(IFEQ, "FalseAND" + this.labelCounter))
+                            .append(branch(GOTO, instruction.getLabel()))
+                            .append(label("FalseAND" + this.labelCounter++));
+                }
+                case ORB -> {
+                    code.append(loadElement(leftElem))
+                            .append(branch(IFNE, instruction.getLabel()))
+                            .append(loadElement(rightElem))
+                            .append(branch(IFNE, instruction.getLabel()));
+                }
+                case NOTB -> {
+                    code.append(loadElement(leftElem))
+                            .append(branch(IFEQ, instruction.getLabel()));
+                }
+                default -> throw new NotImplementedException(opInst.getOperation().getOpType());
+            }
+        } else if (instruction instanceof SingleOpCondInstruction) {
+            SingleOpCondInstruction singleOp = (SingleOpCondInstruction) instruction;
+            code.append(loadElement(singleOp.getOperands().get(0)))
+                    .append(branch(IFNE, instruction.getLabel()));
+        } else {
+            throw new NotImplementedException(instruction);
+        }
+
+        return code;
+    }
+
+    private JvmCode getCode(BinaryOpInstruction instruction) {
+        JvmCode code = new JvmCode();
+        Operation op = instruction.getOperation();
+
+        if (InstructionSelector.isComparison(op.getOpType())) {
+            return compareAndBranch(op.getOpType(), instruction.getLeftOperand(), instruction.getRightOperand(),
+                    "ComparisonThen" + this.labelCounter)
+                    .append(generateComparisonLabels());
+        }
+
+        code.append(loadElement(instruction.getLeftOperand()))
+                .append(loadElement(instruction.getRightOperand()));
+        switch (op.getOpType()) {
+            // Pops 2 values and pushes the result
+            case ADD -> code.append(simple(IADD));
+            case SUB -> code.append(simple(ISUB));
+            case MUL -> code.append(simple(IMUL));
+            case DIV -> code.append(simple(IDIV));
+            case ANDB -> {
+                code.append(simple(IADD))
+                        .append(withValue(ICONST, 2))
+                        .append(simple(ISUB))
+                        .append(branch(IFLT, "ComparisonThen" + this.labelCounter))
+                        .append(withValue(ICONST, 1))
+                        .append(branch(GOTO, "ComparisonEndIf" + this.labelCounter))
+                        .append(label("ComparisonThen" + this.labelCounter))
+                        .append(withValue(ICONST, 0))
+                        .append(label("ComparisonEndIf" + this.labelCounter++));
+            }
+            default -> throw new NotImplementedException(op.getOpType());
+        }
+
+        return code;
+    }
+
+    private JvmCode getCode(GetFieldInstruction instruction) {
+        JvmCode code = new JvmCode();
+
+        Operand firstElem = (Operand) instruction.getFirstOperand();
+        Operand secondElem = (Operand) instruction.getSecondOperand();
+
+        code.append(loadElement(firstElem))
+                .append(member(GETFIELD,
+                        this.imports.getOrDefault(this.ollirClass.getClassName(), this.ollirClass.getClassName()),
+                        secondElem.getName(), getType(secondElem.getType())));
+
+        return code;
+    }
+
+    private JvmCode getCode(PutFieldInstruction instruction) {
+        JvmCode code = new JvmCode();
+
+        Operand firstOp = (Operand) instruction.getFirstOperand();
+        Operand secondOp = (Operand) instruction.getSecondOperand();
+        Element thirdOp = instruction.getThirdOperand();
+
+        code.append(loadElement(firstOp))
+                .append(loadElement(thirdOp))
+                .append(member(PUTFIELD,
+                        (firstOp.getName().equals("this")) ? this.ollirClass.getClassName() : firstOp.getName(),
+                        secondOp.getName(), getType(secondOp.getType())));
+
+        return code;
+    }
+
+    private JvmCode getCode(AssignInstruction aI) {
+        JvmCode code = new JvmCode();
+
+        Operand o = (Operand) aI.getDest();
+        Instruction rhs = aI.getRhs();
+
+        // Copies between coalesced variables load and store the same register
+        if (isSelfMove(o, rhs)) return code;
+
+        // var x = x + const || var x = const + x || var x = x - const
+        if (rhs.getInstType() == InstructionType.BINARYOPER && !(o instanceof ArrayOperand)) {
+            Descriptor destDescriptor = this.currentVarTable.get(o.getName());
+            Integer increment = InstructionSelector.getIncrement((BinaryOpInstruction) rhs, o.getName());
+            if (increment != null && destDescriptor.getScope() != VarScope.FIELD) {
+                return code.append(iinc(destDescriptor.getVirtualReg(), increment));
+            }
+        }
+
+        int reg = this.currentVarTable.get(o.getName()).getVirtualReg();
+        Descriptor descriptor = this.currentVarTable.get(o.getName());
+
+        if (descriptor.getVarType().getTypeOfElement() == ElementType.ARRAYREF
+                && o.getType().getTypeOfElement() != ElementType.ARRAYREF) {
+            ArrayOperand arrayOp = (ArrayOperand) o;
+            Element index = arrayOp.getIndexOperands().get(0);
+
+            code.append(loadDescriptor(descriptor))
+                    .append(loadElement(index));
+        }
+
+        this.insideAnAssignment = true;
+        JvmCode rhsCode = getCode(rhs);
+        this.insideAnAssignment = false;
+
+        if (o.getType() instanceof ArrayType) {
+            ArrayType aT = (ArrayType)o.getType();
+            if (o instanceof ArrayOperand) {
+                ArrayOperand aO = (ArrayOperand)o;
+                code.append(loadElement(aO))
+                        .append(loadElement(aO.getIndexOperands().get(0)))
+                        .append(rhsCode)
+                        .append(simple(
+                            (aT.getArrayType() == ElementType.INT32 || aT.getArrayType() == ElementType.BOOLEAN)
+                            ?
+                            IASTORE
+                            :
+                            AASTORE
+                        ));
+
+                return code;
+            }
+        }
+
+        code.append(rhsCode);
+
+        if (o.getType().getTypeOfElement() == ElementType.INT32 || o.getType().getTypeOfElement() == ElementType.BOOLEAN)
+            code.append(withValue(ISTORE, reg));
+        else {
+            code.append(withValue(ASTORE, reg));
+        }
+
+        return code;
+    }
+
+    private boolean isSelfMove(Operand dest, Instruction rhs) {
+        if (rhs.getInstType() != InstructionType.NOPER || dest instanceof ArrayOperand) return false;
+
+        Element source = ((SingleOpInstruction) rhs).getSingleOperand();
+        if (source.isLiteral() || source instanceof ArrayOperand) return false;
+
+        Descriptor destDescriptor = this.currentVarTable.get(dest.getName());
+        Descriptor sourceDescriptor = this.currentVarTable.get(((Operand) source).getName());
+        if (destDescriptor == null || sourceDescriptor == null) return false;
+
+        return destDescriptor.getScope() != VarScope.FIELD
+                && destDescriptor.getVirtualReg() == sourceDescriptor.getVirtualReg();
+    }
+
+    private JvmCode getCode(SingleOpInstruction instruction) {
+        return loadElement(instruction.getSingleOperand());
+    }
+
+    private JvmCode getCode(GotoInstruction instruction) {
+        return new JvmCode().append(branch(GOTO, instruction.getLabel()));
+    }
+
+    private JvmCode getCode(ReturnInstruction i) {
+        if (!i.hasReturnValue())
+            return new JvmCode().append(simple(RETURN));
+
+        ElementType returnType = i.getOperand().getType().getTypeOfElement();
+
+        JvmCode code = loadElement(i.getOperand())
+                .append(simple((returnType == ElementType.INT32 || returnType == ElementType.BOOLEAN) ? IRETURN : ARETURN));
+
+        return code;
+    }
+
+    private JvmCode parseNewCall(CallInstruction instruction) {
+        JvmCode code = new JvmCode();
+
+        if (instruction.getReturnType().getTypeOfElement() == ElementType.OBJECTREF) {
+            code.append(withOperand(NEW, ((Operand) instruction.getFirstArg()).getName()));
+
+            return code;
+        }
+        if (instruction.getReturnType().getTypeOfElement() == ElementType.ARRAYREF) {
+
+            //Number of elements
+            for (Element e : instruction.getListOfOperands()) {
+                code.append(loadElement(e));
+            }
+
+            if (((ArrayType) instruction.getReturnType()).getArrayType() == ElementType.INT32)
+                code.append(withOperand(NEWARRAY, "int"));
+            else
+                throw new NotImplementedException(instruction);
+
+        } else
+            throw new NotImplementedException(instruction);
+
+        return code;
+    }
+
+    private JvmCode parseInvokeSpecialCall(CallInstruction instruction) {
+
+        JvmCode code = loadElement(instruction.getFirstArg());
+
+        for (Element e : instruction.getListOfOperands()) {
+            code.append(loadElement(e));
+        }
+
+        String owner = (instruction.getFirstArg().getType().getTypeOfElement() == ElementType.THIS) ?
+                this.imports.getOrDefault(this.ollirClass.getSuperClass(), "java/lang/Object")
+                :
+                this.imports.getOrDefault(
+                        ((ClassType)instruction.getFirstArg().getType()).getName(),
+                        ((ClassType)instruction.getFirstArg().getType()).getName());
+
+        return code.append(member(INVOKESPECIAL, owner, "<init>", getMethodDescriptor(instruction)));
+    }
+
+    private JvmCode parseInvokeVirtualCall(CallInstruction instruction) {
+        JvmCode code = loadElement(instruction.getFirstArg());
+
+        for (Element e : instruction.getListOfOperands())
+            code.append(loadElement(e));
+
+        String owner = instruction.getFirstArg().getType().getTypeOfElement() == ElementType.THIS ?
+                this.ollirClass.getClassName()
+                :
+                this.imports.getOrDefault(
+                        ((ClassType) instruction.getFirstArg().getType()).getName(),
+                        ((ClassType) instruction.getFirstArg().getType()).getName()
+                );
+
+        return code.append(member(INVOKEVIRTUAL, owner, getMethodName(instruction), getMethodDescriptor(instruction)));
+    }
+
+    private JvmCode parseInvokeStaticCall(CallInstruction instruction) {
+        JvmCode code = new JvmCode();
+
+        for (Element e : instruction.getListOfOperands())
+            code.append(loadElement(e));
+
+        String temp = ((Operand) instruction.getFirstArg()).getName();
+        String owner = (temp.equals("this")) ? this.ollirClass.getClassName() : temp;
+
+        return code.append(member(INVOKESTATIC, owner, getMethodName(instruction), getMethodDescriptor(instruction)));
+    }
+
+    private String getMethodName(CallInstruction instruction) {
+        return ((LiteralElement) instruction.getSecondArg()).getLiteral().replace("\"", "");
+    }
+
+    private String getMethodDescriptor(CallInstruction instruction) {
+        StringBuilder descriptor = new StringBuilder("(");
+
+        for (Element e : instruction.getListOfOperands())
+            descriptor.append(getType(e.getType()));
+
+        return descriptor.append(")").append(getType(instruction.getReturnType())).toString();
+    }
+
+    private JvmCode getCode(CallInstruction instruction) {
+        return switch (instruction.getInvocationType()) {
+            case NEW -> parseNewCall(instruction);
+            case invokespecial, invokevirtual, invokestatic -> getInvokeCode(instruction);
+            case ldc -> loadElement(instruction.getFirstArg());
+            case arraylength -> loadElement(instruction.getFirstArg()).append(simple(ARRAYLENGTH));
+            default -> throw new NotImplementedException(instruction);
+        };
+    }
+
+    private JvmCode getInvokeCode(CallInstruction instruction) {
+        boolean hasReturnValue = instruction.getReturnType().getTypeOfElement() != ElementType.VOID;
+
+        JvmCode code = switch (instruction.getInvocationType()) {
+            case invokespecial -> parseInvokeSpecialCall(instruction);
+            case invokevirtual -> parseInvokeVirtualCall(instruction);
+            case invokestatic -> parseInvokeStaticCall(instruction);
+            default -> throw new NotImplementedException(instruction.getInvocationType());
+        };
+
+        if (hasReturnValue && !this.insideAnAssignment) {
+            code.append(simple(POP));
+        }
+
+        return code;
+    }
+
+    private JvmCode loadDescriptor(Descriptor descriptor) {
+        ElementType elementType = descriptor.getVarType().getTypeOfElement();
+        if (elementType == ElementType.THIS)
+            return new JvmCode().append(withValue(ALOAD, 0));
+
+        int reg = descriptor.getVirtualReg();
+        return new JvmCode().append(
+                withValue((elementType == ElementType.INT32 || elementType == ElementType.BOOLEAN) ? ILOAD : ALOAD, reg));
+    }
+
+    private JvmCode loadLiteral(LiteralElement element) {
+        JvmCode code = new JvmCode();
+        int literal;
+
+        try {
+            literal = Integer.parseInt(element.getLiteral());
+        } catch (NumberFormatException e) {
+            return code.append(withOperand(LDC, element.getLiteral()));
+        }
+
+        ElementType elementType = element.getType().getTypeOfElement();
+        if (elementType == ElementType.INT32 || elementType == ElementType.BOOLEAN)
+            return code.append(InstructionSelector.loadConstant(literal));
+
+        return code.append(withOperand(LDC, Integer.toString(literal)));
+    }
+
+    private JvmCode loadElement(Element e) {
+        if (e.isLiteral())
+            return loadLiteral((LiteralElement) e);
+
+        Descriptor d = this.currentVarTable.get(((Operand) e).getName());
+        if (d == null)
+            throw new NotImplementedException(((Operand) e).getName());
+
+        if (e.getType().getTypeOfElement() != ElementType.ARRAYREF
+                && d.getVarType().getTypeOfElement() == ElementType.ARRAYREF) {
+            if (!(e instanceof ArrayOperand arrayOp) || arrayOp.getIndexOperands().isEmpty())
+                throw new RuntimeException("Array variable '" + ((Operand) e).getName() + "' is loaded as "
+                        + e.getType().getTypeOfElement() + " without an index");
+
+            Element index = arrayOp.getIndexOperands().get(0);
+            // arrayref[index] -> value
+            return loadDescriptor(d).append(loadElement(index)).append(simple(IALOAD));
+        }
+
+        return loadDescriptor(d);
+    }
+
+    private String getType(Type type) {
+        ElementType elementType = type.getTypeOfElement();
+
+        return switch (elementType) {
+            case INT32 -> "I";
+            case BOOLEAN -> "Z";
+            case STRING -> "Ljava/lang/String;";
+            case VOID -> "V";
+            case ARRAYREF -> "[" + this.getType(new Type(((ArrayType) type).getArrayType()));
+            case OBJECTREF ->
+                    "L" + this.imports.getOrDefault(((ClassType) type).getName(), ((ClassType) type).getName()) + ";";
+            default -> throw new NotImplementedException(type);
+        };
+    }
+
+    private JvmCode generateComparisonLabels() {
+        return new JvmCode()
+                .append(withValue(ICONST, 0))
+                .append(branch(GOTO, "ComparisonEndIf" + this.labelCounter))
+                .append(label("ComparisonThen" + this.labelCounter))
+                .append(withValue(ICONST, 1))
+                .append(label("ComparisonEndIf" + this.labelCounter++));
+    }
+
+    private int getLocals() {
+        int max = 0;
+
+        for (Descriptor descriptor : this.currentVarTable.values()) {
+            int tempVirtualReg = descriptor.getVirtualReg();
+            if (tempVirtualReg > max) max = tempVirtualReg;
+        }
+
+        return max + 1;
+    }
+
+    /**
+     * Branches to the label if the comparison holds, comparing with zero directly when one of the operands is 0.
+     */
+    private JvmCode compareAndBranch(OperationType operation, Element left, Element right, String label) {
+        if (InstructionSelector.isZero(right))
+            return loadElement(left).append(branch(InstructionSelector.getZeroComparison(operation), label));
+
+        if (InstructionSelector.isZero(left))
+            return loadElement(right)
+                    .append(branch(InstructionSelector.getZeroComparison(InstructionSelector.swap(operation)), label));
+
+        return loadElement(left).append(loadElement(right))
+                .append(branch(InstructionSelector.getIntegerComparison(operation), label));
+    }
+
+}
@@ -0,0 +1,143 @@
+package pt.up.fe.comp.jasmin;
+
+import pt.up.fe.comp.jasmin.model.JvmCode;
+import pt.up.fe.comp.jasmin.model.JvmInstruction;
+import pt.up.fe.comp.jasmin.model.JvmOpcode;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.util.*;
+
+/**
+ * Computes the maximum operand stack depth of a method by propagating the depth through its control flow. Every
+ * instruction must be reached always with the same depth, as the verifier requires.
+ */
+public class StackAnalysis {
+
+    public static int getMaxStack(JvmCode code) {
+        List<JvmInstruction> instructions = code.getInstructions();
+        int size = instructions.size();
+
+        Map<String, Integer> labels = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            if (instructions.get(i).getOpcode() == JvmOpcode.LABEL) {
+                labels.put(instructions.get(i).getLabel(), i);
+            }
+        }
+
+        int[] depths = new int[size];
+        Arrays.fill(depths, -1);
+
+        int maxStack = 0;
+        Deque<Integer> worklist = new ArrayDeque<>();
+        if (size > 0) {
+            depths[0] = 0;
+            worklist.push(0);
+        }
+
+        while (!worklist.isEmpty()) {
+            int index = worklist.pop();
+            JvmInstruction instruction = instructions.get(index);
+            JvmOpcode opcode = instruction.getOpcode();
+
+            // The operands must be on the stack before the instruction, not only its net effect
+            int depth = depths[index] + getStackEffect(instruction);
+            if (depths[index] < getPops(instruction)) {
+                throw new RuntimeException("Stack underflow at " + opcode.getMnemonic() + " (instruction " + index + ")");
+            }
+            maxStack = Math.max(maxStack, depth);
+
+            if (opcode.isBranch()) {
+                Integer target = labels.get(instruction.getLabel());
+                if (target == null) {
+                    throw new RuntimeException("Undefined label " + instruction.getLabel());
+                }
+                merge(depths, target, depth, worklist);
+            }
+
+            if (hasFallThrough(opcode) && index + 1 < size) {
+                merge(depths, index + 1, depth, worklist);
+            }
+        }
+
+        return maxStack;
+    }
+
+    private static void merge(int[] depths, int index, int depth, Deque<Integer> worklist) {
+        if (depths[index] == -1) {
+            depths[index] = depth;
+            worklist.push(index);
+        } else if (depths[index] != depth) {
+            throw new RuntimeException("Inconsistent stack depth at instruction " + index + ": "
+                    + depths[index] + " and " + depth);
+        }
+    }
+
+    private static boolean hasFallThrough(JvmOpcode opcode) {
+        return switch (opcode) {
+            case GOTO, RETURN, IRETURN, ARETURN -> false;
+            default -> true;
+        };
+    }
+
+    /**
+     * @return the number of values the instruction pushes minus the number it pops
+     */
+    public static int getStackEffect(JvmInstruction instruction) {
+        return switch (instruction.getOpcode()) {
+            case LABEL, IINC, GOTO, RETURN, GETFIELD, NEWARRAY, ARRAYLENGTH -> 0;
+            case ICONST, BIPUSH, SIPUSH, LDC, ILOAD, ALOAD, DUP, NEW -> 1;
+            case IALOAD, ISTORE, ASTORE, POP, IADD, ISUB, IMUL, IDIV, IRETURN, ARETURN,
+                    IFEQ, IFNE, IFLT, IFGE, IFGT, IFLE -> -1;
+            case IF_ICMPEQ, IF_ICMPNE, IF_ICMPLT, IF_ICMPGE, IF_ICMPGT, IF_ICMPLE, PUTFIELD -> -2;
+            case IASTORE, AASTORE -> -3;
+            case INVOKEVIRTUAL, INVOKESPECIAL -> getInvokeEffect(instruction.getDescriptor()) - 1;
+            case INVOKESTATIC -> getInvokeEffect(instruction.getDescriptor());
+            default -> throw new NotImplementedException(instruction.getOpcode());
+        };
+    }
+
+    /**
+     * @return the number of values the instruction pops, which must be on the stack before it
+     */
+    private static int getPops(JvmInstruction instruction) {
+        return switch (instruction.getOpcode()) {
+            case ISTORE, ASTORE, POP, DUP, IRETURN, ARETURN, GETFIELD, NEWARRAY, ARRAYLENGTH,
+                    IFEQ, IFNE, IFLT, IFGE, IFGT, IFLE -> 1;
+            case IALOAD, IADD, ISUB, IMUL, IDIV, PUTFIELD,
+                    IF_ICMPEQ, IF_ICMPNE, IF_ICMPLT, IF_ICMPGE, IF_ICMPGT, IF_ICMPLE -> 2;
+            case IASTORE, AASTORE -> 3;
+            case INVOKEVIRTUAL, INVOKESPECIAL -> getArgumentsSize(instruction.getDescriptor()) + 1;
+            case INVOKESTATIC -> getArgumentsSize(instruction.getDescriptor());
+            default -> 0;
+        };
+    }
+
+    /**
+     * @return the size of the return value minus the size of the arguments of a method descriptor
+     */
+    private static int getInvokeEffect(String descriptor) {
+        char returnType = descriptor.charAt(descriptor.indexOf(')') + 1);
+
+        int returnSize = 0;
+        if (returnType == 'J' || returnType == 'D') returnSize = 2;
+        else if (returnType != 'V') returnSize = 1;
+
+        return returnSize - getArgumentsSize(descriptor);
+    }
+
+    private static int getArgumentsSize(String descriptor) {
+        int size = 0;
+        int i = 1;
+
+        while (descriptor.charAt(i) != ')') {
+            char c = descriptor.charAt(i);
+            size += (c == 'J' || c == 'D') ? 2 : 1;
+
+            while (descriptor.charAt(i) == '[') i++;
+            if (descriptor.charAt(i) == 'L') i = descriptor.indexOf(';', i);
+            i++;
+        }
+
+        return size;
+    }
+}
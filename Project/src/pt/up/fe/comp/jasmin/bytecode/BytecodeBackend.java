@@ -0,0 +1,29 @@
+package pt.up.fe.comp.jasmin.bytecode;
+
+import pt.up.fe.comp.diagnostics.Diagnostics;
+import pt.up.fe.comp.jasmin.JasminWriter;
+import pt.up.fe.comp.jasmin.JvmGenerator;
+import pt.up.fe.comp.jasmin.model.JvmClass;
+import pt.up.fe.comp.jasmin.optimization.PeepholeOptimizer;
+import pt.up.fe.comp.jmm.jasmin.JasminBackend;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+
+/**
+ * Backend that writes the class file directly, skipping the Jasmin text and assembler. Selected with
+ * 'BackendClass=pt.up.fe.comp.jasmin.bytecode.BytecodeBackend' in config.properties.
+ */
+public class BytecodeBackend implements JasminBackend {
+
+    @Override
+    public JasminResult toJasmin(OllirResult ollirResult) {
+        JvmClass jvmClass = new JvmGenerator(PeepholeOptimizer.fromConfig(ollirResult.getConfig()))
+                .generate(ollirResult.getOllirClass());
+        byte[] classBytes = new ClassFileWriter().write(jvmClass);
+
+        Diagnostics.fromConfig(ollirResult.getConfig())
+                .emit("toJasmin", jvmClass.getName() + ".j", () -> new JasminWriter().write(jvmClass));
+
+        return new BytecodeResult(ollirResult, jvmClass, classBytes);
+    }
+}
@@ -0,0 +1,60 @@
+package pt.up.fe.comp.jasmin.bytecode;
+
+import pt.up.fe.comp.jasmin.JasminWriter;
+import pt.up.fe.comp.jasmin.model.JvmClass;
+import pt.up.fe.comp.jmm.jasmin.AssembledClass;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Result of the {@link BytecodeBackend}. The class file is already encoded, so it is used instead of assembling the
+ * Jasmin code, which is rendered only if requested.
+ */
+public class BytecodeResult extends JasminResult {
+    private final JvmClass jvmClass;
+    private final AssembledClass assembledClass;
+    private String jasminCode;
+
+    public BytecodeResult(OllirResult ollirResult, JvmClass jvmClass, byte[] classBytes) {
+        super(ollirResult, null, Collections.emptyList());
+        this.jvmClass = jvmClass;
+        this.assembledClass = new AssembledClass(jvmClass.getName(), classBytes);
+    }
+
+    /**
+     * Result of a class file read from the compilation cache, which has no model to render Jasmin code from.
+     */
+    public BytecodeResult(AssembledClass assembledClass, Map<String, String> config) {
+        super(assembledClass.getClassName(), null, new ArrayList<>(), config);
+        this.jvmClass = null;
+        this.assembledClass = assembledClass;
+    }
+
+    /**
+     * @return the generated class, or null if the class file came from the compilation cache
+     */
+    public JvmClass getJvmClass() {
+        return jvmClass;
+    }
+
+    /**
+     * @return the Jasmin code of the generated class, or null if the class file came from the compilation cache
+     */
+    @Override
+    public String getJasminCode() {
+        if (jasminCode == null && jvmClass != null) {
+            jasminCode = new JasminWriter().write(jvmClass);
+        }
+
+        return jasminCode;
+    }
+
+    @Override
+    public AssembledClass assemble() {
+        return assembledClass;
+    }
+}
@@ -0,0 +1,287 @@
+package pt.up.fe.comp.jasmin.bytecode;
+
+import pt.up.fe.comp.jasmin.model.*;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Encodes a {@link JvmClass} in the class file format, without going through Jasmin code.
+ * <p>
+ * Classes are written with version 49.0, so the verifier does not require stack map frames.
+ */
+public class ClassFileWriter {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int MAJOR_VERSION = 49;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_PROTECTED = 0x0004;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int WIDE = 0xc4;
+    private static final int LDC_W = 0x13;
+    private static final int T_INT = 10;
+
+    private ConstantPool constantPool;
+
+    public byte[] write(JvmClass jvmClass) {
+        this.constantPool = new ConstantPool();
+
+        int thisClass = constantPool.addClass(jvmClass.getName());
+        int superClass = constantPool.addClass(jvmClass.getSuperName());
+
+        // Members are encoded first, as they fill the constant pool that comes before them in the file
+        ByteArrayOutputStream members = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(members);
+
+            out.writeShort(jvmClass.getFields().size());
+            for (JvmField field : jvmClass.getFields()) {
+                out.writeShort(getAccessFlags(field.getModifiers()));
+                out.writeShort(constantPool.addUtf8(field.getName()));
+                out.writeShort(constantPool.addUtf8(field.getDescriptor()));
+                out.writeShort(0);
+            }
+
+            List<JvmMethod> methods = new ArrayList<>(jvmClass.getMethods());
+            if (jvmClass.hasDefaultConstructor()) {
+                methods.add(getDefaultConstructor(jvmClass.getSuperName()));
+            }
+
+            out.writeShort(methods.size());
+            for (JvmMethod method : methods) {
+                writeMethod(method, out);
+            }
+
+            out.writeShort(0);
+
+            ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+            DataOutputStream classOut = new DataOutputStream(classFile);
+            classOut.writeInt(MAGIC);
+            classOut.writeShort(0);
+            classOut.writeShort(MAJOR_VERSION);
+            constantPool.write(classOut);
+            classOut.writeShort(getAccessFlags(jvmClass.getModifiers()) | ACC_SUPER);
+            classOut.writeShort(thisClass);
+            classOut.writeShort(superClass);
+            classOut.writeShort(0);
+            members.writeTo(classOut);
+
+            return classFile.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return the number of bytes of the encoded instructions, used to compare instruction selections
+     */
+    public int getCodeSize(JvmCode code) {
+        this.constantPool = new ConstantPool();
+
+        try {
+            return encode(code).length;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private JvmMethod getDefaultConstructor(String superName) {
+        JvmCode code = new JvmCode()
+                .append(JvmInstruction.withValue(JvmOpcode.ALOAD, 0))
+                .append(JvmInstruction.member(JvmOpcode.INVOKESPECIAL, superName, "<init>", "()V"))
+                .append(JvmInstruction.simple(JvmOpcode.RETURN));
+
+        JvmMethod constructor = new JvmMethod(List.of("public"), "<init>", "()V", code);
+        constructor.setMaxStack(1);
+        constructor.setMaxLocals(1);
+
+        return constructor;
+    }
+
+    private void writeMethod(JvmMethod method, DataOutputStream out) throws IOException {
+        out.writeShort(getAccessFlags(method.getModifiers()));
+        out.writeShort(constantPool.addUtf8(method.getName()));
+        out.writeShort(constantPool.addUtf8(method.getDescriptor()));
+
+        byte[] code = encode(method.getCode());
+
+        // Code attribute
+        out.writeShort(1);
+        out.writeShort(constantPool.addUtf8("Code"));
+        out.writeInt(12 + code.length);
+        out.writeShort(method.getMaxStack());
+        out.writeShort(method.getMaxLocals());
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private byte[] encode(JvmCode code) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        Map<String, Integer> labels = new HashMap<>();
+        // Branch offsets are patched once every label is known
+        List<Integer> branchPositions = new ArrayList<>();
+        List<JvmInstruction> branches = new ArrayList<>();
+
+        for (JvmInstruction instruction : code.getInstructions()) {
+            JvmOpcode opcode = instruction.getOpcode();
+
+            if (opcode == JvmOpcode.LABEL) {
+                labels.put(instruction.getLabel(), out.size());
+                continue;
+            }
+
+            if (opcode.isBranch()) {
+                branchPositions.add(out.size());
+                branches.add(instruction);
+                out.writeByte(opcode.getCode());
+                out.writeShort(0);
+                continue;
+            }
+
+            switch (opcode) {
+                case ICONST -> out.writeByte(opcode.getCode() + instruction.getValue());
+                case BIPUSH -> {
+                    out.writeByte(opcode.getCode());
+                    out.writeByte(instruction.getValue());
+                }
+                case SIPUSH -> {
+                    out.writeByte(opcode.getCode());
+                    out.writeShort(instruction.getValue());
+                }
+                case LDC -> {
+                    int index = getConstant(instruction.getOperand());
+                    if (index <= 0xFF) {
+                        out.writeByte(opcode.getCode());
+                        out.writeByte(index);
+                    } else {
+                        out.writeByte(LDC_W);
+                        out.writeShort(index);
+                    }
+                }
+                case ILOAD, ALOAD, ISTORE, ASTORE -> writeLocal(opcode, instruction.getValue(), out);
+                case IINC -> {
+                    int register = instruction.getValue();
+                    int increment = instruction.getIncrement();
+                    if (register <= 0xFF && increment >= Byte.MIN_VALUE && increment <= Byte.MAX_VALUE) {
+                        out.writeByte(opcode.getCode());
+                        out.writeByte(register);
+                        out.writeByte(increment);
+                    } else {
+                        out.writeByte(WIDE);
+                        out.writeByte(opcode.getCode());
+                        out.writeShort(register);
+                        out.writeShort(increment);
+                    }
+                }
+                case GETFIELD, PUTFIELD -> {
+                    out.writeByte(opcode.getCode());
+                    out.writeShort(constantPool.addFieldRef(instruction.getOwner(), instruction.getName(),
+                            instruction.getDescriptor()));
+                }
+                case INVOKEVIRTUAL, INVOKESPECIAL, INVOKESTATIC -> {
+                    out.writeByte(opcode.getCode());
+                    out.writeShort(constantPool.addMethodRef(instruction.getOwner(), instruction.getName(),
+                            instruction.getDescriptor()));
+                }
+                case NEW -> {
+                    out.writeByte(opcode.getCode());
+                    out.writeShort(constantPool.addClass(instruction.getOperand()));
+                }
+                case NEWARRAY -> {
+                    if (!instruction.getOperand().equals("int"))
+                        throw new NotImplementedException(instruction.getOperand());
+                    out.writeByte(opcode.getCode());
+                    out.writeByte(T_INT);
+                }
+                default -> out.writeByte(opcode.getCode());
+            }
+        }
+
+        byte[] result = bytes.toByteArray();
+
+        for (int i = 0; i < branches.size(); i++) {
+            String label = branches.get(i).getLabel();
+            Integer target = labels.get(label);
+            if (target == null) {
+                throw new RuntimeException("Undefined label " + label);
+            }
+
+            int position = branchPositions.get(i);
+            int offset = target - position;
+            if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                throw new RuntimeException("Branch to " + label + " is too far for a 16-bit offset");
+            }
+
+            result[position + 1] = (byte) (offset >> 8);
+            result[position + 2] = (byte) offset;
+        }
+
+        return result;
+    }
+
+    private void writeLocal(JvmOpcode opcode, int register, DataOutputStream out) throws IOException {
+        if (register <= 3) {
+            out.writeByte(getShortFormBase(opcode) + register);
+        } else if (register <= 0xFF) {
+            out.writeByte(opcode.getCode());
+            out.writeByte(register);
+        } else {
+            out.writeByte(WIDE);
+            out.writeByte(opcode.getCode());
+            out.writeShort(register);
+        }
+    }
+
+    private int getShortFormBase(JvmOpcode opcode) {
+        return switch (opcode) {
+            case ILOAD -> 0x1a;
+            case ALOAD -> 0x2a;
+            case ISTORE -> 0x3b;
+            case ASTORE -> 0x4b;
+            default -> throw new NotImplementedException(opcode);
+        };
+    }
+
+    /**
+     * @param operand the text of a 'ldc' operand, an integer or a quoted string
+     */
+    private int getConstant(String operand) {
+        if (operand.length() >= 2 && operand.startsWith("\"") && operand.endsWith("\"")) {
+            return constantPool.addString(operand.substring(1, operand.length() - 1));
+        }
+
+        try {
+            return constantPool.addInteger(Integer.parseInt(operand));
+        } catch (NumberFormatException e) {
+            return constantPool.addString(operand);
+        }
+    }
+
+    private int getAccessFlags(List<String> modifiers) {
+        int flags = 0;
+
+        for (String modifier : modifiers) {
+            flags |= switch (modifier) {
+                case "public" -> ACC_PUBLIC;
+                case "private" -> ACC_PRIVATE;
+                case "protected" -> ACC_PROTECTED;
+                case "static" -> ACC_STATIC;
+                case "final" -> ACC_FINAL;
+                default -> 0;
+            };
+        }
+
+        return flags;
+    }
+}
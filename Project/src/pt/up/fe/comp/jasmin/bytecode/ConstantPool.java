@@ -0,0 +1,112 @@
+package pt.up.fe.comp.jasmin.bytecode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Constant pool of a class file. Each constant is added once, later requests return the index of the first entry.
+ */
+public class ConstantPool {
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream bytes;
+    private final DataOutputStream out;
+    private final Map<String, Integer> indexes;
+    private int count;
+
+    public ConstantPool() {
+        this.bytes = new ByteArrayOutputStream();
+        this.out = new DataOutputStream(bytes);
+        this.indexes = new HashMap<>();
+        this.count = 1;
+    }
+
+    public int addUtf8(String value) {
+        String key = UTF8 + ":" + value;
+        Integer index = indexes.get(key);
+        if (index != null) return index;
+
+        try {
+            out.writeByte(UTF8);
+            out.writeUTF(value);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return register(key);
+    }
+
+    public int addInteger(int value) {
+        String key = INTEGER + ":" + value;
+        Integer index = indexes.get(key);
+        if (index != null) return index;
+
+        try {
+            out.writeByte(INTEGER);
+            out.writeInt(value);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return register(key);
+    }
+
+    public int addClass(String name) {
+        return addReference(CLASS, name, addUtf8(name));
+    }
+
+    public int addString(String value) {
+        return addReference(STRING, value, addUtf8(value));
+    }
+
+    public int addFieldRef(String owner, String name, String descriptor) {
+        return addReference(FIELD_REF, owner + "." + name + ":" + descriptor,
+                addClass(owner), addNameAndType(name, descriptor));
+    }
+
+    public int addMethodRef(String owner, String name, String descriptor) {
+        return addReference(METHOD_REF, owner + "." + name + descriptor,
+                addClass(owner), addNameAndType(name, descriptor));
+    }
+
+    private int addNameAndType(String name, String descriptor) {
+        return addReference(NAME_AND_TYPE, name + ":" + descriptor, addUtf8(name), addUtf8(descriptor));
+    }
+
+    private int addReference(int tag, String value, int... references) {
+        String key = tag + ":" + value;
+        Integer index = indexes.get(key);
+        if (index != null) return index;
+
+        try {
+            out.writeByte(tag);
+            for (int reference : references) {
+                out.writeShort(reference);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return register(key);
+    }
+
+    private int register(String key) {
+        if (count > 0xFFFF) {
+            throw new RuntimeException("Too many constants in the constant pool");
+        }
+
+        indexes.put(key, count);
+        return count++;
+    }
+
+    public void write(DataOutputStream output) throws IOException {
+        output.writeShort(count);
+        bytes.writeTo(output);
+    }
+}
@@ -0,0 +1,56 @@
+package pt.up.fe.comp.jasmin.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class produced by the backend, independent of the output format (Jasmin text or class file).
+ */
+public class JvmClass {
+    private final List<String> modifiers;
+    private final String name;
+    private final String superName;
+    private final List<JvmField> fields;
+    private final List<JvmMethod> methods;
+    private boolean defaultConstructor;
+
+    public JvmClass(List<String> modifiers, String name, String superName) {
+        this.modifiers = modifiers;
+        this.name = name;
+        this.superName = superName;
+        this.fields = new ArrayList<>();
+        this.methods = new ArrayList<>();
+        this.defaultConstructor = false;
+    }
+
+    public List<String> getModifiers() {
+        return modifiers;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSuperName() {
+        return superName;
+    }
+
+    public List<JvmField> getFields() {
+        return fields;
+    }
+
+    public List<JvmMethod> getMethods() {
+        return methods;
+    }
+
+    /**
+     * @return true if the class declares no constructor, so one that only calls the super constructor is added
+     */
+    public boolean hasDefaultConstructor() {
+        return defaultConstructor;
+    }
+
+    public void setDefaultConstructor(boolean defaultConstructor) {
+        this.defaultConstructor = defaultConstructor;
+    }
+}
@@ -0,0 +1,33 @@
+package pt.up.fe.comp.jasmin.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sequence of instructions and labels of a method, built in order.
+ */
+public class JvmCode {
+    private final List<JvmInstruction> instructions;
+
+    public JvmCode() {
+        this.instructions = new ArrayList<>();
+    }
+
+    public JvmCode append(JvmInstruction instruction) {
+        instructions.add(instruction);
+        return this;
+    }
+
+    public JvmCode append(JvmCode code) {
+        instructions.addAll(code.instructions);
+        return this;
+    }
+
+    public List<JvmInstruction> getInstructions() {
+        return instructions;
+    }
+
+    public boolean isEmpty() {
+        return instructions.isEmpty();
+    }
+}
@@ -0,0 +1,27 @@
+package pt.up.fe.comp.jasmin.model;
+
+import java.util.List;
+
+public class JvmField {
+    private final List<String> modifiers;
+    private final String name;
+    private final String descriptor;
+
+    public JvmField(List<String> modifiers, String name, String descriptor) {
+        this.modifiers = modifiers;
+        this.name = name;
+        this.descriptor = descriptor;
+    }
+
+    public List<String> getModifiers() {
+        return modifiers;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+}
@@ -0,0 +1,93 @@
+package pt.up.fe.comp.jasmin.model;
+
+/**
+ * A JVM instruction, or a label, with its operands. Which operands are used depends on the opcode: locals and
+ * integer constants use the value, branches and labels the label, field and method instructions the owner, name and
+ * descriptor, and 'new', 'newarray' and 'ldc' the operand text.
+ */
+public class JvmInstruction {
+    private final JvmOpcode opcode;
+    private final int value;
+    private final int increment;
+    private final String operand;
+    private final String owner;
+    private final String name;
+    private final String descriptor;
+
+    private JvmInstruction(JvmOpcode opcode, int value, int increment, String operand, String owner, String name,
+            String descriptor) {
+        this.opcode = opcode;
+        this.value = value;
+        this.increment = increment;
+        this.operand = operand;
+        this.owner = owner;
+        this.name = name;
+        this.descriptor = descriptor;
+    }
+
+    public static JvmInstruction simple(JvmOpcode opcode) {
+        return new JvmInstruction(opcode, 0, 0, null, null, null, null);
+    }
+
+    public static JvmInstruction label(String label) {
+        return new JvmInstruction(JvmOpcode.LABEL, 0, 0, label, null, null, null);
+    }
+
+    public static JvmInstruction branch(JvmOpcode opcode, String label) {
+        return new JvmInstruction(opcode, 0, 0, label, null, null, null);
+    }
+
+    /**
+     * Loads and stores of locals, and integer constants (iconst, bipush and sipush).
+     */
+    public static JvmInstruction withValue(JvmOpcode opcode, int value) {
+        return new JvmInstruction(opcode, value, 0, null, null, null, null);
+    }
+
+    public static JvmInstruction iinc(int register, int increment) {
+        return new JvmInstruction(JvmOpcode.IINC, register, increment, null, null, null, null);
+    }
+
+    /**
+     * Instructions that refer to a type or a constant by its text, 'new', 'newarray' and 'ldc'.
+     */
+    public static JvmInstruction withOperand(JvmOpcode opcode, String operand) {
+        return new JvmInstruction(opcode, 0, 0, operand, null, null, null);
+    }
+
+    public static JvmInstruction member(JvmOpcode opcode, String owner, String name, String descriptor) {
+        return new JvmInstruction(opcode, 0, 0, null, owner, name, descriptor);
+    }
+
+    public JvmOpcode getOpcode() {
+        return opcode;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public int getIncrement() {
+        return increment;
+    }
+
+    public String getOperand() {
+        return operand;
+    }
+
+    public String getLabel() {
+        return operand;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+}
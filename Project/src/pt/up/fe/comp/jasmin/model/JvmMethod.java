@@ -0,0 +1,51 @@
+package pt.up.fe.comp.jasmin.model;
+
+import java.util.List;
+
+public class JvmMethod {
+    private final List<String> modifiers;
+    private final String name;
+    private final String descriptor;
+    private final JvmCode code;
+    private int maxStack;
+    private int maxLocals;
+
+    public JvmMethod(List<String> modifiers, String name, String descriptor, JvmCode code) {
+        this.modifiers = modifiers;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.code = code;
+    }
+
+    public List<String> getModifiers() {
+        return modifiers;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    public JvmCode getCode() {
+        return code;
+    }
+
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    public void setMaxStack(int maxStack) {
+        this.maxStack = maxStack;
+    }
+
+    public int getMaxLocals() {
+        return maxLocals;
+    }
+
+    public void setMaxLocals(int maxLocals) {
+        this.maxLocals = maxLocals;
+    }
+}
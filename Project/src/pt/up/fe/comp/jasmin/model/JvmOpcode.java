@@ -0,0 +1,79 @@
+package pt.up.fe.comp.jasmin.model;
+
+/**
+ * JVM instructions used by the backend, with their opcode in the class file format.
+ */
+public enum JvmOpcode {
+    LABEL(-1),
+
+    ICONST(0x03),
+    BIPUSH(0x10),
+    SIPUSH(0x11),
+    LDC(0x12),
+
+    ILOAD(0x15),
+    ALOAD(0x19),
+    IALOAD(0x2e),
+    ISTORE(0x36),
+    ASTORE(0x3a),
+    IASTORE(0x4f),
+    AASTORE(0x53),
+
+    POP(0x57),
+    DUP(0x59),
+
+    IADD(0x60),
+    ISUB(0x64),
+    IMUL(0x68),
+    IDIV(0x6c),
+    IINC(0x84),
+
+    IFEQ(0x99),
+    IFNE(0x9a),
+    IFLT(0x9b),
+    IFGE(0x9c),
+    IFGT(0x9d),
+    IFLE(0x9e),
+    IF_ICMPEQ(0x9f),
+    IF_ICMPNE(0xa0),
+    IF_ICMPLT(0xa1),
+    IF_ICMPGE(0xa2),
+    IF_ICMPGT(0xa3),
+    IF_ICMPLE(0xa4),
+    GOTO(0xa7),
+
+    IRETURN(0xac),
+    ARETURN(0xb0),
+    RETURN(0xb1),
+
+    GETFIELD(0xb4),
+    PUTFIELD(0xb5),
+    INVOKEVIRTUAL(0xb6),
+    INVOKESPECIAL(0xb7),
+    INVOKESTATIC(0xb8),
+    NEW(0xbb),
+    NEWARRAY(0xbc),
+    ARRAYLENGTH(0xbe);
+
+    private final int code;
+
+    JvmOpcode(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getMnemonic() {
+        return name().toLowerCase();
+    }
+
+    public boolean isBranch() {
+        return (code >= IFEQ.code && code <= GOTO.code);
+    }
+
+    public boolean isInvoke() {
+        return this == INVOKEVIRTUAL || this == INVOKESPECIAL || this == INVOKESTATIC;
+    }
+}
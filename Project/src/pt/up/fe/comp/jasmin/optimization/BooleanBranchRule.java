@@ -0,0 +1,65 @@
+package pt.up.fe.comp.jasmin.optimization;
+
+import pt.up.fe.comp.jasmin.model.JvmInstruction;
+import pt.up.fe.comp.jasmin.model.JvmOpcode;
+
+import java.util.List;
+
+import static pt.up.fe.comp.jasmin.optimization.PeepholeOptimizer.*;
+
+/**
+ * Branches on a condition directly, instead of materializing it as 0 or 1 and then testing that value:
+ * <pre>
+ * if_icmplt Then
+ * iconst_0
+ * goto EndIf
+ * Then:                 -&gt;   if_icmplt L
+ * iconst_1
+ * EndIf:
+ * ifne L
+ * </pre>
+ * Only applies when both intermediate labels are not targeted by any other branch.
+ */
+public class BooleanBranchRule implements PeepholeRule {
+
+    @Override
+    public boolean apply(List<JvmInstruction> instructions, int index) {
+        if (index + 6 >= instructions.size()) return false;
+
+        JvmInstruction condition = instructions.get(index);
+        JvmInstruction falseValue = instructions.get(index + 1);
+        JvmInstruction jumpToEnd = instructions.get(index + 2);
+        JvmInstruction thenLabel = instructions.get(index + 3);
+        JvmInstruction trueValue = instructions.get(index + 4);
+        JvmInstruction endLabel = instructions.get(index + 5);
+        JvmInstruction test = instructions.get(index + 6);
+
+        if (!isConditionalBranch(condition.getOpcode())
+                || falseValue.getOpcode() != JvmOpcode.ICONST
+                || jumpToEnd.getOpcode() != JvmOpcode.GOTO
+                || thenLabel.getOpcode() != JvmOpcode.LABEL
+                || !thenLabel.getLabel().equals(condition.getLabel())
+                || trueValue.getOpcode() != JvmOpcode.ICONST
+                || endLabel.getOpcode() != JvmOpcode.LABEL
+                || !endLabel.getLabel().equals(jumpToEnd.getLabel())
+                || (test.getOpcode() != JvmOpcode.IFNE && test.getOpcode() != JvmOpcode.IFEQ)) {
+            return false;
+        }
+
+        if (countReferences(instructions, thenLabel.getLabel()) != 1
+                || countReferences(instructions, endLabel.getLabel()) != 1) {
+            return false;
+        }
+
+        boolean branchIfNonZero = test.getOpcode() == JvmOpcode.IFNE;
+        boolean takenWhenTrue = (trueValue.getValue() != 0) == branchIfNonZero;
+        boolean takenWhenFalse = (falseValue.getValue() != 0) == branchIfNonZero;
+        if (takenWhenTrue == takenWhenFalse) return false;
+
+        JvmOpcode opcode = takenWhenTrue ? condition.getOpcode() : negate(condition.getOpcode());
+
+        instructions.subList(index, index + 7).clear();
+        instructions.add(index, JvmInstruction.branch(opcode, test.getLabel()));
+        return true;
+    }
+}
@@ -0,0 +1,35 @@
+package pt.up.fe.comp.jasmin.optimization;
+
+import pt.up.fe.comp.jasmin.model.JvmInstruction;
+import pt.up.fe.comp.jasmin.model.JvmOpcode;
+
+import java.util.List;
+
+/**
+ * Removes branches to the instruction that follows them. A conditional branch still has to consume its operands, so it
+ * is replaced by pops.
+ */
+public class BranchToNextRule implements PeepholeRule {
+
+    @Override
+    public boolean apply(List<JvmInstruction> instructions, int index) {
+        JvmInstruction branch = instructions.get(index);
+        JvmOpcode opcode = branch.getOpcode();
+        if (!opcode.isBranch()) return false;
+
+        int next = index + 1;
+        while (next < instructions.size() && instructions.get(next).getOpcode() == JvmOpcode.LABEL) {
+            if (instructions.get(next).getLabel().equals(branch.getLabel())) {
+                instructions.remove(index);
+                int pops = opcode == JvmOpcode.GOTO ? 0 : (opcode.getCode() >= JvmOpcode.IF_ICMPEQ.getCode() ? 2 : 1);
+                for (int i = 0; i < pops; i++) {
+                    instructions.add(index, JvmInstruction.simple(JvmOpcode.POP));
+                }
+                return true;
+            }
+            next++;
+        }
+
+        return false;
+    }
+}
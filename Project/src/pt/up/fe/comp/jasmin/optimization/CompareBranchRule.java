@@ -0,0 +1,71 @@
+package pt.up.fe.comp.jasmin.optimization;
+
+import pt.up.fe.comp.jasmin.model.JvmInstruction;
+import pt.up.fe.comp.jasmin.model.JvmOpcode;
+
+import java.util.List;
+
+import static pt.up.fe.comp.jasmin.optimization.PeepholeOptimizer.isAt;
+
+/**
+ * Compares the sum of two booleans with 2, as 'and' is generated, with a single branch instead of subtracting and
+ * comparing the result with zero:
+ * <pre>
+ * iadd                 iadd
+ * iconst 2             iconst 2
+ * isub          -&gt;   if_icmplt L
+ * iflt L               iconst 1
+ * iconst 1             goto E
+ * goto E               L:
+ * L:                   iconst 0
+ * iconst 0
+ * </pre>
+ * The operands are 0 or 1, so the subtraction cannot overflow. Any other subtraction compared with zero is kept, as
+ * 'a - b &lt; 0' differs from 'a &lt; b' when 'a - b' overflows. Subtracting the constant zero is dropped before any
+ * comparison, as it never overflows.
+ */
+public class CompareBranchRule implements PeepholeRule {
+
+    @Override
+    public boolean apply(List<JvmInstruction> instructions, int index) {
+        if (!isAt(instructions, index, JvmOpcode.ISUB) || index + 1 >= instructions.size()) return false;
+
+        JvmInstruction branch = instructions.get(index + 1);
+        if (!isZeroComparison(branch.getOpcode())) return false;
+
+        if (isConstant(instructions, index - 1, 0)) {
+            instructions.subList(index - 1, index + 1).clear();
+            return true;
+        }
+
+        if (!isAndSequence(instructions, index)) return false;
+
+        instructions.subList(index, index + 2).clear();
+        instructions.add(index, JvmInstruction.branch(JvmOpcode.IF_ICMPLT, branch.getLabel()));
+        return true;
+    }
+
+    /**
+     * @return true if the subtraction at the given index is the one of 'and', with the result materialized after it
+     */
+    private boolean isAndSequence(List<JvmInstruction> instructions, int index) {
+        if (!isAt(instructions, index - 2, JvmOpcode.IADD) || !isConstant(instructions, index - 1, 2)) return false;
+        if (!isAt(instructions, index + 1, JvmOpcode.IFLT) || !isConstant(instructions, index + 2, 1)) return false;
+        if (!isAt(instructions, index + 3, JvmOpcode.GOTO) || !isAt(instructions, index + 4, JvmOpcode.LABEL))
+            return false;
+
+        return instructions.get(index + 4).getLabel().equals(instructions.get(index + 1).getLabel())
+                && isConstant(instructions, index + 5, 0);
+    }
+
+    private boolean isConstant(List<JvmInstruction> instructions, int index, int value) {
+        return isAt(instructions, index, JvmOpcode.ICONST) && instructions.get(index).getValue() == value;
+    }
+
+    private boolean isZeroComparison(JvmOpcode opcode) {
+        return switch (opcode) {
+            case IFEQ, IFNE, IFLT, IFGE, IFGT, IFLE -> true;
+            default -> false;
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package pt.up.fe.comp.jasmin.optimization;
+
+import pt.up.fe.comp.jasmin.model.JvmInstruction;
+import pt.up.fe.comp.jasmin.model.JvmOpcode;
+
+import java.util.List;
+
+/**
+ * Removes stores immediately followed by a load of the same local, when that is the only read of the local, loads
+ * immediately stored back in the same local, and loads or constants that are popped right away:
+ * <pre>
+ * istore_2                               iload_2
+ * iload_2        -&gt;   (nothing)          istore_2     -&gt;   (nothing)
+ * </pre>
+ */
+public class LoadStoreRule implements PeepholeRule {
+
+    @Override
+    public boolean apply(List<JvmInstruction> instructions, int index) {
+        if (index + 1 >= instructions.size()) return false;
+
+        JvmInstruction first = instructions.get(index);
+        JvmInstruction second = instructions.get(index + 1);
+
+        if (second.getOpcode() == JvmOpcode.POP && isPush(first.getOpcode())) {
+            instructions.subList(index, index + 2).clear();
+            return true;
+        }
+
+        if (first.getValue() != second.getValue()) return false;
+
+        boolean storeLoad = isStoreLoad(first.getOpcode(), second.getOpcode());
+        boolean loadStore = isStoreLoad(second.getOpcode(), first.getOpcode());
+        if (!storeLoad && !loadStore) return false;
+
+        if (storeLoad && countReads(instructions, first.getValue()) != 1) return false;
+
+        instructions.subList(index, index + 2).clear();
+        return true;
+    }
+
+    private boolean isPush(JvmOpcode opcode) {
+        return switch (opcode) {
+            case ILOAD, ALOAD, ICONST, BIPUSH, SIPUSH, LDC -> true;
+            default -> false;
+        };
+    }
+
+    private boolean isStoreLoad(JvmOpcode first, JvmOpcode second) {
+        return (first == JvmOpcode.ISTORE && second == JvmOpcode.ILOAD)
+                || (first == JvmOpcode.ASTORE && second == JvmOpcode.ALOAD);
+    }
+
+    private int countReads(List<JvmInstruction> instructions, int register) {
+        int reads = 0;
+
+        for (JvmInstruction instruction : instructions) {
+            JvmOpcode opcode = instruction.getOpcode();
+            if ((opcode == JvmOpcode.ILOAD || opcode == JvmOpcode.ALOAD || opcode == JvmOpcode.IINC)
+                    && instruction.getValue() == register) {
+                reads++;
+            }
+        }
+
+        return reads;
+    }
+}
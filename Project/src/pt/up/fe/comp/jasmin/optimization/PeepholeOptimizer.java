@@ -0,0 +1,106 @@
+package pt.up.fe.comp.jasmin.optimization;
+
+import pt.up.fe.comp.jasmin.model.JvmCode;
+import pt.up.fe.comp.jasmin.model.JvmInstruction;
+import pt.up.fe.comp.jasmin.model.JvmOpcode;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies a list of {@link PeepholeRule}s to the code of a method until none of them changes it.
+ */
+public class PeepholeOptimizer {
+    private final List<PeepholeRule> rules;
+
+    public PeepholeOptimizer(List<PeepholeRule> rules) {
+        this.rules = rules;
+    }
+
+    public static PeepholeOptimizer disabled() {
+        return new PeepholeOptimizer(Collections.emptyList());
+    }
+
+    /**
+     * @return the optimizer with the default rules if the 'optimize' option is set, one that does nothing otherwise
+     */
+    public static PeepholeOptimizer fromConfig(Map<String, String> config) {
+        if (!Boolean.parseBoolean(config.getOrDefault("optimize", "false"))) {
+            return disabled();
+        }
+
+        return new PeepholeOptimizer(getDefaultRules());
+    }
+
+    public static List<PeepholeRule> getDefaultRules() {
+        return List.of(
+                new CompareBranchRule(),
+                new LoadStoreRule(),
+                new BooleanBranchRule(),
+                new BranchToNextRule());
+    }
+
+    public void optimize(JvmCode code) {
+        List<JvmInstruction> instructions = code.getInstructions();
+        boolean changed = !rules.isEmpty();
+
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < instructions.size(); i++) {
+                for (PeepholeRule rule : rules) {
+                    if (i < instructions.size() && rule.apply(instructions, i)) {
+                        changed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the opcode at the given position exists and is the expected one
+     */
+    static boolean isAt(List<JvmInstruction> instructions, int index, JvmOpcode opcode) {
+        return index >= 0 && index < instructions.size() && instructions.get(index).getOpcode() == opcode;
+    }
+
+    /**
+     * @return the number of branches to the label
+     */
+    static int countReferences(List<JvmInstruction> instructions, String label) {
+        int references = 0;
+
+        for (JvmInstruction instruction : instructions) {
+            if (instruction.getOpcode().isBranch() && instruction.getLabel().equals(label)) {
+                references++;
+            }
+        }
+
+        return references;
+    }
+
+    static boolean isConditionalBranch(JvmOpcode opcode) {
+        return opcode.isBranch() && opcode != JvmOpcode.GOTO;
+    }
+
+    /**
+     * @return the branch taken exactly when the given one is not
+     */
+    static JvmOpcode negate(JvmOpcode opcode) {
+        return switch (opcode) {
+            case IFEQ -> JvmOpcode.IFNE;
+            case IFNE -> JvmOpcode.IFEQ;
+            case IFLT -> JvmOpcode.IFGE;
+            case IFGE -> JvmOpcode.IFLT;
+            case IFGT -> JvmOpcode.IFLE;
+            case IFLE -> JvmOpcode.IFGT;
+            case IF_ICMPEQ -> JvmOpcode.IF_ICMPNE;
+            case IF_ICMPNE -> JvmOpcode.IF_ICMPEQ;
+            case IF_ICMPLT -> JvmOpcode.IF_ICMPGE;
+            case IF_ICMPGE -> JvmOpcode.IF_ICMPLT;
+            case IF_ICMPGT -> JvmOpcode.IF_ICMPLE;
+            case IF_ICMPLE -> JvmOpcode.IF_ICMPGT;
+            default -> throw new IllegalArgumentException("Not a conditional branch: " + opcode);
+        };
+    }
+}
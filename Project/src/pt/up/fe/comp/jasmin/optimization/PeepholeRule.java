@@ -0,0 +1,18 @@
+package pt.up.fe.comp.jasmin.optimization;
+
+import pt.up.fe.comp.jasmin.model.JvmInstruction;
+
+import java.util.List;
+
+/**
+ * Local rewrite of a short sequence of instructions, applied by the {@link PeepholeOptimizer}.
+ */
+public interface PeepholeRule {
+
+    /**
+     * Tries to rewrite the instructions around the given position, in place.
+     *
+     * @return true if the instructions were changed
+     */
+    boolean apply(List<JvmInstruction> instructions, int index);
+}
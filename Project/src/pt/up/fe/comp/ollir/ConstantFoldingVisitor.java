@@ -1,12 +1,18 @@
 package pt.up.fe.comp.ollir;
 
 import pt.up.fe.comp.ast.AstNode;
-import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.ast.Operator;
+import pt.up.fe.comp.analysis.SymbolTableMap;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
 public class ConstantFoldingVisitor extends OptimizerVisitor {
-    public ConstantFoldingVisitor(SymbolTable symbolTable) {
+    public ConstantFoldingVisitor(SymbolTableMap symbolTable) {
         super(symbolTable);
         addVisit(AstNode.UNARY_OP, this::unaryOpVisit);
         addVisit(AstNode.BIN_OP, this::binaryOpVisit);
@@ -14,54 +20,74 @@ public class ConstantFoldingVisitor extends OptimizerVisitor {
     }
 
     private Integer binaryOpVisit(JmmNode binaryOp, Integer dummy) {
-        if (binaryOp.get("op").equals("ACCESS")) return null;
+        // Operations are folded after their operands, collected with an explicit stack, so a chain such as
+        // '1 + 2 + ... + n' folds in a single pass and without a level of recursion per operator
+        List<JmmNode> operations = new ArrayList<>();
+        Deque<JmmNode> pending = new ArrayDeque<>();
+        pending.push(binaryOp);
 
-        var leftValue = getTerminalValue(binaryOp.getJmmChild(0));
-        var rightValue = getTerminalValue(binaryOp.getJmmChild(1));
+        while (!pending.isEmpty()) {
+            var operation = pending.pop();
+            if (Operator.of(operation) == Operator.ACCESS) continue;
 
-        if (leftValue == null || rightValue == null) {
-            if (leftValue == null) visit(binaryOp.getJmmChild(0));
-            if (rightValue == null) visit(binaryOp.getJmmChild(1));
-            return null;
+            operations.add(operation);
+            for (var operand : operation.getChildren()) {
+                if (AstNode.of(operand) == AstNode.BIN_OP) {
+                    pending.push(operand);
+                } else if (getTerminalValue(operand) == null) {
+                    visit(operand);
+                }
+            }
         }
 
+        // In reverse, each operation comes after the operations in its operands
+        for (int i = operations.size() - 1; i >= 0; i--) {
+            fold(operations.get(i));
+        }
+
+        return null;
+    }
+
+    private void fold(JmmNode binaryOp) {
+        var leftValue = getTerminalValue(binaryOp.getJmmChild(0));
+        var rightValue = getTerminalValue(binaryOp.getJmmChild(1));
+        if (leftValue == null || rightValue == null) return;
+
         var parentNode = binaryOp.getJmmParent();
         var index = parentNode.removeJmmChild(binaryOp);
-        if (index == -1) return null;
+        if (index == -1) return;
         JmmNode newNode = new JmmNodeImpl("Terminal");
-        newNode.put("col", binaryOp.get("col"));
-        newNode.put("line", binaryOp.get("line"));
+        newNode.put("col", binaryOp.getInt("col"));
+        newNode.put("line", binaryOp.getInt("line"));
 
-        switch (binaryOp.get("op")) {
-            case "AND" -> {
+        switch (Operator.of(binaryOp)) {
+            case AND -> {
                 newNode.put("type", "boolean");
                 newNode.put("image", String.valueOf(Boolean.valueOf(leftValue) && Boolean.valueOf(rightValue)));
             }
-            case "LT" -> {
+            case LT -> {
                 newNode.put("type", "boolean");
                 newNode.put("image", String.valueOf(Integer.parseInt(leftValue) < Integer.parseInt(rightValue)));
             }
-            case "ADD" -> {
+            case ADD -> {
                 newNode.put("type", "int");
-                newNode.put("image", String.valueOf(Integer.parseInt(leftValue) + Integer.parseInt(rightValue)));
+                newNode.put("image", Integer.parseInt(leftValue) + Integer.parseInt(rightValue));
             }
-            case "SUB" -> {
+            case SUB -> {
                 newNode.put("type", "int");
-                newNode.put("image", String.valueOf(Integer.parseInt(leftValue) - Integer.parseInt(rightValue)));
+                newNode.put("image", Integer.parseInt(leftValue) - Integer.parseInt(rightValue));
             }
-            case "MUL" -> {
+            case MUL -> {
                 newNode.put("type", "int");
-                newNode.put("image", String.valueOf(Integer.parseInt(leftValue) * Integer.parseInt(rightValue)));
+                newNode.put("image", Integer.parseInt(leftValue) * Integer.parseInt(rightValue));
             }
-            case "DIV" -> {
+            case DIV -> {
                 newNode.put("type", "int");
-                newNode.put("image", String.valueOf(Integer.parseInt(leftValue) / Integer.parseInt(rightValue)));
+                newNode.put("image", Integer.parseInt(leftValue) / Integer.parseInt(rightValue));
             }
         }
         parentNode.add(newNode, index);
-        OptimizerVisitor.optimizationChanges++;
-
-        return null;
+        this.optimizationChanges++;
     }
 
     private Integer unaryOpVisit(JmmNode jmmNode, Integer integer) {
@@ -3,20 +3,22 @@ package pt.up.fe.comp.ollir;
 import pt.up.fe.comp.analysis.SemanticAnalysisVisitor;
 import pt.up.fe.comp.ast.AstNode;
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
-import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.analysis.SymbolTableMap;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
 public class ConstantPropagationVisitor extends OptimizerVisitor {
 
-    public ConstantPropagationVisitor(SymbolTable symbolTable) {
+    public ConstantPropagationVisitor(SymbolTableMap symbolTable) {
         super(symbolTable);
 
         addVisit(AstNode.METHOD_DECLARATION, this::methodVisit);
@@ -62,34 +64,42 @@ public class ConstantPropagationVisitor extends OptimizerVisitor {
     }
 
     private boolean visitReplace(JmmNode node, List<String> idInfo) {
-        switch (node.getKind()) {
-            case "AssignStatement" -> {
-                visitReplace(node.getJmmChild(1), idInfo);
-                if (isReassign(node, idInfo)) return false;
-            }
-            case "ArrayAssignStatement" -> {
-                visitReplace(node.getJmmChild(1), idInfo);
-                visitReplace(node.getJmmChild(2), idInfo);
-            }
-            case "Identifier" -> {
-                if (!node.get("name").equals(idInfo.get(0))) break;
+        Deque<JmmNode> pending = new ArrayDeque<>();
+        pending.push(node);
+
+        while (!pending.isEmpty()) {
+            var current = pending.pop();
+
+            switch (AstNode.of(current)) {
+                case ASSIGN_STATEMENT -> {
+                    // The value is an expression, which has no assignments, so it can be replaced right away
+                    visitReplace(current.getJmmChild(1), idInfo);
+                    if (isReassign(current, idInfo)) return false;
+                }
+                case ARRAY_ASSIGN_STATEMENT -> {
+                    pending.push(current.getJmmChild(2));
+                    pending.push(current.getJmmChild(1));
+                }
+                case IDENTIFIER -> {
+                    if (!current.get("name").equals(idInfo.get(0))) break;
 
-                var parentNode = node.getJmmParent();
-                var index = parentNode.removeJmmChild(node);
-                if (index == -1) break;
+                    var parentNode = current.getJmmParent();
+                    var index = parentNode.removeJmmChild(current);
+                    if (index == -1) break;
 
-                var newNode = new JmmNodeImpl("Terminal");
-                newNode.put("type", idInfo.get(1));
-                newNode.put("image", idInfo.get(2));
-                newNode.put("col", node.get("col"));
-                newNode.put("line", node.get("line"));
+                    var newNode = new JmmNodeImpl("Terminal");
+                    newNode.put("type", idInfo.get(1));
+                    newNode.put("image", idInfo.get(2));
+                    newNode.put("col", current.getInt("col"));
+                    newNode.put("line", current.getInt("line"));
 
-                parentNode.add(newNode, index);
-                OptimizerVisitor.optimizationChanges++;
-            }
-            default -> {
-                for (int i = 0; i < node.getNumChildren(); i++) {
-                    if (!visitReplace(node.getJmmChild(i), idInfo)) return false;
+                    parentNode.add(newNode, index);
+                    this.optimizationChanges++;
+                }
+                default -> {
+                    for (int i = current.getNumChildren() - 1; i >= 0; i--) {
+                        pending.push(current.getJmmChild(i));
+                    }
                 }
             }
         }
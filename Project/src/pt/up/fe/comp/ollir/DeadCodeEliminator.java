@@ -3,17 +3,20 @@ package pt.up.fe.comp.ollir;
 import pt.up.fe.comp.analysis.SemanticAnalysisVisitor;
 import pt.up.fe.comp.ast.AstNode;
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
-import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.analysis.SymbolTableMap;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 
 public class DeadCodeEliminator extends OptimizerVisitor{
-    public DeadCodeEliminator(SymbolTable symbolTable) {
+    public DeadCodeEliminator(SymbolTableMap symbolTable) {
         super(symbolTable);
 
         addVisit(AstNode.LOOP_STATEMENT, this::loopVisit);
@@ -35,7 +38,7 @@ public class DeadCodeEliminator extends OptimizerVisitor{
             if ("AssignStatement".equals(statement.getKind())) {
                 if(checkUsage(statements.subList(i, statements.size()), methodSignature)){
                     statement.delete();
-                    OptimizerVisitor.optimizationChanges++;
+                    this.optimizationChanges++;
                 }
                 continue;
             }
@@ -63,55 +66,65 @@ public class DeadCodeEliminator extends OptimizerVisitor{
     }
 
     private boolean isRemovable(List<JmmNode> statements, String name) {
-        for (JmmNode statement : statements) {
-            switch (statement.getKind()) {
-                case "AssignStatement" -> {
-                    if (idInExpression(statement.getJmmChild(1), name)) return false;
-
-                    var id = statement.getJmmChild(0);
-                    if (id.get("name").equals(name)) return true;
-                }
-                case "EnclosedStatement" -> {
-                    if (isRemovable(statement.getChildren(), name)) return true;
-                }
-                case "IfStatement" -> {
-                    if (idInExpression(statement.getJmmChild(0), name)) return false;
-                    if (isRemovable(statement.getJmmChild(1).getChildren(), name)) return true;
-                    if (isRemovable(statement.getJmmChild(2).getChildren(), name)) return true;
+        // Statement lists still being scanned, innermost on top. Reaching the end of a list, or a reassignment, makes
+        // the variable removable, while a use only ends the scan of the list it is in
+        Deque<Iterator<JmmNode>> lists = new ArrayDeque<>();
+        lists.push(statements.iterator());
+
+        while (!lists.isEmpty()) {
+            var current = lists.peek();
+            if (!current.hasNext()) return true;
+
+            var statement = current.next();
+            boolean used = false;
+
+            switch (AstNode.of(statement)) {
+                case ASSIGN_STATEMENT -> {
+                    used = idInExpression(statement.getJmmChild(1), name);
+                    if (!used && statement.getJmmChild(0).get("name").equals(name)) return true;
                 }
-                case "LoopStatement" -> {
-                    if (idInExpression(statement.getJmmChild(0), name)) return false;
-                    if (isRemovable(statement.getJmmChild(1).getChildren(), name)) return true;
+                case ENCLOSED_STATEMENT -> lists.push(statement.getChildren().iterator());
+                case IF_STATEMENT -> {
+                    used = idInExpression(statement.getJmmChild(0), name);
+                    if (!used) {
+                        lists.push(statement.getJmmChild(2).getChildren().iterator());
+                        lists.push(statement.getJmmChild(1).getChildren().iterator());
+                    }
                 }
-                case "ArrayAssignmentStatement" -> {
-                    if (idInExpression(statement.getJmmChild(1), name)) return false;
+                case LOOP_STATEMENT -> {
+                    used = idInExpression(statement.getJmmChild(0), name);
+                    if (!used) lists.push(statement.getJmmChild(1).getChildren().iterator());
                 }
-                case "ExpressionStatement", "ReturnStatement" -> {
-                    if (idInExpression(statement.getJmmChild(0), name)) return false;
+                case ARRAY_ASSIGN_STATEMENT -> {
+                    for (var child : statement.getChildren()) {
+                        used = used || idInExpression(child, name);
+                    }
                 }
+                case EXPRESSION_STATEMENT, RETURN_STATEMENT -> used = idInExpression(statement.getJmmChild(0), name);
             }
+
+            if (used) lists.pop();
         }
-        return true;
+        return false;
     }
 
     private boolean idInExpression(JmmNode expression, String id) {
-        switch (expression.getKind()) {
-            case "BinOp" -> {
-                return (idInExpression(expression.getJmmChild(0) ,id) || idInExpression(expression.getJmmChild(1), id));
-            }
-            case "UnaryOp" -> {
-                return idInExpression(expression.getJmmChild(0) ,id);
-            }
-            case "Terminal" -> {
-                return false;
-            }
-            case "Identifier" -> {
-                return expression.get("name").equals(id);
-            }
-            case "MemberCall" -> {
-                for (var expr : expression.getJmmChild(1).getChildren()) {
-                    if (idInExpression(expr, id)) return true;
+        Deque<JmmNode> pending = new ArrayDeque<>();
+        pending.push(expression);
+
+        while (!pending.isEmpty()) {
+            var node = pending.pop();
+
+            switch (AstNode.of(node)) {
+                case BIN_OP -> {
+                    pending.push(node.getJmmChild(1));
+                    pending.push(node.getJmmChild(0));
+                }
+                case UNARY_OP -> pending.push(node.getJmmChild(0));
+                case IDENTIFIER -> {
+                    if (node.get("name").equals(id)) return true;
                 }
+                case MEMBER_CALL -> node.getJmmChild(1).getChildren().forEach(pending::push);
             }
         }
         return false;
@@ -133,7 +146,7 @@ public class DeadCodeEliminator extends OptimizerVisitor{
         var index = parent.removeJmmChild(ifStatement);
         parent.add(newNode, index);
 
-        OptimizerVisitor.optimizationChanges++;
+        this.optimizationChanges++;
         return null;
     }
 
@@ -143,7 +156,7 @@ public class DeadCodeEliminator extends OptimizerVisitor{
 
         if (!Boolean.parseBoolean(value)) {
             loopStatement.delete();
-            OptimizerVisitor.optimizationChanges++;
+            this.optimizationChanges++;
         }
 
         loopStatement.put("DoWhile", "true");
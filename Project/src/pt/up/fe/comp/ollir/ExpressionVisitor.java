@@ -1,29 +1,35 @@
 package pt.up.fe.comp.ollir;
 
+import pt.up.fe.comp.analysis.AnalysisUtils;
 import pt.up.fe.comp.analysis.SymbolTableMap;
+import pt.up.fe.comp.ast.AstNode;
+import pt.up.fe.comp.ast.Operator;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.function.Supplier;
 
 public class ExpressionVisitor {
     private final SymbolTableMap symbolTable;
     private String methodSignature;
-    private static int temporaryIndex;
+    private int temporaryIndex;
 
     public ExpressionVisitor(SymbolTableMap symbolTable) {
         this.symbolTable = symbolTable;
         this.methodSignature = null;
-        temporaryIndex = 1;
+        this.temporaryIndex = 1;
     }
 
     public void setMethodSignature(String methodSignature) {
         this.methodSignature = methodSignature;
     }
 
-    public static void resetTemporaryIndex() {
-        temporaryIndex = 1;
+    public void resetTemporaryIndex() {
+        this.temporaryIndex = 1;
     }
 
     public String getMethodSignature() {
@@ -31,12 +37,12 @@ public class ExpressionVisitor {
     }
 
     public List<String> visit(JmmNode expression) {
-        return switch (expression.getKind()) {
-            case "BinOp" -> visitBinOp(expression);
-            case "UnaryOp" -> visitUnaryOp(expression);
-            case "Terminal" -> visitTerminal(expression);
-            case "Identifier" -> visitIdentifier(expression);
-            case "MemberCall" -> visitMemberCall(expression);
+        return switch (AstNode.of(expression)) {
+            case BIN_OP -> visitBinOp(expression);
+            case UNARY_OP -> visitUnaryOp(expression);
+            case TERMINAL -> visitTerminal(expression);
+            case IDENTIFIER -> visitIdentifier(expression);
+            case MEMBER_CALL -> visitMemberCall(expression);
             default -> new ArrayList<>();
         };
     }
@@ -53,7 +59,7 @@ public class ExpressionVisitor {
             codeBefore.append(resultParam.get(0));
 
             String temp = getTemporary();
-            String dotType = "." + getValueType(resultParam.get(1));
+            String dotType = "." + getType(param, () -> getValueType(resultParam.get(1)));
             codeBefore.append(temp).append(dotType).append(" :=").append(dotType).append(" ")
                     .append(resultParam.get(1)).append(";\n");
             params.append(temp+dotType);
@@ -74,7 +80,7 @@ public class ExpressionVisitor {
 
         if (result.get(1).matches("\\$(.*)")) {
             String temp = getTemporary();
-            String dotType = "." + getValueType(result.get(1));
+            String dotType = "." + getType(memberCall.getJmmChild(0), () -> getValueType(result.get(1)));
             codeBefore.append(temp).append(dotType).append(" :=").append(dotType).append(" ")
                     .append(result.get(1)).append(";\n");
             result.set(1, temp + dotType);
@@ -87,7 +93,10 @@ public class ExpressionVisitor {
                 .append(params).append(").");
 
         String returnType = "V";
-        if (resultValue.equals("this") || getValueType(result.get(1)).equals(symbolTable.getClassName())){
+        var callerClass = AnalysisUtils.getResolvedType(memberCall.getJmmChild(0))
+                .map(type -> type.getName())
+                .orElseGet(() -> getValueType(result.get(1)));
+        if (resultValue.equals("this") || callerClass.equals(symbolTable.getClassName())){
             String type = symbolTable.getReturnType(memberCall.getJmmChild(1).get("name")).getName();
             returnType = OllirUtils.getOllirType(type);
         }
@@ -120,29 +129,29 @@ public class ExpressionVisitor {
     }
 
     private List<String> visitUnaryOp(JmmNode unaryOp) {
-        switch (unaryOp.get("op")) {
-            case "LENGTH" -> {
+        switch (Operator.of(unaryOp)) {
+            case LENGTH -> {
                 List<String> result = visit(unaryOp.getJmmChild(0));
                 String temp = getTemporary();
-                String dotType = "." + getValueType(result.get(1));
+                String dotType = "." + getType(unaryOp.getJmmChild(0), () -> getValueType(result.get(1)));
 
                 var codeBefore = result.get(0) + temp + dotType + " :=" + dotType + " " + result.get(1) + ";\n";
                 return Arrays.asList(codeBefore, "arraylength(" + temp + dotType + ").i32");
             }
-            case "NOT" -> {
+            case NOT -> {
                 List<String> result = visit(unaryOp.getJmmChild(0));
                 return Arrays.asList(result.get(0), "!.bool " + result.get(1));
             }
-            case "ARRAY_INIT" -> {
+            case ARRAY_INIT -> {
                 List<String> result = visit(unaryOp.getJmmChild(0));
 
                 String temp = getTemporary();
-                String dotType = "." + getValueType(result.get(1));
+                String dotType = "." + getType(unaryOp.getJmmChild(0), () -> getValueType(result.get(1)));
                 var codeBefore = result.get(0) + temp + dotType + " :=" + dotType + " " + result.get(1) + ";\n";
 
                 return Arrays.asList(codeBefore, "new(array, " + temp + dotType + ").array.i32");
             }
-            case "OBJ_INIT" -> {
+            case OBJ_INIT -> {
                 String name = unaryOp.getJmmChild(0).get("name");
                 String temp = getTemporary();
                 String dotType = "." + name;
@@ -155,50 +164,93 @@ public class ExpressionVisitor {
     }
 
     private List<String> visitBinOp(JmmNode binOp) {
-        List<String> leftResult = visit(binOp.getJmmChild(0));
-        List<String> rightResult = visit(binOp.getJmmChild(1));
+        // Operands that are binary operations are visited in this loop, with an explicit stack, so a chain such as
+        // 'a + b + ... + z' does not need a level of recursion per operator. The code of every operation goes to the
+        // same builder, in the order it runs, instead of being copied into the code of each enclosing operation
+        StringBuilder code = new StringBuilder();
+        Deque<BinOpOperands> stack = new ArrayDeque<>();
+        stack.push(new BinOpOperands(binOp));
+
+        while (true) {
+            var operation = stack.peek();
+
+            if (operation.values.size() < 2) {
+                var operand = operation.node.getJmmChild(operation.values.size());
+                if (AstNode.of(operand) == AstNode.BIN_OP) {
+                    stack.push(new BinOpOperands(operand));
+                    continue;
+                }
+
+                List<String> result = visit(operand);
+                code.append(result.get(0));
+                addOperand(operation, operand, result.get(1), !result.get(0).equals(""), code);
+                continue;
+            }
+
+            stack.pop();
+            var value = completeBinOp(operation, code);
+
+            if (stack.isEmpty()) {
+                return Arrays.asList(code.toString(), value);
+            }
+
+            addOperand(stack.peek(), operation.node, value, true, code);
+        }
+    }
+
+    private void addOperand(BinOpOperands operation, JmmNode operand, String value, boolean hasCode,
+            StringBuilder code) {
+        var token = operation.node.getOptional("token").orElse("");
+
+        // Array accesses copy their operands to temporaries once both are known
+        if (token.equals("")) {
+            operation.values.add(value);
+            return;
+        }
+
+        var type = getType(operand, () -> hasCode ? getOpType(token) : getValueType(value));
+        String temp = getTemporary() + "." + type;
+        code.append(temp).append(" :=.").append(type).append(" ").append(value).append(";\n");
+
+        operation.values.add(temp);
+    }
+
+    private String completeBinOp(BinOpOperands operation, StringBuilder code) {
+        var binOp = operation.node;
+        var left = operation.values.get(0);
+        var right = operation.values.get(1);
 
         var token = binOp.getOptional("token").orElse("");
 
         if (token.equals("")) { //Array access
-            StringBuilder codeBefore = new StringBuilder();
-
             String tempArray = getTemporary();
             String tempIndex = getTemporary();
 
             String tempFinal = getTemporary();
 
-            var arrayType = "." + getValueType(leftResult.get(1));
-            var dotType = "." + getArrayType(leftResult.get(1));
+            var arrayType = "." + getType(binOp.getJmmChild(0), () -> getValueType(left));
+            var dotType = "." + getType(binOp, () -> getArrayType(left));
 
-            codeBefore.append(leftResult.get(0)).append(rightResult.get(0));
-            codeBefore.append(tempIndex).append(".i32 :=.i32 ").append(rightResult.get(1)).append(";\n");
-            codeBefore.append(tempArray).append(arrayType).append(" :=").append(arrayType).append(" ").append(leftResult.get(1)).append(";\n");
+            code.append(tempIndex).append(".i32 :=.i32 ").append(right).append(";\n");
+            code.append(tempArray).append(arrayType).append(" :=").append(arrayType).append(" ").append(left).append(";\n");
 
-            codeBefore.append(tempFinal).append(dotType).append(" :=").append(dotType).append(" ").append(tempArray)
+            code.append(tempFinal).append(dotType).append(" :=").append(dotType).append(" ").append(tempArray)
                     .append("[").append(tempIndex).append(".i32]").append(dotType).append(";\n");
 
-            return Arrays.asList(codeBefore.toString(), tempFinal + dotType);
+            return tempFinal + dotType;
         }
 
-        var dotType = switch (binOp.get("op")) {
-            case "AND", "LT" -> ".bool";
-            case "ADD", "SUB", "MUL", "DIV" -> ".i32";
+        var dotType = switch (Operator.of(binOp)) {
+            case AND, LT -> ".bool";
+            case ADD, SUB, MUL, DIV -> ".i32";
             default -> throw new IllegalStateException("Unexpected value: " + binOp.get("op"));
         };
 
-        List<String> left = getCodeBefore(leftResult, token);
-        String codeBeforeLeft = left.get(0);
-
-        List<String> right = getCodeBefore(rightResult, token);
-        String codeBeforeRight = right.get(0);
-
-        String value = left.get(1) + " " + token + dotType + " " + right.get(1);
-
         String temp = getTemporary();
-        var codeBefore = codeBeforeLeft + codeBeforeRight + temp + dotType + " :=" + dotType + " " + value + ";\n";
+        code.append(temp).append(dotType).append(" :=").append(dotType).append(" ")
+                .append(left).append(" ").append(token).append(dotType).append(" ").append(right).append(";\n");
 
-        return Arrays.asList(codeBefore, temp + dotType);
+        return temp + dotType;
     }
 
     public String getTemporary() {
@@ -207,6 +259,17 @@ public class ExpressionVisitor {
         return temp;
     }
 
+    /**
+     * @return the OLLIR type of the expression as resolved by the analysis, or else the given fallback, for nodes
+     *         created by the optimizations and calls whose type the analysis only knows to be 'valid'
+     */
+    private String getType(JmmNode expression, Supplier<String> fallback) {
+        return AnalysisUtils.getResolvedType(expression)
+                .filter(type -> !type.getName().equals("valid"))
+                .map(OllirUtils::getCode)
+                .orElseGet(fallback);
+    }
+
     private String getValueType(String value) {
         if(value.matches("invokestatic(.*)") || value.matches("invokevirtual(.*)") || value.matches("getfield(.*)")) {
             var list = value.split("\\.");
@@ -238,15 +301,15 @@ public class ExpressionVisitor {
         };
     }
 
-    private List<String> getCodeBefore(List<String> info, String token) {
-        String value = info.get(1);
-        var type = info.get(0).equals("") ? getValueType(value) : getOpType(token);
+    /**
+     * A binary operation whose operands are being visited.
+     */
+    private static class BinOpOperands {
+        private final JmmNode node;
+        private final List<String> values = new ArrayList<>(2);
 
-        String temp = getTemporary() + "." + type;
-        String codeBefore = info.get(0) + temp +
-                " :=." + type + " " +
-                value + ";\n";
-
-        return Arrays.asList(codeBefore, temp);
+        private BinOpOperands(JmmNode node) {
+            this.node = node;
+        }
     }
 }
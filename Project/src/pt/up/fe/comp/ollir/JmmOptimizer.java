@@ -2,6 +2,7 @@ package pt.up.fe.comp.ollir;
 
 import org.specs.comp.ollir.ClassUnit;
 import pt.up.fe.comp.analysis.SymbolTableMap;
+import pt.up.fe.comp.diagnostics.Diagnostics;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
@@ -14,7 +15,7 @@ public class JmmOptimizer implements JmmOptimization {
     @Override
     public JmmSemanticsResult optimize(JmmSemanticsResult semanticsResult) {
         if (notOptimizable(semanticsResult.getConfig())) return semanticsResult;
-        var symbolTable = semanticsResult.getSymbolTable();
+        var symbolTable = (SymbolTableMap) semanticsResult.getSymbolTable();
         var rootNode = semanticsResult.getRootNode();
 
         List<OptimizerVisitor> visitors = Arrays.asList(
@@ -22,14 +23,17 @@ public class JmmOptimizer implements JmmOptimization {
                 new DeadCodeEliminator(symbolTable),
                 new ConstantFoldingVisitor(symbolTable));
 
+        int optimizationChanges;
         do {
-            OptimizerVisitor.resetChanges();
+            optimizationChanges = 0;
             for (var visitor : visitors) {
+                visitor.resetChanges();
                 visitor.visit(rootNode);
+                optimizationChanges += visitor.getOptimizationChanges();
             }
-        } while (OptimizerVisitor.optimizationChanges != 0);
+        } while (optimizationChanges != 0);
 
-        System.out.println(semanticsResult.getRootNode().toTree());
+        Diagnostics.fromConfig(semanticsResult.getConfig()).emit("optimizeAst", "AST", rootNode::toTree);
         return semanticsResult;
     }
 
@@ -40,7 +44,8 @@ public class JmmOptimizer implements JmmOptimization {
         ollirVisitor.visit(semanticsResult.getRootNode());
 
         String ollirCode = ollirVisitor.getCode();
-        System.out.println("\nOllir:\n" + ollirCode);
+        Diagnostics.fromConfig(semanticsResult.getConfig())
+                .emit("toOllir", symbolTableMap.getClassName() + ".ollir", () -> ollirCode);
         return new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
     }
 
@@ -51,9 +56,11 @@ public class JmmOptimizer implements JmmOptimization {
         if(registerNumber == -1) return ollirResult;
 
         ClassUnit classUnit = ollirResult.getOllirClass();
-        RegisterAllocation registerAllocator = new RegisterAllocation(classUnit);
+        RegisterAllocation registerAllocator = new RegisterAllocation(classUnit, useLinearScan(ollirResult.getConfig()),
+                Diagnostics.fromConfig(ollirResult.getConfig()));
 
         registerAllocator.allocate(registerNumber);
+        ollirResult.getReports().addAll(registerAllocator.getReports());
         return ollirResult;
     }
 
@@ -62,6 +69,10 @@ public class JmmOptimizer implements JmmOptimization {
         return Integer.parseInt(config.get("registerAllocation"));
     }
 
+    private boolean useLinearScan(Map<String, String> config) {
+        return config.getOrDefault("registerAllocator", "graph").equals("linear");
+    }
+
     private boolean notOptimizable(Map<String, String> config) {
         if(!config.containsKey("optimize")) return true;
         return !Boolean.parseBoolean(config.get("optimize"));
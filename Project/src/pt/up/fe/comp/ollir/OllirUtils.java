@@ -1,5 +1,6 @@
 package pt.up.fe.comp.ollir;
 
+import pt.up.fe.comp.analysis.ScopedSymbol;
 import pt.up.fe.comp.analysis.SymbolTableMap;
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.Type;
@@ -37,44 +38,15 @@ public class OllirUtils {
 
     public static boolean getIdentifierInfo(JmmNode identifier, SymbolTableMap symbolTable, String methodSignature, List<String> info) {
         var name = identifier.get("name");
-        StringBuilder value = new StringBuilder();
 
-        // localVars
-        var localVars = symbolTable.getLocalVariables(methodSignature);
-        for (Symbol localVar : localVars) {
-            if (localVar.getName().equals(name)) {
-                info.add(name);
-                info.add(OllirUtils.getCode(localVar.getType()));
-                return false;
-            }
+        var symbol = symbolTable.lookup(methodSignature, name);
+        if (symbol == null) {
+            return false;
         }
 
-        // params
-        var params = symbolTable.getParameters(methodSignature);
-        int paramIndex = 1;
-        for (Symbol param : params) {
-            if (param.getName().equals(name)) {
-                value.append("$").append(paramIndex).append(".").append(param.getName());
-                info.add(value.toString());
-                info.add(OllirUtils.getCode(param.getType()));
-                return false;
-            }
-            paramIndex++;
-        }
-
-        // class fields
-        if (!methodSignature.equals("main")) {
-            var fields = symbolTable.getFields();
-            for (Symbol field : fields) {
-                if (field.getName().equals(name)) {
-                    info.add(name);
-                    info.add(OllirUtils.getCode(field.getType()));
-                    return true;
-                }
-            }
-        }
-
-        return false;
+        info.add(symbol.getScope() == ScopedSymbol.Scope.PARAMETER ? "$" + symbol.getIndex() + "." + name : name);
+        info.add(OllirUtils.getCode(symbol.getType()));
+        return symbol.getScope() == ScopedSymbol.Scope.FIELD;
     }
 }
 
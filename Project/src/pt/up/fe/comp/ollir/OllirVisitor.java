@@ -2,8 +2,10 @@ package pt.up.fe.comp.ollir;
 
 import pt.up.fe.comp.analysis.SymbolTableMap;
 import pt.up.fe.comp.ast.AstNode;
+import pt.up.fe.comp.ast.Operator;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.profiling.StageProfiler;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -25,7 +27,8 @@ public class OllirVisitor extends AJmmVisitor<Integer, Integer> {
 
         addVisit(AstNode.START, this::startVisit);
         addVisit(AstNode.CLASS_DECLARATION, this::classVisit);
-        addVisit(AstNode.METHOD_DECLARATION, this::methodVisit);
+        addVisit(AstNode.METHOD_DECLARATION, (node, dummy) -> StageProfiler.current()
+                .measureMethod(node.get("name"), () -> methodVisit(node, dummy)));
         addVisit(AstNode.ENCLOSED_STATEMENT, this::visitChildren);
         addVisit(AstNode.EXPRESSION_STATEMENT, this::expressionStatementVisit);
         addVisit(AstNode.IF_STATEMENT, this::ifStatementVisit);
@@ -228,7 +231,7 @@ public class OllirVisitor extends AJmmVisitor<Integer, Integer> {
             code.append(idInfo.get(0)).append(".").append(idInfo.get(1)).append(" :=.").append(idInfo.get(1)).append(" ")
                     .append(value).append(";\n");
 
-            if (node.getJmmChild(1).getKind().equals("UnaryOp") && node.getJmmChild(1).get("op").equals("OBJ_INIT")) {
+            if (node.getJmmChild(1).getKind().equals("UnaryOp") && Operator.of(node.getJmmChild(1)) == Operator.OBJ_INIT) {
                 code.append("invokespecial(").append(idInfo.get(0)).append(".").append(idInfo.get(1))
                         .append(",\"<init>\").V;\n");
             }
@@ -1,7 +1,7 @@
 package pt.up.fe.comp.ollir;
 
-import pt.up.fe.comp.jmm.analysis.table.Symbol;
-import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.analysis.ScopedSymbol;
+import pt.up.fe.comp.analysis.SymbolTableMap;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 
@@ -9,21 +9,24 @@ import java.util.Arrays;
 import java.util.List;
 
 public abstract class OptimizerVisitor extends AJmmVisitor<Integer, Integer> {
-    protected final SymbolTable symbolTable;
-    public static int optimizationChanges = 0;
+    protected final SymbolTableMap symbolTable;
+    protected int optimizationChanges;
 
-    public OptimizerVisitor(SymbolTable symbolTable) {
+    public OptimizerVisitor(SymbolTableMap symbolTable) {
         this.symbolTable = symbolTable;
+        this.optimizationChanges = 0;
     }
 
-    public static void resetChanges() {
-        optimizationChanges = 0;
+    public int getOptimizationChanges() {
+        return optimizationChanges;
     }
 
-    protected Integer defaultVisit(JmmNode node, Integer dummy) {
-        for (int i = 0; i < node.getNumChildren(); i++)
-            visit(node.getJmmChild(i));
+    public void resetChanges() {
+        this.optimizationChanges = 0;
+    }
 
+    protected Integer defaultVisit(JmmNode node, Integer dummy) {
+        visitDescendants(node, dummy);
         return null;
     }
 
@@ -37,33 +40,13 @@ public abstract class OptimizerVisitor extends AJmmVisitor<Integer, Integer> {
     }
 
     protected List<String> getIdentifierType(String name, String methodSignature) {
-
-        // localVars
-        var localVars = this.symbolTable.getLocalVariables(methodSignature);
-        for (Symbol localVar : localVars) {
-            if (localVar.getName().equals(name)) {
-                return Arrays.asList(localVar.getType().getName(), String.valueOf(!localVar.getType().isArray()));
-            }
-        }
-
-        // params
-        var params = this.symbolTable.getParameters(methodSignature);
-        for (Symbol param : params) {
-            if (param.getName().equals(name)) {
-                return Arrays.asList(param.getType().getName(), String.valueOf(!param.getType().isArray()));
-            }
-        }
-
-        // class fields
-        if (!methodSignature.equals("main")) {
-            var fields = this.symbolTable.getFields();
-            for (Symbol field : fields) {
-                if (field.getName().equals(name)) {
-                    return Arrays.asList(field.getType().getName(), "false");
-                }
-            }
+        var symbol = this.symbolTable.lookup(methodSignature, name);
+        if (symbol == null) {
+            return null;
         }
 
-        return null;
+        var isArray = symbol.getType().isArray();
+        return Arrays.asList(symbol.getType().getName(),
+                symbol.getScope() == ScopedSymbol.Scope.FIELD ? "false" : String.valueOf(!isArray));
     }
 }
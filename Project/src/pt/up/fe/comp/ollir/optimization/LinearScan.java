@@ -0,0 +1,170 @@
+package pt.up.fe.comp.ollir.optimization;
+
+import org.specs.comp.ollir.Descriptor;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.VarScope;
+
+import java.util.*;
+
+/**
+ * Linear-scan register allocation, a faster alternative to coloring the interference graph.
+ *
+ * <p>
+ * Each local variable gets a single interval, from the first to the last instruction position where it is live or
+ * defined. Intervals are swept by start position, and registers of the active intervals that ended before the current
+ * start are given back, so allocation takes O(n log n) in the number of variables, after liveness.
+ */
+public class LinearScan {
+    private final Method method;
+    private final LivenessResult livenessAnalysis;
+    private final HashMap<String, Descriptor> varTable;
+    private List<Interval> intervals = new ArrayList<>();
+    private int numberOfRegisters;
+    private int numberOfSpilled;
+
+    public LinearScan(LivenessResult livenessAnalysis, Method method) {
+        this.method = method;
+        this.livenessAnalysis = livenessAnalysis;
+        this.varTable = method.getVarTable();
+    }
+
+    public void allocate(int k, boolean minimizeReg) {
+        int firstRegister = getFirstLocalRegister();
+
+        intervals = buildIntervals();
+        intervals.sort(Comparator.comparingInt(Interval::getStart).thenComparingInt(Interval::getEnd));
+
+        PriorityQueue<Interval> active = new PriorityQueue<>(Comparator.comparingInt(Interval::getEnd));
+        PriorityQueue<Integer> freeRegisters = new PriorityQueue<>();
+        int nextRegister = firstRegister;
+        int spilled = 0;
+
+        for (var interval : intervals) {
+            while (!active.isEmpty() && active.peek().getEnd() < interval.getStart()) {
+                freeRegisters.add(active.poll().getRegister());
+            }
+
+            if (!freeRegisters.isEmpty()) {
+                interval.setRegister(freeRegisters.poll());
+            } else {
+                // Past the k registers, intervals are spilled to extra locals
+                if (!minimizeReg && nextRegister >= k) spilled++;
+                interval.setRegister(nextRegister++);
+            }
+
+            active.add(interval);
+        }
+
+        Set<String> allocated = new HashSet<>();
+        for (var interval : intervals) {
+            var descriptor = varTable.get(interval.getName());
+            varTable.put(interval.getName(), new Descriptor(descriptor.getScope(), interval.getRegister(),
+                    descriptor.getVarType()));
+            allocated.add(interval.getName());
+        }
+
+        // Locals that are never live nor defined still need a valid register
+        for (var name : varTable.keySet()) {
+            var descriptor = varTable.get(name);
+            if (descriptor.getScope() != VarScope.LOCAL || allocated.contains(name)) continue;
+
+            varTable.put(name, new Descriptor(descriptor.getScope(), firstRegister, descriptor.getVarType()));
+        }
+
+        this.numberOfSpilled = spilled;
+        this.numberOfRegisters = Math.max(nextRegister, 1);
+    }
+
+    public int getNumberOfRegisters() {
+        return numberOfRegisters;
+    }
+
+    public int getNumberOfSpilled() {
+        return numberOfSpilled;
+    }
+
+    /**
+     * Intervals of the locals in the last allocation, sorted by start position.
+     */
+    public List<Interval> getIntervals() {
+        return Collections.unmodifiableList(intervals);
+    }
+
+    /**
+     * Parameters (and 'this') keep their registers, locals are allocated after them.
+     */
+    private int getFirstLocalRegister() {
+        int result = method.isStaticMethod() ? 0 : 1;
+        for (var descriptor : varTable.values()) {
+            if (descriptor.getScope() == VarScope.LOCAL) continue;
+            result = Math.max(result, descriptor.getVirtualReg() + 1);
+        }
+        return result;
+    }
+
+    private List<Interval> buildIntervals() {
+        var variables = livenessAnalysis.getVariables();
+        int[] starts = new int[variables.size()];
+        int[] ends = new int[variables.size()];
+        Arrays.fill(starts, -1);
+
+        // Each instruction reads its operands at an even position and writes its result at the next one, so a
+        // variable last read by an instruction may share a register with the one it defines
+        for (int instruction = 0; instruction < livenessAnalysis.getNumberOfInstructions(); instruction++) {
+            extendIntervals(livenessAnalysis.getIn(instruction), 2 * instruction, starts, ends);
+            extendIntervals(livenessAnalysis.getDef(instruction), 2 * instruction + 1, starts, ends);
+            extendIntervals(livenessAnalysis.getOut(instruction), 2 * instruction + 1, starts, ends);
+        }
+
+        List<Interval> result = new ArrayList<>();
+        for (int i = 0; i < variables.size(); i++) {
+            if (starts[i] == -1) continue;
+
+            var descriptor = varTable.get(variables.get(i));
+            if (descriptor == null || descriptor.getScope() != VarScope.LOCAL) continue;
+
+            result.add(new Interval(variables.get(i), starts[i], ends[i]));
+        }
+        return result;
+    }
+
+    private void extendIntervals(BitSet variables, int position, int[] starts, int[] ends) {
+        for (int i = variables.nextSetBit(0); i >= 0; i = variables.nextSetBit(i + 1)) {
+            if (starts[i] == -1) starts[i] = position;
+            ends[i] = position;
+        }
+    }
+
+    public static class Interval {
+        private final String name;
+        private final int start;
+        private final int end;
+        private int register;
+
+        private Interval(String name, int start, int end) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public int getRegister() {
+            return register;
+        }
+
+        private void setRegister(int register) {
+            this.register = register;
+        }
+    }
+}
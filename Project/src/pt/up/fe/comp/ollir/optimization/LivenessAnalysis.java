@@ -1,188 +1,251 @@
 package pt.up.fe.comp.ollir.optimization;
 
 import org.specs.comp.ollir.*;
-import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
 import java.util.*;
 
+/**
+ * Backward liveness dataflow over the CFG of a method.
+ *
+ * <p>
+ * Variables of the method's var table are given dense indexes, so def/use/in/out are BitSets. Instructions are first
+ * queued in postorder of the CFG (successors before predecessors), and an instruction is only requeued when the
+ * live-in of one of its successors changes, so each one is recomputed a small number of times.
+ */
 public class LivenessAnalysis {
-    private HashMap<Integer, List<String>> in;
-    private HashMap<Integer, List<String>> out;
-    private HashMap<Integer, String> def;
-    private HashMap<Integer, List<String>> use;
-
-    public LivenessAnalysis() {
-        this.in = new HashMap<>();
-        this.out = new HashMap<>();
-        this.def = new HashMap<>();
-        this.use = new HashMap<>();
-    }
+    private List<String> variables;
+    private Map<String, Integer> variableIndexes;
 
-    public List<HashMap<Integer, List<String>>> analyse(Method method) {
+    public LivenessResult analyse(Method method) {
         var instructions = method.getInstructions();
+        int size = instructions.size();
 
-        for (var instruction : instructions) {
-            in.put(instruction.getId(), new ArrayList<>());
-            out.put(instruction.getId(), new ArrayList<>());
-            def.put(instruction.getId(), getDefinedVars(instruction));
-            use.put(instruction.getId(), getUsedVars(instruction));
+        this.variables = new ArrayList<>(method.getVarTable().keySet());
+        this.variableIndexes = new HashMap<>();
+        for (int i = 0; i < variables.size(); i++) {
+            variableIndexes.put(variables.get(i), i);
         }
 
-        boolean changes;
+        BitSet[] def = new BitSet[size];
+        BitSet[] use = new BitSet[size];
+        BitSet[] in = new BitSet[size];
+        BitSet[] out = new BitSet[size];
+
+        for (int i = 0; i < size; i++) {
+            def[i] = getDefinedVars(instructions.get(i));
+            use[i] = new BitSet();
+            addUsedVars(instructions.get(i), use[i]);
+            in[i] = new BitSet();
+            out[i] = new BitSet();
+        }
 
-        do {
-            changes = false;
-            for (int i = instructions.size()-1; i >= 0; i--) {
-                var instruction = instructions.get(i);
-                var id = instruction.getId();
+        int[][] successors = getSuccessors(instructions);
+        int[][] predecessors = getPredecessors(successors);
 
-                List<String> in_ = new ArrayList<>(in.get(id));
-                List<String> out_ = new ArrayList<>(out.get(id));
+        Deque<Integer> worklist = new ArrayDeque<>();
+        boolean[] queued = new boolean[size];
+        for (var instruction : getPostorder(successors)) {
+            worklist.add(instruction);
+            queued[instruction] = true;
+        }
 
-                out.put(id, getNewOut(instruction));
+        BitSet newIn = new BitSet();
+        while (!worklist.isEmpty()) {
+            int instruction = worklist.poll();
+            queued[instruction] = false;
 
-                var diff = new ArrayList<>(out.get(id));
-                var definedVar = def.get(id);
-                if (definedVar != null)
-                    diff.remove(definedVar);
+            out[instruction].clear();
+            for (var successor : successors[instruction]) {
+                out[instruction].or(in[successor]);
+            }
 
-                in.put(id, union(use.get(id), diff));
+            newIn.clear();
+            newIn.or(out[instruction]);
+            newIn.andNot(def[instruction]);
+            newIn.or(use[instruction]);
 
-                if (!changes) {
-                    if (in.get(id).stream().anyMatch(in_::contains)) {
-                        changes = true;
-                        continue;
-                    }
-                    changes = out.get(id).stream().anyMatch(out_::contains);
-                }
-            }
-        } while (changes);
+            if (newIn.equals(in[instruction])) continue;
 
-        return Arrays.asList(in, out);
-    }
+            in[instruction].clear();
+            in[instruction].or(newIn);
 
-    private List<String> getNewOut(Instruction instruction) {
-        List<String> result = new ArrayList<>();
-        for (var succ : instruction.getSuccessors()) {
-            var value = in.get(succ.getId());
-            if (value == null) continue;
+            for (var predecessor : predecessors[instruction]) {
+                if (queued[predecessor]) continue;
 
-            result.addAll(value);
+                worklist.add(predecessor);
+                queued[predecessor] = true;
+            }
         }
-        return result;
+
+        return new LivenessResult(instructions, variables, variableIndexes, def, use, in, out,
+                getLoopDepths(successors));
     }
 
-    public <T> List<T> union(List<T> list1, List<T> list2) {
-        Set<T> set = new HashSet<T>();
+    /**
+     * Every jump to an earlier (or the same) position closes a loop, whose body is every position in between.
+     */
+    private int[] getLoopDepths(int[][] successors) {
+        int[] result = new int[successors.length + 1];
 
-        set.addAll(list1);
-        set.addAll(list2);
+        for (int i = 0; i < successors.length; i++) {
+            for (var successor : successors[i]) {
+                if (successor > i) continue;
 
-        return new ArrayList<T>(set);
-    }
+                result[successor]++;
+                result[i + 1]--;
+            }
+        }
 
-    private List<String> getUsedVars(Instruction instruction) {
-        return switch (instruction.getInstType()) {
-            case ASSIGN -> getUsedVars((AssignInstruction) instruction);
-            case CALL -> getUsedVars((CallInstruction) instruction);
-            case GOTO -> new ArrayList<>();
-            case BRANCH -> getUsedVars((CondBranchInstruction) instruction);
-            case RETURN -> getUsedVars((ReturnInstruction) instruction);
-            case PUTFIELD -> getUsedVars((PutFieldInstruction) instruction);
-            case GETFIELD -> getUsedVars((GetFieldInstruction) instruction);
-            case UNARYOPER -> getUsedVars((UnaryOpInstruction) instruction);
-            case BINARYOPER -> getUsedVars((BinaryOpInstruction) instruction);
-            case NOPER -> getUsedVars((SingleOpInstruction) instruction);
-        };
-    }
-    private List<String> getUsedVars(AssignInstruction instruction) {
-        return getUsedVars(instruction.getRhs());
+        for (int i = 1; i < successors.length; i++) {
+            result[i] += result[i - 1];
+        }
+        return Arrays.copyOf(result, successors.length);
     }
-    private List<String> getUsedVars(CallInstruction instruction) {
-        List<String> result = new ArrayList<>();
-        for (var operand : instruction.getListOfOperands()) {
-            var operandName = getOperandName(operand);
-            if (operandName == null) continue;
 
-            result.add(operandName);
+    private int[][] getSuccessors(List<Instruction> instructions) {
+        Map<Integer, Integer> positions = new HashMap<>();
+        for (int i = 0; i < instructions.size(); i++) {
+            positions.put(instructions.get(i).getId(), i);
+        }
+
+        int[][] result = new int[instructions.size()][];
+        for (int i = 0; i < instructions.size(); i++) {
+            // The end node of the CFG is not an instruction, so it has no position
+            result[i] = instructions.get(i).getSuccessors().stream()
+                    .map(successor -> positions.get(successor.getId()))
+                    .filter(Objects::nonNull)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
         }
         return result;
     }
-    private List<String> getUsedVars(CondBranchInstruction instruction) {
-        if (instruction instanceof SingleOpCondInstruction) {
-            return getUsedVars(((SingleOpCondInstruction) instruction).getCondition());
+
+    private int[][] getPredecessors(int[][] successors) {
+        int[] counts = new int[successors.length];
+        for (var instructionSuccessors : successors) {
+            for (var successor : instructionSuccessors) {
+                counts[successor]++;
+            }
+        }
+
+        int[][] result = new int[successors.length][];
+        for (int i = 0; i < successors.length; i++) {
+            result[i] = new int[counts[i]];
+            counts[i] = 0;
         }
 
-        //TODO verify if other instances
-        throw new NotImplementedException(instruction.getInstType());
+        for (int i = 0; i < successors.length; i++) {
+            for (var successor : successors[i]) {
+                result[successor][counts[successor]++] = i;
+            }
+        }
+        return result;
     }
 
-    private List<String> getUsedVars(ReturnInstruction instruction) {
-        if (!instruction.hasReturnValue()) return new ArrayList<>();
+    /**
+     * Postorder of a depth-first search starting at the first instruction, followed by the unreachable ones.
+     */
+    private int[] getPostorder(int[][] successors) {
+        int[] result = new int[successors.length];
+        int count = 0;
 
-        var operandName = getOperandName(instruction.getOperand());
-        if (operandName == null) return new ArrayList<>();
-        return Collections.singletonList(operandName);
-    }
+        boolean[] visited = new boolean[successors.length];
+        Deque<int[]> stack = new ArrayDeque<>();
+
+        for (int root = 0; root < successors.length; root++) {
+            if (visited[root]) continue;
 
-    private List<String> getUsedVars(PutFieldInstruction instruction) {
+            visited[root] = true;
+            stack.push(new int[]{root, 0});
 
-        List<String> result = new ArrayList<>();
+            while (!stack.isEmpty()) {
+                var top = stack.peek();
+                var instructionSuccessors = successors[top[0]];
 
-        var operandName1 = getOperandName(instruction.getSecondOperand());
-        var operandName2 = getOperandName(instruction.getThirdOperand());
+                if (top[1] < instructionSuccessors.length) {
+                    var successor = instructionSuccessors[top[1]++];
+                    if (visited[successor]) continue;
 
-        if (operandName1 != null) result.add(operandName1);
-        if (operandName2 != null) result.add(operandName2);
+                    visited[successor] = true;
+                    stack.push(new int[]{successor, 0});
+                    continue;
+                }
 
+                stack.pop();
+                result[count++] = top[0];
+            }
+        }
         return result;
     }
 
-    private List<String> getUsedVars(GetFieldInstruction instruction) {
-        var operandName = getOperandName(instruction.getSecondOperand());
-        if (operandName == null) return new ArrayList<>();
-        return Collections.singletonList(operandName);
+    private void addUsedVars(Instruction instruction, BitSet result) {
+        switch (instruction.getInstType()) {
+            case ASSIGN -> addUsedVars((AssignInstruction) instruction, result);
+            case CALL -> addUsedVars((CallInstruction) instruction, result);
+            case GOTO -> {}
+            case BRANCH -> addUsedVars(((CondBranchInstruction) instruction).getCondition(), result);
+            case RETURN -> addUsedVars((ReturnInstruction) instruction, result);
+            case PUTFIELD -> addUsedVars((PutFieldInstruction) instruction, result);
+            case GETFIELD -> addUsedVars(((GetFieldInstruction) instruction).getFirstOperand(), result);
+            case UNARYOPER -> addUsedVars(((UnaryOpInstruction) instruction).getOperand(), result);
+            case BINARYOPER -> addUsedVars((BinaryOpInstruction) instruction, result);
+            case NOPER -> addUsedVars(((SingleOpInstruction) instruction).getSingleOperand(), result);
+        }
     }
 
-    private List<String> getUsedVars(UnaryOpInstruction instruction) {
-        List<String> result = new ArrayList<>();
-
-        var operandName = getOperandName(instruction.getOperand());
-
-        if (operandName != null) result.add(operandName);
-
-        return result;
+    private void addUsedVars(AssignInstruction instruction, BitSet result) {
+        // Storing into an array element reads both the array reference and the index
+        if (instruction.getDest() instanceof ArrayOperand) {
+            addUsedVars(instruction.getDest(), result);
+        }
+        addUsedVars(instruction.getRhs(), result);
     }
 
-    private List<String> getUsedVars(BinaryOpInstruction instruction) {
-        List<String> result = new ArrayList<>();
-
-        var operandName1 = getOperandName(instruction.getRightOperand());
-        var operandName2 = getOperandName(instruction.getLeftOperand());
+    private void addUsedVars(CallInstruction instruction, BitSet result) {
+        addUsedVars(instruction.getFirstArg(), result);
+        for (var operand : instruction.getListOfOperands()) {
+            addUsedVars(operand, result);
+        }
+    }
 
-        if (operandName1 != null) result.add(operandName1);
-        if (operandName2 != null) result.add(operandName2);
+    private void addUsedVars(ReturnInstruction instruction, BitSet result) {
+        if (!instruction.hasReturnValue()) return;
 
-        return result;
+        addUsedVars(instruction.getOperand(), result);
     }
 
-    private List<String> getUsedVars(SingleOpInstruction instruction) {
-        var operandName = getOperandName(instruction.getSingleOperand());
-        if (operandName == null) return new ArrayList<>();
+    private void addUsedVars(PutFieldInstruction instruction, BitSet result) {
+        addUsedVars(instruction.getFirstOperand(), result);
+        addUsedVars(instruction.getThirdOperand(), result);
+    }
 
-        return Collections.singletonList(operandName);
+    private void addUsedVars(BinaryOpInstruction instruction, BitSet result) {
+        addUsedVars(instruction.getLeftOperand(), result);
+        addUsedVars(instruction.getRightOperand(), result);
     }
 
-    private String getOperandName(Element element) {
-        if (element.isLiteral()) return null;
+    private void addUsedVars(Element element, BitSet result) {
+        if (element == null || element.isLiteral()) return;
 
-        return ((Operand) element).getName();
+        var index = variableIndexes.get(((Operand) element).getName());
+        if (index != null) result.set(index);
+
+        if (element instanceof ArrayOperand) {
+            for (var indexOperand : ((ArrayOperand) element).getIndexOperands()) {
+                addUsedVars(indexOperand, result);
+            }
+        }
     }
 
-    private String getDefinedVars(Instruction instruction) {
-        if (instruction.getInstType() != InstructionType.ASSIGN) return null;
+    private BitSet getDefinedVars(Instruction instruction) {
+        BitSet result = new BitSet();
+        if (instruction.getInstType() != InstructionType.ASSIGN) return result;
 
-        var assignInstruction = (AssignInstruction) instruction;
-        return ((Operand)assignInstruction.getDest()).getName();
+        var dest = ((AssignInstruction) instruction).getDest();
+        if (dest instanceof ArrayOperand) return result;
+
+        var index = variableIndexes.get(((Operand) dest).getName());
+        if (index != null) result.set(index);
+        return result;
     }
 }
@@ -0,0 +1,93 @@
+package pt.up.fe.comp.ollir.optimization;
+
+import org.specs.comp.ollir.Instruction;
+
+import java.util.*;
+
+/**
+ * Live variables of a method, as computed by {@link LivenessAnalysis}. Instructions are referred to by their position
+ * in {@link org.specs.comp.ollir.Method#getInstructions()} and variables by a dense index, so every set is a BitSet.
+ */
+public class LivenessResult {
+    private final List<Instruction> instructions;
+    private final List<String> variables;
+    private final Map<String, Integer> variableIndexes;
+
+    private final BitSet[] def;
+    private final BitSet[] use;
+    private final BitSet[] in;
+    private final BitSet[] out;
+    private final int[] loopDepths;
+
+    public LivenessResult(List<Instruction> instructions, List<String> variables, Map<String, Integer> variableIndexes,
+                          BitSet[] def, BitSet[] use, BitSet[] in, BitSet[] out, int[] loopDepths) {
+        this.instructions = instructions;
+        this.variables = variables;
+        this.variableIndexes = variableIndexes;
+        this.def = def;
+        this.use = use;
+        this.in = in;
+        this.out = out;
+        this.loopDepths = loopDepths;
+    }
+
+    public List<Instruction> getInstructions() {
+        return instructions;
+    }
+
+    public int getNumberOfInstructions() {
+        return instructions.size();
+    }
+
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * @return the dense index of the variable, or -1 if it is not a variable of the method
+     */
+    public int getVariableIndex(String name) {
+        return variableIndexes.getOrDefault(name, -1);
+    }
+
+    public BitSet getDef(int instruction) {
+        return def[instruction];
+    }
+
+    public BitSet getUse(int instruction) {
+        return use[instruction];
+    }
+
+    public BitSet getIn(int instruction) {
+        return in[instruction];
+    }
+
+    public BitSet getOut(int instruction) {
+        return out[instruction];
+    }
+
+    /**
+     * @return the number of loops around the instruction
+     */
+    public int getLoopDepth(int instruction) {
+        return loopDepths[instruction];
+    }
+
+    public boolean isLiveIn(int instruction, String name) {
+        var index = getVariableIndex(name);
+        return index != -1 && in[instruction].get(index);
+    }
+
+    public boolean isLiveOut(int instruction, String name) {
+        var index = getVariableIndex(name);
+        return index != -1 && out[instruction].get(index);
+    }
+
+    public List<String> getNames(BitSet set) {
+        List<String> result = new ArrayList<>();
+        for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+            result.add(variables.get(i));
+        }
+        return result;
+    }
+}
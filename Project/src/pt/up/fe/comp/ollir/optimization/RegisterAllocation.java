@@ -1,16 +1,43 @@
 package pt.up.fe.comp.ollir.optimization;
 
 import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Method;
 import org.specs.comp.ollir.OllirErrorException;
+import pt.up.fe.comp.diagnostics.Diagnostics;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp.ollir.optimization.graph.Graph;
+import pt.up.fe.comp.profiling.StageProfiler;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class RegisterAllocation {
     private final ClassUnit ollirClass;
     private final LivenessAnalysis livenessAnalyzer;
+    private final boolean linearScan;
+    private final Diagnostics diagnostics;
+    private final List<Report> reports;
 
     public RegisterAllocation(ClassUnit ollirClass) {
+        this(ollirClass, false, Diagnostics.disabled());
+    }
+
+    public RegisterAllocation(ClassUnit ollirClass, boolean linearScan, Diagnostics diagnostics) {
         this.ollirClass = ollirClass;
         this.livenessAnalyzer = new LivenessAnalysis();
+        this.linearScan = linearScan;
+        this.diagnostics = diagnostics;
+        this.reports = new ArrayList<>();
+    }
+
+    /**
+     * @return a warning for each method that needs more than the requested number of registers, or an error if the
+     *         OLLIR class could not be prepared for allocation
+     */
+    public List<Report> getReports() {
+        return reports;
     }
 
     public void allocate(int n) {
@@ -19,16 +46,44 @@ public class RegisterAllocation {
             ollirClass.buildCFGs();
             ollirClass.buildVarTables();
         } catch (OllirErrorException e) {
-            e.printStackTrace();
+            reports.add(new Report(ReportType.ERROR, Stage.OPTIMIZATION, -1,
+                    "Could not allocate registers: " + e.getMessage()));
             return;
         }
 
+        var profiler = StageProfiler.current();
         for (var method : ollirClass.getMethods()) {
-            var livenessAnalysis = livenessAnalyzer.analyse(method);
+            profiler.measureMethod(method.getMethodName(), () -> {
+                allocate(method, n);
+                return null;
+            });
+        }
+    }
+
+    private void allocate(Method method, int n) {
+        var livenessAnalysis = livenessAnalyzer.analyse(method);
+
+        if (linearScan) {
+            var allocator = new LinearScan(livenessAnalysis, method);
+            allocator.allocate(n, n == 0);
+            report(method, n, allocator.getNumberOfRegisters(), allocator.getNumberOfSpilled());
+            return;
+        }
+
+        Graph graph = new Graph(livenessAnalysis, method);
+        graph.applyColoring(n, n == 0);
+        report(method, n, graph.getNumberOfRegisters(), graph.getNumberOfSpilled());
+    }
 
-            Graph graph = new Graph(livenessAnalysis, method);
-            graph.applyColoring(n, n == 0);
+    private void report(Method method, int n, int registers, int spilled) {
+        if (n > 0 && registers > n) {
+            reports.add(new Report(ReportType.WARNING, Stage.OPTIMIZATION, -1,
+                    "Method '" + method.getMethodName() + "' needs " + registers + " locals, more than the " + n +
+                            " requested"));
         }
 
+        diagnostics.emit("registerAllocation", method.getMethodName(),
+                () -> "Allocated " + registers + " registers" +
+                        (spilled > 0 ? ", spilled " + spilled + " variables to extra locals" : ""));
     }
 }
@@ -0,0 +1,44 @@
+package pt.up.fe.comp.ollir.optimization.graph;
+
+/**
+ * Symmetric boolean matrix without diagonal, stored as the bits of its lower triangle.
+ */
+public class BitMatrix {
+    private final long[] bits;
+
+    public BitMatrix(int size) {
+        long numberOfBits = (long) size * (size - 1) / 2;
+        this.bits = new long[(int) ((numberOfBits + 63) / 64)];
+    }
+
+    public BitMatrix(BitMatrix other) {
+        this.bits = other.bits.clone();
+    }
+
+    /**
+     * Sets the same bits as the given matrix, of the same size.
+     */
+    public void copyFrom(BitMatrix other) {
+        System.arraycopy(other.bits, 0, bits, 0, bits.length);
+    }
+
+    public boolean get(int i, int j) {
+        if (i == j) return false;
+
+        long bit = getBit(i, j);
+        return (bits[(int) (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    public void set(int i, int j) {
+        if (i == j) return;
+
+        long bit = getBit(i, j);
+        bits[(int) (bit >>> 6)] |= 1L << bit;
+    }
+
+    private long getBit(int i, int j) {
+        int row = Math.max(i, j);
+        int column = Math.min(i, j);
+        return (long) row * (row - 1) / 2 + column;
+    }
+}
@@ -0,0 +1,110 @@
+package pt.up.fe.comp.ollir.optimization.graph;
+
+import java.util.Arrays;
+
+/**
+ * Nodes in doubly linked lists by degree, to take one of the lowest degree and lower the degree of its neighbours in
+ * constant time. Nodes are added at the head of their list.
+ */
+public class DegreeBuckets {
+    private final int[] heads;
+    private final int[] next;
+    private final int[] previous;
+    private final int[] degrees;
+    private final boolean[] contained;
+    private int minDegree;
+    private int size;
+
+    public DegreeBuckets(int numberOfNodes, int maxDegree) {
+        this.heads = new int[maxDegree + 1];
+        this.next = new int[numberOfNodes];
+        this.previous = new int[numberOfNodes];
+        this.degrees = new int[numberOfNodes];
+        this.contained = new boolean[numberOfNodes];
+        this.minDegree = 0;
+        this.size = 0;
+
+        Arrays.fill(heads, -1);
+    }
+
+    public void add(int node, int degree) {
+        degrees[node] = degree;
+        contained[node] = true;
+        link(node);
+
+        minDegree = Math.min(minDegree, degree);
+        size++;
+    }
+
+    public void remove(int node) {
+        unlink(node);
+        contained[node] = false;
+        size--;
+    }
+
+    public void decrement(int node) {
+        unlink(node);
+        degrees[node]--;
+        link(node);
+
+        minDegree = Math.min(minDegree, degrees[node]);
+    }
+
+    public boolean contains(int node) {
+        return contained[node];
+    }
+
+    public int getDegree(int node) {
+        return degrees[node];
+    }
+
+    /**
+     * The lowest degree of a node still in the buckets, which must not be empty.
+     */
+    public int getMinDegree() {
+        while (heads[minDegree] == -1)
+            minDegree++;
+        return minDegree;
+    }
+
+    public int getMaxDegree() {
+        return heads.length - 1;
+    }
+
+    /**
+     * @return the last node added with the given degree, or -1
+     */
+    public int getFirst(int degree) {
+        return heads[degree];
+    }
+
+    /**
+     * @return the node after the given one in the list of its degree, or -1
+     */
+    public int getNext(int node) {
+        return next[node];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void link(int node) {
+        int degree = degrees[node];
+        next[node] = heads[degree];
+        previous[node] = -1;
+        if (heads[degree] != -1) previous[heads[degree]] = node;
+        heads[degree] = node;
+    }
+
+    private void unlink(int node) {
+        if (previous[node] != -1) next[previous[node]] = next[node];
+        else heads[degrees[node]] = next[node];
+
+        if (next[node] != -1) previous[next[node]] = previous[node];
+    }
+}
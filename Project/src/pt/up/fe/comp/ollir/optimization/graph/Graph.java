@@ -1,181 +1,431 @@
 package pt.up.fe.comp.ollir.optimization.graph;
 
-import org.specs.comp.ollir.Descriptor;
-import org.specs.comp.ollir.Method;
-import org.specs.comp.ollir.VarScope;
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp.ollir.optimization.LivenessResult;
 
 import java.util.*;
 
+/**
+ * Interference graph of the local variables of a method, colored with the available registers.
+ *
+ * <p>
+ * Nodes are dense indexes. Edges are kept twice: in a triangular bit matrix, for constant time interference tests,
+ * and in primitive adjacency lists, to visit neighbours. Coalesced nodes point to their representative, so adjacency
+ * lists may hold stale entries, which are resolved when visited.
+ */
 public class Graph {
     private final HashMap<String, Descriptor> varTable;
-    private final List<HashMap<Integer, List<String>>> livenessAnalysis;
+    private final LivenessResult livenessAnalysis;
+    private final int minimumRegisters;
 
-    private final boolean staticMethod;
-    private int minimumRegisters;
+    private final List<String> names;
+    private final int[] nodeOfVariable;
 
-    private final HashMap<Integer, Node> nodes;
+    private final BitMatrix interferences;
+    private final IntList[] adjacency;
+    private final int[] degrees;
+    private final double[] spillCosts;
 
-    public Graph(List<HashMap<Integer, List<String>>> livenessAnalysis, Method method) {
+    // Pairs of nodes copied into each other, and the node each coalesced one now shares a register with
+    private final List<int[]> moves;
+    private final int[] representatives;
+
+    private final int[] marks;
+    private int mark;
+
+    private int numberOfRegisters;
+    private int numberOfSpilled;
+
+    public Graph(LivenessResult livenessAnalysis, Method method) {
         this.livenessAnalysis = livenessAnalysis;
         this.varTable = method.getVarTable();
+        this.minimumRegisters = getFirstLocalRegister(method);
+
+        var variables = livenessAnalysis.getVariables();
+        this.names = new ArrayList<>();
+        this.nodeOfVariable = new int[variables.size()];
+        for (int i = 0; i < variables.size(); i++) {
+            var descriptor = varTable.get(variables.get(i));
+            if (descriptor == null || descriptor.getScope() != VarScope.LOCAL) {
+                nodeOfVariable[i] = -1;
+                continue;
+            }
+
+            nodeOfVariable[i] = names.size();
+            names.add(variables.get(i));
+        }
 
-        this.staticMethod = method.isStaticMethod();
-        this.minimumRegisters = staticMethod ? 0 : 1;
+        int size = names.size();
+        this.interferences = new BitMatrix(size);
+        this.adjacency = new IntList[size];
+        this.degrees = new int[size];
+        this.spillCosts = new double[size];
+        this.moves = new ArrayList<>();
+        this.representatives = new int[size];
+        this.marks = new int[size];
+
+        for (int node = 0; node < size; node++) {
+            adjacency[node] = new IntList();
+            representatives[node] = node;
+        }
 
-        this.nodes = new HashMap<>();
-        initializeNodes();
         initializeEdges();
+        initializeSpillCosts();
     }
 
-    private void initializeNodes() {
-        for (var name : varTable.keySet()) {
-            Descriptor descriptor = varTable.get(name);
-            if (descriptor.getScope() == VarScope.PARAMETER || descriptor.getScope() == VarScope.FIELD) {
-                minimumRegisters++;
-                continue;
+    /**
+     * Parameters (and 'this') keep their registers, locals are allocated after them.
+     */
+    private int getFirstLocalRegister(Method method) {
+        int result = method.isStaticMethod() ? 0 : 1;
+        for (var descriptor : varTable.values()) {
+            if (descriptor.getScope() == VarScope.LOCAL) continue;
+            result = Math.max(result, descriptor.getVirtualReg() + 1);
+        }
+        return result;
+    }
+
+    /**
+     * A variable defined by an instruction interferes with every other variable live after it, except the source
+     * of a copy, which holds the same value.
+     */
+    private void initializeEdges() {
+        for (int instruction = 0; instruction < livenessAnalysis.getNumberOfInstructions(); instruction++) {
+            int moveSource = getMoveSource(instruction);
+            var out = livenessAnalysis.getOut(instruction);
+            var def = livenessAnalysis.getDef(instruction);
+
+            for (int d = def.nextSetBit(0); d >= 0; d = def.nextSetBit(d + 1)) {
+                int defined = nodeOfVariable[d];
+                if (defined == -1) continue;
+
+                if (moveSource != -1) moves.add(new int[]{defined, moveSource});
+
+                for (int v = out.nextSetBit(0); v >= 0; v = out.nextSetBit(v + 1)) {
+                    int live = nodeOfVariable[v];
+                    if (live == -1 || live == moveSource) continue;
+
+                    addEdge(defined, live);
+                }
             }
+        }
+    }
+
+    /**
+     * @return the node copied by the instruction, if it is a copy between locals of the same type, or -1
+     */
+    private int getMoveSource(int instruction) {
+        var inst = livenessAnalysis.getInstructions().get(instruction);
+        if (inst.getInstType() != InstructionType.ASSIGN) return -1;
+
+        var assign = (AssignInstruction) inst;
+        if (assign.getRhs().getInstType() != InstructionType.NOPER) return -1;
 
-            var reg = descriptor.getVirtualReg();
-            var node = new Node(name, reg);
+        var dest = assign.getDest();
+        var source = ((SingleOpInstruction) assign.getRhs()).getSingleOperand();
+        if (source.isLiteral() || source instanceof ArrayOperand || dest instanceof ArrayOperand) return -1;
+        if (source.getType().getTypeOfElement() != dest.getType().getTypeOfElement()) return -1;
 
-            node.setLiveRange(getLiveRange(name));
-            nodes.put(reg ,node);
+        var index = livenessAnalysis.getVariableIndex(((Operand) source).getName());
+        return index == -1 ? -1 : nodeOfVariable[index];
+    }
+
+    private void addEdge(int first, int second) {
+        if (first == second || interferences.get(first, second)) return;
+
+        interferences.set(first, second);
+        adjacency[first].add(second);
+        adjacency[second].add(first);
+        degrees[first]++;
+        degrees[second]++;
+    }
+
+    private void initializeSpillCosts() {
+        // Each use or definition costs 10 times more for each loop around it
+        for (int instruction = 0; instruction < livenessAnalysis.getNumberOfInstructions(); instruction++) {
+            var weight = Math.pow(10, livenessAnalysis.getLoopDepth(instruction));
+            addSpillCost(livenessAnalysis.getUse(instruction), weight);
+            addSpillCost(livenessAnalysis.getDef(instruction), weight);
         }
     }
 
-    private void initializeEdges() {
-        List<Integer> indexes = new ArrayList<>(nodes.keySet());
+    private void addSpillCost(BitSet variables, double weight) {
+        for (int i = variables.nextSetBit(0); i >= 0; i = variables.nextSetBit(i + 1)) {
+            if (nodeOfVariable[i] != -1) spillCosts[nodeOfVariable[i]] += weight;
+        }
+    }
+
+    private int getRepresentative(int node) {
+        while (representatives[node] != node) {
+            representatives[node] = representatives[representatives[node]];
+            node = representatives[node];
+        }
+        return node;
+    }
 
-        for (int i = 0; i < nodes.size(); i++) {
-            Node firstNode = nodes.get(indexes.get(i));
-            for (int j = i + 1; j < nodes.size(); j++) {
-                Node secondNode = nodes.get(indexes.get(j));
-                if (!firstNode.intersectNodeLiveRange(secondNode.getLiveRange())) continue;
+    /**
+     * @return the distinct representatives adjacent to the given one
+     */
+    private IntList getNeighbours(int node) {
+        IntList result = new IntList();
+        mark++;
 
-                firstNode.addEdge(new Edge(firstNode, secondNode));
-                secondNode.addEdge(new Edge(secondNode, firstNode));
-            }
+        for (int i = 0; i < adjacency[node].size(); i++) {
+            int neighbour = getRepresentative(adjacency[node].get(i));
+            if (neighbour == node || marks[neighbour] == mark) continue;
+
+            marks[neighbour] = mark;
+            result.add(neighbour);
         }
+        return result;
     }
 
-    private List<List<Integer>> getLiveRange(String name) {
-        List<List<Integer>> result = new ArrayList<>();
+    /**
+     * Conservative coalescing: two move related nodes that do not interfere are merged when the result is still
+     * colorable with k colors, by the Briggs or the George test.
+     */
+    private void coalesceMoves(int k) {
+        boolean changed;
+
+        do {
+            changed = false;
 
-        var in = livenessAnalysis.get(0);
-        var out = livenessAnalysis.get(1);
+            for (var move : moves) {
+                int first = getRepresentative(move[0]);
+                int second = getRepresentative(move[1]);
+                if (first == second || interferences.get(first, second)) continue;
 
-        int from = -1;
+                if (!briggsTest(first, second, k) && !georgeTest(first, second, k)) {
+                    if (!georgeTest(second, first, k)) continue;
 
-        for (var instruction : in.keySet()) {
-            if (from == -1) {
-                if (out.get(instruction).contains(name)) from = instruction;
-                continue;
+                    int temp = first;
+                    first = second;
+                    second = temp;
+                }
+
+                merge(first, second);
+                changed = true;
+            }
+        } while (changed);
+    }
+
+    // The merged node has less than k neighbours of significant degree
+    private boolean briggsTest(int first, int second, int k) {
+        var firstNeighbours = getNeighbours(first);
+        var secondNeighbours = getNeighbours(second);
+
+        int significant = 0;
+        mark++;
+        for (var neighbours : List.of(firstNeighbours, secondNeighbours)) {
+            for (int i = 0; i < neighbours.size(); i++) {
+                int neighbour = neighbours.get(i);
+                if (marks[neighbour] == mark) continue;
+
+                marks[neighbour] = mark;
+                if (degrees[neighbour] >= k) significant++;
             }
+        }
+        return significant < k;
+    }
+
+    // Every neighbour of the second node already interferes with the first one or has insignificant degree
+    private boolean georgeTest(int first, int second, int k) {
+        var neighbours = getNeighbours(second);
+        for (int i = 0; i < neighbours.size(); i++) {
+            int neighbour = neighbours.get(i);
+            if (!interferences.get(neighbour, first) && degrees[neighbour] >= k) return false;
+        }
+        return true;
+    }
 
-            if (!out.get(instruction).contains(name)) {
-                result.add(Arrays.asList(from, instruction));
-                from = -1;
+    private void merge(int first, int second) {
+        var neighbours = getNeighbours(second);
+        for (int i = 0; i < neighbours.size(); i++) {
+            int neighbour = neighbours.get(i);
+
+            if (interferences.get(first, neighbour)) {
+                degrees[neighbour]--;
+                continue;
             }
+
+            interferences.set(first, neighbour);
+            adjacency[first].add(neighbour);
+            adjacency[neighbour].add(first);
+            degrees[first]++;
         }
 
-        return result;
+        representatives[second] = first;
+        degrees[second] = 0;
+        spillCosts[first] += spillCosts[second];
     }
 
     public void applyColoring(int k, boolean minimizeReg) {
-        if (k <= minimumRegisters) {
-            if (minimizeReg) {
-                applyColoring(k+1, true);
-                return;
+        int[] colors;
+
+        if (minimizeReg) {
+            // Nothing is spilled, the first k that colors every node is used instead. Coalescing depends on k, so each
+            // k starts from the graph as it was before any coalescing
+            k = Math.max(k, minimumRegisters + 1);
+            var uncoalesced = new Snapshot();
+            while ((colors = color(k, false)) == null) {
+                uncoalesced.restore();
+                k++;
             }
-            System.err.println("Not enough registers to allocate.");
-            return;
+        } else {
+            colors = color(Math.max(k, minimumRegisters), true);
         }
 
-        HashMap<Integer, List<String>> colors = new HashMap<>();
-        for (int i = minimumRegisters; i < k; i++)
-            colors.put(i, new ArrayList<>());
+        updateVarTable(colors);
+    }
 
-        Stack<Node> stack = new Stack<>();
+    /**
+     * Simplify with degree buckets, then select. Nodes of degree lower than the number of colors are removed first;
+     * when there are none, the one with the lowest cost/degree is removed anyway, as it may still get a color.
+     *
+     * @return the register of each node, or null if some node could not be colored and spilling is not allowed
+     */
+    private int[] color(int k, boolean allowSpill) {
+        int numberOfColors = k - minimumRegisters;
+        coalesceMoves(numberOfColors);
+
+        int size = names.size();
+        int maxDegree = 0;
+        for (int node = 0; node < size; node++) {
+            if (getRepresentative(node) == node) maxDegree = Math.max(maxDegree, degrees[node]);
+        }
 
-        boolean removed;
+        var buckets = new DegreeBuckets(size, maxDegree);
+        for (int node = 0; node < size; node++) {
+            if (getRepresentative(node) == node) buckets.add(node, degrees[node]);
+        }
 
-        do {
-            var it = nodes.entrySet().iterator();
-            removed = false;
+        int[] stack = new int[buckets.size()];
+        int stackSize = 0;
+
+        while (!buckets.isEmpty()) {
+            int minDegree = buckets.getMinDegree();
+            int node = minDegree < numberOfColors ? buckets.getFirst(minDegree) : getSpillCandidate(buckets);
 
-            while (it.hasNext()) {
-                var node = it.next().getValue();
-                if (node.getNumberActiveEdges() >= k) continue;
+            buckets.remove(node);
+            stack[stackSize++] = node;
 
-                stack.push(node);
-                it.remove();
-                node.setIsColored(false);
-                removed = true;
+            var neighbours = getNeighbours(node);
+            for (int i = 0; i < neighbours.size(); i++) {
+                int neighbour = neighbours.get(i);
+                if (buckets.contains(neighbour)) buckets.decrement(neighbour);
             }
-        } while (removed);
-
-        if (!nodes.isEmpty()) {
-            System.err.println("Erro");
-            return;
-        }
-
-        HashMap<String, Descriptor> newVarTable = new HashMap<>();
-        while (!stack.isEmpty()) {
-            var node = stack.pop();
-            node.setIsColored(true);
-            nodes.put(node.getRegister(), node);
-
-            boolean colored = false;
-            for (var reg : colors.keySet()) {
-                boolean canColor = true;
-                for (var linkedNode: node.getActiveEdges()) {
-                    if (colors.get(reg).contains(linkedNode)) {
-                        canColor = false;
-                        break;
-                    }
-                }
+        }
+
+        int[] colors = new int[size];
+        Arrays.fill(colors, -1);
+        List<Integer> spilled = new ArrayList<>();
 
-                if (!canColor) continue;
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
 
-                colors.get(reg).add(node.getId());
-                var descriptor = varTable.get(node.getId());
-                newVarTable.put(node.getId(), new Descriptor(descriptor.getScope(), reg, descriptor.getVarType()));
-                colored = true;
-                break;
+            var reg = getFreeRegister(node, colors, minimumRegisters);
+            if (reg >= k) {
+                if (!allowSpill) return null;
+
+                spilled.add(node);
+                continue;
             }
 
-            if (!colored) {
-                if (minimizeReg) {
-                    applyColoring(k+1, true);
-                    return;
-                }
-                System.err.println("Not enough registers to allocate.");
-                return;
+            colors[node] = reg;
+        }
+
+        if (spilled.isEmpty()) return colors;
+
+        // Spilled variables get extra locals after the k registers, the most used ones first
+        spilled.sort(Comparator.comparingDouble((Integer node) -> spillCosts[node]).reversed());
+        for (var node : spilled)
+            colors[node] = getFreeRegister(node, colors, k);
+
+        numberOfSpilled = spilled.size();
+        return colors;
+    }
+
+    private int getSpillCandidate(DegreeBuckets buckets) {
+        int result = -1;
+        double bestCost = Double.MAX_VALUE;
+
+        for (int d = buckets.getMinDegree(); d <= buckets.getMaxDegree(); d++) {
+            for (int node = buckets.getFirst(d); node != -1; node = buckets.getNext(node)) {
+                double cost = spillCosts[node] / (buckets.getDegree(node) + 1);
+                if (cost >= bestCost) continue;
+
+                bestCost = cost;
+                result = node;
             }
+        }
+        return result;
+    }
 
+    private int getFreeRegister(int node, int[] colors, int from) {
+        BitSet usedRegisters = new BitSet();
+
+        var neighbours = getNeighbours(node);
+        for (int i = 0; i < neighbours.size(); i++) {
+            var reg = colors[neighbours.get(i)];
+            if (reg != -1) usedRegisters.set(reg);
         }
 
-        int reg = staticMethod ? 0 : 1;
-        for (var name : varTable.keySet()) {
-            Descriptor descriptor = varTable.get(name);
-            if (descriptor.getScope() == VarScope.PARAMETER || descriptor.getScope() == VarScope.FIELD) {
-                newVarTable.put(name, new Descriptor(descriptor.getScope(), reg, descriptor.getVarType()));
-                reg++;
+        return usedRegisters.nextClearBit(from);
+    }
+
+    private void updateVarTable(int[] colors) {
+        BitSet usedRegisters = new BitSet();
+        usedRegisters.set(0);
+
+        for (var descriptor : varTable.values()) {
+            if (descriptor.getScope() != VarScope.LOCAL) usedRegisters.set(descriptor.getVirtualReg());
+        }
+
+        for (int node = 0; node < names.size(); node++) {
+            var name = names.get(node);
+            var descriptor = varTable.get(name);
+            var reg = colors[getRepresentative(node)];
+
+            varTable.put(name, new Descriptor(descriptor.getScope(), reg, descriptor.getVarType()));
+            usedRegisters.set(reg);
+        }
+
+        numberOfRegisters = usedRegisters.cardinality();
+    }
+
+    /**
+     * The edges, degrees and spill costs of the graph before coalescing, which merges nodes into their neighbours.
+     */
+    private class Snapshot {
+        private final BitMatrix savedInterferences = new BitMatrix(interferences);
+        private final int[] adjacencySizes = new int[adjacency.length];
+        private final int[] savedDegrees = degrees.clone();
+        private final double[] savedSpillCosts = spillCosts.clone();
+
+        private Snapshot() {
+            for (int node = 0; node < adjacency.length; node++) {
+                adjacencySizes[node] = adjacency[node].size();
             }
         }
 
-        ArrayList<Integer> used_reg = new ArrayList<>();
-        for (var name : varTable.keySet()) {
-            Descriptor descriptor = newVarTable.get(name);
-            varTable.put(name, descriptor);
+        private void restore() {
+            interferences.copyFrom(savedInterferences);
+            System.arraycopy(savedDegrees, 0, degrees, 0, degrees.length);
+            System.arraycopy(savedSpillCosts, 0, spillCosts, 0, spillCosts.length);
 
-            if(!used_reg.contains(descriptor.getVirtualReg()))
-                used_reg.add(descriptor.getVirtualReg());
+            // Merged edges were only appended, and every node was its own representative
+            for (int node = 0; node < adjacency.length; node++) {
+                adjacency[node].truncate(adjacencySizes[node]);
+                representatives[node] = node;
+            }
         }
+    }
 
-        if (!used_reg.contains(0))
-            used_reg.add(0);
+    public int getNumberOfRegisters() {
+        return numberOfRegisters;
+    }
 
-        System.out.println("Allocated " + used_reg.size() + " registers");
+    public int getNumberOfSpilled() {
+        return numberOfSpilled;
     }
 }
@@ -0,0 +1,37 @@
+package pt.up.fe.comp.ollir.optimization.graph;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of ints, to keep adjacency lists without boxing.
+ */
+public class IntList {
+    private int[] values;
+    private int size;
+
+    public IntList() {
+        this.values = new int[4];
+        this.size = 0;
+    }
+
+    public void add(int value) {
+        if (size == values.length)
+            values = Arrays.copyOf(values, size * 2);
+        values[size++] = value;
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Drops the values after the first 'size' ones.
+     */
+    public void truncate(int size) {
+        if (size < this.size) this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+}
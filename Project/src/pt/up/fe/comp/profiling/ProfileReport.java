@@ -0,0 +1,53 @@
+package pt.up.fe.comp.profiling;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.GsonBuilder;
+
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Prints and exports the metrics recorded by {@link StageProfiler}, one entry per compiled file.
+ */
+public class ProfileReport {
+
+    public static String toJson(Map<String, List<StageMetrics>> profiles) {
+        return new GsonBuilder()
+                .setPrettyPrinting()
+                .create()
+                .toJson(profiles);
+    }
+
+    public static void print(Map<String, List<StageMetrics>> profiles) {
+        for (var profile : profiles.entrySet()) {
+            System.out.println("\nProfile of " + profile.getKey() + ":");
+            System.out.println(String.format("  %-18s %12s %12s %14s  %s", "stage", "wall (ms)", "cpu (ms)",
+                    "alloc (KiB)", "counts"));
+
+            for (var metrics : profile.getValue()) {
+                System.out.println(String.format("  %-18s %12.3f %12.3f %14d  %s", metrics.getStage(),
+                        metrics.getWallNanos() / 1e6, metrics.getCpuNanos() / 1e6,
+                        metrics.getAllocatedBytes() / 1024, metrics.getCounts()));
+
+                for (var method : metrics.getMethodWallNanos().entrySet()) {
+                    System.out.println(String.format("    %-16s %12.3f", method.getKey(), method.getValue() / 1e6));
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints the profiles and, if the config has a 'profileOutput' path, also writes them as JSON to that file.
+     */
+    public static void export(Map<String, List<StageMetrics>> profiles, Map<String, String> config) {
+        print(profiles);
+
+        var output = config.getOrDefault("profileOutput", "");
+        if (!output.isEmpty()) {
+            SpecsIo.write(new File(output), toJson(profiles));
+            System.out.println("\nProfile written to " + output);
+        }
+    }
+}
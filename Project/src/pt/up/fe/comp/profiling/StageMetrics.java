@@ -0,0 +1,64 @@
+package pt.up.fe.comp.profiling;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measurements of a single run of a compilation stage. Times are in nanoseconds, and -1 means the JVM could not
+ * provide the value.
+ */
+public class StageMetrics {
+    private final String stage;
+    private final long wallNanos;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+    private final Map<String, Long> counts;
+    private final Map<String, Long> methodWallNanos;
+
+    public StageMetrics(String stage, long wallNanos, long cpuNanos, long allocatedBytes) {
+        this.stage = stage;
+        this.wallNanos = wallNanos;
+        this.cpuNanos = cpuNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.counts = new LinkedHashMap<>();
+        this.methodWallNanos = new LinkedHashMap<>();
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return sizes of the stage output, e.g. number of AST nodes or of OLLIR instructions per method
+     */
+    public Map<String, Long> getCounts() {
+        return counts;
+    }
+
+    public void putCount(String name, long value) {
+        this.counts.put(name, value);
+    }
+
+    /**
+     * @return wall time of each method, for the stages that work a method at a time
+     */
+    public Map<String, Long> getMethodWallNanos() {
+        return methodWallNanos;
+    }
+
+    public void putMethodWallNanos(String method, long wallNanos) {
+        this.methodWallNanos.put(method, wallNanos);
+    }
+}
@@ -0,0 +1,160 @@
+package pt.up.fe.comp.profiling;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+/**
+ * Records wall time, CPU time and allocated bytes of each compilation stage, as seen by the current thread.
+ * A disabled profiler runs the stages without measuring anything.
+ *
+ * <p>
+ * While a stage is measured, the profiler is also available from {@link #current()}, so the stages can time each
+ * method with {@link #measureMethod(String, Supplier)} without being given the profiler.
+ */
+public class StageProfiler {
+    private static final StageProfiler DISABLED = new StageProfiler(false);
+
+    private static final ThreadLocal<StageProfiler> CURRENT = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final List<StageMetrics> stages;
+    private final ThreadMXBean threadBean;
+    // Wall time of each method of the stage being measured
+    private Map<String, Long> methodWallNanos;
+
+    public StageProfiler() {
+        this(true);
+    }
+
+    private StageProfiler(boolean enabled) {
+        this.enabled = enabled;
+        this.stages = new ArrayList<>();
+        this.threadBean = ManagementFactory.getThreadMXBean();
+    }
+
+    public static StageProfiler disabled() {
+        return DISABLED;
+    }
+
+    public static StageProfiler fromConfig(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault("profile", "false")) ? new StageProfiler() : DISABLED;
+    }
+
+    /**
+     * @return the profiler measuring a stage on the current thread, or a disabled one
+     */
+    public static StageProfiler current() {
+        var profiler = CURRENT.get();
+        return profiler != null ? profiler : DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<StageMetrics> getStages() {
+        return stages;
+    }
+
+    public <T> T measure(String stage, Supplier<T> action) {
+        if (!enabled) {
+            return action.get();
+        }
+
+        var previousProfiler = CURRENT.get();
+        var previousMethods = methodWallNanos;
+        var methods = new LinkedHashMap<String, Long>();
+        CURRENT.set(this);
+        methodWallNanos = methods;
+
+        long cpuStart = getCpuTime();
+        long allocatedStart = getAllocatedBytes();
+        long wallStart = System.nanoTime();
+
+        try {
+            return action.get();
+        } finally {
+            long wall = System.nanoTime() - wallStart;
+            long cpu = cpuStart < 0 ? -1 : getCpuTime() - cpuStart;
+            long allocated = allocatedStart < 0 ? -1 : getAllocatedBytes() - allocatedStart;
+
+            CURRENT.set(previousProfiler);
+            methodWallNanos = previousMethods;
+
+            var metrics = new StageMetrics(stage, wall, cpu, allocated);
+            methods.forEach(metrics::putMethodWallNanos);
+            stages.add(metrics);
+        }
+    }
+
+    /**
+     * Adds the wall time of the given action to the given method of the stage being measured. Times of the same
+     * method add up, so a method can be measured in several steps.
+     */
+    public <T> T measureMethod(String method, Supplier<T> action) {
+        if (!enabled || methodWallNanos == null) {
+            return action.get();
+        }
+
+        var methods = methodWallNanos;
+        long wallStart = System.nanoTime();
+
+        try {
+            return action.get();
+        } finally {
+            methods.merge(method, System.nanoTime() - wallStart, Long::sum);
+        }
+    }
+
+    /**
+     * Adds a count to the last run of the given stage.
+     */
+    public void count(String stage, String name, long value) {
+        if (!enabled) return;
+
+        for (int i = stages.size() - 1; i >= 0; i--) {
+            if (stages.get(i).getStage().equals(stage)) {
+                stages.get(i).putCount(name, value);
+                return;
+            }
+        }
+    }
+
+    public static long countNodes(JmmNode root) {
+        long count = 0;
+
+        var toVisit = new ArrayDeque<JmmNode>();
+        toVisit.push(root);
+        while (!toVisit.isEmpty()) {
+            var node = toVisit.pop();
+            count++;
+            for (var child : node.getChildren()) {
+                toVisit.push(child);
+            }
+        }
+
+        return count;
+    }
+
+    private long getCpuTime() {
+        return threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : -1;
+    }
+
+    private long getAllocatedBytes() {
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            var sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+            if (sunThreadBean.isThreadAllocatedMemorySupported() && sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+                return sunThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,118 @@
+package pt.up.fe.comp.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import pt.up.fe.comp.Launcher;
+import pt.up.fe.comp.diagnostics.CollectingSink;
+import pt.up.fe.comp.diagnostics.Diagnostics;
+import pt.up.fe.comp.jmm.jasmin.AssembledClass;
+import pt.up.fe.comp.jmm.jasmin.JasminUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Thin front-end of the {@link CompileServer}, taking the same flags as the {@link Launcher}. The input file is sent
+ * to the server and the reports it returns are printed; with '-t' the class file is written to the given folder, and
+ * with '-d' the debug output of the server is written here, as the {@link Launcher} would.
+ *
+ * <p>
+ * When no server is running, and for batch compilation and profiling, which the server does not do, the flags are
+ * passed to the {@link Launcher} and the file is compiled in this JVM. '-k' stops the server.
+ */
+public class CompileClient {
+    private final SocketAddress address;
+    private final String token;
+
+    public CompileClient(String address) {
+        this.address = CompileServer.getAddress(address);
+
+        var token = CompileServer.getToken();
+        this.token = token == null ? null : new String(token, StandardCharsets.UTF_8);
+    }
+
+    public CompileResponse send(CompileRequest request) throws IOException {
+        try (var channel = CompileServer.connect(address)) {
+            return send(channel, request);
+        }
+    }
+
+    private static CompileResponse send(SocketChannel channel, CompileRequest request) throws IOException {
+        request.write(new DataOutputStream(Channels.newOutputStream(channel)));
+        return CompileResponse.read(new DataInputStream(Channels.newInputStream(channel)));
+    }
+
+    public static void main(String[] args) {
+        boolean stop = Arrays.asList(args).contains("-k");
+        String[] flags = Arrays.stream(args).filter(flag -> !flag.equals("-k")).toArray(String[]::new);
+
+        Map<String, String> config = Launcher.getConfig(flags);
+        var address = config.get("server").isEmpty() ? CompileServer.DEFAULT_ADDRESS : config.get("server");
+        var client = new CompileClient(address);
+
+        if (stop) {
+            try {
+                var response = client.send(CompileRequest.newStop(client.token));
+                if (!response.isSuccess()) {
+                    System.err.println(response.getErrorMessage());
+                }
+            } catch (IOException e) {
+                System.err.println("No compile server running at " + address);
+            }
+            return;
+        }
+
+        // The server takes no '-s', so the Launcher would start a new one
+        String[] launcherFlags = Arrays.stream(flags).filter(flag -> !flag.startsWith("-s")).toArray(String[]::new);
+
+        if (!config.get("batchInput").isEmpty() || config.get("profile").equals("true")) {
+            Launcher.main(launcherFlags);
+            return;
+        }
+
+        File inputFile = new File(config.get("inputFile"));
+        if (!inputFile.isFile()) {
+            throw new RuntimeException("Expected a path to an existing input file, got '" + inputFile + "'.");
+        }
+
+        // Only a missing server falls back to compiling here, a server that fails midway is reported
+        SocketChannel channel;
+        try {
+            channel = CompileServer.connect(client.address);
+        } catch (IOException e) {
+            Launcher.main(launcherFlags);
+            return;
+        }
+
+        CompileResponse response;
+        try (channel) {
+            var request = CompileRequest.newCompile(SpecsIo.read(inputFile), config,
+                    !config.get("outputDir").isEmpty(), client.token);
+            response = send(channel, request);
+        } catch (IOException e) {
+            System.err.println("Lost the connection to the compile server at " + address + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        new CollectingSink(response.getDiagnostics()).emitTo(Diagnostics.getSink(config));
+        response.getReports().forEach(System.out::println);
+
+        if (!response.isSuccess()) {
+            System.err.println(response.getErrorMessage());
+            System.exit(1);
+        }
+
+        if (response.getClassBytes() != null) {
+            JasminUtils.write(new AssembledClass(response.getClassName(), response.getClassBytes()),
+                    new File(config.get("outputDir")));
+        }
+    }
+}
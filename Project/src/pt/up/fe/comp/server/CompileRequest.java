@@ -0,0 +1,127 @@
+package pt.up.fe.comp.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A request sent to the {@link CompileServer}: the J-- source and the configuration to compile it with, together with
+ * the token shared with the server, if any.
+ *
+ * <p>
+ * Only the options in {@link #CONFIG_KEYS} are sent, as the others name files, which the server must not write.
+ */
+public class CompileRequest {
+    public static final List<String> CONFIG_KEYS = List.of("optimize", "registerAllocation", "registerAllocator",
+            "debug");
+
+    private final int command;
+    private final String token;
+    private final Map<String, String> config;
+    private final String source;
+    private final boolean classFile;
+
+    private CompileRequest(int command, String token, Map<String, String> config, String source, boolean classFile) {
+        this.command = command;
+        this.token = token;
+        this.config = config;
+        this.source = source;
+        this.classFile = classFile;
+    }
+
+    /**
+     * @param classFile whether the response should carry the class file
+     */
+    public static CompileRequest newCompile(String source, Map<String, String> config, boolean classFile,
+            String token) {
+        return new CompileRequest(Protocol.COMPILE, token, filterConfig(config), source, classFile);
+    }
+
+    public static CompileRequest newStop(String token) {
+        return new CompileRequest(Protocol.STOP, token, new HashMap<>(), null, false);
+    }
+
+    /**
+     * @return the options of the given configuration that may be sent to the server
+     */
+    public static Map<String, String> filterConfig(Map<String, String> config) {
+        Map<String, String> requestConfig = new HashMap<>();
+
+        for (var key : CONFIG_KEYS) {
+            if (config.containsKey(key)) {
+                requestConfig.put(key, config.get(key));
+            }
+        }
+
+        return requestConfig;
+    }
+
+    public boolean isStop() {
+        return command == Protocol.STOP;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public Map<String, String> getConfig() {
+        return config;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public boolean hasClassFile() {
+        return classFile;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(Protocol.VERSION);
+        out.writeInt(command);
+        Protocol.writeString(out, token);
+
+        out.writeInt(config.size());
+        for (var entry : config.entrySet()) {
+            Protocol.writeString(out, entry.getKey());
+            Protocol.writeString(out, entry.getValue());
+        }
+
+        Protocol.writeString(out, source);
+        out.writeBoolean(classFile);
+        out.flush();
+    }
+
+    /**
+     * Reads a request, passing its token to the given check before reading anything else, so the configuration and
+     * source of a request with an invalid token are never read.
+     *
+     * @return the request, or null if its token was rejected
+     */
+    public static CompileRequest read(DataInputStream in, Predicate<String> isAuthorized) throws IOException {
+        int version = in.readInt();
+        if (version != Protocol.VERSION) {
+            throw new IOException("Unsupported protocol version " + version + ", expected " + Protocol.VERSION);
+        }
+
+        int command = in.readInt();
+        String token = Protocol.readString(in, Protocol.MAX_TOKEN_LENGTH);
+        if (!isAuthorized.test(token)) {
+            return null;
+        }
+
+        int entries = Protocol.readCount(in, Protocol.MAX_CONFIG_ENTRIES);
+        Map<String, String> config = new HashMap<>();
+        for (int i = 0; i < entries; i++) {
+            config.put(Protocol.readString(in, Protocol.MAX_CONFIG_LENGTH),
+                    Protocol.readString(in, Protocol.MAX_CONFIG_LENGTH));
+        }
+
+        String source = Protocol.readString(in, Protocol.MAX_SOURCE_LENGTH);
+        return new CompileRequest(command, token, config, source, in.readBoolean());
+    }
+}
@@ -0,0 +1,116 @@
+package pt.up.fe.comp.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import pt.up.fe.comp.diagnostics.CollectingSink;
+
+/**
+ * Outcome of a request to the {@link CompileServer}. A successful compilation carries the reports of every stage, the
+ * debug output when 'debug' was set, and the generated artifacts: the Jasmin code and, when requested, the class file.
+ */
+public class CompileResponse {
+    private final String errorMessage;
+    private final List<String> reports;
+    private final List<CollectingSink.Entry> diagnostics;
+    private final String className;
+    private final String jasminCode;
+    private final byte[] classBytes;
+
+    private CompileResponse(String errorMessage, List<String> reports, List<CollectingSink.Entry> diagnostics,
+            String className, String jasminCode, byte[] classBytes) {
+        this.errorMessage = errorMessage;
+        this.reports = reports;
+        this.diagnostics = diagnostics;
+        this.className = className;
+        this.jasminCode = jasminCode;
+        this.classBytes = classBytes;
+    }
+
+    public static CompileResponse newSuccess(List<String> reports, List<CollectingSink.Entry> diagnostics,
+            String className, String jasminCode, byte[] classBytes) {
+        return new CompileResponse(null, reports, diagnostics, className, jasminCode, classBytes);
+    }
+
+    public static CompileResponse newError(String errorMessage) {
+        return new CompileResponse(errorMessage, new ArrayList<>(), new ArrayList<>(), null, null, null);
+    }
+
+    public boolean isSuccess() {
+        return errorMessage == null;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public List<String> getReports() {
+        return reports;
+    }
+
+    public List<CollectingSink.Entry> getDiagnostics() {
+        return diagnostics;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getJasminCode() {
+        return jasminCode;
+    }
+
+    /**
+     * @return the class file bytes, or null if the class file was not requested
+     */
+    public byte[] getClassBytes() {
+        return classBytes;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        Protocol.writeString(out, errorMessage);
+
+        out.writeInt(reports.size());
+        for (String report : reports) {
+            Protocol.writeString(out, report);
+        }
+
+        out.writeInt(diagnostics.size());
+        for (var entry : diagnostics) {
+            Protocol.writeString(out, entry.getStage());
+            Protocol.writeString(out, entry.getName());
+            Protocol.writeString(out, entry.getContent());
+        }
+
+        Protocol.writeString(out, className);
+        Protocol.writeString(out, jasminCode);
+        Protocol.writeBytes(out, classBytes);
+        out.flush();
+    }
+
+    public static CompileResponse read(DataInputStream in) throws IOException {
+        String errorMessage = readOutput(in);
+
+        int size = Protocol.readCount(in, Protocol.MAX_RESPONSE_ENTRIES);
+        List<String> reports = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            reports.add(readOutput(in));
+        }
+
+        int entries = Protocol.readCount(in, Protocol.MAX_RESPONSE_ENTRIES);
+        List<CollectingSink.Entry> diagnostics = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            diagnostics.add(new CollectingSink.Entry(readOutput(in), readOutput(in), readOutput(in)));
+        }
+
+        return new CompileResponse(errorMessage, reports, diagnostics, readOutput(in), readOutput(in),
+                Protocol.readBytes(in, Protocol.MAX_OUTPUT_LENGTH));
+    }
+
+    private static String readOutput(DataInputStream in) throws IOException {
+        return Protocol.readString(in, Protocol.MAX_OUTPUT_LENGTH);
+    }
+}
@@ -0,0 +1,282 @@
+package pt.up.fe.comp.server;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import pt.up.fe.comp.BatchCompiler;
+import pt.up.fe.comp.JmmCompiler;
+import pt.up.fe.comp.diagnostics.CollectingSink;
+import pt.up.fe.comp.diagnostics.Diagnostics;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.specs.util.SpecsLogs;
+
+/**
+ * Long-running compiler that answers {@link CompileRequest}s over a local socket, so each compilation does not pay for
+ * starting a JVM and loading the parser, OLLIR and Jasmin classes. Requests are handled by a fixed pool of worker
+ * threads, each reusing its own {@link JmmCompiler}.
+ *
+ * <p>
+ * The address is either a path, for a Unix domain socket, or a port (optionally 'localhost:port'), for TCP on the
+ * loopback interface. The socket file is only accessible to its owner. Any local user can connect over TCP, so the
+ * server then requires a token, shared with its clients through the {@value #TOKEN_VARIABLE} environment variable, in
+ * every request; when the variable is set, the token is also required over a Unix domain socket.
+ */
+public class CompileServer implements Closeable {
+    public static final String DEFAULT_ADDRESS = new File(System.getProperty("java.io.tmpdir"), "comp2022-8b.sock")
+            .getPath();
+
+    public static final String TOKEN_VARIABLE = "JMM_SERVER_TOKEN";
+
+    private static final String WARM_UP_SOURCE = "class WarmUp {\n"
+            + "    public static void main(String[] args) {\n"
+            + "        int a;\n"
+            + "        a = 1;\n"
+            + "        while (a < 10) { a = a + 1; }\n"
+            + "    }\n"
+            + "}\n";
+
+    private final SocketAddress address;
+    private final byte[] token;
+    private final ServerSocketChannel channel;
+    private final int numberOfWorkers;
+    private final ExecutorService workers;
+    private final ThreadLocal<JmmCompiler> compilers;
+
+    public CompileServer(Map<String, String> config) throws IOException {
+        this(config, getToken());
+    }
+
+    /**
+     * @param token the token required in every request, or null to require none
+     */
+    CompileServer(Map<String, String> config, byte[] token) throws IOException {
+        this.address = getAddress(config.get("server"));
+        this.token = token;
+
+        if (!(address instanceof UnixDomainSocketAddress) && token == null) {
+            throw new IOException("A compile server over TCP needs a token in the " + TOKEN_VARIABLE
+                    + " environment variable");
+        }
+
+        if (address instanceof UnixDomainSocketAddress unixAddress && Files.exists(unixAddress.getPath())) {
+            // A socket file left by a server that did not stop cleanly makes bind fail
+            if (isRunning(address)) {
+                throw new IOException("A compile server is already running at " + unixAddress.getPath());
+            }
+            Files.delete(unixAddress.getPath());
+        }
+
+        this.channel = open(address);
+        channel.bind(address);
+
+        if (address instanceof UnixDomainSocketAddress unixAddress) {
+            restrictToOwner(unixAddress.getPath());
+        }
+
+        var cache = BatchCompiler.getCache(config);
+        this.compilers = ThreadLocal.withInitial(() -> warmUp(new JmmCompiler(cache)));
+        this.numberOfWorkers = BatchCompiler.getNumberOfThreads(config);
+        this.workers = Executors.newFixedThreadPool(numberOfWorkers);
+    }
+
+    /**
+     * Accepts requests until a stop request arrives or the server is closed.
+     */
+    public void serve() throws IOException {
+        warmUpWorkers();
+        SpecsLogs.info("Compile server listening at " + address);
+
+        while (channel.isOpen()) {
+            SocketChannel client;
+            try {
+                client = channel.accept();
+            } catch (ClosedChannelException e) {
+                break;
+            }
+
+            workers.submit(() -> handle(client));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        workers.shutdown();
+
+        if (address instanceof UnixDomainSocketAddress unixAddress) {
+            Files.deleteIfExists(unixAddress.getPath());
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (client) {
+            var in = new DataInputStream(Channels.newInputStream(client));
+            var out = new DataOutputStream(Channels.newOutputStream(client));
+
+            var request = CompileRequest.read(in, this::isAuthorized);
+            if (request == null) {
+                CompileResponse.newError("Invalid compile server token").write(out);
+                return;
+            }
+
+            if (request.isStop()) {
+                CompileResponse.newSuccess(List.of(), List.of(), null, null, null).write(out);
+                close();
+                return;
+            }
+
+            compile(request).write(out);
+        } catch (IOException | RuntimeException e) {
+            SpecsLogs.info("Could not answer compile request: " + e.getMessage());
+        }
+    }
+
+    private CompileResponse compile(CompileRequest request) {
+        // Filtered again, as the request may come from any client
+        var config = CompileRequest.filterConfig(request.getConfig());
+        var diagnostics = new CollectingSink();
+
+        try {
+            var jasminResult = Diagnostics.withSink(diagnostics,
+                    () -> compilers.get().compile(request.getSource(), config));
+
+            var reports = jasminResult.getReports().stream().map(Report::toString).collect(Collectors.toList());
+            // Only one of the outputs is sent, as the direct bytecode backend would render the Jasmin code just for it
+            var classBytes = request.hasClassFile() ? jasminResult.getClassBytes() : null;
+            var jasminCode = request.hasClassFile() ? null : jasminResult.getJasminCode();
+
+            return CompileResponse.newSuccess(reports, diagnostics.getEntries(), jasminResult.getClassName(),
+                    jasminCode, classBytes);
+        } catch (Throwable e) {
+            // Errors such as a StackOverflowError must reach the client too, and leave the worker able to serve
+            return CompileResponse.newError(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Creates the compiler of every worker before the first request arrives. Each task holds its worker until all
+     * the others started, so no worker takes two of them.
+     */
+    private void warmUpWorkers() {
+        var started = new CountDownLatch(numberOfWorkers);
+
+        for (int i = 0; i < numberOfWorkers; i++) {
+            workers.submit(() -> {
+                compilers.get();
+                started.countDown();
+                started.await();
+                return null;
+            });
+        }
+
+        try {
+            started.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs a small program through every stage, so the first real request of a worker does not pay for class
+     * loading.
+     */
+    private static JmmCompiler warmUp(JmmCompiler compiler) {
+        try {
+            compiler.compile(WARM_UP_SOURCE, new HashMap<>()).assemble();
+        } catch (RuntimeException e) {
+            SpecsLogs.info("Compile server warm-up failed: " + e.getMessage());
+        }
+
+        return compiler;
+    }
+
+    /**
+     * Compares the tokens in constant time. The time of {@link MessageDigest#isEqual} only depends on the length of its
+     * first argument, so the expected token goes first.
+     */
+    private boolean isAuthorized(String requestToken) {
+        if (token == null) {
+            return true;
+        }
+
+        return requestToken != null && MessageDigest.isEqual(token, requestToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the shared token, or null if {@value #TOKEN_VARIABLE} is not set
+     */
+    static byte[] getToken() {
+        var token = System.getenv(TOKEN_VARIABLE);
+        return token == null || token.isEmpty() ? null : token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void restrictToOwner(Path socketFile) throws IOException {
+        try {
+            Files.setPosixFilePermissions(socketFile, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            SpecsLogs.info("Could not restrict the permissions of " + socketFile + ": " + e.getMessage());
+        }
+    }
+
+    public static SocketAddress getAddress(String address) {
+        var separator = address.lastIndexOf(':');
+        var port = separator == -1 ? address : address.substring(separator + 1);
+
+        if (!port.isEmpty() && port.chars().allMatch(Character::isDigit)) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(port));
+        }
+
+        return UnixDomainSocketAddress.of(address);
+    }
+
+    static SocketChannel connect(SocketAddress address) throws IOException {
+        var family = address instanceof UnixDomainSocketAddress ? StandardProtocolFamily.UNIX
+                : StandardProtocolFamily.INET;
+        var client = SocketChannel.open(family);
+
+        try {
+            client.connect(address);
+            return client;
+        } catch (IOException e) {
+            client.close();
+            throw e;
+        }
+    }
+
+    private static ServerSocketChannel open(SocketAddress address) throws IOException {
+        return address instanceof UnixDomainSocketAddress ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open(StandardProtocolFamily.INET);
+    }
+
+    private static boolean isRunning(SocketAddress address) {
+        try (var client = connect(address)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package pt.up.fe.comp.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Framing shared by the compile server and its client. Strings and byte arrays are written with an int length
+ * prefix, as Jasmin code can be larger than what {@link DataOutputStream#writeUTF} allows.
+ *
+ * <p>
+ * Every length and count is checked against a limit before anything is allocated for it, so a request cannot make
+ * the server allocate more than a few MB, whatever prefixes it sends.
+ */
+class Protocol {
+    static final int VERSION = 3;
+
+    static final int COMPILE = 0;
+    static final int STOP = 1;
+
+    static final int MAX_TOKEN_LENGTH = 1024;
+    static final int MAX_CONFIG_ENTRIES = 16;
+    static final int MAX_CONFIG_LENGTH = 1024;
+    static final int MAX_SOURCE_LENGTH = 4 << 20;
+
+    // Responses come from the server the client chose, but a broken one must not exhaust the client either
+    static final int MAX_RESPONSE_ENTRIES = 1 << 16;
+    static final int MAX_OUTPUT_LENGTH = 64 << 20;
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String readString(DataInputStream in, int maxLength) throws IOException {
+        byte[] bytes = readBytes(in, maxLength);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    /**
+     * @return the bytes, or null if null was written
+     * @throws IOException if the length is over the given limit
+     */
+    static byte[] readBytes(DataInputStream in, int maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        checkLimit("Length", length, maxLength);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * @throws IOException if the count is negative or over the given limit
+     */
+    static int readCount(DataInputStream in, int maxCount) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Negative count " + count);
+        }
+
+        checkLimit("Count", count, maxCount);
+        return count;
+    }
+
+    private static void checkLimit(String name, int value, int limit) throws IOException {
+        if (value > limit) {
+            throw new IOException(name + " " + value + " is over the limit of " + limit);
+        }
+    }
+}
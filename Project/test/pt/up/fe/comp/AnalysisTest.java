@@ -0,0 +1,105 @@
+package pt.up.fe.comp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import pt.up.fe.comp.analysis.AnalysisUtils;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+
+/**
+ * Expressions are typed once and their types kept, so each error must be reported once, however many times the
+ * enclosing expressions and statements ask for the type of the expression.
+ */
+public class AnalysisTest {
+
+    private static String getProgram(String statement) {
+        return "import io;\n" +
+                "class Errors {\n" +
+                "\tpublic int foo(int p) {\n" +
+                "\t\tint a;\n" +
+                "\t\t" + statement + "\n" +
+                "\t\treturn p;\n" +
+                "\t}\n" +
+                "\tpublic static void main(String[] args) {\n" +
+                "\t}\n" +
+                "}\n";
+    }
+
+    private static List<Report> getErrors(String statement) {
+        var result = TestUtils.analyse(getProgram(statement));
+        TestUtils.mustFail(result.getReports());
+
+        return result.getReports().stream()
+                .filter(report -> report.getType() == ReportType.ERROR)
+                .toList();
+    }
+
+    private static long count(List<Report> errors, String message) {
+        return errors.stream().filter(report -> report.getMessage().contains(message)).count();
+    }
+
+    @Test
+    public void nestedOperationErrors() {
+        var errors = getErrors("a = (1 + true) * 2;");
+
+        assertEquals(errors.toString(), 2, count(errors, "ARITHMETIC"));
+        assertEquals(errors.toString(), 1, count(errors, "ASSIGNMENT"));
+        assertEquals(errors.toString(), 3, errors.size());
+    }
+
+    @Test
+    public void parameterErrors() {
+        var errors = getErrors("a = this.foo(1 + true);");
+
+        assertEquals(errors.toString(), 1, count(errors, "ARITHMETIC"));
+        assertEquals(errors.toString(), 1, count(errors, "parameters do not match"));
+        assertEquals(errors.toString(), 1, count(errors, "ASSIGNMENT"));
+        assertEquals(errors.toString(), 3, errors.size());
+    }
+
+    @Test
+    public void conditionErrors() {
+        var errors = getErrors("while ((1 + true) && true) { a = 1; }");
+
+        assertEquals(errors.toString(), 1, count(errors, "ARITHMETIC"));
+        assertEquals(errors.toString(), 1, count(errors, "AND"));
+        assertEquals(errors.toString(), 1, count(errors, "LOOP"));
+        assertEquals(errors.toString(), 3, errors.size());
+    }
+
+    @Test
+    public void undefinedVariableErrors() {
+        var errors = getErrors("a = c + 1;");
+
+        assertEquals(errors.toString(), 1, count(errors, "not defined"));
+        assertEquals(errors.toString(), 1, count(errors, "ARITHMETIC"));
+        assertEquals(errors.toString(), 1, count(errors, "ASSIGNMENT"));
+        assertEquals(errors.toString(), 3, errors.size());
+    }
+
+    @Test
+    public void resolvedTypesAreNotAttributes() {
+        var result = TestUtils.analyse(getProgram("a = (1 + 2) * p;"));
+        TestUtils.noErrors(result);
+
+        // The statement after the variable declaration of 'a'
+        JmmNode method = result.getRootNode().getJmmChild(1).getJmmChild(0);
+        JmmNode value = method.getJmmChild(3).getJmmChild(1);
+
+        var type = AnalysisUtils.getResolvedType(value);
+        assertTrue(type.isPresent());
+        assertEquals("int", type.get().getName());
+        assertFalse(type.get().isArray());
+
+        assertFalse(value.getAttributes().contains(AnalysisUtils.RESOLVED_TYPE));
+        assertFalse(result.getRootNode().toJson().contains(AnalysisUtils.RESOLVED_TYPE));
+        assertFalse(result.getRootNode().toTree().contains(AnalysisUtils.RESOLVED_TYPE));
+    }
+}
@@ -0,0 +1,49 @@
+package pt.up.fe.comp;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import pt.up.fe.comp.analysis.SymbolTableMap;
+import pt.up.fe.comp.ast.AstNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.ollir.DeadCodeEliminator;
+
+public class AstNodeTest {
+
+    @Test
+    public void grammarKinds() {
+        for (var value : AstNode.values()) {
+            if (value == AstNode.UNKNOWN) continue;
+
+            assertEquals(value, AstNode.of(new JmmNodeImpl(value.toString())));
+        }
+    }
+
+    @Test
+    public void otherKindsAreUnknown() {
+        assertEquals(AstNode.UNKNOWN, AstNode.of(new JmmNodeImpl("NotAJmmKind")));
+        assertEquals(-1, AstNode.UNKNOWN.getKindId());
+    }
+
+    @Test
+    public void deadCodeEliminationSkipsUnknownKinds() {
+        var code = "class UnknownKinds {\n" +
+                "\tpublic int foo() {\n" +
+                "\t\tint a;\n" +
+                "\t\ta = 1;\n" +
+                "\t\treturn a;\n" +
+                "\t}\n" +
+                "}\n";
+
+        var semanticsResult = TestUtils.analyse(code);
+        TestUtils.noErrors(semanticsResult);
+
+        // The elimination scans the returned expression for uses of 'a', and meets a kind it does not know first
+        var method = semanticsResult.getRootNode().getJmmChild(0).getJmmChild(0);
+        var returnStatement = method.getJmmChild(method.getNumChildren() - 1);
+        returnStatement.add(new JmmNodeImpl("NotAJmmKind"), 0);
+
+        new DeadCodeEliminator((SymbolTableMap) semanticsResult.getSymbolTable()).visit(semanticsResult.getRootNode());
+    }
+}
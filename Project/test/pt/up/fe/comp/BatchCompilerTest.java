@@ -0,0 +1,102 @@
+package pt.up.fe.comp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.profiling.StageProfiler;
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Batch compilation of several files, where a file that fails, even with an Error, does not stop the others.
+ */
+public class BatchCompilerTest {
+
+    private static final String OVERFLOW = "// overflows\n";
+
+    private static String getProgram(String className) {
+        return "import io;\n" +
+                "class " + className + " {\n" +
+                "\tpublic static void main(String[] args) {\n" +
+                "\t\tio.println(1);\n" +
+                "\t}\n" +
+                "}\n";
+    }
+
+    /**
+     * Fails with a StackOverflowError on files marked with {@link #OVERFLOW}, as a deeply nested input would.
+     */
+    private static class OverflowingCompiler extends JmmCompiler {
+        @Override
+        public JasminResult compile(String jmmCode, Map<String, String> config, StageProfiler profiler) {
+            if (jmmCode.startsWith(OVERFLOW)) {
+                throw new StackOverflowError();
+            }
+
+            return super.compile(jmmCode, config, profiler);
+        }
+    }
+
+    private static List<File> writeInputs() throws IOException {
+        var folder = Files.createTempDirectory("batch").toFile();
+        folder.deleteOnExit();
+
+        List<File> inputs = new ArrayList<>();
+        for (var name : List.of("First", "Overflow", "Last")) {
+            var input = new File(folder, name + ".jmm");
+            input.deleteOnExit();
+            SpecsIo.write(input, (name.equals("Overflow") ? OVERFLOW : "") + getProgram(name));
+            inputs.add(input);
+        }
+
+        return inputs;
+    }
+
+    private static void testThreads(String threads) throws IOException {
+        Map<String, String> config = new HashMap<>();
+        config.put("threads", threads);
+
+        var inputs = writeInputs();
+        var results = new BatchCompiler(config, OverflowingCompiler::new).compile(inputs);
+
+        assertEquals(3, results.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            assertEquals(inputs.get(i), results.get(i).getInputFile());
+        }
+
+        assertTrue(results.get(0).getErrorMessage(), results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("StackOverflowError", results.get(1).getErrorMessage());
+        assertTrue(results.get(2).getErrorMessage(), results.get(2).isSuccess());
+    }
+
+    @Test
+    public void errorFailsOnlyItsFileInSerial() throws IOException {
+        testThreads("1");
+    }
+
+    @Test
+    public void errorFailsOnlyItsFileInParallel() throws IOException {
+        testThreads("4");
+    }
+
+    @Test
+    public void missingFileFails() {
+        var missing = new File("missing/Missing.jmm");
+        var result = new BatchCompiler(new HashMap<>()).compile(missing);
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getErrorMessage(), result.getErrorMessage().contains("missing"));
+    }
+}
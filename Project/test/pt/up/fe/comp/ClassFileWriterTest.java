@@ -0,0 +1,269 @@
+package pt.up.fe.comp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.branch;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.iinc;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.label;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.member;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.simple;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.withOperand;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.withValue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import pt.up.fe.comp.jasmin.JvmGenerator;
+import pt.up.fe.comp.jasmin.StackAnalysis;
+import pt.up.fe.comp.jasmin.bytecode.BytecodeBackend;
+import pt.up.fe.comp.jasmin.bytecode.ClassFileWriter;
+import pt.up.fe.comp.jasmin.model.JvmClass;
+import pt.up.fe.comp.jasmin.model.JvmCode;
+import pt.up.fe.comp.jasmin.model.JvmMethod;
+import pt.up.fe.comp.jasmin.model.JvmOpcode;
+import pt.up.fe.comp.jasmin.optimization.PeepholeOptimizer;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Class files written by {@link ClassFileWriter}, loaded by a class loader of their own so the JVM verifies them, and
+ * the stack limits computed by {@link StackAnalysis}.
+ */
+public class ClassFileWriterTest {
+
+    private static final List<String> FIXTURES = List.of("arithmetic/Arithmetic_add.ollir",
+            "arithmetic/Arithmetic_and.ollir", "arithmetic/Arithmetic_div.ollir", "arithmetic/Arithmetic_less.ollir",
+            "arithmetic/Arithmetic_mul.ollir", "arithmetic/Arithmetic_sub.ollir", "arithmetic/ByteCodeIndexes1.ollir",
+            "arithmetic/ByteCodeIndexes2.ollir", "arithmetic/ComplexAdd.ollir", "arithmetic/ComplexAddMul.ollir",
+            "arithmetic/ComplexArithmetic.ollir", "arithmetic/ComplexProd.ollir", "arithmetic/ComplexSubDiv.ollir",
+            "arrays/ArrayAccess.ollir", "arrays/ArrayAsArg.ollir", "arrays/ArrayAsArgCode.ollir",
+            "arrays/ArrayInit.ollir", "arrays/ComplexArrayAccess.ollir", "basic/BasicMethodsArray.ollir",
+            "basic/BasicMethodsBool.ollir", "basic/BasicMethodsClass.ollir", "basic/BasicMethodsInt.ollir",
+            "basic/Structure_class.ollir", "basic/Structure_fields.ollir", "calls/ArithmeticArgsFuncCall.ollir",
+            "calls/ConditionArgsFuncCall.ollir", "calls/FuncArgsFuncCall.ollir", "calls/InvokeStatic.ollir",
+            "calls/NoArgsFuncCall.ollir", "calls/OneArgFuncCall.ollir", "calls/PrintOtherClassInline.ollir",
+            "calls/UsesPop.ollir", "calls/VarArgsFuncCall.ollir", "control_flow/IfWhileNested.ollir",
+            "control_flow/SimpleIfElseNot.ollir", "control_flow/SimpleIfElseStat.ollir",
+            "control_flow/SimpleWhileStat.ollir", "control_flow/SwitchStat.ollir", "limits/LocalLimits.ollir");
+
+    /**
+     * Defines the given classes, and an empty class for any other one they refer to, such as imports and super
+     * classes. Classes of a loader other than the boot loader are verified when they are linked.
+     */
+    static class ClassBytesLoader extends ClassLoader {
+        private final Map<String, byte[]> classes = new HashMap<>();
+
+        ClassBytesLoader() {
+            super(ClassFileWriterTest.class.getClassLoader());
+        }
+
+        Class<?> load(String name, byte[] bytes) {
+            classes.put(name, bytes);
+
+            try {
+                return Class.forName(name, true, this);
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        protected Class<?> findClass(String name) {
+            var bytes = classes.get(name);
+
+            if (bytes == null) {
+                var emptyClass = new JvmClass(List.of("public"), name.replace('.', '/'), "java/lang/Object");
+                emptyClass.setDefaultConstructor(true);
+                bytes = new ClassFileWriter().write(emptyClass);
+            }
+
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    private static String getFixture(String fixture) {
+        return SpecsIo.getResource("fixtures/public/cpf/4_jasmin/" + fixture);
+    }
+
+    private static JvmMethod getMethod(JvmClass jvmClass, String name) {
+        return jvmClass.getMethods().stream()
+                .filter(method -> method.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static JvmClass newClass(String name, JvmMethod method) {
+        var jvmClass = new JvmClass(List.of("public"), name, "java/lang/Object");
+        jvmClass.setDefaultConstructor(true);
+        jvmClass.getMethods().add(method);
+        return jvmClass;
+    }
+
+    private static JvmMethod newStaticMethod(String name, JvmCode code, int maxLocals) {
+        var method = new JvmMethod(List.of("public", "static"), name, "()I", code);
+        method.setMaxStack(StackAnalysis.getMaxStack(code));
+        method.setMaxLocals(maxLocals);
+        return method;
+    }
+
+    private static int run(JvmClass jvmClass, String methodName) throws ReflectiveOperationException {
+        var loadedClass = new ClassBytesLoader().load(jvmClass.getName(), new ClassFileWriter().write(jvmClass));
+        return (Integer) loadedClass.getMethod(methodName).invoke(null);
+    }
+
+    @Test
+    public void fixturesPassTheVerifier() {
+        for (var optimize : List.of("false", "true")) {
+            Map<String, String> config = new HashMap<>();
+            config.put("optimize", optimize);
+
+            for (var fixture : FIXTURES) {
+                var ollirResult = new OllirResult(getFixture(fixture), config);
+                var assembledClass = new BytecodeBackend().toJasmin(ollirResult).assemble();
+
+                try {
+                    new ClassBytesLoader().load(assembledClass.getBinaryName(), assembledClass.getBytes());
+                } catch (VerifyError | ClassFormatError e) {
+                    fail(fixture + " (optimize=" + optimize + "): " + e);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void limitStackOfKnownMethods() {
+        var localLimits = new JvmGenerator(PeepholeOptimizer.disabled())
+                .generate(new OllirResult(getFixture("limits/LocalLimits.ollir"), new HashMap<>()).getOllirClass());
+        // aload_0, iconst_3 and iconst_4 before invoking 'func'
+        assertEquals(3, getMethod(localLimits, "func").getMaxStack());
+
+        var complexArithmetic = new JvmGenerator(PeepholeOptimizer.disabled())
+                .generate(new OllirResult(getFixture("arithmetic/ComplexArithmetic.ollir"), new HashMap<>())
+                        .getOllirClass());
+        assertEquals(2, getMethod(complexArithmetic, "main").getMaxStack());
+    }
+
+    @Test
+    public void stackDepthMergesAtLabels() {
+        // if (a < 10) push 1 else push 2, then a call taking 3 arguments
+        var code = new JvmCode()
+                .append(withValue(JvmOpcode.ICONST, 0))
+                .append(withValue(JvmOpcode.ICONST, 0))
+                .append(withValue(JvmOpcode.ILOAD, 0))
+                .append(withValue(JvmOpcode.BIPUSH, 10))
+                .append(branch(JvmOpcode.IF_ICMPGE, "else"))
+                .append(withValue(JvmOpcode.ICONST, 1))
+                .append(branch(JvmOpcode.GOTO, "end"))
+                .append(label("else"))
+                .append(withValue(JvmOpcode.ICONST, 2))
+                .append(label("end"))
+                .append(member(JvmOpcode.INVOKESTATIC, "Other", "sum", "(II[I)I"))
+                .append(simple(JvmOpcode.IRETURN));
+
+        assertEquals(4, StackAnalysis.getMaxStack(code));
+        assertEquals(-2, StackAnalysis.getStackEffect(member(JvmOpcode.INVOKESTATIC, "Other", "sum", "(II[I)I")));
+        assertEquals(-6, StackAnalysis.getStackEffect(
+                member(JvmOpcode.INVOKEVIRTUAL, "Other", "f", "(ILjava/lang/String;[[IJ)V")));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void inconsistentStackDepthFails() {
+        var code = new JvmCode()
+                .append(withValue(JvmOpcode.ILOAD, 0))
+                .append(branch(JvmOpcode.IFEQ, "end"))
+                .append(withValue(JvmOpcode.ICONST, 1))
+                .append(label("end"))
+                .append(simple(JvmOpcode.RETURN));
+
+        StackAnalysis.getMaxStack(code);
+    }
+
+    @Test
+    public void branchesArePatched() throws ReflectiveOperationException {
+        // sum of 0..9, with a backward branch over more than 127 bytes of code
+        var code = new JvmCode()
+                .append(withValue(JvmOpcode.ICONST, 0))
+                .append(withValue(JvmOpcode.ISTORE, 0))
+                .append(withValue(JvmOpcode.ICONST, 0))
+                .append(withValue(JvmOpcode.ISTORE, 1))
+                .append(label("loop"))
+                .append(withValue(JvmOpcode.ILOAD, 1))
+                .append(withValue(JvmOpcode.BIPUSH, 10))
+                .append(branch(JvmOpcode.IF_ICMPGE, "end"));
+
+        for (int i = 0; i < 100; i++) {
+            code.append(withValue(JvmOpcode.SIPUSH, 1000 + i)).append(simple(JvmOpcode.POP));
+        }
+
+        code.append(withValue(JvmOpcode.ILOAD, 0))
+                .append(withValue(JvmOpcode.ILOAD, 1))
+                .append(simple(JvmOpcode.IADD))
+                .append(withValue(JvmOpcode.ISTORE, 0))
+                .append(iinc(1, 1))
+                .append(branch(JvmOpcode.GOTO, "loop"))
+                .append(label("end"))
+                .append(withValue(JvmOpcode.ILOAD, 0))
+                .append(simple(JvmOpcode.IRETURN));
+
+        assertEquals(45, run(newClass("Branches", newStaticMethod("run", code, 2)), "run"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void undefinedLabelFails() {
+        var code = new JvmCode().append(branch(JvmOpcode.GOTO, "missing")).append(simple(JvmOpcode.RETURN));
+        new ClassFileWriter().getCodeSize(code);
+    }
+
+    @Test
+    public void wideLocalsAndIncrements() throws ReflectiveOperationException {
+        var code = new JvmCode()
+                .append(withValue(JvmOpcode.BIPUSH, 5))
+                .append(withValue(JvmOpcode.ISTORE, 300))
+                .append(iinc(300, 1000))
+                .append(withValue(JvmOpcode.ICONST, 1))
+                .append(withValue(JvmOpcode.ISTORE, 3))
+                .append(iinc(3, -200))
+                .append(withValue(JvmOpcode.ILOAD, 300))
+                .append(withValue(JvmOpcode.ILOAD, 3))
+                .append(simple(JvmOpcode.IADD))
+                .append(simple(JvmOpcode.IRETURN));
+
+        // bipush, wide istore, wide iinc, iconst_1, istore_3, wide iinc, wide iload, iload_3, iadd, ireturn
+        assertEquals(2 + 4 + 6 + 1 + 1 + 6 + 4 + 1 + 1 + 1, new ClassFileWriter().getCodeSize(code));
+        assertEquals(5 + 1000 + 1 - 200, run(newClass("Wide", newStaticMethod("run", code, 301)), "run"));
+    }
+
+    @Test
+    public void ldcWideAboveConstantPoolIndex255() throws ReflectiveOperationException {
+        int constants = 300;
+        int expected = 0;
+
+        var code = new JvmCode().append(withValue(JvmOpcode.ICONST, 0));
+        for (int i = 0; i < constants; i++) {
+            int value = 100_000 + i;
+            code.append(withOperand(JvmOpcode.LDC, String.valueOf(value))).append(simple(JvmOpcode.IADD));
+            expected += value;
+        }
+        code.append(withOperand(JvmOpcode.LDC, "\"constant\""))
+                .append(simple(JvmOpcode.POP))
+                .append(simple(JvmOpcode.IRETURN));
+
+        var jvmClass = newClass("Constants", newStaticMethod("run", code, 0));
+        var classBytes = new ClassFileWriter().write(jvmClass);
+
+        int constantPoolCount = ((classBytes[8] & 0xFF) << 8) | (classBytes[9] & 0xFF);
+        assertTrue("constant pool has " + constantPoolCount + " entries", constantPoolCount > 256);
+
+        // With a pool of its own, the integers take indexes 1 to 300, so 255 of them fit ldc and the others, like
+        // the string, need ldc_w
+        int ldc = 255;
+        int ldcW = constants - ldc + 1;
+        assertEquals(1 + 2 * ldc + 3 * ldcW + constants + 1 + 1, new ClassFileWriter().getCodeSize(code));
+
+        assertEquals(expected, run(jvmClass, "run"));
+    }
+}
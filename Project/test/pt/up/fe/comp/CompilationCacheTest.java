@@ -0,0 +1,203 @@
+package pt.up.fe.comp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import pt.up.fe.comp.cache.CompilationCache;
+import pt.up.fe.comp.diagnostics.Diagnostics;
+import pt.up.fe.comp.jasmin.Jasmin;
+import pt.up.fe.comp.jasmin.bytecode.BytecodeBackend;
+import pt.up.fe.comp.jmm.jasmin.AssembledClass;
+
+/**
+ * Keys of the compilation cache, hits and misses of the compiler through it, and entries damaged on disk.
+ */
+public class CompilationCacheTest {
+
+    private static final String CODE = "import io;\n" +
+            "class Cached {\n" +
+            "\tpublic static void main(String[] args) {\n" +
+            "\t\tint a;\n" +
+            "\t\tint b;\n" +
+            "\t\ta = 2;\n" +
+            "\t\tb = a * 3;\n" +
+            "\t\tio.println(b);\n" +
+            "\t}\n" +
+            "}\n";
+
+    private static final Class<?> BACKEND = TestUtils.getJasminBackend().getClass();
+
+    private static CompilationCache newCache() throws IOException {
+        var cacheDir = Files.createTempDirectory("cache").toFile();
+        cacheDir.deleteOnExit();
+        return new CompilationCache(cacheDir);
+    }
+
+    private static Map<String, String> getConfig(String optimize, String registerAllocation, String allocator) {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", optimize);
+        config.put("registerAllocation", registerAllocation);
+        config.put("registerAllocator", allocator);
+        return config;
+    }
+
+    private static List<Path> getEntries(CompilationCache cache) throws IOException {
+        try (Stream<Path> paths = Files.walk(cache.getCacheDir().toPath())) {
+            return paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Writes the output of a class named 'Planted' under the backend keys of {@link #CODE}, so a hit is told apart from
+     * a compilation.
+     */
+    private static void plant(CompilationCache cache, Class<?> backend, Map<String, String> config) {
+        var diagnostics = Diagnostics.disabled();
+        var planted = TestUtils.backend(CODE.replace("Cached", "Planted"));
+        TestUtils.noErrors(planted);
+
+        cache.writeClass(cache.getBackendKey(CompilationCache.CLASS, backend, CODE, config), planted.assemble(),
+                diagnostics);
+        cache.write(CompilationCache.JASMIN, cache.getBackendKey(CompilationCache.JASMIN, backend, CODE, config),
+                planted.getJasminCode(), diagnostics);
+    }
+
+    private static byte[] compile(JmmCompiler compiler, Map<String, String> config) {
+        var jasminResult = compiler.compile(CODE, config);
+        TestUtils.noErrors(jasminResult);
+        return jasminResult.getClassBytes();
+    }
+
+    @Test
+    public void backendKeyFollowsTheConfigurationAndBackend() {
+        var cache = new CompilationCache(new File("unused"));
+        var config = getConfig("false", "-1", "graph");
+        var key = cache.getBackendKey(CompilationCache.CLASS, BytecodeBackend.class, CODE, config);
+
+        // An equal configuration in another map gives the same key
+        assertEquals(key, cache.getBackendKey(CompilationCache.CLASS, BytecodeBackend.class, CODE,
+                getConfig("false", "-1", "graph")));
+
+        var changes = List.of(getConfig("true", "-1", "graph"), getConfig("false", "3", "graph"),
+                getConfig("false", "-1", "linear"));
+        for (var changed : changes) {
+            assertNotEquals(changed.toString(), key,
+                    cache.getBackendKey(CompilationCache.CLASS, BytecodeBackend.class, CODE, changed));
+        }
+
+        assertNotEquals(key, cache.getBackendKey(CompilationCache.CLASS, Jasmin.class, CODE, config));
+        assertNotEquals(key, cache.getBackendKey(CompilationCache.JASMIN, BytecodeBackend.class, CODE, config));
+        assertNotEquals(key, cache.getBackendKey(CompilationCache.CLASS, BytecodeBackend.class, CODE + " ", config));
+    }
+
+    @Test
+    public void frontEndKeysOnlyFollowTheirOptions() {
+        var cache = new CompilationCache(new File("unused"));
+        var config = getConfig("false", "-1", "graph");
+        var allocated = getConfig("false", "3", "linear");
+        var optimized = getConfig("true", "-1", "graph");
+
+        assertEquals(cache.getKey(CompilationCache.AST, CODE, config),
+                cache.getKey(CompilationCache.AST, CODE, optimized));
+        assertEquals(cache.getKey(CompilationCache.OLLIR, CODE, config),
+                cache.getKey(CompilationCache.OLLIR, CODE, allocated));
+        assertNotEquals(cache.getKey(CompilationCache.OLLIR, CODE, config),
+                cache.getKey(CompilationCache.OLLIR, CODE, optimized));
+    }
+
+    @Test
+    public void damagedEntriesAreMisses() throws IOException {
+        var cache = newCache();
+        var diagnostics = Diagnostics.disabled();
+        var key = cache.getKey(CompilationCache.OLLIR, CODE, new HashMap<>());
+
+        cache.write(CompilationCache.OLLIR, key, "ollir code", diagnostics);
+        assertEquals(Optional.of("ollir code"), cache.read(CompilationCache.OLLIR, key));
+
+        var entry = getEntries(cache).get(0);
+        var bytes = Files.readAllBytes(entry);
+
+        // A changed byte, a truncated content and a truncated digest
+        var changed = bytes.clone();
+        changed[changed.length - 1] ^= 1;
+        for (var damaged : List.of(changed, Arrays.copyOf(bytes, bytes.length - 2), Arrays.copyOf(bytes, 10),
+                new byte[0])) {
+            Files.write(entry, damaged);
+            assertEquals(Optional.empty(), cache.read(CompilationCache.OLLIR, key));
+        }
+
+        var classKey = cache.getBackendKey(CompilationCache.CLASS, BytecodeBackend.class, CODE, new HashMap<>());
+        var assembledClass = new AssembledClass("Cached", new byte[] { 1, 2, 3, 4 });
+        cache.writeClass(classKey, assembledClass, diagnostics);
+        assertArrayEquals(assembledClass.getBytes(), cache.readClass(classKey).orElseThrow().getBytes());
+
+        var classEntry = cache.getCacheDir().toPath().resolve(CompilationCache.CLASS).resolve(classKey);
+        var classBytes = Files.readAllBytes(classEntry);
+        Files.write(classEntry, Arrays.copyOf(classBytes, classBytes.length - 1));
+        assertEquals(Optional.empty(), cache.readClass(classKey));
+    }
+
+    @Test
+    public void identicalSourceHits() throws IOException {
+        var cache = newCache();
+        plant(cache, BACKEND, getConfig("false", "-1", "graph"));
+
+        var jasminResult = new JmmCompiler(cache).compile(CODE, getConfig("false", "-1", "graph"));
+        assertEquals("Planted", jasminResult.getClassName());
+    }
+
+    @Test
+    public void changedOptionsMiss() throws IOException {
+        var cache = newCache();
+        var compiler = new JmmCompiler(cache);
+        plant(cache, BACKEND, getConfig("false", "-1", "graph"));
+
+        var changes = List.of(getConfig("true", "-1", "graph"), getConfig("false", "3", "graph"),
+                getConfig("false", "-1", "linear"));
+        for (var changed : changes) {
+            var jasminResult = compiler.compile(CODE, changed);
+            TestUtils.noErrors(jasminResult);
+            assertEquals(changed.toString(), "Cached", jasminResult.getClassName());
+        }
+    }
+
+    @Test
+    public void otherBackendMisses() throws IOException {
+        var cache = newCache();
+        var otherBackend = BACKEND.equals(BytecodeBackend.class) ? Jasmin.class : BytecodeBackend.class;
+        plant(cache, otherBackend, getConfig("false", "-1", "graph"));
+
+        var jasminResult = new JmmCompiler(cache).compile(CODE, getConfig("false", "-1", "graph"));
+        TestUtils.noErrors(jasminResult);
+        assertEquals("Cached", jasminResult.getClassName());
+    }
+
+    @Test
+    public void damagedEntriesAreCompiledAgain() throws IOException {
+        var cache = newCache();
+        var config = getConfig("true", "3", "graph");
+        var classBytes = compile(new JmmCompiler(cache), config);
+
+        for (var entry : getEntries(cache)) {
+            var bytes = Files.readAllBytes(entry);
+            Files.write(entry, Arrays.copyOf(bytes, bytes.length / 2));
+        }
+
+        assertArrayEquals(classBytes, compile(new JmmCompiler(cache), config));
+    }
+}
@@ -0,0 +1,59 @@
+package pt.up.fe.comp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import pt.up.fe.specs.util.SpecsStrings;
+
+/**
+ * Long chains of binary operators, which every stage must handle without a level of recursion per operator. The tests
+ * run on the thread of the test runner, with the default stack size.
+ */
+public class DeepExpressionTest {
+
+    private static final int OPERATORS = 10_000;
+
+    private static String getChainProgram(String operand) {
+        StringBuilder expression = new StringBuilder(operand);
+        for (int i = 0; i < OPERATORS; i++) {
+            expression.append(" + ").append(operand);
+        }
+
+        return "import io;\n" +
+                "class DeepChain {\n" +
+                "\tpublic static void main(String[] args) {\n" +
+                "\t\tint a;\n" +
+                "\t\tint b;\n" +
+                "\t\ta = 1;\n" +
+                "\t\tb = " + expression + ";\n" +
+                "\t\tio.println(b);\n" +
+                "\t}\n" +
+                "}\n";
+    }
+
+    @Test
+    public void analysis() {
+        var semanticsResult = TestUtils.analyse(getChainProgram("a"));
+        TestUtils.noErrors(semanticsResult);
+    }
+
+    @Test
+    public void ollir() {
+        var ollirResult = TestUtils.optimize(getChainProgram("a"));
+        TestUtils.noErrors(ollirResult);
+    }
+
+    @Test
+    public void constantFolding() {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "true");
+
+        var jasminResult = TestUtils.backend(getChainProgram("1"), config);
+        TestUtils.noErrors(jasminResult);
+        assertEquals(String.valueOf(OPERATORS + 1), SpecsStrings.normalizeFileContents(jasminResult.run(), true));
+    }
+}
@@ -0,0 +1,121 @@
+package pt.up.fe.comp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import pt.up.fe.comp.diagnostics.CollectingSink;
+import pt.up.fe.comp.diagnostics.ConsoleSink;
+import pt.up.fe.comp.diagnostics.Diagnostics;
+
+/**
+ * Debug output is only rendered and written with the 'debug' option, to the sink or folder it selects.
+ */
+public class DiagnosticsTest {
+
+    private static final String CODE = "import io;\n" +
+            "class Debugged {\n" +
+            "\tpublic static void main(String[] args) {\n" +
+            "\t\tint a;\n" +
+            "\t\ta = 2;\n" +
+            "\t\tio.println(a);\n" +
+            "\t}\n" +
+            "}\n";
+
+    private static Map<String, String> getConfig(String debug, File debugOutput) {
+        Map<String, String> config = new HashMap<>();
+        config.put("debug", debug);
+        config.put("optimize", "true");
+        config.put("registerAllocation", "0");
+        if (debugOutput != null) {
+            config.put("debugOutput", debugOutput.getPath());
+        }
+        return config;
+    }
+
+    private static String[] listWorkingDir() throws IOException {
+        var files = new File(".").getCanonicalFile().list();
+        Arrays.sort(files);
+        return files;
+    }
+
+    @Test
+    public void disabledNeverRendersContent() throws IOException {
+        var folder = new File(Files.createTempDirectory("debug").toFile(), "output");
+
+        for (var config : Arrays.asList(null, new HashMap<String, String>(), getConfig("false", null),
+                getConfig("false", folder))) {
+            var diagnostics = Diagnostics.fromConfig(config);
+
+            assertFalse(diagnostics.isEnabled());
+            diagnostics.emit("stage", "name", () -> {
+                fail("Content rendered without 'debug'");
+                return "";
+            });
+        }
+
+        assertFalse(folder.exists());
+    }
+
+    @Test
+    public void compilationWithoutDebugDoesNoIo() throws IOException {
+        var folder = new File(Files.createTempDirectory("debug").toFile(), "output");
+        var sink = new CollectingSink();
+        var workingDir = listWorkingDir();
+
+        // Neither the default sink, nor the one of the thread, nor the folder receive anything
+        Diagnostics.setDefaultSink(sink);
+        try {
+            for (var debugOutput : Arrays.asList(null, folder)) {
+                var jasminResult = Diagnostics.withSink(sink,
+                        () -> TestUtils.backend(CODE, getConfig("false", debugOutput)));
+                TestUtils.noErrors(jasminResult);
+            }
+        } finally {
+            Diagnostics.setDefaultSink(new ConsoleSink());
+        }
+
+        assertEquals(0, sink.getEntries().size());
+        assertFalse(folder.exists());
+        assertArrayEquals(workingDir, listWorkingDir());
+    }
+
+    @Test
+    public void debugEmitsEachStage() {
+        var sink = new CollectingSink();
+
+        var jasminResult = Diagnostics.withSink(sink, () -> TestUtils.backend(CODE, getConfig("true", null)));
+        TestUtils.noErrors(jasminResult);
+
+        Set<String> stages = sink.getEntries().stream()
+                .map(CollectingSink.Entry::getStage)
+                .collect(Collectors.toSet());
+        assertTrue(stages.toString(), stages.containsAll(Set.of("parse", "toOllir", "toJasmin")));
+    }
+
+    @Test
+    public void debugOutputWritesFiles() throws IOException {
+        var folder = Files.createTempDirectory("debug").toFile();
+        folder.deleteOnExit();
+
+        var jasminResult = TestUtils.backend(CODE, getConfig("true", folder));
+        TestUtils.noErrors(jasminResult);
+
+        var files = Arrays.asList(folder.list());
+        assertTrue(files.toString(), files.contains("toOllir-Debugged.ollir"));
+        assertTrue(files.toString(), files.contains("toJasmin-Debugged.j"));
+    }
+}
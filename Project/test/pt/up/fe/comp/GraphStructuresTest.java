@@ -0,0 +1,196 @@
+package pt.up.fe.comp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import pt.up.fe.comp.ollir.optimization.graph.BitMatrix;
+import pt.up.fe.comp.ollir.optimization.graph.DegreeBuckets;
+import pt.up.fe.comp.ollir.optimization.graph.IntList;
+
+/**
+ * The primitive structures of the interference graph: the triangular bit matrix of edges, the adjacency lists and the
+ * degree buckets used to simplify it.
+ */
+public class GraphStructuresTest {
+
+    private static List<Integer> getBucket(DegreeBuckets buckets, int degree) {
+        List<Integer> result = new ArrayList<>();
+        for (int node = buckets.getFirst(degree); node != -1; node = buckets.getNext(node)) {
+            result.add(node);
+        }
+        return result;
+    }
+
+    @Test
+    public void bitMatrixIsSymmetricWithoutDiagonal() {
+        int size = 100;
+        var matrix = new BitMatrix(size);
+
+        for (int i = 0; i < size; i++) {
+            matrix.set(i, (i * 7 + 3) % size);
+            matrix.set(i, i);
+        }
+
+        for (int i = 0; i < size; i++) {
+            assertFalse(matrix.get(i, i));
+
+            int j = (i * 7 + 3) % size;
+            if (i == j) continue;
+
+            assertTrue(matrix.get(i, j));
+            assertTrue(matrix.get(j, i));
+        }
+
+        assertFalse(matrix.get(0, 1));
+        assertFalse(matrix.get(size - 1, size - 2));
+    }
+
+    @Test
+    public void bitMatrixGivesEachPairItsOwnBit() {
+        // 20 nodes have 190 pairs, so the bits span three longs
+        int size = 20;
+
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < i; j++) {
+                var matrix = new BitMatrix(size);
+                matrix.set(j, i);
+
+                for (int row = 0; row < size; row++) {
+                    for (int column = 0; column < size; column++) {
+                        boolean expected = (row == i && column == j) || (row == j && column == i);
+                        assertEquals(i + "," + j + " at " + row + "," + column, expected, matrix.get(row, column));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void bitMatrixOfFewNodes() {
+        new BitMatrix(0);
+
+        var single = new BitMatrix(1);
+        single.set(0, 0);
+        assertFalse(single.get(0, 0));
+
+        var pair = new BitMatrix(2);
+        assertFalse(pair.get(1, 0));
+        pair.set(1, 0);
+        assertTrue(pair.get(0, 1));
+    }
+
+    @Test
+    public void bitMatrixCopies() {
+        var matrix = new BitMatrix(10);
+        matrix.set(2, 7);
+
+        var copy = new BitMatrix(matrix);
+        matrix.set(3, 4);
+        assertTrue(copy.get(7, 2));
+        assertFalse(copy.get(3, 4));
+
+        matrix.copyFrom(copy);
+        assertTrue(matrix.get(2, 7));
+        assertFalse(matrix.get(4, 3));
+    }
+
+    @Test
+    public void intListGrows() {
+        var list = new IntList();
+        for (int i = 0; i < 1000; i++) {
+            list.add(i * 3);
+        }
+
+        assertEquals(1000, list.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i * 3, list.get(i));
+        }
+    }
+
+    @Test
+    public void intListTruncates() {
+        var list = new IntList();
+        for (int i = 0; i < 10; i++) {
+            list.add(i);
+        }
+
+        list.truncate(20);
+        assertEquals(10, list.size());
+
+        list.truncate(4);
+        list.add(40);
+        assertEquals(5, list.size());
+        assertEquals(3, list.get(3));
+        assertEquals(40, list.get(4));
+    }
+
+    @Test
+    public void bucketsKeepNodesByDegree() {
+        var buckets = new DegreeBuckets(5, 3);
+        buckets.add(0, 2);
+        buckets.add(1, 3);
+        buckets.add(2, 2);
+        buckets.add(4, 1);
+
+        assertEquals(4, buckets.size());
+        assertFalse(buckets.contains(3));
+        assertEquals(1, buckets.getMinDegree());
+        assertEquals(3, buckets.getMaxDegree());
+
+        // The last node added comes first
+        assertEquals(List.of(2, 0), getBucket(buckets, 2));
+        assertEquals(List.of(1), getBucket(buckets, 3));
+        assertEquals(List.of(), getBucket(buckets, 0));
+    }
+
+    @Test
+    public void decrementMovesANodeToTheLowerBucket() {
+        var buckets = new DegreeBuckets(4, 3);
+        buckets.add(0, 3);
+        buckets.add(1, 3);
+        buckets.add(2, 3);
+        assertEquals(3, buckets.getMinDegree());
+
+        // From the middle, the tail and then the head of a list
+        buckets.decrement(1);
+        buckets.decrement(0);
+        assertEquals(List.of(2), getBucket(buckets, 3));
+        assertEquals(List.of(0, 1), getBucket(buckets, 2));
+        assertEquals(2, buckets.getDegree(1));
+        assertEquals(2, buckets.getMinDegree());
+
+        buckets.decrement(0);
+        buckets.decrement(0);
+        assertEquals(List.of(1), getBucket(buckets, 2));
+        assertEquals(0, buckets.getDegree(0));
+        assertEquals(0, buckets.getMinDegree());
+    }
+
+    @Test
+    public void removeUnlinksANode() {
+        var buckets = new DegreeBuckets(3, 1);
+        buckets.add(0, 0);
+        buckets.add(1, 1);
+        buckets.add(2, 1);
+
+        buckets.remove(0);
+        assertFalse(buckets.contains(0));
+        assertEquals(List.of(), getBucket(buckets, 0));
+        assertEquals(1, buckets.getMinDegree());
+
+        buckets.remove(2);
+        assertEquals(List.of(1), getBucket(buckets, 1));
+
+        // As in simplify: a removed node lowers the degree of its remaining neighbours
+        buckets.decrement(1);
+        assertEquals(0, buckets.getMinDegree());
+        buckets.remove(1);
+        assertTrue(buckets.isEmpty());
+    }
+}
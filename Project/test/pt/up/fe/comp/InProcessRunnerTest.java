@@ -0,0 +1,153 @@
+package pt.up.fe.comp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.member;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.simple;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import pt.up.fe.comp.jasmin.StackAnalysis;
+import pt.up.fe.comp.jasmin.bytecode.ClassFileWriter;
+import pt.up.fe.comp.jasmin.model.JvmClass;
+import pt.up.fe.comp.jasmin.model.JvmCode;
+import pt.up.fe.comp.jasmin.model.JvmMethod;
+import pt.up.fe.comp.jasmin.model.JvmOpcode;
+import pt.up.fe.comp.jmm.jasmin.AssembledClass;
+import pt.up.fe.comp.jmm.jasmin.InProcessRunner;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+/**
+ * Programs run by {@link InProcessRunner}, written as a main method that calls one of the {@link Programs}, so they
+ * can do what generated code cannot, such as ignoring interruptions.
+ */
+public class InProcessRunnerTest {
+
+    private static final long CPU_TIME_LIMIT_NS = 100_000_000;
+
+    /**
+     * Loaded again by the class loader of each run, from the classpath of the test classes.
+     */
+    public static class Programs {
+
+        private static final long SPIN_NS = 5_000_000_000L;
+
+        public static void echo() throws IOException, InterruptedException {
+            var input = new BufferedReader(new InputStreamReader(System.in)).readLine();
+
+            // Threads started by the program write to the streams of the program
+            var child = new Thread(() -> System.err.println("err " + input));
+            child.start();
+            child.join();
+
+            System.out.println("out " + input);
+        }
+
+        public static void sleep() throws InterruptedException {
+            Thread.sleep(60_000);
+        }
+
+        public static void spin() {
+            long end = System.nanoTime() + SPIN_NS;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private static AssembledClass newMain(String className, String program) {
+        var code = new JvmCode()
+                .append(member(JvmOpcode.INVOKESTATIC, "pt/up/fe/comp/InProcessRunnerTest$Programs", program, "()V"))
+                .append(simple(JvmOpcode.RETURN));
+
+        var main = new JvmMethod(List.of("public", "static"), "main", "([Ljava/lang/String;)V", code);
+        main.setMaxStack(StackAnalysis.getMaxStack(code));
+        main.setMaxLocals(1);
+
+        var jvmClass = new JvmClass(List.of("public"), className, "java/lang/Object");
+        jvmClass.setDefaultConstructor(true);
+        jvmClass.getMethods().add(main);
+
+        return new AssembledClass(className, new ClassFileWriter().write(jvmClass));
+    }
+
+    private static List<String> getClasspath() {
+        try {
+            var location = Programs.class.getProtectionDomain().getCodeSource().getLocation();
+            return List.of(new File(location.toURI()).getPath());
+        } catch (URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static ProcessOutputAsString run(String program, String input) {
+        return new InProcessRunner(CPU_TIME_LIMIT_NS, 0)
+                .run(newMain("Run_" + program, program), Collections.emptyList(), getClasspath(), input);
+    }
+
+    @Test
+    public void streamsAreRedirectedPerThread() throws Exception {
+        int runs = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(runs);
+
+        try {
+            List<Future<ProcessOutputAsString>> outputs = new ArrayList<>();
+            for (int i = 0; i < runs; i++) {
+                var input = "input" + i;
+                outputs.add(executor.submit(() -> run("echo", input)));
+            }
+
+            for (int i = 0; i < runs; i++) {
+                var output = outputs.get(i).get();
+                assertEquals(0, (int) output.getReturnValue());
+                assertEquals("out input" + i, output.getStdOut().strip());
+                assertEquals("err input" + i, output.getStdErr().strip());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void waitingProgramIsStopped() {
+        long start = System.currentTimeMillis();
+        var output = run("sleep", null);
+
+        assertEquals(-1, (int) output.getReturnValue());
+        assertTrue(output.getStdErr(), output.getStdErr().contains("Program stopped"));
+        assertTrue(System.currentTimeMillis() - start < 10_000);
+    }
+
+    @Test
+    public void runningProgramIsNotStopped() {
+        try {
+            run("spin", null);
+            fail("Expected the program to fail, as it cannot be stopped");
+        } catch (InProcessRunner.NotStoppedException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("could not be stopped"));
+        }
+
+        // The thread left running yields to the others
+        var workers = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("jmm-Run_spin") && thread.isAlive())
+                .collect(Collectors.toList());
+        for (var worker : workers) {
+            assertTrue(worker.isDaemon());
+            assertEquals(Thread.MIN_PRIORITY, worker.getPriority());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package pt.up.fe.comp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+import org.junit.Test;
+
+import pt.up.fe.comp.jasmin.InstructionSelector;
+import pt.up.fe.comp.jasmin.JvmGenerator;
+import pt.up.fe.comp.jasmin.bytecode.ClassFileWriter;
+import pt.up.fe.comp.jasmin.model.JvmClass;
+import pt.up.fe.comp.jasmin.model.JvmMethod;
+import pt.up.fe.comp.jasmin.optimization.PeepholeOptimizer;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Instructions chosen by {@link InstructionSelector}, in the code generated by {@link JvmGenerator}, which is then
+ * loaded, and run when it has a method to run.
+ */
+public class InstructionSelectorTest {
+
+    /**
+     * Instruction expected in the code of each fixture, as written by {@link PeepholeOptimizerTest#toText}.
+     */
+    private static final Map<String, String> FIXTURES = Map.ofEntries(
+            Map.entry("InstSelection_iconst_0.jmm", "iconst 0"),
+            Map.entry("InstSelection_iconst_5.jmm", "iconst 5"),
+            Map.entry("InstSelection_bipush_6.jmm", "bipush 6"),
+            Map.entry("InstSelection_bipush_127.jmm", "bipush 127"),
+            Map.entry("InstSelection_sipush_128.jmm", "sipush 128"),
+            Map.entry("InstSelection_sipush_32767.jmm", "sipush 32767"),
+            Map.entry("InstSelection_ldc_32768.jmm", "ldc 32768"),
+            Map.entry("InstSelection_if_lt.jmm", "(iflt|ifge) \\S+"),
+            Map.entry("InstSelection_iinc.jmm", "iinc \\d+ 1"),
+            Map.entry("InstSelection_load_1.jmm", "iload 1"),
+            Map.entry("InstSelection_load_3.jmm", "iload 3"),
+            Map.entry("InstSelection_load_4.jmm", "iload 4"),
+            Map.entry("InstSelection_store_1.jmm", "istore 1"),
+            Map.entry("InstSelection_store_3.jmm", "istore 3"),
+            Map.entry("InstSelection_store_4.jmm", "istore 4"));
+
+    private static final List<PeepholeOptimizer> PEEPHOLES = List.of(PeepholeOptimizer.disabled(),
+            new PeepholeOptimizer(PeepholeOptimizer.getDefaultRules()));
+
+    private static String getIncrementClass(String assignment) {
+        return "Increments {\n" +
+                "    .construct Increments().V {\n" +
+                "        invokespecial(this, \"<init>\").V;\n" +
+                "    }\n" +
+                "\n" +
+                "    .method public static run(n.i32).i32 {\n" +
+                "a.i32 :=.i32 $1.n.i32;\n" +
+                "a.i32 :=.i32 " + assignment + ";\n" +
+                "ret.i32 a.i32;\n" +
+                "    }\n" +
+                "}\n";
+    }
+
+    private static JvmMethod getMethod(JvmClass jvmClass, String name) {
+        return jvmClass.getMethods().stream()
+                .filter(method -> method.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static Class<?> load(JvmClass jvmClass) {
+        return new ClassFileWriterTest.ClassBytesLoader().load(jvmClass.getName(),
+                new ClassFileWriter().write(jvmClass));
+    }
+
+    /**
+     * Checks the instruction selected for the assignment to 'a', and the value returned when 'a' starts as 10.
+     *
+     * @param increment
+     *            the increment of the expected iinc, or null if the assignment must not use iinc
+     */
+    private static void testIncrement(String assignment, Integer increment, IntUnaryOperator expected)
+            throws ReflectiveOperationException {
+        var ollirClass = new OllirResult(getIncrementClass(assignment), new HashMap<>()).getOllirClass();
+        var jvmClass = new JvmGenerator().generate(ollirClass);
+        var code = PeepholeOptimizerTest.toText(getMethod(jvmClass, "run").getCode());
+
+        var increments = code.stream().filter(instruction -> instruction.startsWith("iinc ")).toList();
+        if (increment == null) {
+            assertEquals(assignment + ": " + code, List.of(), increments);
+        } else {
+            assertEquals(assignment + ": " + code, 1, increments.size());
+            assertTrue(assignment + ": " + code, increments.get(0).endsWith(" " + increment));
+        }
+
+        int result = (Integer) load(jvmClass).getMethod("run", int.class).invoke(null, 10);
+        assertEquals(assignment, expected.applyAsInt(10), result);
+    }
+
+    @Test
+    public void constants() {
+        Map<Integer, String> constants = Map.ofEntries(
+                Map.entry(-1, "iconst -1"),
+                Map.entry(5, "iconst 5"),
+                Map.entry(-2, "bipush -2"),
+                Map.entry(6, "bipush 6"),
+                Map.entry(-128, "bipush -128"),
+                Map.entry(127, "bipush 127"),
+                Map.entry(-129, "sipush -129"),
+                Map.entry(128, "sipush 128"),
+                Map.entry(-32768, "sipush -32768"),
+                Map.entry(32767, "sipush 32767"),
+                Map.entry(-32769, "ldc -32769"),
+                Map.entry(32768, "ldc 32768"));
+
+        for (var constant : constants.entrySet()) {
+            assertEquals(constant.getValue(),
+                    PeepholeOptimizerTest.toText(InstructionSelector.loadConstant(constant.getKey())));
+        }
+    }
+
+    @Test
+    public void increments() throws ReflectiveOperationException {
+        testIncrement("a.i32 +.i32 3.i32", 3, a -> a + 3);
+        testIncrement("3.i32 +.i32 a.i32", 3, a -> 3 + a);
+        testIncrement("a.i32 -.i32 3.i32", -3, a -> a - 3);
+    }
+
+    @Test
+    public void notIncrements() throws ReflectiveOperationException {
+        // Subtracting the variable from the constant, adding to another variable, and other operations
+        testIncrement("3.i32 -.i32 a.i32", null, a -> 3 - a);
+        testIncrement("$1.n.i32 +.i32 1.i32", null, n -> n + 1);
+        testIncrement("a.i32 *.i32 1.i32", null, a -> a);
+    }
+
+    @Test
+    public void incrementBounds() throws ReflectiveOperationException {
+        // The wide iinc takes a signed 16-bit increment
+        testIncrement("a.i32 +.i32 32767.i32", 32767, a -> a + 32767);
+        testIncrement("a.i32 +.i32 32768.i32", null, a -> a + 32768);
+        testIncrement("a.i32 -.i32 32768.i32", -32768, a -> a - 32768);
+        testIncrement("a.i32 -.i32 32769.i32", null, a -> a - 32769);
+    }
+
+    @Test
+    public void instSelectionFixtures() {
+        for (var fixture : FIXTURES.entrySet()) {
+            var code = SpecsIo.getResource("fixtures/public/cpf/5_optimizations/inst_selection/" + fixture.getKey());
+
+            for (var peephole : PEEPHOLES) {
+                var ollirResult = TestUtils.optimize(code);
+                TestUtils.noErrors(ollirResult);
+
+                var jvmClass = new JvmGenerator(peephole).generate(ollirResult.getOllirClass());
+
+                var instructions = jvmClass.getMethods().stream()
+                        .flatMap(method -> PeepholeOptimizerTest.toText(method.getCode()).stream())
+                        .toList();
+                assertTrue(fixture.getKey() + ": " + instructions,
+                        instructions.stream().anyMatch(instruction -> instruction.matches(fixture.getValue())));
+
+                // Loading the class runs the verifier
+                load(jvmClass);
+            }
+        }
+    }
+}
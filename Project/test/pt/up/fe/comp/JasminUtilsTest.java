@@ -0,0 +1,98 @@
+package pt.up.fe.comp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import pt.up.fe.comp.jmm.jasmin.JasminUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Jasmin code assembled in memory by {@link JasminUtils}, compared with the classes it assembles from files.
+ */
+public class JasminUtilsTest {
+
+    private static final String ANSWER = ".class public pkg/Answer\n" +
+            ".super java/lang/Object\n" +
+            "\n" +
+            ".method public static answer()I\n" +
+            "    .limit stack 1\n" +
+            "    .limit locals 0\n" +
+            "    bipush 42\n" +
+            "    ireturn\n" +
+            ".end method\n";
+
+    private static File newFolder() throws IOException {
+        var folder = Files.createTempDirectory("jasmin").toFile();
+        folder.deleteOnExit();
+        return folder;
+    }
+
+    @Test
+    public void assemblesInMemory() throws ReflectiveOperationException {
+        var assembledClass = JasminUtils.assemble(ANSWER, "Answer.j");
+
+        assertEquals("pkg/Answer", assembledClass.getClassName());
+        assertEquals("pkg.Answer", assembledClass.getBinaryName());
+
+        var loadedClass = new ClassFileWriterTest.ClassBytesLoader().load(assembledClass.getBinaryName(),
+                assembledClass.getBytes());
+        assertEquals(42, loadedClass.getMethod("answer").invoke(null));
+    }
+
+    @Test
+    public void writesNoFiles() throws IOException {
+        var workingDir = new File(".").getCanonicalFile();
+        var before = workingDir.list();
+        Arrays.sort(before);
+
+        JasminUtils.assemble(ANSWER, "Answer.j");
+
+        var after = workingDir.list();
+        Arrays.sort(after);
+        assertArrayEquals(before, after);
+        assertFalse(new File(workingDir, "pkg/Answer.class").exists());
+    }
+
+    @Test
+    public void sameBytesAsAssemblingAFile() throws IOException {
+        var folder = newFolder();
+        var jasminFile = new File(folder, "Answer.j");
+        SpecsIo.write(jasminFile, ANSWER);
+
+        var classFile = JasminUtils.assemble(jasminFile, folder);
+        assertEquals(new File(folder, "pkg/Answer.class"), classFile);
+
+        assertArrayEquals(Files.readAllBytes(classFile.toPath()), JasminUtils.assemble(ANSWER, "Answer.j").getBytes());
+    }
+
+    @Test
+    public void writeUsesThePackageFolder() throws IOException {
+        var folder = newFolder();
+        var assembledClass = JasminUtils.assemble(ANSWER, "Answer.j");
+
+        var classFile = JasminUtils.write(assembledClass, folder);
+
+        assertEquals(new File(folder, "pkg/Answer.class"), classFile);
+        assertArrayEquals(assembledClass.getBytes(), Files.readAllBytes(classFile.toPath()));
+    }
+
+    @Test
+    public void invalidCodeFails() {
+        try {
+            JasminUtils.assemble(ANSWER.replace("bipush 42", "bipush"), "Answer.j");
+            fail("Expected the Jasmin code not to assemble");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().toLowerCase().contains("error"));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package pt.up.fe.comp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.OllirErrorException;
+
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.ollir.optimization.LinearScan;
+import pt.up.fe.comp.ollir.optimization.LinearScan.Interval;
+import pt.up.fe.comp.ollir.optimization.LivenessAnalysis;
+
+/**
+ * Intervals of the linear-scan allocator, the registers given back when they expire and the spills past k registers.
+ */
+public class LinearScanTest {
+
+    private static final String SCAN_CLASS = "Scan {\n" +
+            "    .construct Scan().V {\n" +
+            "        invokespecial(this, \"<init>\").V;\n" +
+            "    }\n" +
+            "\n" +
+            "    .method public static chain(n.i32).i32 {\n" +
+            "a.i32 :=.i32 $1.n.i32 +.i32 1.i32;\n" +
+            "b.i32 :=.i32 a.i32 +.i32 1.i32;\n" +
+            "c.i32 :=.i32 b.i32 +.i32 1.i32;\n" +
+            "ret.i32 c.i32;\n" +
+            "    }\n" +
+            "\n" +
+            "    .method public static pressure(n.i32).i32 {\n" +
+            "a.i32 :=.i32 $1.n.i32 +.i32 1.i32;\n" +
+            "b.i32 :=.i32 a.i32 +.i32 2.i32;\n" +
+            "c.i32 :=.i32 b.i32 +.i32 a.i32;\n" +
+            "d.i32 :=.i32 c.i32 *.i32 b.i32;\n" +
+            "e.i32 :=.i32 d.i32 +.i32 a.i32;\n" +
+            "f.i32 :=.i32 e.i32 +.i32 b.i32;\n" +
+            "g.i32 :=.i32 f.i32 +.i32 c.i32;\n" +
+            "h.i32 :=.i32 g.i32 +.i32 d.i32;\n" +
+            "ret.i32 h.i32;\n" +
+            "    }\n" +
+            "}\n";
+
+    private static LinearScan allocate(String methodName, int k, boolean minimizeReg) throws OllirErrorException {
+        ClassUnit ollirClass = new OllirResult(SCAN_CLASS, new HashMap<>()).getOllirClass();
+        ollirClass.checkMethodLabels();
+        ollirClass.buildCFGs();
+        ollirClass.buildVarTables();
+
+        Method method = ollirClass.getMethods().stream()
+                .filter(candidate -> candidate.getMethodName().equals(methodName))
+                .findFirst()
+                .orElseThrow();
+
+        var linearScan = new LinearScan(new LivenessAnalysis().analyse(method), method);
+        linearScan.allocate(k, minimizeReg);
+        return linearScan;
+    }
+
+    private static Map<String, Interval> getIntervals(LinearScan linearScan) {
+        return linearScan.getIntervals().stream().collect(Collectors.toMap(Interval::getName, Function.identity()));
+    }
+
+    private static void assertInterval(Interval interval, int start, int end) {
+        assertEquals(interval.getName() + " start", start, interval.getStart());
+        assertEquals(interval.getName() + " end", end, interval.getEnd());
+    }
+
+    @Test
+    public void readsAreEvenAndWritesOddPositions() throws OllirErrorException {
+        var intervals = getIntervals(allocate("chain", 0, true));
+
+        // Instruction i reads at 2 * i and writes at 2 * i + 1, so 'a' ends when 'b' reads it, before 'b' starts
+        assertEquals(3, intervals.size());
+        assertInterval(intervals.get("a"), 1, 2);
+        assertInterval(intervals.get("b"), 3, 4);
+        assertInterval(intervals.get("c"), 5, 6);
+    }
+
+    @Test
+    public void intervalsThatOnlyTouchShareARegister() throws OllirErrorException {
+        var linearScan = allocate("chain", 0, true);
+
+        // The parameter keeps register 0, and each local reuses the register of the one it is computed from
+        for (var interval : linearScan.getIntervals()) {
+            assertEquals(interval.getName(), 1, interval.getRegister());
+        }
+        assertEquals(2, linearScan.getNumberOfRegisters());
+    }
+
+    @Test
+    public void expiredIntervalsGiveTheirRegistersBack() throws OllirErrorException {
+        var linearScan = allocate("pressure", 0, true);
+        var intervals = getIntervals(linearScan);
+
+        assertInterval(intervals.get("a"), 1, 8);
+        assertInterval(intervals.get("d"), 7, 14);
+        assertInterval(intervals.get("e"), 9, 10);
+
+        // 'a' expires before 'e' starts, while 'b', 'c' and 'd' are still active
+        assertEquals(intervals.get("a").getRegister(), intervals.get("e").getRegister());
+        for (var name : List.of("b", "c", "d")) {
+            assertNotEquals(name, intervals.get(name).getRegister(), intervals.get("e").getRegister());
+        }
+
+        // Registers given back are reused lowest first
+        assertEquals(1, intervals.get("h").getRegister());
+        assertEquals(5, linearScan.getNumberOfRegisters());
+        assertEquals(0, linearScan.getNumberOfSpilled());
+    }
+
+    @Test
+    public void registersPastKAreSpilled() throws OllirErrorException {
+        // 'a' to 'd' are live at once and take registers 1 to 4, the last 3 of them past k = 2
+        var linearScan = allocate("pressure", 2, false);
+
+        assertEquals(5, linearScan.getNumberOfRegisters());
+        assertEquals(3, linearScan.getNumberOfSpilled());
+
+        var withinK = allocate("pressure", 5, false);
+        assertEquals(5, withinK.getNumberOfRegisters());
+        assertEquals(0, withinK.getNumberOfSpilled());
+    }
+}
@@ -0,0 +1,171 @@
+package pt.up.fe.comp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import pt.up.fe.comp.ast.NodePositionAnnotator;
+import pt.up.fe.comp.ast.Operator;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.SpecsSystem;
+
+/**
+ * Attributes kept as text or int and read as the other type, or as an enum, on built, parsed and copied nodes.
+ */
+public class NodeAttributesTest {
+
+    private enum Sign {
+        ADD,
+        SUB
+    }
+
+    private static final String CODE = "class Attributes extends Base {\n" +
+            "\tpublic int foo(int a) {\n" +
+            "\t\treturn a + 1;\n" +
+            "\t}\n" +
+            "}\n";
+
+    @Test
+    public void intReadAsString() {
+        var node = new JmmNodeImpl("Terminal");
+        node.put("line", 7);
+        node.put("value", -12);
+
+        assertEquals("7", node.get("line"));
+        assertEquals(Optional.of("-12"), node.getOptional("value"));
+        assertEquals(7, node.getInt("line"));
+        assertEquals(-12, node.getInt("value"));
+        assertEquals(List.of("line", "value"), node.getAttributes());
+
+        var copy = JmmNode.fromJson(node.toJson());
+        assertEquals("7", copy.get("line"));
+        assertEquals(-12, copy.getInt("value"));
+    }
+
+    @Test
+    public void stringReadAsInt() {
+        var node = new JmmNodeImpl("Terminal");
+        node.put("value", "42");
+
+        assertEquals(42, node.getInt("value"));
+        assertEquals("42", node.get("value"));
+    }
+
+    @Test
+    public void replacedValues() {
+        var node = new JmmNodeImpl("Terminal");
+        node.put("value", 3);
+        node.put("value", "4");
+        assertEquals(4, node.getInt("value"));
+
+        node.put("value", 5);
+        assertEquals("5", node.get("value"));
+        assertEquals(5, node.getInt("value"));
+
+        assertEquals(List.of("value"), node.getAttributes());
+    }
+
+    @Test
+    public void manyAttributes() {
+        var node = new JmmNodeImpl("MethodDeclaration");
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            node.put("attribute" + i, i);
+            names.add("attribute" + i);
+        }
+
+        assertEquals(names, node.getAttributes());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, node.getInt("attribute" + i));
+        }
+    }
+
+    @Test
+    public void enumIsKept() {
+        var node = new JmmNodeImpl("BinOp");
+        node.put("op", "ADD");
+
+        assertSame(Operator.ADD, Operator.of(node));
+        assertSame(Operator.ADD, Operator.of(node));
+        assertEquals("ADD", node.get("op"));
+
+        // The kept constant is of another enum, so the text is looked up again
+        assertSame(Sign.ADD, node.getEnum("op", Sign.class));
+        assertSame(Operator.ADD, Operator.of(node));
+
+        // Replacing the value replaces the kept constant
+        node.put("op", "SUB");
+        assertSame(Operator.SUB, Operator.of(node));
+        assertEquals("SUB", node.get("op"));
+    }
+
+    @Test
+    public void missingAttributes() {
+        var node = new JmmNodeImpl("Terminal");
+        node.put("value", 1);
+
+        assertEquals(Optional.empty(), node.getOptional("line"));
+        assertThrows(() -> node.get("line"));
+        assertThrows(() -> node.getInt("line"));
+        assertThrows(() -> node.getEnum("line", Operator.class));
+        assertThrows(() -> node.getInt("missing"));
+    }
+
+    @Test
+    public void notAnInt() {
+        var node = new JmmNodeImpl("Identifier");
+        node.put("name", "a");
+
+        assertThrows(() -> node.getInt("name"));
+        assertThrows(() -> node.getEnum("name", Operator.class));
+    }
+
+    @Test
+    public void parsedNodes() {
+        var parser = new JmmGrammarParser(SpecsIo.toInputStream(CODE));
+        SpecsSystem.invoke(parser, "Start");
+        var root = (JmmNode) parser.rootNode();
+        new NodePositionAnnotator().visit(root);
+
+        var classDeclaration = root.getJmmChild(0);
+        assertFalse(classDeclaration instanceof JmmNodeImpl);
+        assertEquals(Optional.of("Attributes"), classDeclaration.getOptional("name"));
+        assertEquals(Optional.of("Base"), classDeclaration.getOptional("super"));
+        assertEquals(Optional.empty(), classDeclaration.getOptional("missing"));
+        assertEquals(1, classDeclaration.getInt("line"));
+        assertEquals(Optional.of("1"), classDeclaration.getOptional("line"));
+
+        var returnValue = classDeclaration.getJmmChild(0).getChildren().stream()
+                .filter(child -> child.getKind().equals("ReturnStatement"))
+                .findFirst()
+                .orElseThrow()
+                .getJmmChild(0);
+        assertSame(Operator.ADD, Operator.of(returnValue));
+        assertEquals(3, returnValue.getInt("line"));
+
+        // Copies, such as the root of a parser result, keep the values
+        var copy = TestUtils.parse(CODE).getRootNode().getJmmChild(0);
+        assertTrue(copy instanceof JmmNodeImpl);
+        assertEquals(Optional.of("Base"), copy.getOptional("super"));
+        assertEquals(1, copy.getInt("line"));
+    }
+
+    private static void assertThrows(Runnable read) {
+        try {
+            read.run();
+        } catch (RuntimeException e) {
+            return;
+        }
+
+        throw new AssertionError("Expected the read to fail");
+    }
+}
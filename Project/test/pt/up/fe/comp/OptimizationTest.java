@@ -1,7 +1,13 @@
 package pt.up.fe.comp;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
 import org.junit.Test;
 import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.SpecsStrings;
 
 public class OptimizationTest {
 
@@ -11,4 +17,27 @@ public class OptimizationTest {
         TestUtils.noErrors(ollirResult);
         //System.out.println("\n---------\n");
     }
+
+    @Test
+    public void arrayIndexKeepsAssignment() {
+        // 'i' is only used as the index of an array assignment, and is not a constant that propagation would replace
+        var code = "import io;\n" +
+                "class ArrayIndex {\n" +
+                "\tpublic static void main(String[] args) {\n" +
+                "\t\tint[] arr;\n" +
+                "\t\tint i;\n" +
+                "\t\tarr = new int[3];\n" +
+                "\t\ti = arr.length - 1;\n" +
+                "\t\tarr[i] = 5;\n" +
+                "\t\tio.println(arr[2]);\n" +
+                "\t}\n" +
+                "}\n";
+
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "true");
+
+        var jasminResult = TestUtils.backend(code, config);
+        TestUtils.noErrors(jasminResult);
+        assertEquals("5", SpecsStrings.normalizeFileContents(jasminResult.run(), true));
+    }
 }
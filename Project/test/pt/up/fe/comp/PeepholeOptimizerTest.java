@@ -0,0 +1,300 @@
+package pt.up.fe.comp;
+
+import static org.junit.Assert.assertEquals;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.branch;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.label;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.simple;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.withValue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import pt.up.fe.comp.jasmin.StackAnalysis;
+import pt.up.fe.comp.jasmin.bytecode.ClassFileWriter;
+import pt.up.fe.comp.jasmin.model.JvmClass;
+import pt.up.fe.comp.jasmin.model.JvmCode;
+import pt.up.fe.comp.jasmin.model.JvmInstruction;
+import pt.up.fe.comp.jasmin.model.JvmMethod;
+import pt.up.fe.comp.jasmin.model.JvmOpcode;
+import pt.up.fe.comp.jasmin.optimization.BooleanBranchRule;
+import pt.up.fe.comp.jasmin.optimization.BranchToNextRule;
+import pt.up.fe.comp.jasmin.optimization.CompareBranchRule;
+import pt.up.fe.comp.jasmin.optimization.LoadStoreRule;
+import pt.up.fe.comp.jasmin.optimization.PeepholeOptimizer;
+import pt.up.fe.comp.jasmin.optimization.PeepholeRule;
+
+/**
+ * Each {@link PeepholeRule} over short sequences of instructions, and the default rules over code that is then run.
+ */
+public class PeepholeOptimizerTest {
+
+    static String toText(JvmInstruction instruction) {
+        var opcode = instruction.getOpcode();
+        var name = opcode.name().toLowerCase();
+
+        return switch (opcode) {
+            case LABEL -> instruction.getLabel() + ":";
+            case IINC -> name + " " + instruction.getValue() + " " + instruction.getIncrement();
+            case ICONST, BIPUSH, SIPUSH, ILOAD, ISTORE, ALOAD, ASTORE -> name + " " + instruction.getValue();
+            case LDC, NEW, NEWARRAY -> name + " " + instruction.getOperand();
+            default -> opcode.isBranch() ? name + " " + instruction.getLabel() : name;
+        };
+    }
+
+    static List<String> toText(JvmCode code) {
+        return code.getInstructions().stream()
+                .map(PeepholeOptimizerTest::toText)
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> optimize(PeepholeRule rule, JvmCode code) {
+        new PeepholeOptimizer(List.of(rule)).optimize(code);
+        return toText(code);
+    }
+
+    /**
+     * if (a - b &lt; 0) return 1, else return 0, with the condition materialized as 0 or 1 and then tested.
+     */
+    private static JvmCode getLessThan() {
+        return new JvmCode()
+                .append(withValue(JvmOpcode.ILOAD, 0))
+                .append(withValue(JvmOpcode.ILOAD, 1))
+                .append(simple(JvmOpcode.ISUB))
+                .append(branch(JvmOpcode.IFLT, "Then"))
+                .append(withValue(JvmOpcode.ICONST, 0))
+                .append(branch(JvmOpcode.GOTO, "EndIf"))
+                .append(label("Then"))
+                .append(withValue(JvmOpcode.ICONST, 1))
+                .append(label("EndIf"))
+                .append(withValue(JvmOpcode.ISTORE, 2))
+                .append(withValue(JvmOpcode.ILOAD, 2))
+                .append(branch(JvmOpcode.IFNE, "True"))
+                .append(withValue(JvmOpcode.ICONST, 0))
+                .append(simple(JvmOpcode.IRETURN))
+                .append(label("True"))
+                .append(withValue(JvmOpcode.ICONST, 1))
+                .append(simple(JvmOpcode.IRETURN));
+    }
+
+    /**
+     * return a &amp;&amp; b, with booleans as 0 or 1 and their sum compared with 2.
+     */
+    private static JvmCode getAnd() {
+        return new JvmCode()
+                .append(withValue(JvmOpcode.ILOAD, 0))
+                .append(withValue(JvmOpcode.ILOAD, 1))
+                .append(simple(JvmOpcode.IADD))
+                .append(withValue(JvmOpcode.ICONST, 2))
+                .append(simple(JvmOpcode.ISUB))
+                .append(branch(JvmOpcode.IFLT, "Then"))
+                .append(withValue(JvmOpcode.ICONST, 1))
+                .append(branch(JvmOpcode.GOTO, "EndIf"))
+                .append(label("Then"))
+                .append(withValue(JvmOpcode.ICONST, 0))
+                .append(label("EndIf"))
+                .append(simple(JvmOpcode.IRETURN));
+    }
+
+    private static int run(JvmCode code, int a, int b) throws ReflectiveOperationException {
+        var method = new JvmMethod(List.of("public", "static"), "run", "(II)I", code);
+        method.setMaxStack(StackAnalysis.getMaxStack(code));
+        method.setMaxLocals(3);
+
+        var jvmClass = new JvmClass(List.of("public"), "Peephole", "java/lang/Object");
+        jvmClass.setDefaultConstructor(true);
+        jvmClass.getMethods().add(method);
+
+        var loadedClass = new ClassFileWriterTest.ClassBytesLoader().load(jvmClass.getName(),
+                new ClassFileWriter().write(jvmClass));
+        return (Integer) loadedClass.getMethod("run", int.class, int.class).invoke(null, a, b);
+    }
+
+    @Test
+    public void andComparisonFusion() {
+        assertEquals(List.of("iload 0", "iload 1", "iadd", "iconst 2", "if_icmplt Then", "iconst 1", "goto EndIf",
+                "Then:", "iconst 0", "EndIf:", "ireturn"), optimize(new CompareBranchRule(), getAnd()));
+    }
+
+    @Test
+    public void overflowingSubtractionIsKept() {
+        // a - b < 0 is not a < b when a - b overflows, as for Integer.MIN_VALUE - 1
+        for (var comparison : List.of(JvmOpcode.IFLT, JvmOpcode.IFGE, JvmOpcode.IFEQ)) {
+            var code = new JvmCode()
+                    .append(withValue(JvmOpcode.ILOAD, 1))
+                    .append(withValue(JvmOpcode.ILOAD, 2))
+                    .append(simple(JvmOpcode.ISUB))
+                    .append(branch(comparison, "L"));
+
+            var expected = toText(code);
+            assertEquals(expected, optimize(new CompareBranchRule(), code));
+        }
+
+        // The sum of two integers, not booleans, may overflow too
+        var sum = new JvmCode()
+                .append(withValue(JvmOpcode.ILOAD, 1))
+                .append(withValue(JvmOpcode.ILOAD, 2))
+                .append(simple(JvmOpcode.IADD))
+                .append(withValue(JvmOpcode.ICONST, 2))
+                .append(simple(JvmOpcode.ISUB))
+                .append(branch(JvmOpcode.IFLT, "L"))
+                .append(simple(JvmOpcode.RETURN));
+
+        var expected = toText(sum);
+        assertEquals(expected, optimize(new CompareBranchRule(), sum));
+    }
+
+    @Test
+    public void overflowingSubtractionKeepsItsResult() throws ReflectiveOperationException {
+        var code = getLessThan();
+        new PeepholeOptimizer(PeepholeOptimizer.getDefaultRules()).optimize(code);
+
+        // Integer.MIN_VALUE - 1 wraps around to Integer.MAX_VALUE, which is not negative
+        assertEquals(0, run(getLessThan(), Integer.MIN_VALUE, 1));
+        assertEquals(0, run(code, Integer.MIN_VALUE, 1));
+        assertEquals(1, run(code, Integer.MAX_VALUE, -1));
+    }
+
+    @Test
+    public void compareWithZeroDropsTheSubtraction() {
+        var code = new JvmCode()
+                .append(withValue(JvmOpcode.ILOAD, 1))
+                .append(withValue(JvmOpcode.ICONST, 0))
+                .append(simple(JvmOpcode.ISUB))
+                .append(branch(JvmOpcode.IFGT, "L"));
+
+        assertEquals(List.of("iload 1", "ifgt L"), optimize(new CompareBranchRule(), code));
+    }
+
+    @Test
+    public void subtractionNotTestedIsKept() {
+        var code = new JvmCode()
+                .append(withValue(JvmOpcode.ILOAD, 1))
+                .append(withValue(JvmOpcode.ILOAD, 2))
+                .append(simple(JvmOpcode.ISUB))
+                .append(withValue(JvmOpcode.ISTORE, 3));
+
+        assertEquals(List.of("iload 1", "iload 2", "isub", "istore 3"), optimize(new CompareBranchRule(), code));
+    }
+
+    @Test
+    public void storeThenLoadOfTheOnlyReadIsRemoved() {
+        var code = new JvmCode()
+                .append(withValue(JvmOpcode.BIPUSH, 10))
+                .append(withValue(JvmOpcode.ISTORE, 2))
+                .append(withValue(JvmOpcode.ILOAD, 2))
+                .append(simple(JvmOpcode.IRETURN));
+
+        assertEquals(List.of("bipush 10", "ireturn"), optimize(new LoadStoreRule(), code));
+    }
+
+    @Test
+    public void storeThenLoadIsKeptWhenReadAgain() {
+        for (var read : List.of(withValue(JvmOpcode.ILOAD, 2), JvmInstruction.iinc(2, 1))) {
+            var code = new JvmCode()
+                    .append(withValue(JvmOpcode.BIPUSH, 10))
+                    .append(withValue(JvmOpcode.ISTORE, 2))
+                    .append(withValue(JvmOpcode.ILOAD, 2))
+                    .append(withValue(JvmOpcode.ISTORE, 3))
+                    .append(read);
+
+            var expected = toText(code);
+            assertEquals(expected, optimize(new LoadStoreRule(), code));
+        }
+    }
+
+    @Test
+    public void loadStoredBackAndPushPoppedAreRemoved() {
+        var code = new JvmCode()
+                .append(withValue(JvmOpcode.ALOAD, 1))
+                .append(withValue(JvmOpcode.ASTORE, 1))
+                .append(withValue(JvmOpcode.SIPUSH, 1000))
+                .append(simple(JvmOpcode.POP))
+                .append(withValue(JvmOpcode.ILOAD, 1))
+                .append(withValue(JvmOpcode.ISTORE, 2))
+                .append(simple(JvmOpcode.RETURN));
+
+        assertEquals(List.of("iload 1", "istore 2", "return"), optimize(new LoadStoreRule(), code));
+    }
+
+    @Test
+    public void booleanMaterialization() {
+        for (var test : List.of(JvmOpcode.IFNE, JvmOpcode.IFEQ)) {
+            var code = new JvmCode()
+                    .append(branch(JvmOpcode.IF_ICMPLT, "Then"))
+                    .append(withValue(JvmOpcode.ICONST, 0))
+                    .append(branch(JvmOpcode.GOTO, "EndIf"))
+                    .append(label("Then"))
+                    .append(withValue(JvmOpcode.ICONST, 1))
+                    .append(label("EndIf"))
+                    .append(branch(test, "L"));
+
+            // Branches to L when the comparison holds for ifne, and when it does not for ifeq
+            var expected = test == JvmOpcode.IFNE ? "if_icmplt L" : "if_icmpge L";
+            assertEquals(List.of(expected), optimize(new BooleanBranchRule(), code));
+        }
+    }
+
+    @Test
+    public void booleanMaterializationIsKeptWhenItsLabelsAreTargeted() {
+        var code = new JvmCode()
+                .append(branch(JvmOpcode.IFLT, "Then"))
+                .append(withValue(JvmOpcode.ICONST, 0))
+                .append(branch(JvmOpcode.GOTO, "EndIf"))
+                .append(label("Then"))
+                .append(withValue(JvmOpcode.ICONST, 1))
+                .append(label("EndIf"))
+                .append(branch(JvmOpcode.IFNE, "L"))
+                .append(branch(JvmOpcode.GOTO, "EndIf"));
+
+        var expected = toText(code);
+        assertEquals(expected, optimize(new BooleanBranchRule(), code));
+    }
+
+    @Test
+    public void branchToNext() {
+        var code = new JvmCode()
+                .append(branch(JvmOpcode.GOTO, "A"))
+                .append(label("A"))
+                .append(branch(JvmOpcode.IFEQ, "B"))
+                .append(label("B"))
+                .append(branch(JvmOpcode.IF_ICMPNE, "D"))
+                .append(label("C"))
+                .append(label("D"))
+                .append(branch(JvmOpcode.GOTO, "A"))
+                .append(simple(JvmOpcode.RETURN));
+
+        // Conditional branches still consume their operands
+        assertEquals(List.of("A:", "pop", "B:", "pop", "pop", "C:", "D:", "goto A", "return"),
+                optimize(new BranchToNextRule(), code));
+    }
+
+    @Test
+    public void defaultRules() throws ReflectiveOperationException {
+        var code = getLessThan();
+        new PeepholeOptimizer(PeepholeOptimizer.getDefaultRules()).optimize(code);
+
+        assertEquals(List.of("iload 0", "iload 1", "isub", "iflt True", "iconst 0", "ireturn", "True:", "iconst 1",
+                "ireturn"), toText(code));
+
+        int[][] operands = { { 1, 2 }, { 2, 1 }, { 3, 3 }, { -5, 4 }, { Integer.MIN_VALUE, 1 },
+                { Integer.MAX_VALUE, -1 } };
+        for (var pair : operands) {
+            assertEquals(pair[0] + " - " + pair[1] + " < 0", run(getLessThan(), pair[0], pair[1]),
+                    run(code, pair[0], pair[1]));
+        }
+    }
+
+    @Test
+    public void defaultRulesOnAnd() throws ReflectiveOperationException {
+        var code = getAnd();
+        new PeepholeOptimizer(PeepholeOptimizer.getDefaultRules()).optimize(code);
+
+        for (int a = 0; a <= 1; a++) {
+            for (int b = 0; b <= 1; b++) {
+                assertEquals(a + " && " + b, a & b, run(code, a, b));
+            }
+        }
+    }
+}
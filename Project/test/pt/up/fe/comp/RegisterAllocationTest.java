@@ -0,0 +1,366 @@
+package pt.up.fe.comp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.specs.comp.ollir.AssignInstruction;
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.InstructionType;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.OllirErrorException;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.SingleOpInstruction;
+import org.specs.comp.ollir.VarScope;
+
+import pt.up.fe.comp.diagnostics.Diagnostics;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.ollir.optimization.LivenessAnalysis;
+import pt.up.fe.comp.ollir.optimization.LivenessResult;
+import pt.up.fe.comp.ollir.optimization.RegisterAllocation;
+import pt.up.fe.comp.ollir.optimization.graph.Graph;
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Liveness analysis and both register allocators, over small OLLIR methods.
+ */
+public class RegisterAllocationTest {
+
+    private static final List<String> ALLOCATORS = List.of("graph", "linear");
+
+    private static final String ALLOCATION_CLASS = "Allocation {\n" +
+            "    .construct Allocation().V {\n" +
+            "        invokespecial(this, \"<init>\").V;\n" +
+            "    }\n" +
+            "\n" +
+            "    .method public static loop(n.i32).i32 {\n" +
+            "k.i32 :=.i32 5.i32;\n" +
+            "s.i32 :=.i32 0.i32;\n" +
+            "i.i32 :=.i32 0.i32;\n" +
+            "if (i.i32 <.bool $1.n.i32) goto body_0;\n" +
+            "goto end_0;\n" +
+            "body_0:\n" +
+            "s.i32 :=.i32 s.i32 +.i32 i.i32;\n" +
+            "i.i32 :=.i32 i.i32 +.i32 1.i32;\n" +
+            "if (i.i32 <.bool $1.n.i32) goto body_0;\n" +
+            "end_0:\n" +
+            "r.i32 :=.i32 s.i32 +.i32 k.i32;\n" +
+            "ret.i32 r.i32;\n" +
+            "    }\n" +
+            "\n" +
+            "    .method public static pressure(n.i32).i32 {\n" +
+            "a.i32 :=.i32 $1.n.i32 +.i32 1.i32;\n" +
+            "b.i32 :=.i32 a.i32 +.i32 2.i32;\n" +
+            "c.i32 :=.i32 b.i32 +.i32 a.i32;\n" +
+            "d.i32 :=.i32 c.i32 *.i32 b.i32;\n" +
+            "e.i32 :=.i32 d.i32 +.i32 a.i32;\n" +
+            "f.i32 :=.i32 e.i32 +.i32 b.i32;\n" +
+            "g.i32 :=.i32 f.i32 +.i32 c.i32;\n" +
+            "h.i32 :=.i32 g.i32 +.i32 d.i32;\n" +
+            "ret.i32 h.i32;\n" +
+            "    }\n" +
+            "\n" +
+            "    .method public static copies(n.i32).i32 {\n" +
+            "a.i32 :=.i32 $1.n.i32 +.i32 1.i32;\n" +
+            "b.i32 :=.i32 a.i32;\n" +
+            "c.i32 :=.i32 b.i32;\n" +
+            "ret.i32 c.i32;\n" +
+            "    }\n" +
+            "\n" +
+            "    .method public static retried(n.i32).i32 {\n" +
+            "a.i32 :=.i32 $1.n.i32 +.i32 1.i32;\n" +
+            "b.i32 :=.i32 a.i32 +.i32 2.i32;\n" +
+            "c.i32 :=.i32 b.i32;\n" +
+            "d.i32 :=.i32 a.i32 +.i32 c.i32;\n" +
+            "e.i32 :=.i32 d.i32 +.i32 b.i32;\n" +
+            "ret.i32 e.i32;\n" +
+            "    }\n" +
+            "}\n";
+
+    private static final List<String> FIXTURES = List.of("3_ollir/arithmetic/Arithmetic_and.jmm",
+            "3_ollir/arrays/ComplexArrayAccess.jmm", "3_ollir/basic/BasicMethodsArray.jmm",
+            "3_ollir/calls/PrintOtherClassFromParam.jmm", "3_ollir/control_flow/SimpleIfElseStat.jmm",
+            "3_ollir/control_flow/SimpleWhileStat.jmm", "3_ollir/control_flow/SwitchStat.jmm",
+            "5_optimizations/const_prop/PropWithIf.jmm", "5_optimizations/const_prop/PropWithLoop.jmm",
+            "5_optimizations/reg_alloc/regalloc.jmm", "5_optimizations/while_template/WhileOpt.jmm");
+
+    // Positions of the instructions of 'loop'
+    private static final int BEFORE_LOOP = 3;
+    private static final int LOOP_BODY = 5;
+    private static final int BACK_EDGE = 7;
+    private static final int AFTER_LOOP = 8;
+
+    private static ClassUnit parse() {
+        return new OllirResult(ALLOCATION_CLASS, new HashMap<>()).getOllirClass();
+    }
+
+    private static Method getMethod(ClassUnit ollirClass, String methodName) {
+        return ollirClass.getMethods().stream()
+                .filter(method -> method.getMethodName().equals(methodName))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static Method getAnalysedMethod(String methodName) throws OllirErrorException {
+        var ollirClass = parse();
+        ollirClass.checkMethodLabels();
+        ollirClass.buildCFGs();
+        ollirClass.buildVarTables();
+
+        return getMethod(ollirClass, methodName);
+    }
+
+    private static LivenessResult analyse(String methodName) throws OllirErrorException {
+        return new LivenessAnalysis().analyse(getAnalysedMethod(methodName));
+    }
+
+    private static Method allocate(String methodName, String allocator, int n) {
+        var ollirClass = parse();
+        new RegisterAllocation(ollirClass, allocator.equals("linear"), Diagnostics.disabled()).allocate(n);
+
+        return getMethod(ollirClass, methodName);
+    }
+
+    private static int getNumberOfRegisters(Method method) {
+        return method.getVarTable().values().stream()
+                .mapToInt(descriptor -> descriptor.getVirtualReg() + 1)
+                .max()
+                .orElse(0);
+    }
+
+    private static int getRegister(Method method, String name) {
+        return method.getVarTable().get(name).getVirtualReg();
+    }
+
+    /**
+     * A variable defined by an instruction must not share a register with another one live after it, unless it is
+     * the source of a copy, and locals must not take the registers of parameters.
+     */
+    private static void assertInterferenceFree(Method method, String message) {
+        var liveness = new LivenessAnalysis().analyse(method);
+
+        for (int instruction = 0; instruction < liveness.getNumberOfInstructions(); instruction++) {
+            var moveSource = getMoveSource(liveness, instruction);
+
+            for (var defined : liveness.getNames(liveness.getDef(instruction))) {
+                for (var live : liveness.getNames(liveness.getOut(instruction))) {
+                    if (live.equals(defined) || live.equals(moveSource)) continue;
+
+                    assertNotEquals(message + ": '" + defined + "' and '" + live + "' interfere",
+                            getRegister(method, defined), getRegister(method, live));
+                }
+            }
+        }
+
+        for (var local : method.getVarTable().entrySet()) {
+            if (local.getValue().getScope() != VarScope.LOCAL) continue;
+
+            for (var other : method.getVarTable().entrySet()) {
+                if (other.getValue().getScope() == VarScope.LOCAL) continue;
+
+                assertNotEquals(message + ": '" + local.getKey() + "' takes the register of '" + other.getKey() + "'",
+                        other.getValue().getVirtualReg(), local.getValue().getVirtualReg());
+            }
+        }
+    }
+
+    private static String getMoveSource(LivenessResult liveness, int instruction) {
+        var inst = liveness.getInstructions().get(instruction);
+        if (inst.getInstType() != InstructionType.ASSIGN) return null;
+
+        var rhs = ((AssignInstruction) inst).getRhs();
+        if (rhs.getInstType() != InstructionType.NOPER) return null;
+
+        var source = ((SingleOpInstruction) rhs).getSingleOperand();
+        return source.isLiteral() ? null : ((Operand) source).getName();
+    }
+
+    private static JasminResult getRegAllocResult(String allocator, int n) {
+        Map<String, String> config = new HashMap<>();
+        config.put("registerAllocation", String.valueOf(n));
+        config.put("registerAllocator", allocator);
+
+        return TestUtils.backend(SpecsIo.getResource("fixtures/public/cpf/5_optimizations/reg_alloc/regalloc.jmm"),
+                config);
+    }
+
+    @Test
+    public void loopCarriedVariablesAreLiveAroundTheLoop() throws OllirErrorException {
+        var liveness = analyse("loop");
+
+        for (var name : List.of("s", "i")) {
+            assertTrue(name + " is live at the start of the body", liveness.isLiveIn(LOOP_BODY, name));
+            assertTrue(name + " is live over the back-edge", liveness.isLiveOut(BACK_EDGE, name));
+        }
+
+        assertFalse("i is dead after the loop", liveness.isLiveIn(AFTER_LOOP, "i"));
+        assertTrue("s is live after the loop", liveness.isLiveIn(AFTER_LOOP, "s"));
+    }
+
+    @Test
+    public void variablesUsedAfterTheLoopAreLiveAcrossTheBackEdge() throws OllirErrorException {
+        var liveness = analyse("loop");
+
+        // 'k' is not used inside the loop, but the loop may run again before its use
+        assertTrue(liveness.isLiveIn(BEFORE_LOOP, "k"));
+        assertTrue(liveness.isLiveIn(LOOP_BODY, "k"));
+        assertTrue(liveness.isLiveOut(BACK_EDGE, "k"));
+        assertTrue(liveness.isLiveIn(AFTER_LOOP, "k"));
+
+        assertTrue("parameters are live over the back-edge", liveness.isLiveOut(BACK_EDGE, "n"));
+        assertFalse("r is only defined after the loop", liveness.isLiveIn(LOOP_BODY, "r"));
+    }
+
+    @Test
+    public void loopDepth() throws OllirErrorException {
+        var liveness = analyse("loop");
+
+        assertEquals(0, liveness.getLoopDepth(BEFORE_LOOP));
+        assertEquals(1, liveness.getLoopDepth(LOOP_BODY));
+        assertEquals(1, liveness.getLoopDepth(BACK_EDGE));
+        assertEquals(0, liveness.getLoopDepth(AFTER_LOOP));
+    }
+
+    @Test
+    public void coloringIsInterferenceFree() {
+        for (var allocator : ALLOCATORS) {
+            for (var n : List.of(0, 1, 2, 3, 4, 6)) {
+                for (var methodName : List.of("loop", "pressure", "copies", "retried")) {
+                    var method = allocate(methodName, allocator, n);
+                    assertInterferenceFree(method, allocator + " -r=" + n + " in " + methodName);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void minimumRegisters() {
+        // At most 4 locals of 'pressure' are live at once, and the parameter keeps register 0
+        for (var allocator : ALLOCATORS) {
+            var method = allocate("pressure", allocator, 0);
+
+            assertEquals(allocator, 5, getNumberOfRegisters(method));
+        }
+    }
+
+    @Test
+    public void linearScanAgreesWithGraphColoringOnFixtures() throws OllirErrorException {
+        for (var fixture : FIXTURES) {
+            var ollirCode = TestUtils.optimize(SpecsIo.getResource("fixtures/public/cpf/" + fixture)).getOllirCode();
+
+            var unallocated = new OllirResult(ollirCode, new HashMap<>()).getOllirClass();
+            unallocated.checkMethodLabels();
+            unallocated.buildCFGs();
+            unallocated.buildVarTables();
+
+            Map<String, ClassUnit> allocated = new HashMap<>();
+            for (var allocator : ALLOCATORS) {
+                var ollirClass = new OllirResult(ollirCode, new HashMap<>()).getOllirClass();
+                new RegisterAllocation(ollirClass, allocator.equals("linear"), Diagnostics.disabled()).allocate(0);
+                allocated.put(allocator, ollirClass);
+            }
+
+            for (var method : unallocated.getMethods()) {
+                var methodName = method.getMethodName();
+                var graph = getMethod(allocated.get("graph"), methodName);
+                var linear = getMethod(allocated.get("linear"), methodName);
+
+                assertInterferenceFree(graph, "graph in " + fixture + "#" + methodName);
+                assertInterferenceFree(linear, "linear in " + fixture + "#" + methodName);
+
+                // Both allocate the same variables, and neither needs more registers than one per variable
+                assertEquals(fixture + "#" + methodName, graph.getVarTable().keySet(), linear.getVarTable().keySet());
+                assertTrue(fixture + "#" + methodName,
+                        getNumberOfRegisters(linear) <= getNumberOfRegisters(method));
+                assertTrue(fixture + "#" + methodName,
+                        getNumberOfRegisters(graph) <= getNumberOfRegisters(method));
+            }
+        }
+    }
+
+    @Test
+    public void coalescedCopiesShareARegister() {
+        for (var n : List.of(0, 2, 4)) {
+            var method = allocate("copies", "graph", n);
+
+            assertEquals(getRegister(method, "a"), getRegister(method, "b"));
+            assertEquals(getRegister(method, "b"), getRegister(method, "c"));
+        }
+    }
+
+    @Test
+    public void retriedColoringMatchesAFreshGraph() throws OllirErrorException {
+        // Each k tried when minimizing starts from the graph before coalescing, so it colors as a fresh one would
+        for (var methodName : List.of("loop", "pressure", "copies", "retried")) {
+            var minimized = getAnalysedMethod(methodName);
+            new Graph(new LivenessAnalysis().analyse(minimized), minimized).applyColoring(0, true);
+
+            // The first k that a fresh graph colors without spilling
+            Method fresh;
+            Graph graph;
+            int k = 0;
+            do {
+                fresh = getAnalysedMethod(methodName);
+                graph = new Graph(new LivenessAnalysis().analyse(fresh), fresh);
+                graph.applyColoring(++k, false);
+            } while (graph.getNumberOfSpilled() > 0);
+
+            for (var name : minimized.getVarTable().keySet()) {
+                assertEquals(methodName + ": " + name, getRegister(fresh, name), getRegister(minimized, name));
+            }
+        }
+    }
+
+    @Test
+    public void coalescedMovesDisappear() {
+        // 'a', 'b', 'c' and 'd' are copies of each other, so they share one register and only 'a' is stored
+        var jasminResult = getRegAllocResult("graph", 0);
+        var method = CpUtils.getJasminMethod(jasminResult, "soManyRegisters");
+
+        assertEquals(method, 1, method.split("istore").length - 1);
+        assertEquals(method, 1, method.split("iload").length - 1);
+    }
+
+    @Test
+    public void limitLocalsAtEachAllocator() {
+        for (var allocator : ALLOCATORS) {
+            var method = CpUtils.getJasminMethod(getRegAllocResult(allocator, 3), "soManyRegisters");
+            CpUtils.matches(method, "\\.limit\\s+locals\\s+3");
+        }
+    }
+
+    @Test
+    public void spillingWarns() {
+        // 'this', the parameter and the local copies need 3 locals, more than 2
+        for (var allocator : ALLOCATORS) {
+            var jasminResult = getRegAllocResult(allocator, 2);
+            TestUtils.noErrors(jasminResult);
+
+            var warnings = jasminResult.getReports().stream()
+                    .filter(report -> report.getType() == ReportType.WARNING)
+                    .collect(Collectors.toList());
+            assertEquals(allocator + ": " + warnings, 1, warnings.size());
+            assertTrue(warnings.get(0).getMessage().contains("'soManyRegisters' needs 3 locals"));
+
+            var method = CpUtils.getJasminMethod(jasminResult, "soManyRegisters");
+            CpUtils.matches(method, "\\.limit\\s+locals\\s+3");
+        }
+    }
+
+    @Test
+    public void noWarningWithinTheLimit() {
+        for (var allocator : ALLOCATORS) {
+            var jasminResult = getRegAllocResult(allocator, 3);
+            assertTrue(jasminResult.getReports().stream().noneMatch(report -> report.getType() == ReportType.WARNING));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package pt.up.fe.comp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.branch;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.iinc;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.label;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.member;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.simple;
+import static pt.up.fe.comp.jasmin.model.JvmInstruction.withValue;
+
+import org.junit.Test;
+
+import pt.up.fe.comp.jasmin.StackAnalysis;
+import pt.up.fe.comp.jasmin.model.JvmCode;
+import pt.up.fe.comp.jasmin.model.JvmOpcode;
+
+/**
+ * Stack depths propagated by {@link StackAnalysis} along branches, merged at labels, and the code it rejects.
+ */
+public class StackAnalysisTest {
+
+    private static void assertRejected(JvmCode code, String expectedMessage) {
+        try {
+            StackAnalysis.getMaxStack(code);
+            fail("Expected an exception with '" + expectedMessage + "'");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(expectedMessage));
+        }
+    }
+
+    @Test
+    public void emptyCode() {
+        assertEquals(0, StackAnalysis.getMaxStack(new JvmCode()));
+    }
+
+    @Test
+    public void straightLine() {
+        var code = new JvmCode()
+                .append(withValue(JvmOpcode.ICONST, 1))
+                .append(withValue(JvmOpcode.ICONST, 2))
+                .append(withValue(JvmOpcode.ICONST, 3))
+                .append(simple(JvmOpcode.IMUL))
+                .append(simple(JvmOpcode.IADD))
+                .append(simple(JvmOpcode.IRETURN));
+
+        assertEquals(3, StackAnalysis.getMaxStack(code));
+    }
+
+    @Test
+    public void branchesMergeAtTheirLabel() {
+        // Both sides of the if leave one value for the return after 'end'
+        var code = new JvmCode()
+                .append(withValue(JvmOpcode.ILOAD, 0))
+                .append(branch(JvmOpcode.IFEQ, "else"))
+                .append(withValue(JvmOpcode.ICONST, 1))
+                .append(branch(JvmOpcode.GOTO, "end"))
+                .append(label("else"))
+                .append(withValue(JvmOpcode.ICONST, 2))
+                .append(label("end"))
+                .append(simple(JvmOpcode.IRETURN));
+
+        assertEquals(1, StackAnalysis.getMaxStack(code));
+    }
+
+    @Test
+    public void deepestBranchGivesTheMaximum() {
+        var code = new JvmCode()
+                .append(withValue(JvmOpcode.ILOAD, 0))
+                .append(branch(JvmOpcode.IFNE, "deep"))
+                .append(withValue(JvmOpcode.ICONST, 0))
+                .append(simple(JvmOpcode.IRETURN))
+                .append(label("deep"))
+                .append(withValue(JvmOpcode.ILOAD, 0))
+                .append(withValue(JvmOpcode.ILOAD, 0))
+                .append(withValue(JvmOpcode.ILOAD, 0))
+                .append(withValue(JvmOpcode.ILOAD, 0))
+                .append(simple(JvmOpcode.IADD))
+                .append(simple(JvmOpcode.IADD))
+                .append(simple(JvmOpcode.IADD))
+                .append(simple(JvmOpcode.IRETURN));
+
+        assertEquals(4, StackAnalysis.getMaxStack(code));
+    }
+
+    @Test
+    public void loopsReachTheirHeaderWithTheSameDepth() {
+        var code = new JvmCode()
+                .append(label("loop"))
+                .append(withValue(JvmOpcode.ILOAD, 0))
+                .append(withValue(JvmOpcode.ICONST, 5))
+                .append(branch(JvmOpcode.IF_ICMPGE, "end"))
+                .append(iinc(0, 1))
+                .append(branch(JvmOpcode.GOTO, "loop"))
+                .append(label("end"))
+                .append(withValue(JvmOpcode.ILOAD, 0))
+                .append(simple(JvmOpcode.IRETURN));
+
+        assertEquals(2, StackAnalysis.getMaxStack(code));
+    }
+
+    @Test
+    public void unreachableCodeIsNotCounted() {
+        var code = new JvmCode()
+                .append(branch(JvmOpcode.GOTO, "end"))
+                .append(withValue(JvmOpcode.ICONST, 1))
+                .append(withValue(JvmOpcode.ICONST, 2))
+                .append(withValue(JvmOpcode.ICONST, 3))
+                .append(label("end"))
+                .append(simple(JvmOpcode.RETURN));
+
+        assertEquals(0, StackAnalysis.getMaxStack(code));
+    }
+
+    @Test
+    public void differentDepthsAtALabelAreRejected() {
+        // The branch reaches 'join' with nothing on the stack, the fall-through with one value
+        var code = new JvmCode()
+                .append(withValue(JvmOpcode.ILOAD, 0))
+                .append(branch(JvmOpcode.IFEQ, "join"))
+                .append(withValue(JvmOpcode.ICONST, 1))
+                .append(label("join"))
+                .append(simple(JvmOpcode.RETURN));
+
+        assertRejected(code, "Inconsistent stack depth");
+    }
+
+    @Test
+    public void underflowIsRejectedEvenWithANonNegativeResult() {
+        // 'iadd' leaves the stack at depth 0, but pops two values from one
+        var code = new JvmCode()
+                .append(withValue(JvmOpcode.ICONST, 1))
+                .append(simple(JvmOpcode.IADD))
+                .append(simple(JvmOpcode.IRETURN));
+
+        assertRejected(code, "Stack underflow at " + JvmOpcode.IADD.getMnemonic());
+    }
+
+    @Test
+    public void invokeUnderflowIsRejected() {
+        var code = new JvmCode()
+                .append(withValue(JvmOpcode.ICONST, 1))
+                .append(member(JvmOpcode.INVOKESTATIC, "Other", "sum", "(II)I"))
+                .append(simple(JvmOpcode.IRETURN));
+
+        assertRejected(code, "Stack underflow at " + JvmOpcode.INVOKESTATIC.getMnemonic());
+    }
+
+    @Test
+    public void underflowIsRejected() {
+        var code = new JvmCode()
+                .append(simple(JvmOpcode.POP))
+                .append(simple(JvmOpcode.RETURN));
+
+        assertRejected(code, "Stack underflow at " + JvmOpcode.POP.getMnemonic());
+    }
+
+    @Test
+    public void underflowOnABranchIsRejected() {
+        // Only the path through the branch pops more than it has
+        var code = new JvmCode()
+                .append(withValue(JvmOpcode.ILOAD, 0))
+                .append(branch(JvmOpcode.IFEQ, "pop"))
+                .append(simple(JvmOpcode.RETURN))
+                .append(label("pop"))
+                .append(simple(JvmOpcode.POP))
+                .append(simple(JvmOpcode.RETURN));
+
+        assertRejected(code, "Stack underflow");
+    }
+
+    @Test
+    public void undefinedLabelIsRejected() {
+        var code = new JvmCode()
+                .append(branch(JvmOpcode.GOTO, "missing"))
+                .append(simple(JvmOpcode.RETURN));
+
+        assertRejected(code, "Undefined label missing");
+    }
+}
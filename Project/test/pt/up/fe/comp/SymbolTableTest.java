@@ -0,0 +1,178 @@
+package pt.up.fe.comp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import pt.up.fe.comp.analysis.ScopedSymbol;
+import pt.up.fe.comp.analysis.SymbolTableMap;
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.ollir.OllirUtils;
+
+/**
+ * Variables resolved by {@link SymbolTableMap#lookup}, and the names given to them in OLLIR code.
+ */
+public class SymbolTableTest {
+
+    private static final Type INT = new Type("int", false);
+    private static final Type BOOLEAN = new Type("boolean", false);
+    private static final Type INT_ARRAY = new Type("int", true);
+
+    private static final String PROGRAM = "import io;\n" +
+            "class Scopes {\n" +
+            "\tint a;\n" +
+            "\tint b;\n" +
+            "\tint c;\n" +
+            "\tpublic int foo(int b, int c) {\n" +
+            "\t\tint c;\n" +
+            "\t\tint d;\n" +
+            "\t\tc = 3;\n" +
+            "\t\td = a + b;\n" +
+            "\t\td = d + c;\n" +
+            "\t\treturn d;\n" +
+            "\t}\n" +
+            "\tpublic static void main(String[] args) {\n" +
+            "\t\tint b;\n" +
+            "\t\tb = 1;\n" +
+            "\t\tio.println(b);\n" +
+            "\t}\n" +
+            "}\n";
+
+    /**
+     * Fields a, b and c; foo(int b, boolean c) with the local int[] c; bar(int p, int q, boolean r); and main with the
+     * local b.
+     */
+    private static SymbolTableMap newSymbolTable() {
+        var symbolTable = new SymbolTableMap();
+        symbolTable.addImport("io");
+        symbolTable.addImport("pt.up.Other");
+        symbolTable.setClassName("Scopes");
+
+        symbolTable.addField(new Symbol(INT, "a"));
+        symbolTable.addField(new Symbol(INT, "b"));
+        symbolTable.addField(new Symbol(INT, "c"));
+
+        symbolTable.addMethod("foo", INT, List.of(new Symbol(INT, "b"), new Symbol(BOOLEAN, "c")),
+                List.of(new Symbol(INT_ARRAY, "c")));
+        symbolTable.addMethod("bar", INT,
+                List.of(new Symbol(INT, "p"), new Symbol(INT, "q"), new Symbol(BOOLEAN, "r")), List.of());
+        symbolTable.addMethod("main", new Type("void", false), List.of(new Symbol(new Type("String", true), "args")),
+                List.of(new Symbol(INT, "b")));
+
+        return symbolTable;
+    }
+
+    private static void assertSymbol(ScopedSymbol symbol, ScopedSymbol.Scope scope, Type type) {
+        assertEquals(scope, symbol.getScope());
+        assertEquals(type, symbol.getType());
+    }
+
+    private static List<String> getIdentifierInfo(SymbolTableMap symbolTable, String method, String name,
+            boolean isField) {
+        var identifier = new JmmNodeImpl("Identifier");
+        identifier.put("name", name);
+
+        List<String> info = new ArrayList<>();
+        assertEquals(method + ": " + name, isField,
+                OllirUtils.getIdentifierInfo(identifier, symbolTable, method, info));
+        return info;
+    }
+
+    @Test
+    public void localsHideParametersWhichHideFields() {
+        var symbolTable = newSymbolTable();
+
+        assertSymbol(symbolTable.lookup("foo", "c"), ScopedSymbol.Scope.LOCAL, INT_ARRAY);
+        assertSymbol(symbolTable.lookup("foo", "b"), ScopedSymbol.Scope.PARAMETER, INT);
+        assertSymbol(symbolTable.lookup("foo", "a"), ScopedSymbol.Scope.FIELD, INT);
+        assertSymbol(symbolTable.lookup("bar", "b"), ScopedSymbol.Scope.FIELD, INT);
+        assertNull(symbolTable.lookup("foo", "d"));
+    }
+
+    @Test
+    public void fieldsAreNotVisibleInMain() {
+        var symbolTable = newSymbolTable();
+
+        assertNull(symbolTable.lookup("main", "a"));
+        assertNull(symbolTable.lookup("main", "c"));
+        assertSymbol(symbolTable.lookup("main", "b"), ScopedSymbol.Scope.LOCAL, INT);
+        assertSymbol(symbolTable.lookup("main", "args"), ScopedSymbol.Scope.PARAMETER, new Type("String", true));
+    }
+
+    @Test
+    public void firstDeclarationIsUsed() {
+        var symbolTable = newSymbolTable();
+        symbolTable.addField(new Symbol(BOOLEAN, "a"));
+        symbolTable.addMethod("twice", INT, List.of(new Symbol(INT, "x"), new Symbol(BOOLEAN, "x")),
+                List.of(new Symbol(BOOLEAN, "y"), new Symbol(INT, "y")));
+
+        assertSymbol(symbolTable.lookup("twice", "a"), ScopedSymbol.Scope.FIELD, INT);
+        assertSymbol(symbolTable.lookup("twice", "x"), ScopedSymbol.Scope.PARAMETER, INT);
+        assertEquals(1, symbolTable.lookup("twice", "x").getIndex());
+        assertSymbol(symbolTable.lookup("twice", "y"), ScopedSymbol.Scope.LOCAL, BOOLEAN);
+    }
+
+    @Test
+    public void importsAndMethods() {
+        var symbolTable = newSymbolTable();
+
+        assertTrue(symbolTable.hasImport("io"));
+        assertTrue(symbolTable.hasImport("Other"));
+        assertFalse(symbolTable.hasImport("up"));
+        assertFalse(symbolTable.hasImport("Scopes"));
+
+        assertTrue(symbolTable.hasMethod("bar"));
+        assertFalse(symbolTable.hasMethod("baz"));
+    }
+
+    @Test
+    public void parameterNumbering() {
+        var symbolTable = newSymbolTable();
+
+        assertEquals(List.of("$1.p", "i32"), getIdentifierInfo(symbolTable, "bar", "p", false));
+        assertEquals(List.of("$2.q", "i32"), getIdentifierInfo(symbolTable, "bar", "q", false));
+        assertEquals(List.of("$3.r", "bool"), getIdentifierInfo(symbolTable, "bar", "r", false));
+
+        // The parameter c of foo is hidden by the local
+        assertEquals(List.of("$1.b", "i32"), getIdentifierInfo(symbolTable, "foo", "b", false));
+        assertEquals(List.of("c", "array.i32"), getIdentifierInfo(symbolTable, "foo", "c", false));
+        assertEquals(List.of("a", "i32"), getIdentifierInfo(symbolTable, "foo", "a", true));
+
+        assertEquals(List.of("$1.args", "array.String"), getIdentifierInfo(symbolTable, "main", "args", false));
+        assertEquals(List.of(), getIdentifierInfo(symbolTable, "main", "a", false));
+    }
+
+    @Test
+    public void ollirNames() {
+        var ollirResult = TestUtils.optimize(PROGRAM);
+        TestUtils.noErrors(ollirResult);
+        var ollirCode = ollirResult.getOllirCode();
+
+        assertTrue(ollirCode, ollirCode.contains("getfield(this, a.i32).i32"));
+        assertTrue(ollirCode, ollirCode.contains("$1.b.i32"));
+        assertTrue(ollirCode, ollirCode.contains("c.i32 :=.i32 3.i32;"));
+        assertFalse(ollirCode, ollirCode.contains("$2.c"));
+        assertFalse(ollirCode, ollirCode.contains("getfield(this, b.i32)"));
+    }
+
+    @Test
+    public void fieldsAreUndefinedInMain() {
+        // The field is read in an assignment, as the arguments of calls to imported classes are not typed
+        var code = PROGRAM.replace("b = 1;", "b = a;");
+        var reports = TestUtils.analyse(code).getReports();
+        TestUtils.mustFail(reports);
+
+        var errors = reports.stream().filter(report -> report.getType() == ReportType.ERROR).toList();
+        assertTrue(errors.toString(), errors.stream()
+                .anyMatch(report -> report.getMessage().contains("Variable a not defined, in main")));
+    }
+}
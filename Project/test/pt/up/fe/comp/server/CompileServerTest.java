@@ -0,0 +1,215 @@
+package pt.up.fe.comp.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Requests sent to a {@link CompileServer} on a Unix domain socket: the compilation round trip, the tokens it rejects
+ * and the length prefixes over the limits of the {@link Protocol}.
+ */
+public class CompileServerTest {
+
+    private static final String TOKEN = "secret";
+
+    private static final String CODE = "import io;\n" +
+            "class Served {\n" +
+            "\tpublic static void main(String[] args) {\n" +
+            "\t\tio.println(3);\n" +
+            "\t}\n" +
+            "}\n";
+
+    private String address;
+    private CompileServer server;
+    private Thread serverThread;
+
+    @Before
+    public void startServer() throws IOException {
+        var folder = Files.createTempDirectory("server").toFile();
+        folder.deleteOnExit();
+        address = folder.toPath().resolve("test.sock").toString();
+
+        Map<String, String> config = new HashMap<>();
+        config.put("server", address);
+        config.put("threads", "1");
+        server = new CompileServer(config, TOKEN.getBytes(StandardCharsets.UTF_8));
+
+        serverThread = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        serverThread.start();
+    }
+
+    @After
+    public void stopServer() throws IOException, InterruptedException {
+        server.close();
+        serverThread.join();
+    }
+
+    private CompileResponse send(CompileRequest request) throws IOException {
+        return new CompileClient(address).send(request);
+    }
+
+    private static Map<String, String> getConfig() {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "true");
+        config.put("registerAllocation", "0");
+        return config;
+    }
+
+    /**
+     * Sends the given bytes as they are, and reads the response.
+     */
+    private CompileResponse sendRaw(byte[] bytes) throws IOException {
+        try (var channel = CompileServer.connect(CompileServer.getAddress(address))) {
+            var out = new DataOutputStream(Channels.newOutputStream(channel));
+            out.write(bytes);
+            out.flush();
+            return CompileResponse.read(new DataInputStream(Channels.newInputStream(channel)));
+        }
+    }
+
+    private static DataOutputStream writeHeader(ByteArrayOutputStream bytes, String token) throws IOException {
+        var out = new DataOutputStream(bytes);
+        out.writeInt(Protocol.VERSION);
+        out.writeInt(Protocol.COMPILE);
+        Protocol.writeString(out, token);
+        return out;
+    }
+
+    private static void assertRejectedToken(CompileResponse response) {
+        assertFalse(response.isSuccess());
+        assertEquals("Invalid compile server token", response.getErrorMessage());
+    }
+
+    @Test(timeout = 60000)
+    public void compilesToJasminCode() throws IOException {
+        var response = send(CompileRequest.newCompile(CODE, getConfig(), false, TOKEN));
+
+        assertTrue(response.getErrorMessage(), response.isSuccess());
+        assertEquals("Served", response.getClassName());
+        assertTrue(response.getJasminCode(), response.getJasminCode().contains(".class public Served"));
+        assertNull(response.getClassBytes());
+    }
+
+    @Test(timeout = 60000)
+    public void compilesToAClassFile() throws IOException {
+        var response = send(CompileRequest.newCompile(CODE, getConfig(), true, TOKEN));
+
+        assertTrue(response.getErrorMessage(), response.isSuccess());
+        assertEquals("Served", response.getClassName());
+        assertNull(response.getJasminCode());
+
+        var in = new DataInputStream(new ByteArrayInputStream(response.getClassBytes()));
+        assertEquals(0xCAFEBABE, in.readInt());
+    }
+
+    @Test(timeout = 60000)
+    public void wrongTokenIsRejected() throws IOException {
+        assertRejectedToken(send(CompileRequest.newCompile(CODE, getConfig(), false, "wrong")));
+        assertRejectedToken(send(CompileRequest.newCompile(CODE, getConfig(), false, TOKEN + TOKEN)));
+        assertRejectedToken(send(CompileRequest.newCompile(CODE, getConfig(), false, null)));
+        assertRejectedToken(send(CompileRequest.newStop("wrong")));
+
+        // The server still runs
+        assertTrue(send(CompileRequest.newCompile(CODE, getConfig(), false, TOKEN)).isSuccess());
+    }
+
+    @Test(timeout = 60000)
+    public void tokenIsCheckedBeforeTheRest() throws IOException {
+        // Nothing follows the token, so the server only answers if it does not read further
+        var bytes = new ByteArrayOutputStream();
+        writeHeader(bytes, "wrong").flush();
+
+        assertRejectedToken(sendRaw(bytes.toByteArray()));
+    }
+
+    @Test(timeout = 60000)
+    public void lengthsOverTheLimitAreRejected() throws IOException {
+        var tooManyEntries = new ByteArrayOutputStream();
+        writeHeader(tooManyEntries, TOKEN).writeInt(Integer.MAX_VALUE);
+
+        var tooLongSource = new ByteArrayOutputStream();
+        var out = writeHeader(tooLongSource, TOKEN);
+        out.writeInt(0);
+        out.writeInt(Protocol.MAX_SOURCE_LENGTH + 1);
+
+        var tooLongToken = new ByteArrayOutputStream();
+        out = new DataOutputStream(tooLongToken);
+        out.writeInt(Protocol.VERSION);
+        out.writeInt(Protocol.COMPILE);
+        out.writeInt(Integer.MAX_VALUE);
+
+        // The server closes the connection without answering, and without waiting for the announced bytes
+        for (var bytes : new ByteArrayOutputStream[] { tooManyEntries, tooLongSource, tooLongToken }) {
+            try {
+                sendRaw(bytes.toByteArray());
+                fail("Expected the server to close the connection");
+            } catch (IOException e) {
+                // Expected
+            }
+        }
+
+        assertTrue(send(CompileRequest.newCompile(CODE, getConfig(), false, TOKEN)).isSuccess());
+    }
+
+    @Test(timeout = 60000)
+    public void stopsTheServer() throws IOException, InterruptedException {
+        assertTrue(send(CompileRequest.newStop(TOKEN)).isSuccess());
+
+        serverThread.join();
+        try {
+            send(CompileRequest.newStop(TOKEN));
+            fail("Expected the server to be stopped");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void protocolChecksLimitsBeforeAllocating() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        Protocol.writeString(out, "four");
+        out.writeInt(Integer.MAX_VALUE);
+        out.writeInt(-1);
+
+        var in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals("four", Protocol.readString(in, 4));
+
+        try {
+            Protocol.readBytes(in, Protocol.MAX_SOURCE_LENGTH);
+            fail("Expected a length over the limit to be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("over the limit"));
+        }
+
+        try {
+            Protocol.readCount(in, Protocol.MAX_CONFIG_ENTRIES);
+            fail("Expected a negative count to be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Negative count"));
+        }
+    }
+}